@@ -1,7 +1,9 @@
 plugins {
     id("java")
+    id("java-test-fixtures")
     id("com.diffplug.spotless") version "6.25.0"
     id("maven-publish")
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 // For JitPack: com.github.timeless-sdk:java-sdk:VERSION
@@ -18,6 +20,39 @@ repositories {
     mavenCentral()
 }
 
+// Open-loop load test against a local PGS stand-in, kept out of the regular test run
+sourceSets {
+    create("loadTest") {
+        compileClasspath += sourceSets.main.get().output
+        runtimeClasspath += sourceSets.main.get().output
+    }
+}
+
+configurations["loadTestImplementation"].extendsFrom(configurations.implementation.get())
+
+// Java 21 layer of the multi-release JAR: classes in src/main/java21 replace their Java 11
+// versions in META-INF/versions/21 when the JAR runs on Java 21 or later
+val java21: SourceSet by sourceSets.creating {
+    java.setSrcDirs(listOf("src/main/java21"))
+    compileClasspath += sourceSets.main.get().output
+}
+
+configurations["java21Implementation"].extendsFrom(configurations.implementation.get())
+
+tasks.named<JavaCompile>("compileJava21Java") {
+    javaCompiler.set(javaToolchains.compilerFor { languageVersion.set(JavaLanguageVersion.of(21)) })
+    options.release.set(21)
+}
+
+tasks.jar {
+    into("META-INF/versions/21") {
+        from(java21.output)
+    }
+    manifest {
+        attributes("Multi-Release" to "true")
+    }
+}
+
 dependencies {
     // HTTP Client
     implementation("com.squareup.okhttp3:okhttp:4.12.0")
@@ -37,15 +72,55 @@ dependencies {
     testImplementation("org.mockito:mockito-core:5.11.0")
     testImplementation("org.mockito:mockito-junit-jupiter:5.11.0")
     testImplementation("com.squareup.okhttp3:mockwebserver:4.12.0")
+
+    "loadTestImplementation"("com.squareup.okhttp3:mockwebserver:4.12.0")
+
+    // PGS simulator in src/testFixtures, published as the test-fixtures variant
+    testFixturesImplementation("com.squareup.okhttp3:okhttp:4.12.0")
+    testFixturesImplementation("com.squareup.okhttp3:mockwebserver:4.12.0")
+    testFixturesImplementation("com.fasterxml.jackson.core:jackson-databind:2.16.1")
+    testFixturesImplementation("com.fasterxml.jackson.datatype:jackson-datatype-jsr310:2.16.1")
 }
 
 tasks.test {
     useJUnitPlatform()
 }
 
+// Runs the tests on Java 21 with the Java 21 classes in front, as the multi-release JAR loads them
+val testJava21 by tasks.registering(Test::class) {
+    group = "verification"
+    description = "Runs the tests on Java 21 against the Java 21 layer of the multi-release JAR."
+    useJUnitPlatform()
+    javaLauncher.set(javaToolchains.launcherFor { languageVersion.set(JavaLanguageVersion.of(21)) })
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = java21.output + sourceSets.test.get().runtimeClasspath
+}
+
+// ./gradlew loadTest -PloadTestArgs="rate=2000 duration=60 callers=128 serverLatencyMs=25"
+// Runs against the JAR, so mode=virtual gets the Java 21 layer when Gradle runs on Java 21
+tasks.register<JavaExec>("loadTest") {
+    group = "verification"
+    description = "Runs the open-loop load test against a local PGS stand-in."
+    classpath = files(tasks.jar) + sourceSets["loadTest"].runtimeClasspath
+    mainClass.set("net.timelesssdk.loadtest.LoadTest")
+    (project.findProperty("loadTestArgs") as String?)?.let { args(it.split(" ")) }
+}
+
+// Benchmarks live in src/jmh/java; run with ./gradlew jmh (optionally -PjmhIncludes=Signature)
+jmh {
+    jmhVersion.set("1.37")
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    (project.findProperty("jmhIncludes") as String?)?.let { includes.add(it) }
+}
+
 // Ensure check task runs spotlessCheck
 tasks.check {
     dependsOn(tasks.named("spotlessCheck"))
+    dependsOn(testJava21)
 }
 
 spotless {
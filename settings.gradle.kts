@@ -1 +1,6 @@
+plugins {
+    // Provisions the Java 21 toolchain for the multi-release JAR when it is not installed
+    id("org.gradle.toolchains.foojay-resolver-convention") version "0.8.0"
+}
+
 rootProject.name = "timeless-sdk"
@@ -0,0 +1,77 @@
+package net.timelesssdk.benchmark;
+
+import java.math.BigDecimal;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import net.timelesssdk.model.CheckoutItem;
+import net.timelesssdk.model.CreateCheckoutSessionRequest;
+
+/** Fixtures shared by the benchmarks. */
+final class BenchmarkData {
+  private BenchmarkData() {}
+
+  static KeyPair generateKeyPair() throws Exception {
+    KeyPairGenerator keyGen = KeyPairGenerator.getInstance("EC");
+    keyGen.initialize(new ECGenParameterSpec("secp384r1"));
+    return keyGen.generateKeyPair();
+  }
+
+  /** A checkout request with the given number of cart items. */
+  static CreateCheckoutSessionRequest checkoutRequest(int itemCount) {
+    List<CheckoutItem> items = new ArrayList<>(itemCount);
+    for (int i = 0; i < itemCount; i++) {
+      CheckoutItem item = new CheckoutItem();
+      item.setName("Product " + i);
+      item.setDescription("Benchmark product number " + i);
+      item.setPrice(new BigDecimal("100.00"));
+      item.setQuantity(2);
+      item.setTotal(new BigDecimal("200.00"));
+      items.add(item);
+    }
+
+    CreateCheckoutSessionRequest request = new CreateCheckoutSessionRequest();
+    request.setCustomerName("John Doe");
+    request.setCustomerPhoneNumber("+251911234567");
+    request.setNonce(UUID.randomUUID().toString());
+    request.setCurrency("ETB");
+    request.setSessionExpiresAt(LocalDateTime.of(2030, 1, 1, 12, 0));
+    request.setItems(items);
+    request.setTotalAmount(new BigDecimal("200.00").multiply(BigDecimal.valueOf(itemCount)));
+    request.setTotalQuantity(2 * itemCount);
+    return request;
+  }
+
+  /** A webhook payload JSON document with the given number of items. */
+  static String webhookJson(int itemCount) {
+    StringBuilder json =
+        new StringBuilder(
+            "{\"event_type\":\"payment.success\","
+                + "\"webhook_id\":\"550e8400-e29b-41d4-a716-446655440000\","
+                + "\"timestamp\":\"2024-01-01T12:00:00\","
+                + "\"session_id\":\"550e8400-e29b-41d4-a716-446655440001\","
+                + "\"payment_id\":12345,\"status\":\"success\",\"amount\":200.00,"
+                + "\"currency\":\"ETB\",\"customer_name\":\"John Doe\","
+                + "\"customer_phone\":\"+251911234567\",\"items\":[");
+    for (int i = 0; i < itemCount; i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+      json.append("{\"total_quantity\":2,\"total_amount\":200.00}");
+    }
+    return json.append("]}").toString();
+  }
+
+  /** An ASCII JSON string of roughly the given size in bytes. */
+  static String payloadOfSize(int size) {
+    StringBuilder json = new StringBuilder(size).append("{\"data\":\"");
+    while (json.length() < size - 2) {
+      json.append((char) ('a' + json.length() % 26));
+    }
+    return json.append("\"}").toString();
+  }
+}
@@ -0,0 +1,64 @@
+package net.timelesssdk.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.util.concurrent.TimeUnit;
+import net.timelesssdk.model.CreateCheckoutSessionRequest;
+import net.timelesssdk.security.EcdsaSigner;
+import net.timelesssdk.security.SigningOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * JSON serialization of checkout requests by cart size, alone and combined with signing the way
+ * the client's String and streaming paths do it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SerializationBenchmark {
+  @Param({"1", "10", "100"})
+  int itemCount;
+
+  private ObjectMapper objectMapper;
+  private CreateCheckoutSessionRequest request;
+  private EcdsaSigner signer;
+  private int bodySizeHint;
+
+  @Setup
+  public void setUp() throws Exception {
+    objectMapper = new ObjectMapper();
+    objectMapper.registerModule(new JavaTimeModule());
+    request = BenchmarkData.checkoutRequest(itemCount);
+    signer = new EcdsaSigner(BenchmarkData.generateKeyPair().getPrivate());
+    bodySizeHint = objectMapper.writeValueAsBytes(request).length;
+  }
+
+  @Benchmark
+  public String serializeToString() throws Exception {
+    return objectMapper.writeValueAsString(request);
+  }
+
+  @Benchmark
+  public byte[] serializeToBytes() throws Exception {
+    return objectMapper.writeValueAsBytes(request);
+  }
+
+  @Benchmark
+  public String serializeThenSign() throws Exception {
+    return signer.sign(objectMapper.writeValueAsString(request));
+  }
+
+  @Benchmark
+  public String serializeAndSignStreaming() throws Exception {
+    SigningOutputStream out = new SigningOutputStream(signer, bodySizeHint);
+    objectMapper.writeValue(out, request);
+    return out.sign();
+  }
+}
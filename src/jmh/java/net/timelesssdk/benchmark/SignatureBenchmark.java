@@ -0,0 +1,77 @@
+package net.timelesssdk.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import net.timelesssdk.security.EcdsaSigner;
+import net.timelesssdk.security.EcdsaVerifier;
+import net.timelesssdk.security.SignatureUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** ECDSA SHA384 signing and verification through the static and the reusable APIs. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SignatureBenchmark {
+  @Param({"256", "4096", "65536"})
+  int payloadSize;
+
+  private String payload;
+  private byte[] payloadBytes;
+  private KeyPair keyPair;
+  private String privateKeyBase64;
+  private String publicKeyBase64;
+  private String signature;
+  private EcdsaSigner signer;
+  private EcdsaVerifier verifier;
+
+  @Setup
+  public void setUp() throws Exception {
+    payload = BenchmarkData.payloadOfSize(payloadSize);
+    payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+    keyPair = BenchmarkData.generateKeyPair();
+    privateKeyBase64 = Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded());
+    publicKeyBase64 = Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded());
+    signature = SignatureUtil.sign(payload, keyPair.getPrivate());
+    signer = new EcdsaSigner(keyPair.getPrivate());
+    verifier = new EcdsaVerifier(keyPair.getPublic());
+  }
+
+  @Benchmark
+  public String signWithPrivateKey() throws Exception {
+    return SignatureUtil.sign(payload, keyPair.getPrivate());
+  }
+
+  @Benchmark
+  public String signWithBase64Key() throws Exception {
+    return SignatureUtil.sign(payload, privateKeyBase64);
+  }
+
+  @Benchmark
+  public String signWithSigner() throws Exception {
+    return signer.sign(payloadBytes, 0, payloadBytes.length);
+  }
+
+  @Benchmark
+  public boolean verifyWithPublicKey() throws Exception {
+    return SignatureUtil.verify(payload, signature, keyPair.getPublic());
+  }
+
+  @Benchmark
+  public boolean verifyWithBase64Key() throws Exception {
+    return SignatureUtil.verify(payload, signature, publicKeyBase64);
+  }
+
+  @Benchmark
+  public boolean verifyWithVerifier() throws Exception {
+    return verifier.verify(payloadBytes, 0, payloadBytes.length, signature);
+  }
+}
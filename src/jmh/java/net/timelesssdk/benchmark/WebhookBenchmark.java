@@ -0,0 +1,51 @@
+package net.timelesssdk.benchmark;
+
+import java.security.KeyPair;
+import java.util.concurrent.TimeUnit;
+import net.timelesssdk.security.SignatureUtil;
+import net.timelesssdk.webhook.WebhookHandler;
+import net.timelesssdk.webhook.WebhookPayload;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Webhook verification and parsing by payload item count. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class WebhookBenchmark {
+  @Param({"0", "10", "100"})
+  int itemCount;
+
+  private WebhookHandler handler;
+  private String payloadJson;
+  private String signature;
+
+  @Setup
+  public void setUp() throws Exception {
+    KeyPair keyPair = BenchmarkData.generateKeyPair();
+    handler = new WebhookHandler(keyPair.getPublic());
+    payloadJson = BenchmarkData.webhookJson(itemCount);
+    signature = SignatureUtil.sign(payloadJson, keyPair.getPrivate());
+  }
+
+  @Benchmark
+  public boolean verifySignature() throws Exception {
+    return handler.verifySignature(payloadJson, signature);
+  }
+
+  @Benchmark
+  public WebhookPayload parsePayload() throws Exception {
+    return handler.parsePayload(payloadJson);
+  }
+
+  @Benchmark
+  public WebhookPayload verifyAndParse() throws Exception {
+    return handler.verifyAndParse(payloadJson, signature);
+  }
+}
@@ -0,0 +1,274 @@
+package net.timelesssdk.loadtest;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import net.timelesssdk.TimelessPayClient;
+import net.timelesssdk.VirtualThreads;
+import net.timelesssdk.metrics.LatencyHistogram;
+import net.timelesssdk.metrics.MetricsRecorder;
+import net.timelesssdk.metrics.Phase;
+import net.timelesssdk.model.CheckoutItem;
+import net.timelesssdk.model.CreateCheckoutSessionRequest;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Open-loop load test of {@link TimelessPayClient#createCheckoutSession} against a local
+ * MockWebServer standing in for PGS.
+ *
+ * <p>Requests are issued on a fixed schedule at the target rate whether or not earlier requests
+ * have completed, and latency is measured from each request's scheduled start. A client that falls
+ * behind therefore shows up as queueing latency instead of a silently lower request rate. Failed
+ * requests are reported in a separate error latency line.
+ */
+public final class LoadTest {
+  private static final String RESPONSE_BODY =
+      "{\"id\":\"550e8400-e29b-41d4-a716-446655440000\",\"nonce\":\"load-test\","
+          + "\"currency\":\"ETB\"}";
+  private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+  private final LoadTestConfig config;
+  // Successes only; fast failures and local rejections would otherwise pull percentiles down
+  private final LatencyHistogram latency = new LatencyHistogram();
+  private final LatencyHistogram errorLatency = new LatencyHistogram();
+  private final AtomicLong outstanding = new AtomicLong();
+  private final Semaphore callerPermits;
+
+  LoadTest(LoadTestConfig config) {
+    this.config = config;
+    this.callerPermits = new Semaphore(config.callers);
+  }
+
+  public static void main(String[] args) throws Exception {
+    LoadTestConfig config = LoadTestConfig.parse(args);
+    String report = new LoadTest(config).run();
+    System.out.println(report);
+    if (config.report != null) {
+      Files.write(config.report, report.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  /** Runs the load test and returns the report. */
+  String run() throws Exception {
+    MockWebServer server = new MockWebServer();
+    server.setDispatcher(new StandInDispatcher(config.serverLatencyMs, config.serverJitterMs));
+    server.start();
+    boolean virtual = config.mode == LoadTestConfig.Mode.VIRTUAL;
+    if (virtual && !VirtualThreads.isSupported()) {
+      throw new IllegalStateException("mode=virtual needs Java 21 or later and the SDK JAR");
+    }
+    ExecutorService callers =
+        virtual
+            ? VirtualThreads.newThreadPerTaskExecutor("load-test-caller-")
+            : Executors.newFixedThreadPool(config.callers);
+    try {
+      TimelessPayClient client =
+          TimelessPayClient.builder()
+              .baseUrl(server.url("/").toString())
+              .apiKeyId("load-test")
+              .tenantId("load-test")
+              .privateKey(generatePrivateKey())
+              .maxRequests(config.callers)
+              .maxRequestsPerHost(config.callers)
+              .maxIdleConnections(config.callers)
+              .maxInFlightRequests(config.callers)
+              .virtualThreads(virtual)
+              .build();
+      drive(client, callers);
+      return report(client.getMetrics());
+    } finally {
+      callers.shutdownNow();
+      server.shutdown();
+    }
+  }
+
+  private void drive(TimelessPayClient client, ExecutorService callers) {
+    long intervalNanos = TimeUnit.SECONDS.toNanos(1) / config.rate;
+    long start = System.nanoTime();
+    long measureFrom = start + TimeUnit.SECONDS.toNanos(config.warmupSeconds);
+    long end = measureFrom + TimeUnit.SECONDS.toNanos(config.durationSeconds);
+
+    for (long i = 0; ; i++) {
+      long scheduled = start + i * intervalNanos;
+      if (scheduled >= end) {
+        break;
+      }
+      long wait = scheduled - System.nanoTime();
+      if (wait > 0) {
+        LockSupport.parkNanos(wait);
+      }
+      boolean measured = scheduled >= measureFrom;
+      CreateCheckoutSessionRequest request = checkoutRequest(config.items);
+      outstanding.incrementAndGet();
+      if (config.mode == LoadTestConfig.Mode.SYNC) {
+        callers.execute(() -> callBlocking(client, request, scheduled, measured));
+      } else if (config.mode == LoadTestConfig.Mode.VIRTUAL) {
+        // One virtual thread per request; at most callers of them call the client at once
+        callers.execute(
+            () -> {
+              callerPermits.acquireUninterruptibly();
+              try {
+                callBlocking(client, request, scheduled, measured);
+              } finally {
+                callerPermits.release();
+              }
+            });
+      } else {
+        client
+            .createCheckoutSessionAsync(request)
+            .whenComplete((response, error) -> onComplete(scheduled, measured, error == null));
+      }
+    }
+
+    long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+    while (outstanding.get() > 0 && System.nanoTime() < drainDeadline) {
+      LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+  }
+
+  private void callBlocking(
+      TimelessPayClient client,
+      CreateCheckoutSessionRequest request,
+      long scheduled,
+      boolean measured) {
+    boolean success;
+    try {
+      client.createCheckoutSession(request);
+      success = true;
+    } catch (Exception e) {
+      success = false;
+    }
+    onComplete(scheduled, measured, success);
+  }
+
+  private void onComplete(long scheduled, boolean measured, boolean success) {
+    if (measured) {
+      (success ? latency : errorLatency).record(System.nanoTime() - scheduled);
+    }
+    outstanding.decrementAndGet();
+  }
+
+  private String report(MetricsRecorder metrics) {
+    double seconds = config.durationSeconds;
+    List<String> lines = new ArrayList<>();
+    lines.add("TimelessPay load test: " + config);
+    lines.add(
+        format(
+            "requests=%d errors=%d unfinished=%d throughput=%.1f/s",
+            latency.getCount() + errorLatency.getCount(),
+            errorLatency.getCount(),
+            outstanding.get(),
+            latency.getCount() / seconds));
+    lines.add(
+        format(
+            "latency ms: p50=%.2f p90=%.2f p99=%.2f p999=%.2f max=%.2f mean=%.2f",
+            millis(latency.getPercentileNanos(0.5)),
+            millis(latency.getPercentileNanos(0.9)),
+            millis(latency.getPercentileNanos(0.99)),
+            millis(latency.getPercentileNanos(0.999)),
+            millis(latency.getMaxNanos()),
+            latency.getMeanNanos() / 1_000_000));
+    if (errorLatency.getCount() > 0) {
+      lines.add(
+          format(
+              "error latency ms: p50=%.2f p99=%.2f max=%.2f",
+              millis(errorLatency.getPercentileNanos(0.5)),
+              millis(errorLatency.getPercentileNanos(0.99)),
+              millis(errorLatency.getMaxNanos())));
+    }
+    // Virtual threads are not counted
+    lines.add(
+        format(
+            "peak platform threads=%d", ManagementFactory.getThreadMXBean().getPeakThreadCount()));
+    // Phase timings include warmup
+    for (Phase phase : Phase.values()) {
+      LatencyHistogram histogram = metrics.getHistogram(phase);
+      if (histogram.getCount() > 0) {
+        lines.add(
+            format(
+                "  %-9s ms: p50=%.3f p99=%.3f count=%d",
+                phase.name().toLowerCase(Locale.ROOT),
+                millis(histogram.getPercentileNanos(0.5)),
+                millis(histogram.getPercentileNanos(0.99)),
+                histogram.getCount()));
+      }
+    }
+    return String.join(System.lineSeparator(), lines);
+  }
+
+  private static String format(String format, Object... args) {
+    return String.format(Locale.ROOT, format, args);
+  }
+
+  private static double millis(long nanos) {
+    return nanos / 1_000_000.0;
+  }
+
+  private static PrivateKey generatePrivateKey() throws Exception {
+    KeyPairGenerator keyGen = KeyPairGenerator.getInstance("EC");
+    keyGen.initialize(new ECGenParameterSpec("secp384r1"));
+    return keyGen.generateKeyPair().getPrivate();
+  }
+
+  private static CreateCheckoutSessionRequest checkoutRequest(int itemCount) {
+    List<CheckoutItem> items = new ArrayList<>(itemCount);
+    for (int i = 0; i < itemCount; i++) {
+      CheckoutItem item = new CheckoutItem();
+      item.setName("Product " + i);
+      item.setPrice(new BigDecimal("100.00"));
+      item.setQuantity(1);
+      item.setTotal(new BigDecimal("100.00"));
+      items.add(item);
+    }
+    CreateCheckoutSessionRequest request = new CreateCheckoutSessionRequest();
+    request.setCustomerName("Load Test");
+    request.setCustomerPhoneNumber("+251911234567");
+    request.setNonce(UUID.randomUUID().toString());
+    request.setCurrency("ETB");
+    request.setSessionExpiresAt(LocalDateTime.now().plusHours(1));
+    request.setItems(items);
+    request.setTotalAmount(new BigDecimal("100.00").multiply(BigDecimal.valueOf(itemCount)));
+    request.setTotalQuantity(itemCount);
+    return request;
+  }
+
+  /** Answers every checkout request successfully after the configured delay. */
+  private static final class StandInDispatcher extends Dispatcher {
+    private final int latencyMs;
+    private final int jitterMs;
+
+    StandInDispatcher(int latencyMs, int jitterMs) {
+      this.latencyMs = latencyMs;
+      this.jitterMs = jitterMs;
+    }
+
+    @Override
+    public MockResponse dispatch(RecordedRequest request) {
+      long delayMs = latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextInt(jitterMs) : 0);
+      return new MockResponse()
+          .setResponseCode(200)
+          .setHeader("Content-Type", "application/json")
+          .setBody(RESPONSE_BODY)
+          .setHeadersDelay(delayMs, TimeUnit.MILLISECONDS);
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package net.timelesssdk.loadtest;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Load test settings, parsed from {@code key=value} arguments.
+ *
+ * <ul>
+ *   <li>{@code rate}: target arrivals per second (default 500)
+ *   <li>{@code duration}: measured seconds (default 30)
+ *   <li>{@code warmup}: unmeasured seconds before that (default 5)
+ *   <li>{@code callers}: concurrent callers, which is the caller thread count in sync mode and the
+ *       in-flight limit in async and virtual mode (default 64)
+ *   <li>{@code mode}: {@code sync}, {@code async} or {@code virtual} (default sync). Virtual mode
+ *       makes blocking calls from one virtual thread per request with a client in virtual-thread
+ *       mode; it needs Java 21
+ *   <li>{@code serverLatencyMs} and {@code serverJitterMs}: stand-in response delay, uniformly
+ *       distributed between latency and latency + jitter (default 20 and 0)
+ *   <li>{@code items}: cart items per checkout request (default 3)
+ *   <li>{@code report}: file to also write the report to (default none)
+ * </ul>
+ */
+final class LoadTestConfig {
+  enum Mode {
+    SYNC,
+    ASYNC,
+    VIRTUAL
+  }
+
+  int rate = 500;
+  int durationSeconds = 30;
+  int warmupSeconds = 5;
+  int callers = 64;
+  Mode mode = Mode.SYNC;
+  int serverLatencyMs = 20;
+  int serverJitterMs = 0;
+  int items = 3;
+  Path report;
+
+  static LoadTestConfig parse(String[] args) {
+    LoadTestConfig config = new LoadTestConfig();
+    for (String arg : args) {
+      if (arg.isEmpty()) {
+        continue;
+      }
+      int separator = arg.indexOf('=');
+      if (separator < 0) {
+        throw new IllegalArgumentException("Expected key=value, got: " + arg);
+      }
+      String key = arg.substring(0, separator);
+      String value = arg.substring(separator + 1);
+      switch (key) {
+        case "rate":
+          config.rate = positive(key, value);
+          break;
+        case "duration":
+          config.durationSeconds = positive(key, value);
+          break;
+        case "warmup":
+          config.warmupSeconds = nonNegative(key, value);
+          break;
+        case "callers":
+          config.callers = positive(key, value);
+          break;
+        case "mode":
+          config.mode = Mode.valueOf(value.toUpperCase(Locale.ROOT));
+          break;
+        case "serverLatencyMs":
+          config.serverLatencyMs = nonNegative(key, value);
+          break;
+        case "serverJitterMs":
+          config.serverJitterMs = nonNegative(key, value);
+          break;
+        case "items":
+          config.items = positive(key, value);
+          break;
+        case "report":
+          config.report = Paths.get(value);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown setting: " + key);
+      }
+    }
+    return config;
+  }
+
+  private static int positive(String key, String value) {
+    int parsed = Integer.parseInt(value);
+    if (parsed <= 0) {
+      throw new IllegalArgumentException(key + " must be positive");
+    }
+    return parsed;
+  }
+
+  private static int nonNegative(String key, String value) {
+    int parsed = Integer.parseInt(value);
+    if (parsed < 0) {
+      throw new IllegalArgumentException(key + " must not be negative");
+    }
+    return parsed;
+  }
+
+  @Override
+  public String toString() {
+    return "mode="
+        + mode.name().toLowerCase(Locale.ROOT)
+        + " rate="
+        + rate
+        + "/s duration="
+        + durationSeconds
+        + "s warmup="
+        + warmupSeconds
+        + "s callers="
+        + callers
+        + " serverLatency="
+        + serverLatencyMs
+        + "ms+"
+        + serverJitterMs
+        + "ms items="
+        + items;
+  }
+}
@@ -0,0 +1,67 @@
+package net.timelesssdk;
+
+import net.timelesssdk.exception.TimelessPayException;
+
+/**
+ * Outcome of one item of a batch operation: either a value or the exception that item failed
+ * with.
+ *
+ * @param <T> the value type
+ */
+public final class BatchResult<T> {
+  private final T value;
+  private final TimelessPayException error;
+
+  private BatchResult(T value, TimelessPayException error) {
+    this.value = value;
+    this.error = error;
+  }
+
+  /**
+   * Creates a successful result.
+   *
+   * @param value The value
+   * @param <T> the value type
+   * @return successful result
+   */
+  public static <T> BatchResult<T> success(T value) {
+    return new BatchResult<>(value, null);
+  }
+
+  /**
+   * Creates a failed result.
+   *
+   * @param error The exception the item failed with
+   * @param <T> the value type
+   * @return failed result
+   */
+  public static <T> BatchResult<T> failure(TimelessPayException error) {
+    if (error == null) {
+      throw new IllegalArgumentException("error must not be null");
+    }
+    return new BatchResult<>(null, error);
+  }
+
+  public boolean isSuccess() {
+    return error == null;
+  }
+
+  /**
+   * Gets the value of a successful result.
+   *
+   * @return value, or null if the item failed
+   */
+  public T getValue() {
+    return value;
+  }
+
+  /**
+   * Gets the exception of a failed result. API errors are reported as {@link
+   * net.timelesssdk.exception.TimelessPayApiException}.
+   *
+   * @return exception, or null if the item succeeded
+   */
+  public TimelessPayException getError() {
+    return error;
+  }
+}
@@ -0,0 +1,58 @@
+package net.timelesssdk;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream that fails once more than a fixed number of bytes has been read, so a response body
+ * without a trustworthy Content-Length cannot grow the parser's buffers without bound.
+ */
+final class BoundedInputStream extends FilterInputStream {
+  private final long limit;
+  private long remaining;
+
+  BoundedInputStream(InputStream in, long limit) {
+    super(in);
+    this.limit = limit;
+    this.remaining = limit;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int b = super.read();
+    if (b != -1) {
+      consume(1);
+    }
+    return b;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    // Read one byte past the limit so an exactly-sized body still succeeds
+    int n = super.read(b, off, (int) Math.min(len, remaining + 1));
+    if (n > 0) {
+      consume(n);
+    }
+    return n;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    long skipped = super.skip(Math.min(n, remaining + 1));
+    consume(skipped);
+    return skipped;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  private void consume(long n) throws IOException {
+    remaining -= n;
+    if (remaining < 0) {
+      throw new IOException("Response body exceeds limit of " + limit + " bytes");
+    }
+  }
+}
@@ -0,0 +1,193 @@
+package net.timelesssdk;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Circuit breaker around the PGS transport.
+ *
+ * <p>After {@code failureThreshold} consecutive failed requests (I/O errors, 429 or 5xx) the
+ * breaker opens and calls fail immediately with {@link
+ * net.timelesssdk.exception.CircuitBreakerOpenException}. Once {@code openDuration} has passed it
+ * lets up to {@code halfOpenMaxCalls} probe requests through; a successful probe closes it again,
+ * a failed one reopens it. Outcomes of calls admitted before the last state change are ignored, so
+ * late responses cannot hold the breaker open or close it without a probe. An instance can be
+ * shared by several clients talking to the same PGS.
+ */
+public final class CircuitBreaker {
+  /** Breaker state. */
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final int failureThreshold;
+  private final long openDurationNanos;
+  private final int halfOpenMaxCalls;
+  private final AtomicReference<Epoch> epoch =
+      new AtomicReference<>(new Epoch(State.CLOSED, System.nanoTime()));
+  private final AtomicInteger consecutiveFailures = new AtomicInteger();
+  private final LongAdder rejected = new LongAdder();
+
+  private CircuitBreaker(Builder builder) {
+    this.failureThreshold = builder.failureThreshold;
+    this.openDurationNanos = builder.openDuration.toNanos();
+    this.halfOpenMaxCalls = builder.halfOpenMaxCalls;
+  }
+
+  /**
+   * Creates a builder with the default settings: open after 5 consecutive failures, stay open for
+   * 30 s and allow 1 probe request while half-open.
+   *
+   * @return a new Builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Admits a call.
+   *
+   * @return the epoch the call was admitted in, to report its outcome against, or null if the call
+   *     is rejected
+   */
+  Epoch tryAcquire() {
+    Epoch current = epoch.get();
+    if (current.state == State.CLOSED) {
+      return current;
+    }
+    if (current.state == State.OPEN) {
+      if (System.nanoTime() - current.startNanos < openDurationNanos) {
+        rejected.increment();
+        return null;
+      }
+      Epoch halfOpen = new Epoch(State.HALF_OPEN, System.nanoTime());
+      current = epoch.compareAndSet(current, halfOpen) ? halfOpen : epoch.get();
+      if (current.state != State.HALF_OPEN) {
+        return current.state == State.CLOSED ? current : reject();
+      }
+    }
+    int probes;
+    do {
+      probes = current.probes.get();
+      if (probes >= halfOpenMaxCalls) {
+        return reject();
+      }
+    } while (!current.probes.compareAndSet(probes, probes + 1));
+    return current;
+  }
+
+  /** Records a successful call. Only a probe of the current half-open epoch closes the breaker. */
+  void onSuccess(Epoch admittedIn) {
+    Epoch current = epoch.get();
+    if (admittedIn != current) {
+      // Admitted before the last state change; its outcome says nothing about the current state
+      return;
+    }
+    if (current.state == State.HALF_OPEN) {
+      if (epoch.compareAndSet(current, new Epoch(State.CLOSED, System.nanoTime()))) {
+        consecutiveFailures.set(0);
+      }
+    } else {
+      consecutiveFailures.set(0);
+    }
+  }
+
+  /**
+   * Records a failed call. The breaker trips from the current closed epoch on reaching the
+   * threshold, or from the current half-open epoch on any failed probe.
+   */
+  void onFailure(Epoch admittedIn) {
+    Epoch current = epoch.get();
+    if (admittedIn != current) {
+      return;
+    }
+    if (current.state == State.HALF_OPEN
+        || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+      epoch.compareAndSet(current, new Epoch(State.OPEN, System.nanoTime()));
+    }
+  }
+
+  /** Returns a probe slot without recording an outcome, e.g. for cancelled requests. */
+  void onIgnored(Epoch admittedIn) {
+    if (admittedIn.state == State.HALF_OPEN) {
+      admittedIn.probes.updateAndGet(probes -> Math.max(0, probes - 1));
+    }
+  }
+
+  private Epoch reject() {
+    rejected.increment();
+    return null;
+  }
+
+  public State getState() {
+    return epoch.get().state;
+  }
+
+  /**
+   * Gets the number of consecutive failed requests.
+   *
+   * @return consecutive failure count
+   */
+  public int getConsecutiveFailures() {
+    return consecutiveFailures.get();
+  }
+
+  /**
+   * Gets the number of calls rejected while the breaker was open or probing.
+   *
+   * @return rejected call count
+   */
+  public long getRejected() {
+    return rejected.sum();
+  }
+
+  /** A stretch of time the breaker spends in one state; replaced on every state change. */
+  static final class Epoch {
+    private final State state;
+    private final long startNanos;
+    private final AtomicInteger probes = new AtomicInteger();
+
+    private Epoch(State state, long startNanos) {
+      this.state = state;
+      this.startNanos = startNanos;
+    }
+  }
+
+  /** Builder for {@link CircuitBreaker}. */
+  public static final class Builder {
+    private int failureThreshold = 5;
+    private Duration openDuration = Duration.ofSeconds(30);
+    private int halfOpenMaxCalls = 1;
+
+    private Builder() {}
+
+    public Builder failureThreshold(int failureThreshold) {
+      if (failureThreshold < 1) {
+        throw new IllegalArgumentException("failureThreshold must be at least 1");
+      }
+      this.failureThreshold = failureThreshold;
+      return this;
+    }
+
+    public Builder openDuration(Duration openDuration) {
+      this.openDuration = openDuration;
+      return this;
+    }
+
+    public Builder halfOpenMaxCalls(int halfOpenMaxCalls) {
+      if (halfOpenMaxCalls < 1) {
+        throw new IllegalArgumentException("halfOpenMaxCalls must be at least 1");
+      }
+      this.halfOpenMaxCalls = halfOpenMaxCalls;
+      return this;
+    }
+
+    public CircuitBreaker build() {
+      return new CircuitBreaker(this);
+    }
+  }
+}
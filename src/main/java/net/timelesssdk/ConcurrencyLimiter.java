@@ -0,0 +1,165 @@
+package net.timelesssdk;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adaptive limit on concurrent requests to PGS using additive-increase/multiplicative-decrease.
+ *
+ * <p>Each completed request is a sample. Overload signals (I/O errors, 429 and 5xx responses, or
+ * a round trip slower than {@code latencyThreshold}) multiply the limit by {@code backoffRatio};
+ * other responses grow it by one while the limiter is at least half utilized. Requests beyond
+ * the current limit are rejected with {@link
+ * net.timelesssdk.exception.ConcurrencyLimitExceededException} instead of queueing, so overload is
+ * shed at the client. An instance can be shared by several clients talking to the same PGS.
+ */
+public final class ConcurrencyLimiter {
+  private final int minLimit;
+  private final int maxLimit;
+  private final double backoffRatio;
+  private final long latencyThresholdNanos;
+  private final AtomicInteger limit;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final LongAdder rejected = new LongAdder();
+
+  private ConcurrencyLimiter(Builder builder) {
+    this.minLimit = builder.minLimit;
+    this.maxLimit = builder.maxLimit;
+    this.backoffRatio = builder.backoffRatio;
+    this.latencyThresholdNanos = builder.latencyThreshold.toNanos();
+    this.limit = new AtomicInteger(builder.initialLimit);
+  }
+
+  /**
+   * Creates a builder with the default settings: initial limit 20, bounds 1 to 200, backoff ratio
+   * 0.9 and a 2 s latency threshold.
+   *
+   * @return a new Builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  boolean tryAcquire() {
+    int current;
+    do {
+      current = inFlight.get();
+      if (current >= limit.get()) {
+        rejected.increment();
+        return false;
+      }
+    } while (!inFlight.compareAndSet(current, current + 1));
+    return true;
+  }
+
+  /** Releases a permit for a request PGS handled normally. */
+  void onSuccess(long rttNanos) {
+    int inFlightBefore = inFlight.getAndDecrement();
+    if (rttNanos > latencyThresholdNanos) {
+      decrease();
+    } else if (inFlightBefore * 2 >= limit.get()) {
+      limit.updateAndGet(current -> Math.min(maxLimit, current + 1));
+    }
+  }
+
+  /** Releases a permit for a request that showed PGS to be overloaded. */
+  void onDropped() {
+    inFlight.decrementAndGet();
+    decrease();
+  }
+
+  /** Releases a permit without adjusting the limit, e.g. for cancelled requests. */
+  void onIgnored() {
+    inFlight.decrementAndGet();
+  }
+
+  private void decrease() {
+    limit.updateAndGet(current -> Math.max(minLimit, (int) (current * backoffRatio)));
+  }
+
+  /**
+   * Gets the current concurrency limit.
+   *
+   * @return current limit
+   */
+  public int getLimit() {
+    return limit.get();
+  }
+
+  /**
+   * Gets the number of requests currently holding a permit.
+   *
+   * @return in-flight request count
+   */
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  /**
+   * Gets the number of requests rejected because the limit was reached.
+   *
+   * @return rejected request count
+   */
+  public long getRejected() {
+    return rejected.sum();
+  }
+
+  /** Builder for {@link ConcurrencyLimiter}. */
+  public static final class Builder {
+    private int initialLimit = 20;
+    private int minLimit = 1;
+    private int maxLimit = 200;
+    private double backoffRatio = 0.9;
+    private Duration latencyThreshold = Duration.ofSeconds(2);
+
+    private Builder() {}
+
+    public Builder initialLimit(int initialLimit) {
+      this.initialLimit = initialLimit;
+      return this;
+    }
+
+    public Builder minLimit(int minLimit) {
+      this.minLimit = minLimit;
+      return this;
+    }
+
+    public Builder maxLimit(int maxLimit) {
+      this.maxLimit = maxLimit;
+      return this;
+    }
+
+    /**
+     * Sets the factor the limit is multiplied by on an overload signal.
+     *
+     * @param backoffRatio Ratio between 0.5 and 1 (exclusive)
+     * @return this builder
+     */
+    public Builder backoffRatio(double backoffRatio) {
+      if (backoffRatio < 0.5 || backoffRatio >= 1) {
+        throw new IllegalArgumentException("backoffRatio must be in [0.5, 1)");
+      }
+      this.backoffRatio = backoffRatio;
+      return this;
+    }
+
+    /**
+     * Sets the round-trip time above which a response counts as an overload signal.
+     *
+     * @param latencyThreshold Latency threshold
+     * @return this builder
+     */
+    public Builder latencyThreshold(Duration latencyThreshold) {
+      this.latencyThreshold = latencyThreshold;
+      return this;
+    }
+
+    public ConcurrencyLimiter build() {
+      if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+        throw new IllegalStateException("Limits must satisfy 1 <= min <= initial <= max");
+      }
+      return new ConcurrencyLimiter(this);
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package net.timelesssdk;
+
+/** Applies a {@link HedgingPolicy}: derives the hedge delay and enforces the hedge rate cap. */
+final class Hedger {
+  private final HedgingPolicy policy;
+  private final TokenBucket tokens;
+  private final LatencyWindow latencies;
+  private final HedgingStats stats = new HedgingStats();
+
+  Hedger(HedgingPolicy policy) {
+    this.policy = policy;
+    this.tokens = new TokenBucket(policy.getMaxHedgeRatio(), policy.getMaxHedgeTokens());
+    this.latencies = new LatencyWindow(policy.getDelayPercentile());
+    stats.setCurrentDelayMillis(policy.getInitialDelay().toMillis());
+  }
+
+  HedgingStats getStats() {
+    return stats;
+  }
+
+  /** Records a new logical call, refilling the hedge budget. */
+  void recordCall() {
+    tokens.deposit();
+  }
+
+  /** Records the round trip of a call that produced a usable response. */
+  void recordLatency(long nanos) {
+    latencies.record(nanos);
+  }
+
+  long hedgeDelayMillis() {
+    long percentileNanos = latencies.percentileNanos();
+    long delayMillis =
+        percentileNanos < 0
+            ? policy.getInitialDelay().toMillis()
+            : Math.max(policy.getMinDelay().toMillis(), percentileNanos / 1_000_000);
+    stats.setCurrentDelayMillis(delayMillis);
+    return delayMillis;
+  }
+
+  boolean tryAcquireHedge() {
+    if (!tokens.tryWithdraw()) {
+      stats.recordSkipped();
+      return false;
+    }
+    return true;
+  }
+}
@@ -0,0 +1,138 @@
+package net.timelesssdk;
+
+import java.time.Duration;
+
+/**
+ * Settings for hedged checkout session requests.
+ *
+ * <p>When an attempt has not produced a response after the {@code delayPercentile} of recently
+ * observed round trips (never less than {@code minDelay}), the same signed request, with the same
+ * X-Request-Id, is sent once more on another pooled connection. The first usable response wins and
+ * the other call is cancelled. Hedges draw from a token bucket that each call refills by {@code
+ * maxHedgeRatio}, so they add at most that fraction of extra load.
+ */
+public final class HedgingPolicy {
+  private final double delayPercentile;
+  private final Duration minDelay;
+  private final Duration initialDelay;
+  private final double maxHedgeRatio;
+  private final int maxHedgeTokens;
+
+  private HedgingPolicy(Builder builder) {
+    this.delayPercentile = builder.delayPercentile;
+    this.minDelay = builder.minDelay;
+    this.initialDelay = builder.initialDelay;
+    this.maxHedgeRatio = builder.maxHedgeRatio;
+    this.maxHedgeTokens = builder.maxHedgeTokens;
+  }
+
+  /**
+   * Creates a builder with the default settings: hedge at the 95th percentile but not before 10
+   * ms, 100 ms until enough round trips were observed, and at most 5% extra requests with up to 10
+   * banked hedges.
+   *
+   * @return a new Builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public double getDelayPercentile() {
+    return delayPercentile;
+  }
+
+  public Duration getMinDelay() {
+    return minDelay;
+  }
+
+  public Duration getInitialDelay() {
+    return initialDelay;
+  }
+
+  public double getMaxHedgeRatio() {
+    return maxHedgeRatio;
+  }
+
+  public int getMaxHedgeTokens() {
+    return maxHedgeTokens;
+  }
+
+  /** Builder for {@link HedgingPolicy}. */
+  public static final class Builder {
+    private double delayPercentile = 0.95;
+    private Duration minDelay = Duration.ofMillis(10);
+    private Duration initialDelay = Duration.ofMillis(100);
+    private double maxHedgeRatio = 0.05;
+    private int maxHedgeTokens = 10;
+
+    private Builder() {}
+
+    /**
+     * Sets the latency percentile after which a hedge is sent.
+     *
+     * @param delayPercentile Percentile between 0 and 1 (exclusive), e.g. 0.95
+     * @return this builder
+     */
+    public Builder delayPercentile(double delayPercentile) {
+      if (delayPercentile <= 0 || delayPercentile >= 1) {
+        throw new IllegalArgumentException("delayPercentile must be in (0, 1)");
+      }
+      this.delayPercentile = delayPercentile;
+      return this;
+    }
+
+    /**
+     * Sets the shortest delay before a hedge is sent.
+     *
+     * @param minDelay Minimum hedge delay
+     * @return this builder
+     */
+    public Builder minDelay(Duration minDelay) {
+      this.minDelay = minDelay;
+      return this;
+    }
+
+    /**
+     * Sets the hedge delay used until enough round trips have been observed.
+     *
+     * @param initialDelay Initial hedge delay
+     * @return this builder
+     */
+    public Builder initialDelay(Duration initialDelay) {
+      this.initialDelay = initialDelay;
+      return this;
+    }
+
+    /**
+     * Sets the fraction of calls that may be hedged over time.
+     *
+     * @param maxHedgeRatio Hedge tokens earned per call (e.g., 0.05 for 5%)
+     * @return this builder
+     */
+    public Builder maxHedgeRatio(double maxHedgeRatio) {
+      if (maxHedgeRatio < 0) {
+        throw new IllegalArgumentException("maxHedgeRatio must not be negative");
+      }
+      this.maxHedgeRatio = maxHedgeRatio;
+      return this;
+    }
+
+    /**
+     * Sets how many hedges can be banked, which is also the initial balance.
+     *
+     * @param maxHedgeTokens Maximum banked hedges
+     * @return this builder
+     */
+    public Builder maxHedgeTokens(int maxHedgeTokens) {
+      if (maxHedgeTokens < 0) {
+        throw new IllegalArgumentException("maxHedgeTokens must not be negative");
+      }
+      this.maxHedgeTokens = maxHedgeTokens;
+      return this;
+    }
+
+    public HedgingPolicy build() {
+      return new HedgingPolicy(this);
+    }
+  }
+}
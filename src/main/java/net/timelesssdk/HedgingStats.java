@@ -0,0 +1,65 @@
+package net.timelesssdk;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Counters describing the hedged requests of a {@link TimelessPayClient}. */
+public final class HedgingStats {
+  private final LongAdder hedgesSent = new LongAdder();
+  private final LongAdder hedgesWon = new LongAdder();
+  private final LongAdder hedgesSkipped = new LongAdder();
+  private volatile long currentDelayMillis;
+
+  HedgingStats() {}
+
+  void recordSent() {
+    hedgesSent.increment();
+  }
+
+  void recordWon() {
+    hedgesWon.increment();
+  }
+
+  void recordSkipped() {
+    hedgesSkipped.increment();
+  }
+
+  void setCurrentDelayMillis(long currentDelayMillis) {
+    this.currentDelayMillis = currentDelayMillis;
+  }
+
+  /**
+   * Gets the number of hedge requests sent.
+   *
+   * @return hedges sent
+   */
+  public long getHedgesSent() {
+    return hedgesSent.sum();
+  }
+
+  /**
+   * Gets the number of attempts whose winning response came from the hedge.
+   *
+   * @return hedges that won
+   */
+  public long getHedgesWon() {
+    return hedgesWon.sum();
+  }
+
+  /**
+   * Gets the number of hedges not sent because the rate cap or the concurrency guards refused.
+   *
+   * @return hedges skipped
+   */
+  public long getHedgesSkipped() {
+    return hedgesSkipped.sum();
+  }
+
+  /**
+   * Gets the hedge delay currently in use.
+   *
+   * @return hedge delay in milliseconds
+   */
+  public long getCurrentDelayMillis() {
+    return currentDelayMillis;
+  }
+}
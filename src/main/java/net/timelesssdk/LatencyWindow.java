@@ -0,0 +1,51 @@
+package net.timelesssdk;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sliding window over the most recent latency samples. Recording is a lock-free array write; the
+ * percentile is recomputed by the recording thread every {@link #RECOMPUTE_INTERVAL} samples and
+ * read from a cached value in between.
+ */
+final class LatencyWindow {
+  private static final int SIZE = 1024;
+  private static final int MASK = SIZE - 1;
+  private static final int RECOMPUTE_INTERVAL = 64;
+
+  private final double percentile;
+  private final AtomicLongArray samples = new AtomicLongArray(SIZE);
+  private final AtomicLong count = new AtomicLong();
+  private volatile long cachedNanos = -1;
+
+  LatencyWindow(double percentile) {
+    this.percentile = percentile;
+  }
+
+  void record(long nanos) {
+    long n = count.incrementAndGet();
+    samples.set((int) ((n - 1) & MASK), nanos);
+    if (n % RECOMPUTE_INTERVAL == 0) {
+      recompute((int) Math.min(n, SIZE));
+    }
+  }
+
+  /**
+   * Gets the configured percentile of the window.
+   *
+   * @return latency in nanoseconds, or -1 until {@link #RECOMPUTE_INTERVAL} samples were recorded
+   */
+  long percentileNanos() {
+    return cachedNanos;
+  }
+
+  private void recompute(int size) {
+    long[] copy = new long[size];
+    for (int i = 0; i < size; i++) {
+      copy[i] = samples.get(i);
+    }
+    Arrays.sort(copy);
+    cachedNanos = copy[Math.min(size - 1, (int) Math.ceil(percentile * size) - 1)];
+  }
+}
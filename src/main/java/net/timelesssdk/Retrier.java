@@ -0,0 +1,119 @@
+package net.timelesssdk;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+import okhttp3.Response;
+
+/** Applies a {@link RetryPolicy}: classifies failures and computes jittered delays. */
+final class Retrier {
+  /** Returned by the delay methods when the failure must not be retried. */
+  static final long NO_RETRY = -1;
+
+  private static final String HEADER_RETRY_AFTER = "Retry-After";
+
+  private final RetryPolicy policy;
+  private final RetryBudget budget;
+
+  Retrier(RetryPolicy policy) {
+    this.policy = policy;
+    this.budget = new RetryBudget(policy.getBudgetRatio(), policy.getBudgetMaxTokens());
+  }
+
+  RetryBudget getBudget() {
+    return budget;
+  }
+
+  /** Records a new logical call, refilling the retry budget. */
+  void recordCall() {
+    if (policy.getMaxAttempts() > 1) {
+      budget.recordCall();
+    }
+  }
+
+  /**
+   * Decides whether a call that failed with an I/O error is retried.
+   *
+   * @param attempt The attempt that failed, starting at 1
+   * @param previousDelayMillis The delay before that attempt, or 0 for the first one
+   * @param e The failure
+   * @return delay before the next attempt in milliseconds, or {@link #NO_RETRY}
+   */
+  long delayAfterFailure(int attempt, long previousDelayMillis, IOException e) {
+    if (attempt >= policy.getMaxAttempts() || !isRetryable(e) || !budget.tryAcquireRetry()) {
+      return NO_RETRY;
+    }
+    return jitteredDelay(previousDelayMillis);
+  }
+
+  /**
+   * Decides whether a call that received a response is retried.
+   *
+   * @param attempt The attempt that produced the response, starting at 1
+   * @param previousDelayMillis The delay before that attempt, or 0 for the first one
+   * @param response The response
+   * @return delay before the next attempt in milliseconds, or {@link #NO_RETRY}
+   */
+  long delayAfterResponse(int attempt, long previousDelayMillis, Response response) {
+    int code = response.code();
+    if (attempt >= policy.getMaxAttempts() || !isRetryable(code)) {
+      return NO_RETRY;
+    }
+    long retryAfterMillis = parseRetryAfter(response.header(HEADER_RETRY_AFTER));
+    if (code == 429 && retryAfterMillis < 0) {
+      return NO_RETRY;
+    }
+    if (retryAfterMillis > policy.getMaxRetryAfter().toMillis()) {
+      return NO_RETRY;
+    }
+    if (!budget.tryAcquireRetry()) {
+      return NO_RETRY;
+    }
+    return Math.max(jitteredDelay(previousDelayMillis), retryAfterMillis);
+  }
+
+  /** Decorrelated jitter: uniform between the base delay and three times the previous delay. */
+  private long jitteredDelay(long previousDelayMillis) {
+    long base = policy.getBaseDelay().toMillis();
+    long cap = policy.getMaxDelay().toMillis();
+    long upper = Math.min(cap, Math.max(base, previousDelayMillis) * 3);
+    if (upper <= base) {
+      return Math.min(base, cap);
+    }
+    return ThreadLocalRandom.current().nextLong(base, upper + 1);
+  }
+
+  private static boolean isRetryable(IOException e) {
+    return e instanceof ConnectException
+        || e instanceof NoRouteToHostException
+        || e instanceof UnknownHostException;
+  }
+
+  private static boolean isRetryable(int code) {
+    return code == 429 || code == 502 || code == 503 || code == 504;
+  }
+
+  /** Parses a Retry-After header given in seconds or as an HTTP date; -1 if absent or invalid. */
+  static long parseRetryAfter(String value) {
+    if (value == null || value.isEmpty()) {
+      return -1;
+    }
+    try {
+      return Math.max(0, Duration.ofSeconds(Long.parseLong(value.trim())).toMillis());
+    } catch (NumberFormatException e) {
+      // Not delta-seconds, try HTTP-date
+    }
+    try {
+      ZonedDateTime date = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+      return Math.max(0, Duration.between(ZonedDateTime.now(date.getZone()), date).toMillis());
+    } catch (DateTimeParseException e) {
+      return -1;
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package net.timelesssdk;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Client-wide token bucket limiting retries to a fraction of calls. Every call deposits {@link
+ * RetryPolicy#getBudgetRatio()} tokens, every retry withdraws one.
+ */
+public final class RetryBudget {
+  private final TokenBucket tokens;
+  private final LongAdder retries = new LongAdder();
+  private final LongAdder rejectedRetries = new LongAdder();
+
+  RetryBudget(double ratio, int maxTokens) {
+    this.tokens = new TokenBucket(ratio, maxTokens);
+  }
+
+  void recordCall() {
+    tokens.deposit();
+  }
+
+  boolean tryAcquireRetry() {
+    if (!tokens.tryWithdraw()) {
+      rejectedRetries.increment();
+      return false;
+    }
+    retries.increment();
+    return true;
+  }
+
+  /**
+   * Gets the number of retries currently available.
+   *
+   * @return available retries
+   */
+  public double getAvailableRetries() {
+    return tokens.available();
+  }
+
+  /**
+   * Gets the number of retries performed.
+   *
+   * @return retry count
+   */
+  public long getRetries() {
+    return retries.sum();
+  }
+
+  /**
+   * Gets the number of retries skipped because the budget was exhausted.
+   *
+   * @return rejected retry count
+   */
+  public long getRejectedRetries() {
+    return rejectedRetries.sum();
+  }
+}
@@ -0,0 +1,171 @@
+package net.timelesssdk;
+
+import java.time.Duration;
+
+/**
+ * Retry settings for {@link TimelessPayClient}.
+ *
+ * <p>A retried call re-sends the already signed request body with the same X-Request-Id, so PGS
+ * can deduplicate it. Connection failures, 502/503/504 responses and 429 responses carrying a
+ * Retry-After header are retried. Delays use decorrelated jitter between {@code baseDelay} and
+ * {@code maxDelay}, and never undercut a Retry-After header. Retries draw from a client-wide
+ * {@link RetryBudget} that each call refills by {@code budgetRatio}, so retries stay a bounded
+ * fraction of traffic while PGS is degraded.
+ */
+public final class RetryPolicy {
+  private static final RetryPolicy DISABLED = builder().maxAttempts(1).build();
+
+  private final int maxAttempts;
+  private final Duration baseDelay;
+  private final Duration maxDelay;
+  private final Duration maxRetryAfter;
+  private final double budgetRatio;
+  private final int budgetMaxTokens;
+
+  private RetryPolicy(Builder builder) {
+    this.maxAttempts = builder.maxAttempts;
+    this.baseDelay = builder.baseDelay;
+    this.maxDelay = builder.maxDelay;
+    this.maxRetryAfter = builder.maxRetryAfter;
+    this.budgetRatio = builder.budgetRatio;
+    this.budgetMaxTokens = builder.budgetMaxTokens;
+  }
+
+  /**
+   * Gets a policy that never retries. This is the client default.
+   *
+   * @return policy with a single attempt
+   */
+  public static RetryPolicy disabled() {
+    return DISABLED;
+  }
+
+  /**
+   * Creates a builder with the default settings: 3 attempts, 100 ms base delay, 5 s maximum delay,
+   * Retry-After honored up to 30 s and a budget of 10% of calls with up to 100 banked retries.
+   *
+   * @return a new Builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  public Duration getBaseDelay() {
+    return baseDelay;
+  }
+
+  public Duration getMaxDelay() {
+    return maxDelay;
+  }
+
+  public Duration getMaxRetryAfter() {
+    return maxRetryAfter;
+  }
+
+  public double getBudgetRatio() {
+    return budgetRatio;
+  }
+
+  public int getBudgetMaxTokens() {
+    return budgetMaxTokens;
+  }
+
+  /** Builder for {@link RetryPolicy}. */
+  public static final class Builder {
+    private int maxAttempts = 3;
+    private Duration baseDelay = Duration.ofMillis(100);
+    private Duration maxDelay = Duration.ofSeconds(5);
+    private Duration maxRetryAfter = Duration.ofSeconds(30);
+    private double budgetRatio = 0.1;
+    private int budgetMaxTokens = 100;
+
+    private Builder() {}
+
+    /**
+     * Sets the maximum number of attempts per call, including the first one.
+     *
+     * @param maxAttempts Maximum attempts (1 disables retries)
+     * @return this builder
+     */
+    public Builder maxAttempts(int maxAttempts) {
+      if (maxAttempts < 1) {
+        throw new IllegalArgumentException("maxAttempts must be at least 1");
+      }
+      this.maxAttempts = maxAttempts;
+      return this;
+    }
+
+    /**
+     * Sets the lower bound of the jittered delay.
+     *
+     * @param baseDelay Base delay
+     * @return this builder
+     */
+    public Builder baseDelay(Duration baseDelay) {
+      this.baseDelay = baseDelay;
+      return this;
+    }
+
+    /**
+     * Sets the upper bound of the jittered delay.
+     *
+     * @param maxDelay Maximum delay
+     * @return this builder
+     */
+    public Builder maxDelay(Duration maxDelay) {
+      this.maxDelay = maxDelay;
+      return this;
+    }
+
+    /**
+     * Sets the longest Retry-After the client waits for. Responses asking for a longer wait are
+     * not retried.
+     *
+     * @param maxRetryAfter Maximum honored Retry-After
+     * @return this builder
+     */
+    public Builder maxRetryAfter(Duration maxRetryAfter) {
+      this.maxRetryAfter = maxRetryAfter;
+      return this;
+    }
+
+    /**
+     * Sets the fraction of calls that may be retried over time.
+     *
+     * @param budgetRatio Retry tokens earned per call (e.g., 0.1 for 10%)
+     * @return this builder
+     */
+    public Builder budgetRatio(double budgetRatio) {
+      if (budgetRatio < 0) {
+        throw new IllegalArgumentException("budgetRatio must not be negative");
+      }
+      this.budgetRatio = budgetRatio;
+      return this;
+    }
+
+    /**
+     * Sets how many retries the budget can bank, which is also its initial balance.
+     *
+     * @param budgetMaxTokens Maximum banked retries
+     * @return this builder
+     */
+    public Builder budgetMaxTokens(int budgetMaxTokens) {
+      if (budgetMaxTokens < 0) {
+        throw new IllegalArgumentException("budgetMaxTokens must not be negative");
+      }
+      this.budgetMaxTokens = budgetMaxTokens;
+      return this;
+    }
+
+    public RetryPolicy build() {
+      if (baseDelay.compareTo(maxDelay) > 0) {
+        throw new IllegalStateException("baseDelay must not exceed maxDelay");
+      }
+      return new RetryPolicy(this);
+    }
+  }
+}
@@ -3,15 +3,39 @@ package net.timelesssdk;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import java.io.IOException;
+import java.io.InputStream;
 import java.security.PrivateKey;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.timelesssdk.exception.CircuitBreakerOpenException;
+import net.timelesssdk.exception.ConcurrencyLimitExceededException;
 import net.timelesssdk.exception.SignatureException;
 import net.timelesssdk.exception.TimelessPayApiException;
 import net.timelesssdk.exception.TimelessPayException;
+import net.timelesssdk.metrics.MetricsListener;
+import net.timelesssdk.metrics.MetricsRecorder;
+import net.timelesssdk.metrics.Outcome;
+import net.timelesssdk.metrics.Phase;
 import net.timelesssdk.model.CheckoutSessionResponse;
 import net.timelesssdk.model.CreateCheckoutSessionRequest;
 import net.timelesssdk.model.ErrorResponse;
+import net.timelesssdk.security.EcdsaSigner;
 import net.timelesssdk.security.SignatureUtil;
+import net.timelesssdk.security.SigningOutputStream;
 import okhttp3.*;
 
 /** Main client for interacting with the TimelessPay Payment Gateway Service. */
@@ -23,13 +47,35 @@ public class TimelessPayClient {
   private static final String HEADER_PAYLOAD_SIGNATURE = "X-Payload-Signature";
   private static final String HEADER_TENANT_ID = "X-Tenant-Id";
   private static final String HEADER_REQUEST_ID = "X-Request-Id";
+  private static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 1024;
+  private static final int DEFAULT_BATCH_PARALLELISM = 64;
+  private static final int DEFAULT_MAX_IDLE_CONNECTIONS = 5;
+  private static final Duration DEFAULT_KEEP_ALIVE_DURATION = Duration.ofMinutes(5);
+  private static final HedgingStats DISABLED_HEDGING_STATS = new HedgingStats();
+  private static final MediaType MEDIA_TYPE_JSON = MediaType.get("application/json; charset=utf-8");
+  private static final int MIN_BODY_SIZE_HINT = 512;
+  private static final long DEFAULT_MAX_RESPONSE_BODY_BYTES = 1024 * 1024;
 
   private final String baseUrl;
   private final String apiKeyId;
   private final String tenantId;
-  private final PrivateKey privateKey;
+  private final EcdsaSigner signer;
   private final OkHttpClient httpClient;
   private final ObjectMapper objectMapper;
+  private final int maxInFlightRequests;
+  private final Semaphore inFlightPermits;
+  private final Executor completionExecutor;
+  private final Executor signingExecutor;
+  private final int batchParallelism;
+  private final Retrier retrier;
+  private final CircuitBreaker circuitBreaker;
+  private final ConcurrencyLimiter concurrencyLimiter;
+  private final Hedger hedger;
+  private final boolean streamingSerialization;
+  private final long maxResponseBodyBytes;
+  private final MetricsRecorder metrics = new MetricsRecorder();
+  // Sizes the serialization buffer after the previous request; racy updates are harmless
+  private volatile int bodySizeHint = MIN_BODY_SIZE_HINT;
 
   /**
    * Creates a new TimelessPayClient.
@@ -55,13 +101,86 @@ public class TimelessPayClient {
    */
   public TimelessPayClient(
       String baseUrl, String apiKeyId, String tenantId, PrivateKey privateKey) {
-    this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
-    this.apiKeyId = apiKeyId;
-    this.tenantId = tenantId;
-    this.privateKey = privateKey;
-    this.httpClient = new OkHttpClient();
-    this.objectMapper = new ObjectMapper();
-    this.objectMapper.registerModule(new JavaTimeModule());
+    this(
+        new Builder()
+            .baseUrl(baseUrl)
+            .apiKeyId(apiKeyId)
+            .tenantId(tenantId)
+            .privateKey(privateKey));
+  }
+
+  /**
+   * Creates a new TimelessPayClient with explicit settings for asynchronous calls.
+   *
+   * @param baseUrl The base URL of the PGS API
+   * @param apiKeyId Your API Key ID
+   * @param tenantId Your tenant ID
+   * @param privateKey Your private key as PrivateKey object
+   * @param maxInFlightRequests Maximum number of asynchronous calls awaiting a response; further
+   *     calls fail fast until one completes
+   * @param completionExecutor Executor used to complete the futures returned by {@link
+   *     #createCheckoutSessionAsync}; {@code Runnable::run} completes them on the HTTP callback
+   *     thread
+   */
+  public TimelessPayClient(
+      String baseUrl,
+      String apiKeyId,
+      String tenantId,
+      PrivateKey privateKey,
+      int maxInFlightRequests,
+      Executor completionExecutor) {
+    this(
+        new Builder()
+            .baseUrl(baseUrl)
+            .apiKeyId(apiKeyId)
+            .tenantId(tenantId)
+            .privateKey(privateKey)
+            .maxInFlightRequests(maxInFlightRequests)
+            .completionExecutor(completionExecutor));
+  }
+
+  private TimelessPayClient(Builder builder) {
+    if (builder.baseUrl == null
+        || builder.apiKeyId == null
+        || builder.tenantId == null
+        || builder.privateKey == null) {
+      throw new IllegalStateException("baseUrl, apiKeyId, tenantId and privateKey are required");
+    }
+    String url = builder.baseUrl;
+    this.baseUrl = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    this.apiKeyId = builder.apiKeyId;
+    this.tenantId = builder.tenantId;
+    this.signer = new EcdsaSigner(builder.privateKey);
+    this.httpClient = builder.buildHttpClient();
+    this.objectMapper =
+        builder.objectMapper != null ? builder.objectMapper : createDefaultObjectMapper();
+    this.maxInFlightRequests = builder.maxInFlightRequests;
+    this.inFlightPermits = new Semaphore(builder.maxInFlightRequests);
+    this.completionExecutor = builder.completionExecutor;
+    this.signingExecutor = builder.signingExecutor;
+    this.batchParallelism = builder.batchParallelism;
+    this.retrier = new Retrier(builder.retryPolicy);
+    this.circuitBreaker = builder.circuitBreaker;
+    this.concurrencyLimiter = builder.concurrencyLimiter;
+    this.hedger = builder.hedgingPolicy != null ? new Hedger(builder.hedgingPolicy) : null;
+    this.streamingSerialization = builder.streamingSerialization;
+    this.maxResponseBodyBytes = builder.maxResponseBodyBytes;
+    this.metrics.setListener(builder.metricsListener);
+  }
+
+  /**
+   * Creates a builder for configuring a TimelessPayClient.
+   *
+   * @return a new Builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private static ObjectMapper createDefaultObjectMapper() {
+    ObjectMapper mapper = new ObjectMapper();
+    mapper.registerModule(new JavaTimeModule());
+    return mapper;
   }
 
   /**
@@ -74,55 +193,570 @@ public class TimelessPayClient {
   public CheckoutSessionResponse createCheckoutSession(CreateCheckoutSessionRequest request)
       throws TimelessPayException {
     try {
-      // Serialize request to JSON
-      String requestJson = objectMapper.writeValueAsString(request);
+      Request httpRequest = buildHttpRequest(request);
+      CheckoutSessionResponse response =
+          hedger != null ? executeHedged(httpRequest) : execute(httpRequest);
+      recordOutcome(null);
+      return response;
+    } catch (TimelessPayException e) {
+      recordOutcome(e);
+      throw e;
+    }
+  }
 
-      // Generate signature
-      String signature = SignatureUtil.sign(requestJson, privateKey);
+  /**
+   * Creates a checkout session without blocking the calling thread.
+   *
+   * <p>The request is serialized and signed on the calling thread and then handed to the HTTP
+   * dispatcher. The returned future completes on the configured completion executor with the
+   * response, or exceptionally with a {@link TimelessPayException} (a {@link
+   * TimelessPayApiException} for error responses). If the client already has the maximum number
+   * of asynchronous calls in flight, the future fails immediately. Cancelling the future cancels
+   * the underlying HTTP call.
+   *
+   * @param request The checkout session request
+   * @return future completed with the CheckoutSessionResponse
+   */
+  public CompletableFuture<CheckoutSessionResponse> createCheckoutSessionAsync(
+      CreateCheckoutSessionRequest request) {
+    CompletableFuture<CheckoutSessionResponse> future = new CompletableFuture<>();
+    if (!inFlightPermits.tryAcquire()) {
+      metrics.onOutcome(Outcome.REJECTED);
+      future.completeExceptionally(
+          new ConcurrencyLimitExceededException(
+              "Too many in-flight requests (limit " + maxInFlightRequests + ")"));
+      return future;
+    }
 
-      // Generate request ID if not provided
-      String requestId = request.getCorrelationId();
-      if (requestId == null || requestId.isEmpty()) {
-        requestId = UUID.randomUUID().toString();
+    Request httpRequest;
+    try {
+      httpRequest = buildHttpRequest(request);
+    } catch (TimelessPayException e) {
+      inFlightPermits.release();
+      recordOutcome(e);
+      future.completeExceptionally(e);
+      return future;
+    }
+
+    return enqueue(httpRequest, inFlightPermits::release, true);
+  }
+
+  /**
+   * Creates checkout sessions for a batch of requests.
+   *
+   * <p>Requests are serialized and signed on the signing executor while earlier requests of the
+   * batch are still on the wire, with at most {@code batchParallelism} requests between
+   * serialization and response at any time. Each request also counts against the client's
+   * in-flight limit; the calling thread waits for capacity instead of failing. A failed request
+   * does not affect the others.
+   *
+   * @param requests The checkout session requests
+   * @return one result per request, in request order
+   */
+  public List<BatchResult<CheckoutSessionResponse>> createCheckoutSessions(
+      List<CreateCheckoutSessionRequest> requests) {
+    return createCheckoutSessions(requests, batchParallelism);
+  }
+
+  /**
+   * Creates checkout sessions for a batch of requests with an explicit parallelism limit.
+   *
+   * @param requests The checkout session requests
+   * @param parallelism Maximum number of requests of this batch being signed or sent at once
+   * @return one result per request, in request order
+   * @see #createCheckoutSessions(List)
+   */
+  public List<BatchResult<CheckoutSessionResponse>> createCheckoutSessions(
+      List<CreateCheckoutSessionRequest> requests, int parallelism) {
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("parallelism must be positive");
+    }
+    Semaphore window = new Semaphore(parallelism);
+    List<CompletableFuture<CheckoutSessionResponse>> futures = new ArrayList<>(requests.size());
+    for (CreateCheckoutSessionRequest request : requests) {
+      try {
+        window.acquire();
+        try {
+          inFlightPermits.acquire();
+        } catch (InterruptedException e) {
+          window.release();
+          throw e;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        futures.add(
+            CompletableFuture.failedFuture(
+                new TimelessPayException("Interrupted while submitting checkout sessions", e)));
+        continue;
       }
 
-      // Build request
-      RequestBody body = RequestBody.create(requestJson, MediaType.get(CONTENT_TYPE_JSON));
-      Request httpRequest =
-          new Request.Builder()
-              .url(baseUrl + CHECKOUT_SESSIONS_ENDPOINT)
-              .post(body)
-              .addHeader(HEADER_CONTENT_TYPE, CONTENT_TYPE_JSON)
-              .addHeader(HEADER_TIMELESS_ID, apiKeyId)
-              .addHeader(HEADER_PAYLOAD_SIGNATURE, signature)
-              .addHeader(HEADER_TENANT_ID, tenantId)
-              .addHeader(HEADER_REQUEST_ID, requestId)
-              .build();
-
-      // Execute request
+      // Released by whichever comes first: the HTTP callback, or a failure before sending.
+      AtomicBoolean released = new AtomicBoolean();
+      Runnable onDone =
+          () -> {
+            if (released.compareAndSet(false, true)) {
+              inFlightPermits.release();
+              window.release();
+            }
+          };
+      CompletableFuture<CheckoutSessionResponse> future =
+          CompletableFuture.supplyAsync(() -> buildHttpRequestUnchecked(request), signingExecutor)
+              .thenCompose(httpRequest -> enqueue(httpRequest, onDone, true));
+      future.whenComplete((result, error) -> onDone.run());
+      futures.add(future);
+    }
+
+    List<BatchResult<CheckoutSessionResponse>> results = new ArrayList<>(futures.size());
+    for (CompletableFuture<CheckoutSessionResponse> future : futures) {
+      try {
+        results.add(BatchResult.success(future.join()));
+      } catch (CompletionException | CancellationException e) {
+        results.add(BatchResult.failure(toTimelessPayException(unwrap(e))));
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Sends a signed request on the calling thread, retrying according to the retry policy.
+   *
+   * @param httpRequest The signed HTTP request, re-sent unchanged on retries
+   * @return the parsed response
+   * @throws TimelessPayException if the final attempt fails
+   */
+  private CheckoutSessionResponse execute(Request httpRequest) throws TimelessPayException {
+    retrier.recordCall();
+    long delayMillis = 0;
+    for (int attempt = 1; ; attempt++) {
+      Admission admission = admit();
+      long startNanos = System.nanoTime();
       try (Response response = httpClient.newCall(httpRequest).execute()) {
-        String responseBody = response.body() != null ? response.body().string() : "";
-
-        if (response.isSuccessful()) {
-          return objectMapper.readValue(responseBody, CheckoutSessionResponse.class);
-        } else {
-          // Try to parse error response
-          ErrorResponse errorResponse = null;
-          try {
-            errorResponse = objectMapper.readValue(responseBody, ErrorResponse.class);
-          } catch (Exception e) {
-            // Ignore parsing errors
+        metrics.recordSince(Phase.HTTP, startNanos);
+        metrics.onStatus(response.code());
+        admission.onResponse(response.code());
+        long nextDelayMillis = retrier.delayAfterResponse(attempt, delayMillis, response);
+        if (nextDelayMillis == Retrier.NO_RETRY) {
+          return handleResponse(response);
+        }
+        delayMillis = nextDelayMillis;
+      } catch (IOException e) {
+        admission.onFailure();
+        long nextDelayMillis = retrier.delayAfterFailure(attempt, delayMillis, e);
+        if (nextDelayMillis == Retrier.NO_RETRY) {
+          throw new TimelessPayException("Failed to create checkout session", e);
+        }
+        delayMillis = nextDelayMillis;
+      } catch (RuntimeException | Error e) {
+        // Not a PGS failure, e.g. a throwing interceptor; still hand back the permit and probe slot
+        admission.onCancelled();
+        throw e;
+      }
+
+      try {
+        Thread.sleep(delayMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new TimelessPayException("Interrupted while waiting to retry", e);
+      }
+    }
+  }
+
+  /**
+   * Sends a signed request through the asynchronous path, which supports hedging, and waits for
+   * the result.
+   *
+   * @param httpRequest The signed HTTP request
+   * @return the parsed response
+   * @throws TimelessPayException if the call fails
+   */
+  private CheckoutSessionResponse executeHedged(Request httpRequest) throws TimelessPayException {
+    CompletableFuture<CheckoutSessionResponse> future = enqueue(httpRequest, () -> {}, false);
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      throw toTimelessPayException(unwrap(e));
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new TimelessPayException("Interrupted while waiting for checkout session", e);
+    }
+  }
+
+  /**
+   * Sends a signed request through the HTTP dispatcher, retrying according to the retry policy.
+   *
+   * @param httpRequest The signed HTTP request, re-sent unchanged on retries
+   * @param onDone Callback run once the call finishes, before the future completes
+   * @param recordOutcome Whether this exchange is the whole logical call and counts its outcome
+   * @return future completed with the parsed response
+   */
+  private CompletableFuture<CheckoutSessionResponse> enqueue(
+      Request httpRequest, Runnable onDone, boolean recordOutcome) {
+    AsyncExchange exchange = new AsyncExchange(httpRequest, onDone, recordOutcome);
+    exchange.start();
+    return exchange.future;
+  }
+
+  /**
+   * State of one asynchronous logical call. Attempts run one after another, so the attempt
+   * counters are only ever touched by one thread at a time.
+   */
+  private final class AsyncExchange {
+    private final Request httpRequest;
+    private final Runnable onDone;
+    private final boolean recordOutcome;
+    private final CompletableFuture<CheckoutSessionResponse> future = new CompletableFuture<>();
+    private volatile Attempt current;
+    private int attempt;
+    private long delayMillis;
+
+    AsyncExchange(Request httpRequest, Runnable onDone, boolean recordOutcome) {
+      this.httpRequest = httpRequest;
+      this.onDone = onDone;
+      this.recordOutcome = recordOutcome;
+    }
+
+    void start() {
+      retrier.recordCall();
+      if (hedger != null) {
+        hedger.recordCall();
+      }
+      future.whenComplete(
+          (result, error) -> {
+            Attempt running = current;
+            if (future.isCancelled() && running != null) {
+              running.cancel();
+            }
+          });
+      sendAttempt();
+    }
+
+    private void sendAttempt() {
+      if (future.isDone()) {
+        // Cancelled while waiting to retry
+        onDone.run();
+        if (recordOutcome) {
+          metrics.onOutcome(Outcome.FAILURE);
+        }
+        return;
+      }
+      Admission admission;
+      try {
+        admission = admit();
+      } catch (TimelessPayException e) {
+        finish(null, e);
+        return;
+      }
+      attempt++;
+      Attempt next = new Attempt(this);
+      current = next;
+      next.send(admission, false);
+      if (hedger != null) {
+        CompletableFuture.delayedExecutor(hedger.hedgeDelayMillis(), TimeUnit.MILLISECONDS)
+            .execute(next::hedge);
+      }
+    }
+
+    private void retryAfter(long nextDelayMillis) {
+      delayMillis = nextDelayMillis;
+      CompletableFuture.delayedExecutor(nextDelayMillis, TimeUnit.MILLISECONDS)
+          .execute(this::sendAttempt);
+    }
+
+    /** Handles the response or failure that settled the current attempt. */
+    void onAttemptSettled(Response response, IOException failure) {
+      if (response == null) {
+        long nextDelayMillis = retrier.delayAfterFailure(attempt, delayMillis, failure);
+        if (nextDelayMillis != Retrier.NO_RETRY && !future.isDone()) {
+          retryAfter(nextDelayMillis);
+          return;
+        }
+        finish(null, new TimelessPayException("Failed to create checkout session", failure));
+        return;
+      }
+
+      CheckoutSessionResponse result = null;
+      TimelessPayException error = null;
+      try (response) {
+        long nextDelayMillis = retrier.delayAfterResponse(attempt, delayMillis, response);
+        if (nextDelayMillis != Retrier.NO_RETRY && !future.isDone()) {
+          retryAfter(nextDelayMillis);
+          return;
+        }
+        result = handleResponse(response);
+      } catch (IOException e) {
+        error = new TimelessPayException("Failed to create checkout session", e);
+      } catch (TimelessPayException e) {
+        error = e;
+      } catch (RuntimeException e) {
+        error = new TimelessPayException("Failed to create checkout session", e);
+      }
+      finish(result, error);
+    }
+
+    private void finish(CheckoutSessionResponse result, TimelessPayException error) {
+      onDone.run();
+      if (recordOutcome) {
+        // Before completion, so callers observing the future also observe the count
+        recordOutcome(error);
+      }
+      completeAsync(future, result, error);
+    }
+  }
+
+  /**
+   * One attempt of an exchange: the primary call plus, when hedging, a second call of the same
+   * signed request. The first usable response settles the attempt and cancels the other call; if
+   * neither is usable, the one finishing last settles it.
+   */
+  private final class Attempt {
+    private final AsyncExchange exchange;
+    private final List<Leg> legs = new CopyOnWriteArrayList<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicBoolean settled = new AtomicBoolean();
+
+    Attempt(AsyncExchange exchange) {
+      this.exchange = exchange;
+    }
+
+    void send(Admission admission, boolean hedge) {
+      Leg leg = new Leg(this, httpClient.newCall(exchange.httpRequest), admission, hedge);
+      pending.incrementAndGet();
+      legs.add(leg);
+      if (hedge && settled.get()) {
+        // Settled while the hedge was being prepared
+        pending.decrementAndGet();
+        admission.onCancelled();
+        return;
+      }
+      leg.call.enqueue(leg);
+    }
+
+    void hedge() {
+      if (settled.get() || exchange.future.isDone() || !hedger.tryAcquireHedge()) {
+        return;
+      }
+      Admission admission;
+      try {
+        admission = admit();
+      } catch (TimelessPayException e) {
+        hedger.getStats().recordSkipped();
+        return;
+      }
+      hedger.getStats().recordSent();
+      send(admission, true);
+    }
+
+    void cancel() {
+      for (Leg leg : legs) {
+        leg.call.cancel();
+      }
+    }
+
+    void onLegFinished(Leg leg, Response response, IOException failure) {
+      int remaining = pending.decrementAndGet();
+      boolean usable = response != null && !isFailureStatus(response.code());
+      if ((usable || remaining == 0) && settled.compareAndSet(false, true)) {
+        for (Leg other : legs) {
+          if (other != leg) {
+            other.call.cancel();
           }
+        }
+        if (usable && leg.hedge) {
+          hedger.getStats().recordWon();
+        }
+        exchange.onAttemptSettled(response, failure);
+      } else if (response != null) {
+        response.close();
+      }
+    }
+  }
+
+  /** A single HTTP call belonging to an attempt. */
+  private final class Leg implements Callback {
+    private final Attempt attempt;
+    private final Call call;
+    private final Admission admission;
+    private final boolean hedge;
+    private final long startNanos = System.nanoTime();
+
+    Leg(Attempt attempt, Call call, Admission admission, boolean hedge) {
+      this.attempt = attempt;
+      this.call = call;
+      this.admission = admission;
+      this.hedge = hedge;
+    }
+
+    @Override
+    public void onFailure(Call call, IOException e) {
+      if (call.isCanceled()) {
+        admission.onCancelled();
+      } else {
+        admission.onFailure();
+      }
+      attempt.onLegFinished(this, null, e);
+    }
+
+    @Override
+    public void onResponse(Call call, Response response) {
+      long latencyNanos = System.nanoTime() - startNanos;
+      metrics.onPhase(Phase.HTTP, latencyNanos);
+      metrics.onStatus(response.code());
+      admission.onResponse(response.code());
+      if (hedger != null && !isFailureStatus(response.code())) {
+        hedger.recordLatency(latencyNanos);
+      }
+      attempt.onLegFinished(this, response, null);
+    }
+  }
+
+  /** Whether a status code indicates that PGS is failing or overloaded. */
+  private static boolean isFailureStatus(int code) {
+    return code == 429 || code >= 500;
+  }
+
+  /**
+   * Admits one attempt through the circuit breaker and the concurrency limiter.
+   *
+   * @return admission whose outcome must be recorded once the attempt finishes
+   * @throws CircuitBreakerOpenException if the circuit breaker is open
+   * @throws ConcurrencyLimitExceededException if the concurrency limit is reached
+   */
+  private Admission admit() throws TimelessPayException {
+    if (circuitBreaker == null && concurrencyLimiter == null) {
+      return Admission.UNGUARDED;
+    }
+    CircuitBreaker.Epoch breakerEpoch = null;
+    if (circuitBreaker != null) {
+      breakerEpoch = circuitBreaker.tryAcquire();
+      if (breakerEpoch == null) {
+        throw new CircuitBreakerOpenException(
+            "Circuit breaker is open, PGS is considered unhealthy");
+      }
+    }
+    if (concurrencyLimiter != null && !concurrencyLimiter.tryAcquire()) {
+      if (circuitBreaker != null) {
+        circuitBreaker.onIgnored(breakerEpoch);
+      }
+      throw new ConcurrencyLimitExceededException(
+          "Concurrency limit reached (limit " + concurrencyLimiter.getLimit() + ")");
+    }
+    return new Admission(circuitBreaker, breakerEpoch, concurrencyLimiter);
+  }
+
+  /** Feeds the outcome of one attempt back to the circuit breaker and concurrency limiter. */
+  private static final class Admission {
+    static final Admission UNGUARDED = new Admission(null, null, null);
 
-          String errorMessage =
-              errorResponse != null && errorResponse.getMessage() != null
-                  ? errorResponse.getMessage()
-                  : "API request failed";
-          String errorStatus = errorResponse != null ? errorResponse.getStatus() : null;
+    private final CircuitBreaker circuitBreaker;
+    // Epoch the breaker admitted this attempt in; outcomes only count against that epoch
+    private final CircuitBreaker.Epoch breakerEpoch;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final long startNanos = System.nanoTime();
+    private final AtomicBoolean recorded = new AtomicBoolean();
 
-          throw new TimelessPayApiException(response.code(), errorMessage, errorStatus);
+    Admission(
+        CircuitBreaker circuitBreaker,
+        CircuitBreaker.Epoch breakerEpoch,
+        ConcurrencyLimiter concurrencyLimiter) {
+      this.circuitBreaker = circuitBreaker;
+      this.breakerEpoch = breakerEpoch;
+      this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    void onResponse(int code) {
+      if (isFailureStatus(code)) {
+        onFailure();
+      } else if (record()) {
+        if (circuitBreaker != null) {
+          circuitBreaker.onSuccess(breakerEpoch);
+        }
+        if (concurrencyLimiter != null) {
+          concurrencyLimiter.onSuccess(System.nanoTime() - startNanos);
         }
       }
+    }
+
+    void onFailure() {
+      if (record()) {
+        if (circuitBreaker != null) {
+          circuitBreaker.onFailure(breakerEpoch);
+        }
+        if (concurrencyLimiter != null) {
+          concurrencyLimiter.onDropped();
+        }
+      }
+    }
+
+    void onCancelled() {
+      if (record()) {
+        if (circuitBreaker != null) {
+          circuitBreaker.onIgnored(breakerEpoch);
+        }
+        if (concurrencyLimiter != null) {
+          concurrencyLimiter.onIgnored();
+        }
+      }
+    }
+
+    /** Returns true for the first outcome only; the unguarded admission records nothing. */
+    private boolean record() {
+      return this != UNGUARDED && recorded.compareAndSet(false, true);
+    }
+  }
+
+  /**
+   * Serializes, signs and wraps a checkout session request into an HTTP request.
+   *
+   * @param request The checkout session request
+   * @return the signed HTTP request
+   * @throws TimelessPayException if serialization or signing fails
+   */
+  private Request buildHttpRequest(CreateCheckoutSessionRequest request)
+      throws TimelessPayException {
+    try {
+      String signature;
+      RequestBody body;
+      if (streamingSerialization) {
+        // Serialize and sign in one pass, then hand the buffer to OkHttp without copying
+        long startNanos = System.nanoTime();
+        SigningOutputStream out = new SigningOutputStream(signer, bodySizeHint);
+        objectMapper.writeValue(out, request);
+        long serializedNanos = System.nanoTime();
+        metrics.onPhase(Phase.SERIALIZE, serializedNanos - startNanos);
+        signature = out.sign();
+        metrics.recordSince(Phase.SIGN, serializedNanos);
+        bodySizeHint = out.size() + out.size() / 8;
+        body = RequestBody.create(out.getBuffer(), MEDIA_TYPE_JSON, 0, out.size());
+      } else {
+        // Serialize request to JSON
+        long startNanos = System.nanoTime();
+        String requestJson = objectMapper.writeValueAsString(request);
+        long serializedNanos = System.nanoTime();
+        metrics.onPhase(Phase.SERIALIZE, serializedNanos - startNanos);
+
+        // Generate signature
+        signature = signer.sign(requestJson);
+        metrics.recordSince(Phase.SIGN, serializedNanos);
+        body = RequestBody.create(requestJson, MEDIA_TYPE_JSON);
+      }
+
+      // Generate request ID if not provided
+      String requestId = request.getCorrelationId();
+      if (requestId == null || requestId.isEmpty()) {
+        requestId = UUID.randomUUID().toString();
+      }
+
+      // Build request
+      return new Request.Builder()
+          .url(baseUrl + CHECKOUT_SESSIONS_ENDPOINT)
+          .post(body)
+          .addHeader(HEADER_CONTENT_TYPE, CONTENT_TYPE_JSON)
+          .addHeader(HEADER_TIMELESS_ID, apiKeyId)
+          .addHeader(HEADER_PAYLOAD_SIGNATURE, signature)
+          .addHeader(HEADER_TENANT_ID, tenantId)
+          .addHeader(HEADER_REQUEST_ID, requestId)
+          .build();
     } catch (IOException e) {
       throw new TimelessPayException("Failed to create checkout session", e);
     } catch (SignatureException e) {
@@ -130,6 +764,174 @@ public class TimelessPayClient {
     }
   }
 
+  /**
+   * Variant of {@link #buildHttpRequest} for use inside completion stages. A failure here ends the
+   * call, so its outcome is counted.
+   */
+  private Request buildHttpRequestUnchecked(CreateCheckoutSessionRequest request) {
+    try {
+      return buildHttpRequest(request);
+    } catch (TimelessPayException e) {
+      recordOutcome(e);
+      throw new CompletionException(e);
+    }
+  }
+
+  /**
+   * Maps an HTTP response to a checkout session or an API exception.
+   *
+   * @param response The HTTP response
+   * @return CheckoutSessionResponse for successful responses
+   * @throws IOException if the response body cannot be read or parsed
+   * @throws TimelessPayApiException if the API returned an error status
+   */
+  private CheckoutSessionResponse handleResponse(Response response)
+      throws IOException, TimelessPayApiException {
+    long startNanos = System.nanoTime();
+    try {
+      return parseResponse(response);
+    } finally {
+      metrics.recordSince(Phase.PARSE, startNanos);
+    }
+  }
+
+  private CheckoutSessionResponse parseResponse(Response response)
+      throws IOException, TimelessPayApiException {
+    ResponseBody body = response.body();
+
+    if (response.isSuccessful()) {
+      if (body == null) {
+        throw new IOException("Response has no body");
+      }
+      return objectMapper.readValue(boundedStream(body), CheckoutSessionResponse.class);
+    }
+
+    // Try to parse error response; an empty or oversized body falls back to the defaults
+    ErrorResponse errorResponse = null;
+    if (body != null && body.contentLength() != 0) {
+      try {
+        errorResponse = objectMapper.readValue(boundedStream(body), ErrorResponse.class);
+      } catch (Exception e) {
+        // Ignore parsing errors
+      }
+    }
+
+    String errorMessage =
+        errorResponse != null && errorResponse.getMessage() != null
+            ? errorResponse.getMessage()
+            : "API request failed";
+    String errorStatus = errorResponse != null ? errorResponse.getStatus() : null;
+
+    throw new TimelessPayApiException(response.code(), errorMessage, errorStatus);
+  }
+
+  /**
+   * Opens a response body for parsing, failing fast when it is declared or turns out to be larger
+   * than the configured limit.
+   */
+  private InputStream boundedStream(ResponseBody body) throws IOException {
+    long contentLength = body.contentLength();
+    if (contentLength > maxResponseBodyBytes) {
+      throw new IOException(
+          "Response body of " + contentLength + " bytes exceeds limit of " + maxResponseBodyBytes);
+    }
+    return new BoundedInputStream(body.byteStream(), maxResponseBodyBytes);
+  }
+
+  /** Counts the outcome of a logical call; a null error means success. */
+  private void recordOutcome(Throwable error) {
+    if (error == null) {
+      metrics.onOutcome(Outcome.SUCCESS);
+      return;
+    }
+    Throwable cause = unwrap(error);
+    if (cause instanceof TimelessPayApiException) {
+      metrics.onOutcome(Outcome.API_ERROR);
+    } else if (cause instanceof CircuitBreakerOpenException
+        || cause instanceof ConcurrencyLimitExceededException) {
+      metrics.onOutcome(Outcome.REJECTED);
+    } else {
+      metrics.onOutcome(Outcome.FAILURE);
+    }
+  }
+
+  private static Throwable unwrap(Throwable error) {
+    while ((error instanceof CompletionException || error instanceof ExecutionException)
+        && error.getCause() != null) {
+      error = error.getCause();
+    }
+    return error;
+  }
+
+  private static TimelessPayException toTimelessPayException(Throwable error) {
+    if (error instanceof TimelessPayException) {
+      return (TimelessPayException) error;
+    }
+    if (error instanceof CancellationException) {
+      return new TimelessPayException("Checkout session request was cancelled", error);
+    }
+    return new TimelessPayException("Failed to create checkout session", error);
+  }
+
+  /** Completes a future on the completion executor, falling back to the current thread. */
+  private <T> void completeAsync(CompletableFuture<T> future, T result, Throwable error) {
+    Runnable completion =
+        () -> {
+          if (error != null) {
+            future.completeExceptionally(error);
+          } else {
+            future.complete(result);
+          }
+        };
+    try {
+      completionExecutor.execute(completion);
+    } catch (RejectedExecutionException e) {
+      completion.run();
+    }
+  }
+
+  /**
+   * Gets the client-wide retry budget, for monitoring how many retries are being performed or
+   * suppressed.
+   *
+   * @return the retry budget
+   */
+  public RetryBudget getRetryBudget() {
+    return retrier.getBudget();
+  }
+
+  /**
+   * Gets the hedging counters. All counters stay at zero unless hedging is enabled.
+   *
+   * @return hedging statistics
+   */
+  public HedgingStats getHedgingStats() {
+    return hedger != null ? hedger.getStats() : DISABLED_HEDGING_STATS;
+  }
+
+  /**
+   * Gets this client's phase latencies, outcome counts and HTTP status counts.
+   *
+   * @return the client's metrics
+   */
+  public MetricsRecorder getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Gets the number of asynchronous calls currently awaiting a response.
+   *
+   * @return in-flight asynchronous call count
+   */
+  public int getInFlightRequests() {
+    return maxInFlightRequests - inFlightPermits.availablePermits();
+  }
+
+  /** Gets the HTTP client this client sends requests with. */
+  OkHttpClient getHttpClient() {
+    return httpClient;
+  }
+
   /**
    * Gets the base URL.
    *
@@ -187,4 +989,490 @@ public class TimelessPayClient {
   public static String getCheckoutUrl(String nonce, String timelessId) {
     return String.format("https://embedded.timelesspay.net/checkout/%s/%s", nonce, timelessId);
   }
+
+  /**
+   * Builder for {@link TimelessPayClient}.
+   *
+   * <p>Clients built from the same {@link OkHttpClient}, {@link ConnectionPool} or {@link
+   * ObjectMapper} share them, so many clients (for example one per tenant) can reuse a single set
+   * of pooled connections, TLS sessions and dispatcher threads. Transport settings that are not
+   * configured keep the OkHttp defaults.
+   */
+  public static final class Builder {
+    private String baseUrl;
+    private String apiKeyId;
+    private String tenantId;
+    private PrivateKey privateKey;
+    private OkHttpClient httpClient;
+    private ObjectMapper objectMapper;
+    private ConnectionPool connectionPool;
+    private int maxIdleConnections = DEFAULT_MAX_IDLE_CONNECTIONS;
+    private Duration keepAliveDuration = DEFAULT_KEEP_ALIVE_DURATION;
+    private boolean poolSettingsConfigured;
+    private Integer maxRequests;
+    private Integer maxRequestsPerHost;
+    private boolean virtualThreads;
+    private Duration connectTimeout;
+    private Duration readTimeout;
+    private Duration writeTimeout;
+    private Duration callTimeout;
+    private int maxInFlightRequests = DEFAULT_MAX_IN_FLIGHT_REQUESTS;
+    private Executor completionExecutor = Runnable::run;
+    private Executor signingExecutor = ForkJoinPool.commonPool();
+    private int batchParallelism = DEFAULT_BATCH_PARALLELISM;
+    private RetryPolicy retryPolicy = RetryPolicy.disabled();
+    private CircuitBreaker circuitBreaker;
+    private ConcurrencyLimiter concurrencyLimiter;
+    private HedgingPolicy hedgingPolicy;
+    private boolean streamingSerialization = true;
+    private long maxResponseBodyBytes = DEFAULT_MAX_RESPONSE_BODY_BYTES;
+    private MetricsListener metricsListener;
+    // Created by the first build() and reused by later ones until their settings change
+    private OkHttpClient builtDefaultClient;
+    private ConnectionPool builtConnectionPool;
+    private Dispatcher builtDispatcher;
+
+    private Builder() {}
+
+    /**
+     * Sets the base URL of the PGS API.
+     *
+     * @param baseUrl The base URL (e.g., "http://api.timelesspay.net/api/v1/pgs")
+     * @return this builder
+     */
+    public Builder baseUrl(String baseUrl) {
+      this.baseUrl = baseUrl;
+      return this;
+    }
+
+    /**
+     * Sets the API Key ID.
+     *
+     * @param apiKeyId Your API Key ID
+     * @return this builder
+     */
+    public Builder apiKeyId(String apiKeyId) {
+      this.apiKeyId = apiKeyId;
+      return this;
+    }
+
+    /**
+     * Sets the tenant ID.
+     *
+     * @param tenantId Your tenant ID
+     * @return this builder
+     */
+    public Builder tenantId(String tenantId) {
+      this.tenantId = tenantId;
+      return this;
+    }
+
+    /**
+     * Sets the private key used to sign requests.
+     *
+     * @param privateKey Your private key as PrivateKey object
+     * @return this builder
+     */
+    public Builder privateKey(PrivateKey privateKey) {
+      this.privateKey = privateKey;
+      return this;
+    }
+
+    /**
+     * Sets the private key used to sign requests.
+     *
+     * @param privateKey Your private key (Base64-encoded PKCS#8 format)
+     * @return this builder
+     * @throws TimelessPayException if private key loading fails
+     */
+    public Builder privateKey(String privateKey) throws TimelessPayException {
+      this.privateKey = SignatureUtil.loadPrivateKey(privateKey);
+      return this;
+    }
+
+    /**
+     * Sets the OkHttpClient to send requests with. Its connection pool, dispatcher and TLS state
+     * are shared with every other user of the same instance. Pool, dispatcher and timeout settings
+     * configured on this builder are applied to a derived client that still shares the remaining
+     * resources. Limits set with {@link #maxRequests} and {@link #maxRequestsPerHost} then cover
+     * the clients built by this builder only, not other users of the shared client.
+     *
+     * @param httpClient The shared HTTP client
+     * @return this builder
+     */
+    public Builder httpClient(OkHttpClient httpClient) {
+      this.httpClient = httpClient;
+      this.builtDispatcher = null;
+      return this;
+    }
+
+    /**
+     * Sets the ObjectMapper used for request and response JSON. The mapper must be able to
+     * handle {@code java.time} types, for example by registering {@link JavaTimeModule}.
+     *
+     * @param objectMapper The shared ObjectMapper
+     * @return this builder
+     */
+    public Builder objectMapper(ObjectMapper objectMapper) {
+      this.objectMapper = objectMapper;
+      return this;
+    }
+
+    /**
+     * Sets a connection pool to share with other clients. Takes precedence over {@link
+     * #maxIdleConnections} and {@link #keepAliveDuration}.
+     *
+     * @param connectionPool The shared connection pool
+     * @return this builder
+     */
+    public Builder connectionPool(ConnectionPool connectionPool) {
+      this.connectionPool = connectionPool;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of idle connections kept in a pool created by this builder. The
+     * pool is created once and shared by every client the builder builds, until a pool setting
+     * changes.
+     *
+     * @param maxIdleConnections Maximum idle connections (default 5)
+     * @return this builder
+     */
+    public Builder maxIdleConnections(int maxIdleConnections) {
+      if (maxIdleConnections < 0) {
+        throw new IllegalArgumentException("maxIdleConnections must not be negative");
+      }
+      this.maxIdleConnections = maxIdleConnections;
+      this.poolSettingsConfigured = true;
+      this.builtConnectionPool = null;
+      return this;
+    }
+
+    /**
+     * Sets how long idle connections are kept in a pool created by this builder.
+     *
+     * @param keepAliveDuration Keep-alive duration (default 5 minutes)
+     * @return this builder
+     */
+    public Builder keepAliveDuration(Duration keepAliveDuration) {
+      this.keepAliveDuration = keepAliveDuration;
+      this.poolSettingsConfigured = true;
+      this.builtConnectionPool = null;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of requests the HTTP dispatcher runs concurrently. Clients built by
+     * this builder share one dispatcher, so the limit caps their combined concurrency; changing it
+     * gives clients built afterwards a new dispatcher.
+     *
+     * @param maxRequests Maximum concurrent requests (OkHttp default 64)
+     * @return this builder
+     */
+    public Builder maxRequests(int maxRequests) {
+      this.maxRequests = maxRequests;
+      this.builtDispatcher = null;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of requests the HTTP dispatcher runs concurrently against one host.
+     *
+     * @param maxRequestsPerHost Maximum concurrent requests per host (OkHttp default 5)
+     * @return this builder
+     */
+    public Builder maxRequestsPerHost(int maxRequestsPerHost) {
+      this.maxRequestsPerHost = maxRequestsPerHost;
+      this.builtDispatcher = null;
+      return this;
+    }
+
+    /**
+     * Runs asynchronous and hedged HTTP calls on virtual threads instead of the HTTP dispatcher's
+     * platform thread pool. {@link #maxRequests} and {@link #maxRequestsPerHost} still apply.
+     * Blocking calls such as {@link TimelessPayClient#createCheckoutSession} run on the caller's
+     * thread; calling them from virtual threads gives blocking code the concurrency of the
+     * asynchronous API. Ignored on Java versions before 21 (see {@link VirtualThreads}).
+     *
+     * @param virtualThreads Whether to use virtual threads when supported
+     * @return this builder
+     */
+    public Builder virtualThreads(boolean virtualThreads) {
+      this.virtualThreads = virtualThreads;
+      this.builtDispatcher = null;
+      return this;
+    }
+
+    /**
+     * Sets the connect timeout.
+     *
+     * @param connectTimeout Connect timeout, or {@link Duration#ZERO} for none
+     * @return this builder
+     */
+    public Builder connectTimeout(Duration connectTimeout) {
+      this.connectTimeout = connectTimeout;
+      return this;
+    }
+
+    /**
+     * Sets the read timeout.
+     *
+     * @param readTimeout Read timeout, or {@link Duration#ZERO} for none
+     * @return this builder
+     */
+    public Builder readTimeout(Duration readTimeout) {
+      this.readTimeout = readTimeout;
+      return this;
+    }
+
+    /**
+     * Sets the write timeout.
+     *
+     * @param writeTimeout Write timeout, or {@link Duration#ZERO} for none
+     * @return this builder
+     */
+    public Builder writeTimeout(Duration writeTimeout) {
+      this.writeTimeout = writeTimeout;
+      return this;
+    }
+
+    /**
+     * Sets the timeout for a complete call, from connecting to reading the response body.
+     *
+     * @param callTimeout Call timeout, or {@link Duration#ZERO} for none
+     * @return this builder
+     */
+    public Builder callTimeout(Duration callTimeout) {
+      this.callTimeout = callTimeout;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of asynchronous calls awaiting a response. Further calls to {@link
+     * #createCheckoutSessionAsync} fail fast until one completes.
+     *
+     * @param maxInFlightRequests Maximum in-flight asynchronous calls (default 1024)
+     * @return this builder
+     */
+    public Builder maxInFlightRequests(int maxInFlightRequests) {
+      if (maxInFlightRequests <= 0) {
+        throw new IllegalArgumentException("maxInFlightRequests must be positive");
+      }
+      this.maxInFlightRequests = maxInFlightRequests;
+      return this;
+    }
+
+    /**
+     * Sets the executor used to complete the futures returned by {@link
+     * #createCheckoutSessionAsync}. The default completes them on the HTTP callback thread.
+     *
+     * @param completionExecutor The completion executor
+     * @return this builder
+     */
+    public Builder completionExecutor(Executor completionExecutor) {
+      this.completionExecutor = completionExecutor;
+      return this;
+    }
+
+    /**
+     * Sets the executor that serializes and signs requests for {@link #createCheckoutSessions}.
+     * Defaults to the common fork-join pool, so signing scales with the available cores.
+     *
+     * @param signingExecutor The signing executor
+     * @return this builder
+     */
+    public Builder signingExecutor(Executor signingExecutor) {
+      this.signingExecutor = signingExecutor;
+      return this;
+    }
+
+    /**
+     * Sets the default number of requests of one {@link #createCheckoutSessions} batch that may be
+     * signed or sent at once. To keep that many requests on the wire, {@link #maxRequestsPerHost}
+     * must be at least as large.
+     *
+     * @param batchParallelism Batch parallelism (default 64)
+     * @return this builder
+     */
+    public Builder batchParallelism(int batchParallelism) {
+      if (batchParallelism <= 0) {
+        throw new IllegalArgumentException("batchParallelism must be positive");
+      }
+      this.batchParallelism = batchParallelism;
+      return this;
+    }
+
+    /**
+     * Sets the retry policy. Retries are disabled by default.
+     *
+     * @param retryPolicy The retry policy
+     * @return this builder
+     */
+    public Builder retryPolicy(RetryPolicy retryPolicy) {
+      this.retryPolicy = retryPolicy;
+      return this;
+    }
+
+    /**
+     * Sets the circuit breaker guarding every attempt. Disabled by default.
+     *
+     * @param circuitBreaker The circuit breaker, possibly shared with other clients
+     * @return this builder
+     */
+    public Builder circuitBreaker(CircuitBreaker circuitBreaker) {
+      this.circuitBreaker = circuitBreaker;
+      return this;
+    }
+
+    /**
+     * Sets the adaptive concurrency limiter guarding every attempt. Disabled by default.
+     *
+     * @param concurrencyLimiter The concurrency limiter, possibly shared with other clients
+     * @return this builder
+     */
+    public Builder concurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+      this.concurrencyLimiter = concurrencyLimiter;
+      return this;
+    }
+
+    /**
+     * Enables hedged requests. Disabled by default.
+     *
+     * @param hedgingPolicy The hedging policy
+     * @return this builder
+     */
+    public Builder hedgingPolicy(HedgingPolicy hedgingPolicy) {
+      this.hedgingPolicy = hedgingPolicy;
+      return this;
+    }
+
+    /**
+     * Sets whether request bodies are serialized and signed in a single streaming pass into a byte
+     * buffer that is sent without further copies (the default). When disabled, the body is first
+     * serialized to a String, which is then signed and encoded separately.
+     *
+     * @param streamingSerialization Whether to use the streaming path
+     * @return this builder
+     */
+    public Builder streamingSerialization(boolean streamingSerialization) {
+      this.streamingSerialization = streamingSerialization;
+      return this;
+    }
+
+    /**
+     * Sets the largest response body the client will parse. Larger successful responses fail with
+     * an IOException-caused TimelessPayException; larger error responses are reported without their
+     * message. Defaults to 1 MiB.
+     *
+     * @param maxResponseBodyBytes The limit in bytes
+     * @return this builder
+     */
+    public Builder maxResponseBodyBytes(long maxResponseBodyBytes) {
+      if (maxResponseBodyBytes <= 0) {
+        throw new IllegalArgumentException("maxResponseBodyBytes must be positive");
+      }
+      this.maxResponseBodyBytes = maxResponseBodyBytes;
+      return this;
+    }
+
+    /**
+     * Sets a listener that receives every phase timing, status code and outcome the client
+     * records, in addition to the client's own {@link TimelessPayClient#getMetrics() metrics}.
+     *
+     * @param metricsListener The listener
+     * @return this builder
+     */
+    public Builder metricsListener(MetricsListener metricsListener) {
+      this.metricsListener = metricsListener;
+      return this;
+    }
+
+    /**
+     * Builds the client.
+     *
+     * @return a new TimelessPayClient
+     * @throws IllegalStateException if baseUrl, apiKeyId, tenantId or privateKey is missing
+     */
+    public TimelessPayClient build() {
+      return new TimelessPayClient(this);
+    }
+
+    private OkHttpClient buildHttpClient() {
+      boolean virtual = virtualThreads && VirtualThreads.isSupported();
+      boolean customized =
+          virtual
+              || connectionPool != null
+              || poolSettingsConfigured
+              || maxRequests != null
+              || maxRequestsPerHost != null
+              || connectTimeout != null
+              || readTimeout != null
+              || writeTimeout != null
+              || callTimeout != null;
+      OkHttpClient base = baseHttpClient();
+      if (!customized) {
+        return base;
+      }
+
+      // Derived clients share the base client's pool, dispatcher and TLS state unless overridden
+      OkHttpClient.Builder clientBuilder = base.newBuilder();
+      if (connectionPool != null) {
+        clientBuilder.connectionPool(connectionPool);
+      } else if (poolSettingsConfigured) {
+        if (builtConnectionPool == null) {
+          builtConnectionPool =
+              new ConnectionPool(
+                  maxIdleConnections, keepAliveDuration.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        clientBuilder.connectionPool(builtConnectionPool);
+      }
+      if (maxRequests != null || maxRequestsPerHost != null || virtual) {
+        if (builtDispatcher == null) {
+          builtDispatcher = newDispatcher(virtual);
+        }
+        clientBuilder.dispatcher(builtDispatcher);
+      }
+      if (connectTimeout != null) {
+        clientBuilder.connectTimeout(connectTimeout);
+      }
+      if (readTimeout != null) {
+        clientBuilder.readTimeout(readTimeout);
+      }
+      if (writeTimeout != null) {
+        clientBuilder.writeTimeout(writeTimeout);
+      }
+      if (callTimeout != null) {
+        clientBuilder.callTimeout(callTimeout);
+      }
+      return clientBuilder.build();
+    }
+
+    /** The client set with {@link #httpClient}, or a default one created once per builder. */
+    private OkHttpClient baseHttpClient() {
+      if (httpClient != null) {
+        return httpClient;
+      }
+      if (builtDefaultClient == null) {
+        builtDefaultClient = new OkHttpClient();
+      }
+      return builtDefaultClient;
+    }
+
+    private Dispatcher newDispatcher(boolean virtual) {
+      // Never mutate the dispatcher of a shared client; reuse its threads instead.
+      Dispatcher dispatcher;
+      if (virtual) {
+        dispatcher = new Dispatcher(VirtualThreads.newThreadPerTaskExecutor("timelesspay-http-"));
+      } else {
+        dispatcher = new Dispatcher(baseHttpClient().dispatcher().executorService());
+      }
+      if (maxRequests != null) {
+        dispatcher.setMaxRequests(maxRequests);
+      }
+      if (maxRequestsPerHost != null) {
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+      }
+      return dispatcher;
+    }
+  }
 }
@@ -0,0 +1,46 @@
+package net.timelesssdk;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket refilled by traffic rather than time: every call deposits a fraction of a
+ * token, and each extra request (a retry or a hedge) withdraws a whole one.
+ */
+final class TokenBucket {
+  private static final long SCALE = 1000;
+
+  private final long depositPerCall;
+  private final long maxBalance;
+  private final AtomicLong balance;
+
+  TokenBucket(double ratio, int maxTokens) {
+    this.depositPerCall = Math.round(ratio * SCALE);
+    this.maxBalance = maxTokens * SCALE;
+    this.balance = new AtomicLong(maxBalance);
+  }
+
+  void deposit() {
+    long current;
+    do {
+      current = balance.get();
+      if (current >= maxBalance) {
+        return;
+      }
+    } while (!balance.compareAndSet(current, Math.min(maxBalance, current + depositPerCall)));
+  }
+
+  boolean tryWithdraw() {
+    long current;
+    do {
+      current = balance.get();
+      if (current < SCALE) {
+        return false;
+      }
+    } while (!balance.compareAndSet(current, current - SCALE));
+    return true;
+  }
+
+  double available() {
+    return balance.get() / (double) SCALE;
+  }
+}
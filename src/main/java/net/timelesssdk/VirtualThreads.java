@@ -0,0 +1,34 @@
+package net.timelesssdk;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Virtual threads for code compiled for Java 11.
+ *
+ * <p>The SDK JAR is a multi-release JAR: on Java 21 and later this class is replaced by a version
+ * from {@code META-INF/versions/21} that creates virtual threads. This version, used on earlier
+ * runtimes, reports them as unsupported, and callers keep using platform threads.
+ */
+public final class VirtualThreads {
+  private VirtualThreads() {}
+
+  /**
+   * Checks whether the runtime supports virtual threads.
+   *
+   * @return true on Java 21 and later
+   */
+  public static boolean isSupported() {
+    return false;
+  }
+
+  /**
+   * Creates an executor that runs each task on a new virtual thread.
+   *
+   * @param namePrefix Prefix of the thread names, followed by a sequence number
+   * @return a new ExecutorService
+   * @throws UnsupportedOperationException if virtual threads are not supported
+   */
+  public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+    throw new UnsupportedOperationException("Virtual threads require Java 21 or later");
+  }
+}
@@ -0,0 +1,12 @@
+package net.timelesssdk.exception;
+
+/** Exception thrown when a call is rejected because the circuit breaker is open. */
+public class CircuitBreakerOpenException extends TimelessPayException {
+  public CircuitBreakerOpenException(String message) {
+    super(message);
+  }
+
+  public CircuitBreakerOpenException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -0,0 +1,12 @@
+package net.timelesssdk.exception;
+
+/** Exception thrown when a call is rejected because the client is at its concurrency limit. */
+public class ConcurrencyLimitExceededException extends TimelessPayException {
+  public ConcurrencyLimitExceededException(String message) {
+    super(message);
+  }
+
+  public ConcurrencyLimitExceededException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
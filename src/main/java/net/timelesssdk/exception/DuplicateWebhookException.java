@@ -0,0 +1,15 @@
+package net.timelesssdk.exception;
+
+/** Exception thrown when a webhook with an already processed webhook id is delivered again. */
+public class DuplicateWebhookException extends TimelessPayException {
+  private final String webhookId;
+
+  public DuplicateWebhookException(String webhookId) {
+    super("Duplicate webhook: " + webhookId);
+    this.webhookId = webhookId;
+  }
+
+  public String getWebhookId() {
+    return webhookId;
+  }
+}
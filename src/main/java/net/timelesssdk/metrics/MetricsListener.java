@@ -0,0 +1,33 @@
+package net.timelesssdk.metrics;
+
+/**
+ * Receives timings and outcomes from a client or webhook handler, for bridging to a monitoring
+ * system. Callbacks run on the thread doing the work, often an HTTP dispatcher thread, so
+ * implementations must be thread-safe and fast. All methods do nothing by default.
+ */
+public interface MetricsListener {
+  /** Listener that ignores everything. */
+  MetricsListener NOOP = new MetricsListener() {};
+
+  /**
+   * Called when a phase completes.
+   *
+   * @param phase The phase
+   * @param durationNanos How long the phase took, in nanoseconds
+   */
+  default void onPhase(Phase phase, long durationNanos) {}
+
+  /**
+   * Called for every HTTP response, including responses that are retried or lose a hedge.
+   *
+   * @param statusCode The HTTP status code
+   */
+  default void onStatus(int statusCode) {}
+
+  /**
+   * Called once per logical call when it completes.
+   *
+   * @param outcome The outcome
+   */
+  default void onOutcome(Outcome outcome) {}
+}
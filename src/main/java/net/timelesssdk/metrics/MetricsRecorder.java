@@ -0,0 +1,103 @@
+package net.timelesssdk.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-client (or per-handler) metrics: a latency histogram for each {@link Phase}, outcome counts
+ * and HTTP status code counts. Everything it records is also forwarded to an optional {@link
+ * MetricsListener}.
+ */
+public final class MetricsRecorder implements MetricsListener {
+  private static final int MAX_STATUS_CODE = 599;
+
+  private final Map<Phase, LatencyHistogram> histograms = new EnumMap<>(Phase.class);
+  private final LongAdder[] outcomes = new LongAdder[Outcome.values().length];
+  // Index 0 counts codes outside 100-599
+  private final AtomicLongArray statusCodes = new AtomicLongArray(MAX_STATUS_CODE + 1);
+  private volatile MetricsListener listener = MetricsListener.NOOP;
+
+  /** Creates a new MetricsRecorder. */
+  public MetricsRecorder() {
+    for (Phase phase : Phase.values()) {
+      histograms.put(phase, new LatencyHistogram());
+    }
+    for (int i = 0; i < outcomes.length; i++) {
+      outcomes[i] = new LongAdder();
+    }
+  }
+
+  @Override
+  public void onPhase(Phase phase, long durationNanos) {
+    histograms.get(phase).record(durationNanos);
+    listener.onPhase(phase, durationNanos);
+  }
+
+  @Override
+  public void onStatus(int statusCode) {
+    statusCodes.incrementAndGet(
+        statusCode >= 100 && statusCode <= MAX_STATUS_CODE ? statusCode : 0);
+    listener.onStatus(statusCode);
+  }
+
+  @Override
+  public void onOutcome(Outcome outcome) {
+    outcomes[outcome.ordinal()].increment();
+    listener.onOutcome(outcome);
+  }
+
+  /**
+   * Records the time elapsed since a {@link System#nanoTime()} reading as a phase.
+   *
+   * @param phase The phase
+   * @param startNanos System.nanoTime() at the start of the phase
+   */
+  public void recordSince(Phase phase, long startNanos) {
+    onPhase(phase, System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Sets the listener that receives everything recorded from now on.
+   *
+   * @param listener The listener, or null to forward nothing
+   */
+  public void setListener(MetricsListener listener) {
+    this.listener = listener != null ? listener : MetricsListener.NOOP;
+  }
+
+  public MetricsListener getListener() {
+    return listener;
+  }
+
+  /**
+   * Gets the latency histogram of a phase.
+   *
+   * @param phase The phase
+   * @return the histogram
+   */
+  public LatencyHistogram getHistogram(Phase phase) {
+    return histograms.get(phase);
+  }
+
+  /**
+   * Gets the number of calls that completed with an outcome.
+   *
+   * @param outcome The outcome
+   * @return number of calls
+   */
+  public long getOutcomeCount(Outcome outcome) {
+    return outcomes[outcome.ordinal()].sum();
+  }
+
+  /**
+   * Gets the number of HTTP responses with a status code.
+   *
+   * @param statusCode The HTTP status code, between 100 and 599
+   * @return number of responses
+   */
+  public long getStatusCount(int statusCode) {
+    return statusCode >= 100 && statusCode <= MAX_STATUS_CODE ? statusCodes.get(statusCode) : 0;
+  }
+}
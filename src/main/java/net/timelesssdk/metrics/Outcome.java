@@ -0,0 +1,16 @@
+package net.timelesssdk.metrics;
+
+/** Final result of a logical call, after any retries or hedges. */
+public enum Outcome {
+  /** The call succeeded. */
+  SUCCESS,
+  /** The API answered with an error status. */
+  API_ERROR,
+  /**
+   * The call was refused locally by the circuit breaker or a concurrency limit, or the webhook was
+   * a duplicate.
+   */
+  REJECTED,
+  /** The call failed for any other reason, such as an I/O error or an invalid signature. */
+  FAILURE
+}
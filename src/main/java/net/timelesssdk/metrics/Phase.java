@@ -0,0 +1,15 @@
+package net.timelesssdk.metrics;
+
+/** Timed phases of a checkout request or webhook delivery. */
+public enum Phase {
+  /** Serializing a request body to JSON. */
+  SERIALIZE,
+  /** Computing the ECDSA signature of a request body. */
+  SIGN,
+  /** One HTTP round trip, from sending the request to receiving the response headers. */
+  HTTP,
+  /** Parsing a response body or webhook payload. */
+  PARSE,
+  /** Verifying the ECDSA signature of a webhook payload. */
+  VERIFY
+}
@@ -0,0 +1,84 @@
+package net.timelesssdk.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.Base64;
+import net.timelesssdk.exception.SignatureException;
+
+/**
+ * Reusable ECDSA SHA384 signer bound to one private key. Signature engines are pooled, so repeated
+ * signing skips the provider lookup and key initialization that {@link SignatureUtil} would
+ * otherwise pay per call. Instances are thread-safe.
+ */
+public class EcdsaSigner {
+  private final PrivateKey privateKey;
+  private final SignaturePool pool;
+
+  /**
+   * Creates a new EcdsaSigner. The key is not checked until the first call, which throws
+   * SignatureException if it cannot be used for ECDSA SHA384 signing.
+   *
+   * @param privateKey The private key to sign with
+   */
+  public EcdsaSigner(PrivateKey privateKey) {
+    this.privateKey = privateKey;
+    this.pool = new SignaturePool(privateKey);
+  }
+
+  /**
+   * Signs a payload.
+   *
+   * @param payload The payload to sign (JSON string)
+   * @return Base64-encoded signature
+   * @throws SignatureException if signing fails
+   */
+  public String sign(String payload) throws SignatureException {
+    byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+    return sign(bytes, 0, bytes.length);
+  }
+
+  /**
+   * Signs a range of a byte array.
+   *
+   * @param payload The payload bytes
+   * @param offset Offset of the first byte to sign
+   * @param length Number of bytes to sign
+   * @return Base64-encoded signature
+   * @throws SignatureException if signing fails
+   */
+  public String sign(byte[] payload, int offset, int length) throws SignatureException {
+    Signature engine = acquire();
+    byte[] signatureBytes;
+    try {
+      engine.update(payload, offset, length);
+      signatureBytes = engine.sign();
+    } catch (Exception e) {
+      throw new SignatureException("Failed to sign payload", e);
+    }
+    pool.release(engine);
+    return Base64.getEncoder().encodeToString(signatureBytes);
+  }
+
+  /**
+   * Gets the private key this signer is bound to.
+   *
+   * @return the private key
+   */
+  public PrivateKey getPrivateKey() {
+    return privateKey;
+  }
+
+  /** Takes an initialized engine; callers release it after a completed sign. */
+  Signature acquire() throws SignatureException {
+    try {
+      return pool.acquire();
+    } catch (Exception e) {
+      throw new SignatureException("Failed to initialize signature", e);
+    }
+  }
+
+  void release(Signature engine) {
+    pool.release(engine);
+  }
+}
@@ -0,0 +1,104 @@
+package net.timelesssdk.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.Base64;
+import net.timelesssdk.exception.SignatureException;
+
+/**
+ * Reusable ECDSA SHA384 verifier bound to one public key. Signature engines are pooled, so repeated
+ * verification skips the provider lookup and key initialization that {@link SignatureUtil} would
+ * otherwise pay per call. Instances are thread-safe.
+ */
+public class EcdsaVerifier {
+  private final PublicKey publicKey;
+  private final SignaturePool pool;
+
+  /**
+   * Creates a new EcdsaVerifier. The key is not checked until the first call, which throws
+   * SignatureException if it cannot be used for ECDSA SHA384 verification.
+   *
+   * @param publicKey The public key to verify with
+   */
+  public EcdsaVerifier(PublicKey publicKey) {
+    this.publicKey = publicKey;
+    this.pool = new SignaturePool(publicKey);
+  }
+
+  /**
+   * Verifies a signature over a payload.
+   *
+   * @param payload The payload that was signed (JSON string)
+   * @param signature The Base64-encoded signature
+   * @return true if signature is valid, false otherwise
+   * @throws SignatureException if verification fails
+   */
+  public boolean verify(String payload, String signature) throws SignatureException {
+    byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+    return verify(bytes, 0, bytes.length, signature);
+  }
+
+  /**
+   * Verifies a signature over a range of a byte array.
+   *
+   * @param payload The payload bytes
+   * @param offset Offset of the first signed byte
+   * @param length Number of signed bytes
+   * @param signature The Base64-encoded signature
+   * @return true if signature is valid, false otherwise
+   * @throws SignatureException if verification fails
+   */
+  public boolean verify(byte[] payload, int offset, int length, String signature)
+      throws SignatureException {
+    byte[] signatureBytes;
+    try {
+      signatureBytes = Base64.getDecoder().decode(signature);
+    } catch (Exception e) {
+      throw new SignatureException("Failed to verify signature", e);
+    }
+    Signature engine = acquire();
+    boolean valid;
+    try {
+      engine.update(payload, offset, length);
+      valid = engine.verify(signatureBytes);
+    } catch (Exception e) {
+      throw new SignatureException("Failed to verify signature", e);
+    }
+    pool.release(engine);
+    return valid;
+  }
+
+  /**
+   * Gets the public key this verifier is bound to.
+   *
+   * @return the public key
+   */
+  public PublicKey getPublicKey() {
+    return publicKey;
+  }
+
+  /**
+   * Takes an initialized engine; callers release it after a completed verify, or recycle it if
+   * they abandon it.
+   */
+  Signature acquire() throws SignatureException {
+    try {
+      return pool.acquire();
+    } catch (Exception e) {
+      throw new SignatureException("Failed to verify signature", e);
+    }
+  }
+
+  void release(Signature engine) {
+    pool.release(engine);
+  }
+
+  void recycle(Signature engine) {
+    pool.recycle(engine);
+  }
+
+  int getIdleEngineCount() {
+    return pool.getIdleCount();
+  }
+}
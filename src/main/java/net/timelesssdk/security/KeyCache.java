@@ -0,0 +1,126 @@
+package net.timelesssdk.security;
+
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import net.timelesssdk.exception.SignatureException;
+
+/**
+ * Bounded, thread-safe cache of parsed keys by their Base64 encoding. Once the cache is full, the
+ * oldest entries are evicted first. Keys that fail to parse are not cached.
+ */
+public final class KeyCache {
+  private final int maxSize;
+  private final Bounded<PublicKey> publicKeys = new Bounded<>();
+  private final Bounded<PrivateKey> privateKeys = new Bounded<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Creates a new KeyCache.
+   *
+   * @param maxSize Maximum number of public keys and, separately, of private keys to keep
+   * @throws IllegalArgumentException if maxSize is not positive
+   */
+  public KeyCache(int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("maxSize must be positive");
+    }
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Gets the public key for a Base64-encoded X.509 string, parsing it on first use.
+   *
+   * @param publicKeyBase64 Base64-encoded public key
+   * @return PublicKey object
+   * @throws SignatureException if key loading fails
+   */
+  public PublicKey getPublicKey(String publicKeyBase64) throws SignatureException {
+    PublicKey key = publicKeys.get(publicKeyBase64);
+    if (key != null) {
+      hits.increment();
+      return key;
+    }
+    misses.increment();
+    return publicKeys.put(publicKeyBase64, SignatureUtil.parsePublicKey(publicKeyBase64));
+  }
+
+  /**
+   * Gets the private key for a Base64-encoded PKCS#8 string, parsing it on first use.
+   *
+   * @param privateKeyBase64 Base64-encoded private key
+   * @return PrivateKey object
+   * @throws SignatureException if key loading fails
+   */
+  public PrivateKey getPrivateKey(String privateKeyBase64) throws SignatureException {
+    PrivateKey key = privateKeys.get(privateKeyBase64);
+    if (key != null) {
+      hits.increment();
+      return key;
+    }
+    misses.increment();
+    return privateKeys.put(privateKeyBase64, SignatureUtil.parsePrivateKey(privateKeyBase64));
+  }
+
+  /** Removes all cached keys. Counters are kept. */
+  public void clear() {
+    publicKeys.clear();
+    privateKeys.clear();
+  }
+
+  public int size() {
+    return publicKeys.map.size() + privateKeys.map.size();
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  /** Concurrent map with insertion-order eviction. */
+  private final class Bounded<K> {
+    private final Map<String, K> map = new ConcurrentHashMap<>();
+    private final Queue<String> insertionOrder = new ConcurrentLinkedQueue<>();
+
+    K get(String encoded) {
+      // ConcurrentHashMap rejects null lookups; a null key is never cached
+      return encoded != null ? map.get(encoded) : null;
+    }
+
+    K put(String encoded, K key) {
+      K existing = map.putIfAbsent(encoded, key);
+      if (existing != null) {
+        return existing;
+      }
+      insertionOrder.offer(encoded);
+      while (map.size() > maxSize) {
+        String oldest = insertionOrder.poll();
+        if (oldest == null) {
+          break;
+        }
+        if (map.remove(oldest) != null) {
+          evictions.increment();
+        }
+      }
+      return key;
+    }
+
+    void clear() {
+      map.clear();
+      insertionOrder.clear();
+    }
+  }
+}
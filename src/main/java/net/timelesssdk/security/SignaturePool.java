@@ -0,0 +1,92 @@
+package net.timelesssdk.security;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.Provider;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of SHA384withECDSA engines already initialized with one key. Engines reset themselves after
+ * each sign or verify, so a returned engine is ready for the next payload without a provider
+ * lookup or key re-initialization. The pool is unbounded under contention but keeps at most a few
+ * idle engines per CPU.
+ */
+final class SignaturePool {
+  static final String ALGORITHM = "SHA384withECDSA";
+  private static final int MAX_IDLE = 2 * Runtime.getRuntime().availableProcessors();
+
+  private final PrivateKey privateKey;
+  private final PublicKey publicKey;
+  private final Queue<Signature> idle = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger idleCount = new AtomicInteger();
+  // Provider chosen for this key by the first engine; later engines skip the provider scan
+  private volatile Provider provider;
+
+  SignaturePool(PrivateKey privateKey) {
+    this.privateKey = privateKey;
+    this.publicKey = null;
+  }
+
+  SignaturePool(PublicKey publicKey) {
+    this.privateKey = null;
+    this.publicKey = publicKey;
+  }
+
+  /** Takes an idle engine, or creates and initializes a new one when none is available. */
+  Signature acquire() throws GeneralSecurityException {
+    Signature engine = idle.poll();
+    if (engine != null) {
+      idleCount.decrementAndGet();
+      return engine;
+    }
+    Provider cached = provider;
+    engine =
+        cached != null
+            ? Signature.getInstance(ALGORITHM, cached)
+            : Signature.getInstance(ALGORITHM);
+    if (privateKey != null) {
+      engine.initSign(privateKey);
+    } else {
+      engine.initVerify(publicKey);
+    }
+    if (cached == null) {
+      provider = engine.getProvider();
+    }
+    return engine;
+  }
+
+  /**
+   * Returns an engine after a completed sign or verify. Engines abandoned mid-update or after an
+   * exception must not be released, since their state is unknown; {@link #recycle} them instead.
+   */
+  void release(Signature engine) {
+    if (idleCount.incrementAndGet() <= MAX_IDLE) {
+      idle.offer(engine);
+    } else {
+      idleCount.decrementAndGet();
+    }
+  }
+
+  /** Resets an abandoned engine by initializing it again, and returns it to the pool. */
+  void recycle(Signature engine) {
+    try {
+      if (privateKey != null) {
+        engine.initSign(privateKey);
+      } else {
+        engine.initVerify(publicKey);
+      }
+    } catch (GeneralSecurityException e) {
+      // Left to the garbage collector; acquire creates a replacement
+      return;
+    }
+    release(engine);
+  }
+
+  int getIdleCount() {
+    return idleCount.get();
+  }
+}
@@ -1,16 +1,30 @@
 package net.timelesssdk.security;
 
-import java.nio.charset.StandardCharsets;
 import java.security.*;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
 import java.util.Base64;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
 import net.timelesssdk.exception.SignatureException;
 
-/** Utility class for ECDSA SHA384 signature generation and verification. */
+/**
+ * Utility class for ECDSA SHA384 signature generation and verification.
+ *
+ * <p>Signing and verification run on pooled engines (see {@link EcdsaSigner} and {@link
+ * EcdsaVerifier}), and the most recently used key in each direction keeps its engines, so repeated
+ * calls with the same key skip engine setup. Base64-encoded keys are parsed once and then served
+ * from a shared {@link KeyCache}. Callers that alternate between many keys should hold their own
+ * signer or verifier instead.
+ */
 public class SignatureUtil {
-  private static final String ALGORITHM = "SHA384withECDSA";
   private static final String KEY_ALGORITHM = "EC";
+  private static final int KEY_CACHE_SIZE = 256;
+  private static final KeyCache KEY_CACHE = new KeyCache(KEY_CACHE_SIZE);
+
+  private static final AtomicReference<Memo<EcdsaSigner>> lastSigner = new AtomicReference<>();
+  private static final AtomicReference<Memo<EcdsaVerifier>> lastVerifier =
+      new AtomicReference<>();
 
   /**
    * Signs a payload using ECDSA SHA384 with a private key.
@@ -22,17 +36,7 @@ public class SignatureUtil {
    */
   public static String sign(String payload, String privateKey) throws SignatureException {
     try {
-      byte[] keyBytes = Base64.getDecoder().decode(privateKey);
-      PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(keyBytes);
-      KeyFactory keyFactory = KeyFactory.getInstance(KEY_ALGORITHM);
-      PrivateKey privKey = keyFactory.generatePrivate(keySpec);
-
-      Signature signature = Signature.getInstance(ALGORITHM);
-      signature.initSign(privKey);
-      signature.update(payload.getBytes(StandardCharsets.UTF_8));
-      byte[] signatureBytes = signature.sign();
-
-      return Base64.getEncoder().encodeToString(signatureBytes);
+      return signerFor(KEY_CACHE.getPrivateKey(privateKey)).sign(payload);
     } catch (Exception e) {
       throw new SignatureException("Failed to sign payload", e);
     }
@@ -48,12 +52,7 @@ public class SignatureUtil {
    */
   public static String sign(String payload, PrivateKey privateKey) throws SignatureException {
     try {
-      Signature signature = Signature.getInstance(ALGORITHM);
-      signature.initSign(privateKey);
-      signature.update(payload.getBytes(StandardCharsets.UTF_8));
-      byte[] signatureBytes = signature.sign();
-
-      return Base64.getEncoder().encodeToString(signatureBytes);
+      return signerFor(privateKey).sign(payload);
     } catch (Exception e) {
       throw new SignatureException("Failed to sign payload", e);
     }
@@ -71,18 +70,7 @@ public class SignatureUtil {
   public static boolean verify(String payload, String signature, String publicKey)
       throws SignatureException {
     try {
-      byte[] keyBytes = Base64.getDecoder().decode(publicKey);
-      X509EncodedKeySpec keySpec = new X509EncodedKeySpec(keyBytes);
-      KeyFactory keyFactory = KeyFactory.getInstance(KEY_ALGORITHM);
-      PublicKey pubKey = keyFactory.generatePublic(keySpec);
-
-      byte[] signatureBytes = Base64.getDecoder().decode(signature);
-
-      Signature ecdsa = Signature.getInstance(ALGORITHM);
-      ecdsa.initVerify(pubKey);
-      ecdsa.update(payload.getBytes(StandardCharsets.UTF_8));
-
-      return ecdsa.verify(signatureBytes);
+      return verifierFor(KEY_CACHE.getPublicKey(publicKey)).verify(payload, signature);
     } catch (Exception e) {
       throw new SignatureException("Failed to verify signature", e);
     }
@@ -100,26 +88,44 @@ public class SignatureUtil {
   public static boolean verify(String payload, String signature, PublicKey publicKey)
       throws SignatureException {
     try {
-      byte[] signatureBytes = Base64.getDecoder().decode(signature);
-
-      Signature ecdsa = Signature.getInstance(ALGORITHM);
-      ecdsa.initVerify(publicKey);
-      ecdsa.update(payload.getBytes(StandardCharsets.UTF_8));
-
-      return ecdsa.verify(signatureBytes);
+      return verifierFor(publicKey).verify(payload, signature);
     } catch (Exception e) {
       throw new SignatureException("Failed to verify signature", e);
     }
   }
 
   /**
-   * Loads a private key from a Base64-encoded PKCS#8 string.
+   * Loads a private key from a Base64-encoded PKCS#8 string. Parsed keys are cached.
    *
    * @param privateKeyBase64 Base64-encoded private key
    * @return PrivateKey object
    * @throws SignatureException if key loading fails
    */
   public static PrivateKey loadPrivateKey(String privateKeyBase64) throws SignatureException {
+    return KEY_CACHE.getPrivateKey(privateKeyBase64);
+  }
+
+  /**
+   * Loads a public key from a Base64-encoded X.509 string. Parsed keys are cached.
+   *
+   * @param publicKeyBase64 Base64-encoded public key
+   * @return PublicKey object
+   * @throws SignatureException if key loading fails
+   */
+  public static PublicKey loadPublicKey(String publicKeyBase64) throws SignatureException {
+    return KEY_CACHE.getPublicKey(publicKeyBase64);
+  }
+
+  /**
+   * Gets the cache behind the Base64 key overloads, for monitoring its hit rate.
+   *
+   * @return the shared key cache
+   */
+  public static KeyCache getKeyCache() {
+    return KEY_CACHE;
+  }
+
+  static PrivateKey parsePrivateKey(String privateKeyBase64) throws SignatureException {
     try {
       byte[] keyBytes = Base64.getDecoder().decode(privateKeyBase64);
       PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(keyBytes);
@@ -130,14 +136,7 @@ public class SignatureUtil {
     }
   }
 
-  /**
-   * Loads a public key from a Base64-encoded X.509 string.
-   *
-   * @param publicKeyBase64 Base64-encoded public key
-   * @return PublicKey object
-   * @throws SignatureException if key loading fails
-   */
-  public static PublicKey loadPublicKey(String publicKeyBase64) throws SignatureException {
+  static PublicKey parsePublicKey(String publicKeyBase64) throws SignatureException {
     try {
       byte[] keyBytes = Base64.getDecoder().decode(publicKeyBase64);
       X509EncodedKeySpec keySpec = new X509EncodedKeySpec(keyBytes);
@@ -147,4 +146,43 @@ public class SignatureUtil {
       throw new SignatureException("Failed to load public key", e);
     }
   }
+
+  /** Returns a pooled signer for the key, reusing the previous one when the key is unchanged. */
+  static EcdsaSigner signerFor(PrivateKey privateKey) {
+    EcdsaSigner signer = Memo.lookup(lastSigner, privateKey);
+    if (signer == null) {
+      signer = new EcdsaSigner(privateKey);
+      lastSigner.set(new Memo<>(privateKey, signer));
+    }
+    return signer;
+  }
+
+  /** Returns a pooled verifier for the key, reusing the previous one when the key is unchanged. */
+  static EcdsaVerifier verifierFor(PublicKey publicKey) {
+    EcdsaVerifier verifier = Memo.lookup(lastVerifier, publicKey);
+    if (verifier == null) {
+      verifier = new EcdsaVerifier(publicKey);
+      lastVerifier.set(new Memo<>(publicKey, verifier));
+    }
+    return verifier;
+  }
+
+  /** A key together with the signer or verifier built for it. */
+  private static final class Memo<T> {
+    private final Object key;
+    private final T value;
+
+    Memo(Object key, T value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    static <T> T lookup(AtomicReference<Memo<T>> ref, Object key) {
+      Memo<T> memo = ref.get();
+      if (memo != null && Objects.equals(memo.key, key)) {
+        return memo.value;
+      }
+      return null;
+    }
+  }
 }
@@ -0,0 +1,134 @@
+package net.timelesssdk.security;
+
+import java.io.OutputStream;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.Arrays;
+import java.util.Base64;
+import net.timelesssdk.exception.SignatureException;
+
+/**
+ * Output stream that feeds every written chunk to an ECDSA SHA384 signature while collecting the
+ * bytes in a growable buffer. Serializing into it produces the payload and its signature in a
+ * single pass, and the buffer can be handed to the HTTP layer without copying.
+ */
+public class SigningOutputStream extends OutputStream {
+  private final EcdsaSigner signer;
+  private Signature signature;
+  private byte[] buffer;
+  private int size;
+
+  /**
+   * Creates a new SigningOutputStream.
+   *
+   * @param privateKey The private key to sign with
+   * @param initialCapacity Initial buffer size in bytes; the buffer grows as needed
+   * @throws SignatureException if the signature engine cannot be initialized
+   */
+  public SigningOutputStream(PrivateKey privateKey, int initialCapacity)
+      throws SignatureException {
+    this(SignatureUtil.signerFor(privateKey), initialCapacity);
+  }
+
+  /**
+   * Creates a new SigningOutputStream that borrows a pooled engine from a signer. The engine goes
+   * back to the pool when {@link #sign()} completes.
+   *
+   * @param signer The signer to borrow an engine from
+   * @param initialCapacity Initial buffer size in bytes; the buffer grows as needed
+   * @throws SignatureException if the signature engine cannot be initialized
+   */
+  public SigningOutputStream(EcdsaSigner signer, int initialCapacity) throws SignatureException {
+    this.signer = signer;
+    this.signature = signer.acquire();
+    this.buffer = new byte[Math.max(initialCapacity, 16)];
+  }
+
+  @Override
+  public void write(int b) {
+    checkNotSigned();
+    ensureCapacity(size + 1);
+    buffer[size] = (byte) b;
+    update(buffer, size, 1);
+    size++;
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) {
+    checkNotSigned();
+    ensureCapacity(size + length);
+    System.arraycopy(bytes, offset, buffer, size, length);
+    update(bytes, offset, length);
+    size += length;
+  }
+
+  /**
+   * Completes the signature over everything written so far. The stream cannot be written to or
+   * signed again afterwards.
+   *
+   * @return Base64-encoded signature
+   * @throws SignatureException if signing fails
+   */
+  public String sign() throws SignatureException {
+    checkNotSigned();
+    byte[] signatureBytes;
+    try {
+      signatureBytes = signature.sign();
+    } catch (Exception e) {
+      throw new SignatureException("Failed to sign payload", e);
+    }
+    signer.release(signature);
+    signature = null;
+    return Base64.getEncoder().encodeToString(signatureBytes);
+  }
+
+  /**
+   * Gets the internal buffer. Only the first {@link #size()} bytes are valid, and the array must
+   * not be modified while it is in use elsewhere.
+   *
+   * @return the internal buffer, without copying
+   */
+  public byte[] getBuffer() {
+    return buffer;
+  }
+
+  /**
+   * Gets the number of bytes written.
+   *
+   * @return payload size in bytes
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Copies the written bytes into a new array.
+   *
+   * @return the payload bytes
+   */
+  public byte[] toByteArray() {
+    return Arrays.copyOf(buffer, size);
+  }
+
+  private void update(byte[] bytes, int offset, int length) {
+    try {
+      signature.update(bytes, offset, length);
+    } catch (java.security.SignatureException e) {
+      // Only thrown for an uninitialized engine, which the pool rules out
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private void checkNotSigned() {
+    // The engine is back in the pool, and the buffer may already be in flight
+    if (signature == null) {
+      throw new IllegalStateException("Payload already signed");
+    }
+  }
+
+  private void ensureCapacity(int required) {
+    if (required > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+    }
+  }
+}
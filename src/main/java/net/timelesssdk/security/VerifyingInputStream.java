@@ -0,0 +1,267 @@
+package net.timelesssdk.security;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import net.timelesssdk.exception.SignatureException;
+
+/**
+ * Input stream that feeds every chunk read through it to ECDSA SHA384 verification, so a payload
+ * can be parsed straight off the network while its signature is checked in the same pass. Reading
+ * beyond the size limit fails, which rejects an oversized body before it has been received in
+ * full.
+ *
+ * <p>The signature result is available from {@link #verify(String)} once the consumer is done.
+ * Bytes the consumer left unread, such as trailing whitespace after a JSON document, are read
+ * first so that the signature always covers the whole body. With several verifiers every chunk
+ * goes to each of them, so each one costs a hash over the body; the verifiers are then checked in
+ * order and checking stops at the first that accepts the signature. To verify against a key ring
+ * with a known likely key, stream through that key alone and fall back to the others only if it
+ * rejects the signature.
+ */
+public class VerifyingInputStream extends FilterInputStream {
+  private static final int DRAIN_BUFFER_SIZE = 8192;
+
+  private final List<EcdsaVerifier> verifiers;
+  private final long maxBytes;
+  private Signature[] engines;
+  private long count;
+
+  /**
+   * Creates a new VerifyingInputStream.
+   *
+   * @param in The stream to read the payload from
+   * @param publicKey The public key to verify with
+   * @param maxBytes Maximum payload size in bytes
+   * @throws SignatureException if the signature engine cannot be initialized
+   */
+  public VerifyingInputStream(InputStream in, PublicKey publicKey, long maxBytes)
+      throws SignatureException {
+    this(in, Collections.singletonList(SignatureUtil.verifierFor(publicKey)), maxBytes);
+  }
+
+  /**
+   * Creates a new VerifyingInputStream that borrows a pooled engine from each verifier. The engines
+   * go back to their pools when {@link #verify(String)} completes, or on {@link #release()} or
+   * {@link #close()} if the payload is abandoned.
+   *
+   * @param in The stream to read the payload from
+   * @param verifiers The verifiers whose keys may have signed the payload
+   * @param maxBytes Maximum payload size in bytes
+   * @throws SignatureException if no verifier's engine can be initialized
+   */
+  public VerifyingInputStream(InputStream in, Collection<EcdsaVerifier> verifiers, long maxBytes)
+      throws SignatureException {
+    super(in);
+    if (verifiers.isEmpty()) {
+      throw new IllegalArgumentException("verifiers must not be empty");
+    }
+    if (maxBytes <= 0) {
+      throw new IllegalArgumentException("maxBytes must be positive, was " + maxBytes);
+    }
+    this.verifiers = new ArrayList<>(verifiers);
+    this.maxBytes = maxBytes;
+    this.engines = new Signature[this.verifiers.size()];
+
+    SignatureException failure = null;
+    boolean acquired = false;
+    for (int i = 0; i < engines.length; i++) {
+      try {
+        engines[i] = this.verifiers.get(i).acquire();
+        acquired = true;
+      } catch (SignatureException e) {
+        // Like a key ring, tolerate keys that cannot be used as long as one can
+        failure = failure != null ? failure : e;
+      }
+    }
+    if (!acquired) {
+      throw failure;
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    checkNotVerified();
+    int b = in.read();
+    if (b != -1) {
+      countBytes(1);
+      for (Signature engine : engines) {
+        if (engine != null) {
+          update(engine, (byte) b);
+        }
+      }
+    }
+    return b;
+  }
+
+  @Override
+  public int read(byte[] bytes, int offset, int length) throws IOException {
+    checkNotVerified();
+    int read = in.read(bytes, offset, length);
+    if (read > 0) {
+      update(bytes, offset, read);
+    }
+    return read;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    // Skipped bytes are signed too, so they have to pass through the engines
+    byte[] buffer = new byte[(int) Math.min(Math.max(n, 0), DRAIN_BUFFER_SIZE)];
+    long skipped = 0;
+    while (skipped < n) {
+      int read = read(buffer, 0, (int) Math.min(n - skipped, buffer.length));
+      if (read == -1) {
+        break;
+      }
+      skipped += read;
+    }
+    return skipped;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  @Override
+  public synchronized void mark(int readLimit) {}
+
+  @Override
+  public synchronized void reset() throws IOException {
+    throw new IOException("mark/reset not supported");
+  }
+
+  /**
+   * Reads the rest of the payload and completes verification. The stream cannot be read or
+   * verified again afterwards.
+   *
+   * @param signature The Base64-encoded signature
+   * @return true if signature is valid, false otherwise
+   * @throws IOException if reading the rest of the payload fails or it exceeds the size limit
+   * @throws SignatureException if verification fails with every key
+   */
+  public boolean verify(String signature) throws IOException, SignatureException {
+    checkNotVerified();
+    byte[] signatureBytes;
+    try {
+      signatureBytes = Base64.getDecoder().decode(signature);
+    } catch (Exception e) {
+      throw new SignatureException("Failed to verify signature", e);
+    }
+    byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+    while (read(buffer, 0, buffer.length) != -1) {
+      // Drain so that the signature covers the whole payload
+    }
+
+    Signature[] completed = engines;
+    engines = null;
+    SignatureException failure = null;
+    boolean rejected = false;
+    boolean valid = false;
+    for (int i = 0; i < completed.length; i++) {
+      if (completed[i] == null) {
+        continue;
+      }
+      if (valid) {
+        // Already accepted; the engine holds the hashed payload, so it is reset before reuse
+        verifiers.get(i).recycle(completed[i]);
+        continue;
+      }
+      try {
+        valid = completed[i].verify(signatureBytes);
+        rejected = true;
+        verifiers.get(i).release(completed[i]);
+      } catch (Exception e) {
+        verifiers.get(i).recycle(completed[i]);
+        if (failure == null) {
+          failure = new SignatureException("Failed to verify signature", e);
+        }
+      }
+    }
+    // A key that cleanly rejected the signature outranks keys that could not be used at all
+    if (!rejected && failure != null) {
+      throw failure;
+    }
+    return valid;
+  }
+
+  /**
+   * Returns the engines to their pools without verifying, for a payload abandoned because reading
+   * or parsing it failed. The stream cannot be read or verified afterwards, but the underlying
+   * stream stays open. Does nothing once the payload has been verified or released.
+   */
+  public void release() {
+    Signature[] abandoned = engines;
+    engines = null;
+    if (abandoned == null) {
+      return;
+    }
+    for (int i = 0; i < abandoned.length; i++) {
+      if (abandoned[i] != null) {
+        // Part of a payload went through it, so it is reset before it is reused
+        verifiers.get(i).recycle(abandoned[i]);
+      }
+    }
+  }
+
+  /** Releases the engines, if not yet verified, and closes the underlying stream. */
+  @Override
+  public void close() throws IOException {
+    release();
+    super.close();
+  }
+
+  /**
+   * Gets the number of payload bytes read so far.
+   *
+   * @return bytes read
+   */
+  public long getCount() {
+    return count;
+  }
+
+  private void update(byte[] bytes, int offset, int length) throws IOException {
+    countBytes(length);
+    for (Signature engine : engines) {
+      if (engine == null) {
+        continue;
+      }
+      try {
+        engine.update(bytes, offset, length);
+      } catch (java.security.SignatureException e) {
+        // Only thrown for an uninitialized engine, which the pool rules out
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  private static void update(Signature engine, byte b) {
+    try {
+      engine.update(b);
+    } catch (java.security.SignatureException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private void countBytes(int length) throws IOException {
+    count += length;
+    if (count > maxBytes) {
+      throw new IOException("Payload exceeds " + maxBytes + " bytes");
+    }
+  }
+
+  private void checkNotVerified() {
+    // The engines are back in their pools
+    if (engines == null) {
+      throw new IllegalStateException("Payload already verified or released");
+    }
+  }
+}
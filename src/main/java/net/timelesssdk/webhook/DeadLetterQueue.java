@@ -0,0 +1,127 @@
+package net.timelesssdk.webhook;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded store of webhooks whose processing failed on every attempt, kept for inspection and
+ * replay (see {@link WebhookRetryScheduler#replayDeadLetters()}).
+ *
+ * <p>When the store is full, the oldest dead letter is dropped to make room and counted in {@link
+ * #getDropped()}. The store is in memory only.
+ */
+public final class DeadLetterQueue {
+  private final int capacity;
+  // Guarded by this
+  private final ArrayDeque<DeadLetter> letters = new ArrayDeque<>();
+  private final LongAdder dropped = new LongAdder();
+
+  /**
+   * Creates a new DeadLetterQueue.
+   *
+   * @param capacity Maximum number of dead letters kept
+   * @throws IllegalArgumentException if capacity is not positive
+   */
+  public DeadLetterQueue(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+    this.capacity = capacity;
+  }
+
+  synchronized void add(DeadLetter letter) {
+    if (letters.size() == capacity) {
+      letters.pollFirst();
+      dropped.increment();
+    }
+    letters.addLast(letter);
+  }
+
+  /**
+   * Gets the dead letters without removing them, oldest first.
+   *
+   * @return a copy of the stored dead letters
+   */
+  public synchronized List<DeadLetter> snapshot() {
+    return new ArrayList<>(letters);
+  }
+
+  /**
+   * Removes and returns all dead letters, oldest first.
+   *
+   * @return the removed dead letters
+   */
+  public synchronized List<DeadLetter> drain() {
+    List<DeadLetter> drained = new ArrayList<>(letters);
+    letters.clear();
+    return drained;
+  }
+
+  public synchronized int size() {
+    return letters.size();
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Gets the number of dead letters dropped because the store was full.
+   *
+   * @return the number of dropped dead letters
+   */
+  public long getDropped() {
+    return dropped.sum();
+  }
+
+  /** A webhook that could not be processed. */
+  public static final class DeadLetter {
+    private final WebhookPayload payload;
+    private final WebhookProcessor processor;
+    private final int attempts;
+    private final Exception failure;
+    private final Instant deadLetteredAt;
+
+    DeadLetter(
+        WebhookPayload payload, WebhookProcessor processor, int attempts, Exception failure) {
+      this.payload = payload;
+      this.processor = processor;
+      this.attempts = attempts;
+      this.failure = failure;
+      this.deadLetteredAt = Instant.now();
+    }
+
+    public WebhookPayload getPayload() {
+      return payload;
+    }
+
+    WebhookProcessor getProcessor() {
+      return processor;
+    }
+
+    /**
+     * Gets the number of times processing was attempted, including the first one.
+     *
+     * @return the number of attempts
+     */
+    public int getAttempts() {
+      return attempts;
+    }
+
+    /**
+     * Gets the exception thrown by the last attempt.
+     *
+     * @return the last failure
+     */
+    public Exception getFailure() {
+      return failure;
+    }
+
+    public Instant getDeadLetteredAt() {
+      return deadLetteredAt;
+    }
+  }
+}
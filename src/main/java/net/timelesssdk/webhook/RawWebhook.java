@@ -0,0 +1,66 @@
+package net.timelesssdk.webhook;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A webhook delivery as received: the raw JSON body and its X-Payload-Signature header. A webhook
+ * created from bytes keeps exactly those bytes, which are what the signature covers.
+ */
+public final class RawWebhook {
+  private final String payloadJson;
+  private final byte[] payloadBytes;
+  private final String signature;
+
+  /**
+   * Creates a new RawWebhook.
+   *
+   * @param payloadJson The webhook payload as JSON string
+   * @param signature The Base64-encoded signature from X-Payload-Signature header
+   */
+  public RawWebhook(String payloadJson, String signature) {
+    this.payloadJson = payloadJson;
+    this.payloadBytes = null;
+    this.signature = signature;
+  }
+
+  /**
+   * Creates a new RawWebhook from the raw HTTP body. The array is not copied and must not be
+   * modified afterwards.
+   *
+   * @param payloadJson The webhook payload as UTF-8 JSON bytes
+   * @param signature The Base64-encoded signature from X-Payload-Signature header
+   */
+  public RawWebhook(byte[] payloadJson, String signature) {
+    this.payloadJson = null;
+    this.payloadBytes = payloadJson;
+    this.signature = signature;
+  }
+
+  /**
+   * Gets the payload as a string, decoding it if the webhook was created from bytes.
+   *
+   * @return the webhook payload as JSON string
+   */
+  public String getPayloadJson() {
+    return payloadJson != null ? payloadJson : new String(payloadBytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Gets the payload as UTF-8 bytes: the bytes the webhook was created from, not a copy, or the
+   * encoded string.
+   *
+   * @return the webhook payload as UTF-8 JSON bytes
+   */
+  public byte[] getPayloadBytes() {
+    return payloadBytes != null ? payloadBytes : payloadJson.getBytes(StandardCharsets.UTF_8);
+  }
+
+  public String getSignature() {
+    return signature;
+  }
+
+  /** Whether the webhook was created from bytes, so that they need not be encoded again. */
+  boolean hasPayloadBytes() {
+    return payloadBytes != null;
+  }
+}
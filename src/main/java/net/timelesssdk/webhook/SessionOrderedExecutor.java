@@ -0,0 +1,254 @@
+package net.timelesssdk.webhook;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executor that runs tasks with the same key, such as the webhooks of one checkout session, one
+ * after another in submission order, and tasks with different keys in parallel.
+ *
+ * <p>Keys are hashed onto a fixed number of lanes. Each lane has its own worker thread and bounded
+ * queue, so lanes never contend with each other and a slow session only delays the sessions that
+ * share its lane. Tasks without a key are spread over the lanes round-robin.
+ *
+ * <pre>{@code
+ * SessionOrderedExecutor lanes = SessionOrderedExecutor.builder().lanes(16).build();
+ * WebhookDispatcher dispatcher = WebhookDispatcher.builder(handler)
+ *     .on(WebhookPayload.EventType.PAYMENT_SUCCESS, this::fulfilOrder)
+ *     .sessionOrdered(lanes)
+ *     .build();
+ * }</pre>
+ */
+public final class SessionOrderedExecutor {
+  private static final AtomicInteger EXECUTORS = new AtomicInteger();
+
+  private final ThreadPoolExecutor[] lanes;
+  private final LongAdder[] rejected;
+  private final LongAdder[] failed;
+  private final int laneCapacity;
+  private final AtomicInteger nextUnkeyedLane = new AtomicInteger();
+
+  private SessionOrderedExecutor(Builder builder) {
+    String prefix = "timelesspay-webhook-lane-" + EXECUTORS.incrementAndGet() + "-";
+    this.lanes = new ThreadPoolExecutor[builder.lanes];
+    this.rejected = new LongAdder[builder.lanes];
+    this.failed = new LongAdder[builder.lanes];
+    this.laneCapacity = builder.laneCapacity;
+    for (int i = 0; i < lanes.length; i++) {
+      String name = prefix + i;
+      lanes[i] =
+          new ThreadPoolExecutor(
+              1,
+              1,
+              0,
+              TimeUnit.MILLISECONDS,
+              new ArrayBlockingQueue<>(builder.laneCapacity),
+              runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+              },
+              new ThreadPoolExecutor.AbortPolicy());
+      lanes[i].prestartCoreThread();
+      rejected[i] = new LongAdder();
+      failed[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Creates a builder with the default settings: one lane per available processor and 1000 queued
+   * tasks per lane.
+   *
+   * @return a new Builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Queues a task on the lane of its key. Never blocks.
+   *
+   * @param key Ordering key, for example a session id, or null if the task needs no ordering
+   * @param task The task; it should handle its own exceptions, which are only counted here
+   * @return true if the task was queued, false if its lane is full or the executor is shut down
+   */
+  public boolean execute(String key, Runnable task) {
+    int lane =
+        key != null ? laneOf(key) : Math.floorMod(nextUnkeyedLane.getAndIncrement(), lanes.length);
+    LongAdder laneFailures = failed[lane];
+    try {
+      lanes[lane].execute(
+          () -> {
+            try {
+              task.run();
+            } catch (RuntimeException e) {
+              // Keep the lane's thread alive; replacing it could let a new task overtake the queue
+              laneFailures.increment();
+            }
+          });
+      return true;
+    } catch (RejectedExecutionException e) {
+      rejected[lane].increment();
+      return false;
+    }
+  }
+
+  /**
+   * Gets the lane a key is mapped to.
+   *
+   * @param key Ordering key
+   * @return lane index, from 0 to {@link #getLaneCount()} - 1
+   */
+  public int laneOf(String key) {
+    int h = key.hashCode();
+    return Math.floorMod(h ^ (h >>> 16), lanes.length);
+  }
+
+  /** Stops accepting tasks; queued tasks still run. */
+  public void shutdown() {
+    for (ThreadPoolExecutor lane : lanes) {
+      lane.shutdown();
+    }
+  }
+
+  /**
+   * Waits for queued tasks to finish after {@link #shutdown()}.
+   *
+   * @param timeout Maximum time to wait
+   * @return true if all lanes finished, false if the timeout elapsed first
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public boolean awaitTermination(Duration timeout) throws InterruptedException {
+    long deadline = System.nanoTime() + timeout.toNanos();
+    for (ThreadPoolExecutor lane : lanes) {
+      if (!lane.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public int getLaneCount() {
+    return lanes.length;
+  }
+
+  public int getLaneCapacity() {
+    return laneCapacity;
+  }
+
+  /**
+   * Gets the number of tasks waiting in one lane.
+   *
+   * @param lane Lane index
+   * @return the lane's queue depth
+   */
+  public int getQueueDepth(int lane) {
+    return lanes[lane].getQueue().size();
+  }
+
+  /**
+   * Gets the number of tasks waiting across all lanes.
+   *
+   * @return the total queue depth
+   */
+  public int getQueueDepth() {
+    int depth = 0;
+    for (ThreadPoolExecutor lane : lanes) {
+      depth += lane.getQueue().size();
+    }
+    return depth;
+  }
+
+  /**
+   * Gets the number of lanes currently running a task.
+   *
+   * @return the number of busy lanes
+   */
+  public int getActiveCount() {
+    int active = 0;
+    for (ThreadPoolExecutor lane : lanes) {
+      active += lane.getActiveCount();
+    }
+    return active;
+  }
+
+  /**
+   * Gets the number of tasks one lane has finished. The count is approximate while tasks run.
+   *
+   * @param lane Lane index
+   * @return the lane's completed task count
+   */
+  public long getCompletedCount(int lane) {
+    return lanes[lane].getCompletedTaskCount();
+  }
+
+  /**
+   * Gets the number of tasks one lane turned away because its queue was full or it was shut down.
+   *
+   * @param lane Lane index
+   * @return the lane's rejected task count
+   */
+  public long getRejectedCount(int lane) {
+    return rejected[lane].sum();
+  }
+
+  /**
+   * Gets the number of tasks in one lane that threw an exception.
+   *
+   * @param lane Lane index
+   * @return the lane's failed task count
+   */
+  public long getFailedCount(int lane) {
+    return failed[lane].sum();
+  }
+
+  /** Builder for SessionOrderedExecutor. */
+  public static final class Builder {
+    private int lanes = Runtime.getRuntime().availableProcessors();
+    private int laneCapacity = 1000;
+
+    private Builder() {}
+
+    /**
+     * Sets the number of lanes, each served by one thread.
+     *
+     * @param lanes Number of lanes
+     * @return this builder
+     */
+    public Builder lanes(int lanes) {
+      if (lanes <= 0) {
+        throw new IllegalArgumentException("lanes must be positive");
+      }
+      this.lanes = lanes;
+      return this;
+    }
+
+    /**
+     * Sets how many tasks may wait in each lane before new ones for that lane are rejected.
+     *
+     * @param laneCapacity Maximum queue depth per lane
+     * @return this builder
+     */
+    public Builder laneCapacity(int laneCapacity) {
+      if (laneCapacity <= 0) {
+        throw new IllegalArgumentException("laneCapacity must be positive");
+      }
+      this.laneCapacity = laneCapacity;
+      return this;
+    }
+
+    /**
+     * Builds the SessionOrderedExecutor.
+     *
+     * @return SessionOrderedExecutor instance
+     */
+    public SessionOrderedExecutor build() {
+      return new SessionOrderedExecutor(this);
+    }
+  }
+}
@@ -0,0 +1,380 @@
+package net.timelesssdk.webhook;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded record of recently seen webhook ids, for rejecting PGS redeliveries without a database
+ * round trip.
+ *
+ * <p>Ids are kept for a fixed time to live in an open-addressing table of primitive longs: a UUID
+ * id is stored as its two 64-bit halves, other ids as a 128-bit hash. Each slot takes 24 bytes and
+ * the table has at least two slots per expected id. Lookups probe at most a small, fixed number of
+ * slots. When all of them hold live ids, the one closest to expiry is evicted, so a table that is
+ * too small forgets ids early (see {@link #getEvictions()}) instead of growing.
+ *
+ * <p>There are no locks beyond a brief claim of one slot: a writer claims a slot, writes the id
+ * into it and publishes it, with nothing in between that blocks. Calls whose probes reach a slot
+ * while it is claimed spin until it is published, so a writer that is descheduled mid-write holds
+ * up lookups of ids that share its probe window for that long.
+ *
+ * <p>The record is process-local: ids seen by other instances or before a restart are not known.
+ */
+public final class WebhookDeduplicator {
+  private static final int MAX_PROBES = 32;
+  private static final long EMPTY = 0;
+  private static final long WRITING = -1;
+  private static final long FORGOTTEN = 1;
+  // Left by a copy of an id that lost to another copy of the same id
+  private static final long WITHDRAWN = 2;
+  // Set on the expiry of an id that has been written but not yet confirmed as the only copy
+  private static final long TENTATIVE = Long.MIN_VALUE;
+  // Set on a tentative expiry by forget(); the writer frees the slot once it is resolved
+  private static final long FORGET_PENDING = 1L << 62;
+  private static final byte[] HEX_DIGITS = new byte[128];
+
+  static {
+    Arrays.fill(HEX_DIGITS, (byte) -1);
+    for (int i = 0; i < 16; i++) {
+      HEX_DIGITS[Character.forDigit(i, 16)] = (byte) i;
+      HEX_DIGITS[Character.toUpperCase(Character.forDigit(i, 16))] = (byte) i;
+    }
+  }
+
+  private final long ttlNanos;
+  private final int mask;
+  private final int probes;
+  // Three longs per slot, sharing a cache line: the expiry, then the id's high and low halves.
+  // The expiry is EMPTY, WRITING, FORGOTTEN, or the tick at which the id expires, possibly marked
+  // TENTATIVE, and is published last.
+  private final AtomicLongArray table;
+  private final long originNanos = System.nanoTime();
+  private final LongAdder duplicates = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  // Runs between publishing a tentative id and resolving it; for tests
+  Runnable tentativeHook;
+
+  /**
+   * Creates a new WebhookDeduplicator.
+   *
+   * @param maxEntries Number of ids the table is sized for
+   * @param ttl How long an id is remembered
+   * @throws IllegalArgumentException if maxEntries or ttl is not positive
+   */
+  public WebhookDeduplicator(int maxEntries, Duration ttl) {
+    if (maxEntries <= 0) {
+      throw new IllegalArgumentException("maxEntries must be positive");
+    }
+    if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+      throw new IllegalArgumentException("ttl must be positive");
+    }
+    long minSlots = 2L * maxEntries;
+    if (minSlots > 1 << 29) {
+      throw new IllegalArgumentException("maxEntries is too large");
+    }
+    int capacity = Math.max(Integer.highestOneBit((int) minSlots - 1) << 1, 2);
+    this.ttlNanos = ttl.toNanos();
+    this.mask = capacity - 1;
+    this.probes = Math.min(MAX_PROBES, capacity);
+    this.table = new AtomicLongArray(capacity * 3);
+  }
+
+  /**
+   * Records a webhook id unless it was already seen within the time to live.
+   *
+   * @param webhookId The webhook id
+   * @return true if the id is new and has been recorded, false if it is a duplicate
+   */
+  public boolean markIfNew(String webhookId) {
+    boolean uuid = isUuid(webhookId);
+    long high = uuid ? uuidHigh(webhookId) : hash(webhookId, 0x9E3779B97F4A7C15L);
+    long low = uuid ? uuidLow(webhookId) : hash(webhookId, 0xC2B2AE3D27D4EB4FL);
+    int home = home(high, low);
+
+    retry:
+    while (true) {
+      long now = tick();
+      int free = -1;
+      long freeExpiry = EMPTY;
+      int oldest = -1;
+      long oldestExpiry = Long.MAX_VALUE;
+      for (int i = 0; i < probes; i++) {
+        int slot = (home + i) & mask;
+        long raw = table.get(slot * 3);
+        if (raw == WRITING) {
+          Thread.onSpinWait();
+          continue retry;
+        }
+        if (raw == EMPTY) {
+          // Ids are written to the first free slot, so none are stored past an empty one
+          if (free < 0) {
+            free = slot;
+            freeExpiry = EMPTY;
+          }
+          break;
+        }
+        if (raw < 0) {
+          // Still being resolved by its writer, so neither free nor evictable
+          if ((raw & FORGET_PENDING) == 0 && matches(slot, high, low, raw)) {
+            duplicates.increment();
+            return false;
+          }
+          continue;
+        }
+        if (raw <= now) {
+          if (free < 0) {
+            free = slot;
+            freeExpiry = raw;
+          }
+          continue;
+        }
+        if (matches(slot, high, low, raw)) {
+          duplicates.increment();
+          return false;
+        }
+        if (raw < oldestExpiry) {
+          oldest = slot;
+          oldestExpiry = raw;
+        }
+      }
+
+      boolean evict = free < 0;
+      if (evict && oldest < 0) {
+        Thread.onSpinWait();
+        continue;
+      }
+      int slot = evict ? oldest : free;
+      long expected = evict ? oldestExpiry : freeExpiry;
+      if (!table.compareAndSet(slot * 3, expected, WRITING)) {
+        // Another thread took the slot, possibly for the same id
+        continue;
+      }
+      table.setPlain(slot * 3 + 1, high);
+      table.setPlain(slot * 3 + 2, low);
+      long tentative = (now + ttlNanos) | TENTATIVE;
+      table.set(slot * 3, tentative);
+      if (tentativeHook != null) {
+        tentativeHook.run();
+      }
+      boolean won = resolve(home, slot, high, low);
+      if (evict) {
+        evictions.increment();
+      }
+      if (table.compareAndSet(slot * 3, tentative, won ? now + ttlNanos : WITHDRAWN)) {
+        if (!won) {
+          duplicates.increment();
+        }
+        return won;
+      }
+      if (table.get(slot * 3) == (tentative | FORGET_PENDING)) {
+        // Forgotten while it was being resolved; only this call writes the slot now
+        table.set(slot * 3, FORGOTTEN);
+        if (won) {
+          return true;
+        }
+        // The forget was meant for the copy that won
+        find(high, low, home, true);
+      }
+      // Or an earlier copy withdrew this one
+      duplicates.increment();
+      return false;
+    }
+  }
+
+  /**
+   * Settles a race between calls for the same id that claimed different slots, which happens when
+   * a slot expires between their scans. Each claim is published as tentative and then checked
+   * against the other copies in the probe window: a confirmed copy, or a tentative one earlier in
+   * the window, wins, and later tentative copies are withdrawn. Exactly one claim survives.
+   *
+   * @return false if this call's claim lost and is to be withdrawn
+   */
+  private boolean resolve(int home, int mine, long high, long low) {
+    int mineIndex = (mine - home) & mask;
+    for (int i = 0; i < probes; i++) {
+      int slot = (home + i) & mask;
+      if (slot == mine) {
+        continue;
+      }
+      while (true) {
+        long raw = table.get(slot * 3);
+        if (raw == WRITING) {
+          Thread.onSpinWait();
+          continue;
+        }
+        if (raw == EMPTY) {
+          return true;
+        }
+        if (raw > 0) {
+          if (raw > tick() && matches(slot, high, low, raw)) {
+            return false;
+          }
+          break;
+        }
+        // A copy that was forgotten counts as recorded before this one
+        if ((raw & FORGET_PENDING) != 0 || !matches(slot, high, low, raw)) {
+          break;
+        }
+        if (i < mineIndex) {
+          return false;
+        }
+        if (table.compareAndSet(slot * 3, raw, WITHDRAWN)) {
+          break;
+        }
+        // The later copy was confirmed, withdrawn or forgotten meanwhile; look again
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Checks whether a webhook id was seen within the time to live, without recording it.
+   *
+   * @param webhookId The webhook id
+   * @return true if the id is recorded
+   */
+  public boolean contains(String webhookId) {
+    return find(webhookId, false);
+  }
+
+  /**
+   * Forgets a webhook id so that its next delivery counts as new, for example after processing it
+   * failed.
+   *
+   * @param webhookId The webhook id
+   * @return true if the id was recorded
+   */
+  public boolean forget(String webhookId) {
+    return find(webhookId, true);
+  }
+
+  private boolean find(String webhookId, boolean remove) {
+    boolean uuid = isUuid(webhookId);
+    long high = uuid ? uuidHigh(webhookId) : hash(webhookId, 0x9E3779B97F4A7C15L);
+    long low = uuid ? uuidLow(webhookId) : hash(webhookId, 0xC2B2AE3D27D4EB4FL);
+    return find(high, low, home(high, low), remove);
+  }
+
+  private boolean find(long high, long low, int home, boolean remove) {
+    retry:
+    while (true) {
+      long now = tick();
+      for (int i = 0; i < probes; i++) {
+        int slot = (home + i) & mask;
+        long raw = table.get(slot * 3);
+        if (raw == WRITING) {
+          Thread.onSpinWait();
+          continue retry;
+        }
+        if (raw == EMPTY) {
+          return false;
+        }
+        // A tentative id is being recorded and counts as seen; its writer frees it if forgotten
+        boolean tentative = raw < 0;
+        boolean live = tentative ? (raw & FORGET_PENDING) == 0 : raw > now;
+        if (live && matches(slot, high, low, raw)) {
+          long forgotten = tentative ? raw | FORGET_PENDING : FORGOTTEN;
+          if (remove && !table.compareAndSet(slot * 3, raw, forgotten)) {
+            continue retry;
+          }
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Gets the number of slots in the table.
+   *
+   * @return the table capacity
+   */
+  public int getCapacity() {
+    return mask + 1;
+  }
+
+  public long getDuplicates() {
+    return duplicates.sum();
+  }
+
+  /**
+   * Gets the number of ids dropped before their time to live ran out to make room for new ids. A
+   * growing count means the table is too small for the webhook rate and time to live.
+   *
+   * @return the number of early evictions
+   */
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  private boolean matches(int slot, long high, long low, long expiry) {
+    // The slot may be reclaimed while its id is read; the expiry check detects that
+    return table.get(slot * 3 + 1) == high
+        && table.get(slot * 3 + 2) == low
+        && table.get(slot * 3) == expiry;
+  }
+
+  private int home(long high, long low) {
+    long h = (high ^ Long.rotateLeft(low, 32)) * 0x9E3779B97F4A7C15L;
+    return (int) (h >>> 32) & mask;
+  }
+
+  /**
+   * Current time in ticks; always above {@link #FORGOTTEN} and {@link #WITHDRAWN} so that such
+   * slots read as expired.
+   */
+  private long tick() {
+    return System.nanoTime() - originNanos + 3;
+  }
+
+  private static boolean isUuid(String id) {
+    return id.length() == 36
+        && id.charAt(8) == '-'
+        && id.charAt(13) == '-'
+        && id.charAt(18) == '-'
+        && id.charAt(23) == '-'
+        && (hex4(id, 0)
+                | hex4(id, 4)
+                | hex4(id, 9)
+                | hex4(id, 14)
+                | hex4(id, 19)
+                | hex4(id, 24)
+                | hex4(id, 28)
+                | hex4(id, 32))
+            >= 0;
+  }
+
+  private static long uuidHigh(String id) {
+    return hex4(id, 0) << 48 | hex4(id, 4) << 32 | hex4(id, 9) << 16 | hex4(id, 14);
+  }
+
+  private static long uuidLow(String id) {
+    return hex4(id, 19) << 48 | hex4(id, 24) << 32 | hex4(id, 28) << 16 | hex4(id, 32);
+  }
+
+  /** Parses four hex digits; negative if any of them is not a hex digit. */
+  private static long hex4(String id, int from) {
+    char c1 = id.charAt(from);
+    char c2 = id.charAt(from + 1);
+    char c3 = id.charAt(from + 2);
+    char c4 = id.charAt(from + 3);
+    if ((c1 | c2 | c3 | c4) >= HEX_DIGITS.length) {
+      return -1;
+    }
+    return HEX_DIGITS[c1] << 12 | HEX_DIGITS[c2] << 8 | HEX_DIGITS[c3] << 4 | HEX_DIGITS[c4];
+  }
+
+  /** 64-bit FNV-1a over the UTF-16 code units with a final avalanche, seeded per half. */
+  private static long hash(String id, long seed) {
+    long h = 0xCBF29CE484222325L ^ seed;
+    for (int i = 0; i < id.length(); i++) {
+      h = (h ^ id.charAt(i)) * 0x100000001B3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    return h;
+  }
+}
@@ -0,0 +1,682 @@
+package net.timelesssdk.webhook;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import net.timelesssdk.VirtualThreads;
+import net.timelesssdk.exception.DuplicateWebhookException;
+import net.timelesssdk.exception.TimelessPayException;
+
+/**
+ * Verifies and parses incoming webhooks on the caller's thread, then hands them to processors on a
+ * bounded pool of worker threads, so the HTTP endpoint can answer PGS without waiting for
+ * processing.
+ *
+ * <p>Processors are registered per event type (see {@link WebhookPayload.EventType}); the routing
+ * table is fixed when the dispatcher is built. {@link #dispatch(String, String)} returns an {@link
+ * Ack} telling the endpoint which status code to send. When the queue is full the webhook is
+ * rejected with 503 instead of blocking the endpoint, and PGS delivers it again later.
+ *
+ * <pre>{@code
+ * WebhookDispatcher dispatcher = WebhookDispatcher.builder(handler)
+ *     .on(WebhookPayload.EventType.PAYMENT_SUCCESS, this::fulfilOrder)
+ *     .on(WebhookPayload.EventType.PAYMENT_FAILED, this::releaseStock)
+ *     .build();
+ *
+ * // In the webhook endpoint
+ * WebhookDispatcher.Ack ack = dispatcher.dispatch(body, signatureHeader);
+ * response.setStatus(ack.getStatusCode());
+ * }</pre>
+ */
+public final class WebhookDispatcher {
+  private static final AtomicInteger DISPATCHERS = new AtomicInteger();
+
+  private final WebhookHandler handler;
+  private final Map<String, WebhookProcessor> routes;
+  private final WebhookProcessor fallback;
+  private final BiConsumer<WebhookPayload, Exception> errorListener;
+  private final WebhookDeduplicator deduplicator;
+  private final WebhookJournal journal;
+  private final WebhookRetryScheduler retryScheduler;
+  private final int queueCapacity;
+  // Exactly one of these runs the processors
+  private final ThreadPoolExecutor workers;
+  private final SessionOrderedExecutor lanes;
+  private final ExecutorService virtualWorkers;
+  // Webhooks that may still start on a virtual thread
+  private final Semaphore virtualPermits;
+
+  private final LongAdder accepted = new LongAdder();
+  private final LongAdder ignored = new LongAdder();
+  private final LongAdder duplicates = new LongAdder();
+  private final LongAdder invalid = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder processed = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+
+  private WebhookDispatcher(Builder builder) {
+    this.handler = builder.handler;
+    Map<String, WebhookProcessor> table = new HashMap<>();
+    for (Map.Entry<String, List<WebhookProcessor>> route : builder.routes.entrySet()) {
+      table.put(route.getKey(), combine(route.getValue()));
+    }
+    this.routes = Collections.unmodifiableMap(table);
+    this.fallback = builder.fallback;
+    this.errorListener = builder.errorListener;
+    this.deduplicator = builder.deduplicator;
+    this.journal = builder.journal;
+    this.retryScheduler = builder.retryScheduler;
+    this.lanes = builder.lanes;
+    String threadPrefix = "timelesspay-webhook-" + DISPATCHERS.incrementAndGet() + "-";
+    if (lanes != null) {
+      this.queueCapacity = lanes.getLaneCount() * lanes.getLaneCapacity();
+      this.workers = null;
+      this.virtualWorkers = null;
+      this.virtualPermits = null;
+    } else if (builder.virtualThreads && VirtualThreads.isSupported()) {
+      this.queueCapacity = builder.queueCapacity;
+      this.workers = null;
+      this.virtualWorkers = VirtualThreads.newThreadPerTaskExecutor(threadPrefix);
+      this.virtualPermits = new Semaphore(queueCapacity);
+    } else {
+      this.queueCapacity = builder.queueCapacity;
+      this.virtualWorkers = null;
+      this.virtualPermits = null;
+      this.workers =
+          new ThreadPoolExecutor(
+              builder.workerThreads,
+              builder.workerThreads,
+              0,
+              TimeUnit.MILLISECONDS,
+              new ArrayBlockingQueue<>(builder.queueCapacity),
+              new WorkerThreadFactory(threadPrefix),
+              new ThreadPoolExecutor.AbortPolicy());
+    }
+  }
+
+  /**
+   * Creates a builder for a dispatcher that verifies webhooks with the given handler.
+   *
+   * @param handler Handler used to verify and parse webhooks
+   * @return a new Builder
+   */
+  public static Builder builder(WebhookHandler handler) {
+    return new Builder(handler);
+  }
+
+  /**
+   * Verifies and parses a webhook and queues it for its processor.
+   *
+   * @param payloadJson The webhook payload as JSON string
+   * @param signature The Base64-encoded signature from X-Payload-Signature header
+   * @return how to answer PGS
+   */
+  public Ack dispatch(String payloadJson, String signature) {
+    WebhookPayload payload;
+    try {
+      payload = handler.verifyAndParse(payloadJson, signature);
+    } catch (DuplicateWebhookException e) {
+      duplicates.increment();
+      return Ack.DUPLICATE;
+    } catch (TimelessPayException e) {
+      invalid.increment();
+      return Ack.INVALID;
+    }
+    return enqueue(payload, new RawWebhook(payloadJson, signature));
+  }
+
+  /**
+   * Verifies and parses a webhook from the raw HTTP body and queues it for its processor. With a
+   * journal, the body is journaled exactly as received, without a round trip through a String.
+   *
+   * @param payloadJson The webhook payload as UTF-8 JSON bytes
+   * @param signature The Base64-encoded signature from X-Payload-Signature header
+   * @return how to answer PGS
+   */
+  public Ack dispatch(byte[] payloadJson, String signature) {
+    WebhookPayload payload;
+    try {
+      payload = handler.verifyAndParse(payloadJson, signature);
+    } catch (DuplicateWebhookException e) {
+      duplicates.increment();
+      return Ack.DUPLICATE;
+    } catch (TimelessPayException e) {
+      invalid.increment();
+      return Ack.INVALID;
+    }
+    return enqueue(payload, new RawWebhook(payloadJson, signature));
+  }
+
+  /**
+   * Verifies a webhook against one key of the handler's key ring, parses it and queues it for its
+   * processor.
+   *
+   * @param keyId The key id
+   * @param payloadJson The webhook payload as JSON string
+   * @param signature The Base64-encoded signature from X-Payload-Signature header
+   * @return how to answer PGS
+   */
+  public Ack dispatch(String keyId, String payloadJson, String signature) {
+    WebhookPayload payload;
+    try {
+      payload = handler.verifyAndParse(keyId, payloadJson, signature);
+    } catch (DuplicateWebhookException e) {
+      duplicates.increment();
+      return Ack.DUPLICATE;
+    } catch (TimelessPayException e) {
+      invalid.increment();
+      return Ack.INVALID;
+    }
+    return enqueue(payload, new RawWebhook(payloadJson, signature));
+  }
+
+  /**
+   * Verifies a webhook from the raw HTTP body against one key of the handler's key ring, parses
+   * it and queues it for its processor. With a journal, the body is journaled exactly as received.
+   *
+   * @param keyId The key id
+   * @param payloadJson The webhook payload as UTF-8 JSON bytes
+   * @param signature The Base64-encoded signature from X-Payload-Signature header
+   * @return how to answer PGS
+   */
+  public Ack dispatch(String keyId, byte[] payloadJson, String signature) {
+    WebhookPayload payload;
+    try {
+      payload = handler.verifyAndParse(keyId, payloadJson, signature);
+    } catch (DuplicateWebhookException e) {
+      duplicates.increment();
+      return Ack.DUPLICATE;
+    } catch (TimelessPayException e) {
+      invalid.increment();
+      return Ack.INVALID;
+    }
+    return enqueue(payload, new RawWebhook(payloadJson, signature));
+  }
+
+  private Ack enqueue(WebhookPayload payload, RawWebhook raw) {
+    WebhookProcessor processor = routes.get(payload.getEventType());
+    if (processor == null) {
+      processor = fallback;
+    }
+    if (processor == null) {
+      ignored.increment();
+      return Ack.IGNORED;
+    }
+
+    String webhookId = payload.getWebhookId();
+    if (deduplicator != null && webhookId != null && !deduplicator.markIfNew(webhookId)) {
+      duplicates.increment();
+      return Ack.DUPLICATE;
+    }
+
+    long offset = -1;
+    if (journal != null) {
+      try {
+        offset = journal.append(raw.getPayloadBytes(), raw.getSignature());
+      } catch (TimelessPayException e) {
+        forget(webhookId);
+        rejected.increment();
+        return Ack.REJECTED;
+      }
+    }
+
+    WebhookProcessor target = processor;
+    long journalOffset = offset;
+    if (!submit(payload, () -> process(target, payload, journalOffset))) {
+      // PGS will deliver it again, and the redelivery must not count as a duplicate
+      forget(webhookId);
+      if (journal != null) {
+        journal.markProcessed(offset);
+      }
+      rejected.increment();
+      return Ack.REJECTED;
+    }
+    accepted.increment();
+    return Ack.ACCEPTED;
+  }
+
+  private boolean submit(WebhookPayload payload, Runnable task) {
+    if (lanes != null) {
+      return lanes.execute(payload.getSessionId(), task);
+    }
+    if (virtualWorkers != null) {
+      if (!virtualPermits.tryAcquire()) {
+        return false;
+      }
+      try {
+        virtualWorkers.execute(
+            () -> {
+              try {
+                task.run();
+              } finally {
+                virtualPermits.release();
+              }
+            });
+        return true;
+      } catch (RejectedExecutionException e) {
+        virtualPermits.release();
+        return false;
+      }
+    }
+    try {
+      workers.execute(task);
+      return true;
+    } catch (RejectedExecutionException e) {
+      return false;
+    }
+  }
+
+  private void process(WebhookProcessor processor, WebhookPayload payload, long journalOffset) {
+    try {
+      processor.process(payload);
+      processed.increment();
+    } catch (Exception e) {
+      if (retryScheduler == null) {
+        forget(payload.getWebhookId());
+      }
+      failed.increment();
+      errorListener.accept(payload, e);
+      if (retryScheduler != null) {
+        // The webhook stays journaled, and its id recorded, until the retries are over
+        retryScheduler.schedule(payload, processor, e, () -> markProcessed(journalOffset));
+        return;
+      }
+    }
+    markProcessed(journalOffset);
+  }
+
+  private void markProcessed(long journalOffset) {
+    if (journalOffset >= 0) {
+      journal.markProcessed(journalOffset);
+    }
+  }
+
+  /**
+   * Processes the webhooks that the journal holds from a previous run: those that were
+   * acknowledged but not processed when the process stopped. They were verified when they arrived
+   * and are only parsed again. Runs the processors on the calling thread, oldest webhook first;
+   * call it on startup, before the webhook endpoint accepts requests.
+   *
+   * @return the number of webhooks replayed
+   * @throws IllegalStateException if the dispatcher has no journal
+   */
+  public int recover() {
+    if (journal == null) {
+      throw new IllegalStateException("No webhook journal configured");
+    }
+    return journal.replay(
+        entry -> {
+          WebhookPayload payload;
+          try {
+            payload = handler.parsePayload(entry.getWebhook().getPayloadBytes());
+          } catch (TimelessPayException e) {
+            journal.markProcessed(entry.getOffset());
+            return;
+          }
+          WebhookProcessor processor = routes.get(payload.getEventType());
+          if (processor == null) {
+            processor = fallback;
+          }
+          if (processor == null) {
+            journal.markProcessed(entry.getOffset());
+            return;
+          }
+          if (deduplicator != null && payload.getWebhookId() != null) {
+            // PGS may not have seen the acknowledgement and deliver it again
+            deduplicator.markIfNew(payload.getWebhookId());
+          }
+          process(processor, payload, entry.getOffset());
+        });
+  }
+
+  private void forget(String webhookId) {
+    if (webhookId == null) {
+      return;
+    }
+    if (deduplicator != null) {
+      deduplicator.forget(webhookId);
+    }
+    WebhookDeduplicator handlerDeduplicator = handler.getDeduplicator();
+    if (handlerDeduplicator != null) {
+      handlerDeduplicator.forget(webhookId);
+    }
+  }
+
+  /**
+   * Stops accepting webhooks; queued webhooks are still processed. Later calls to {@code dispatch}
+   * return {@link Ack#REJECTED}.
+   */
+  public void shutdown() {
+    if (lanes != null) {
+      lanes.shutdown();
+    } else if (virtualWorkers != null) {
+      virtualWorkers.shutdown();
+    } else {
+      workers.shutdown();
+    }
+  }
+
+  /**
+   * Waits for queued webhooks to be processed after {@link #shutdown()}.
+   *
+   * @param timeout Maximum time to wait
+   * @return true if all queued webhooks were processed, false if the timeout elapsed first
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public boolean awaitTermination(Duration timeout) throws InterruptedException {
+    if (lanes != null) {
+      return lanes.awaitTermination(timeout);
+    }
+    ExecutorService executor = virtualWorkers != null ? virtualWorkers : workers;
+    return executor.awaitTermination(timeout.toNanos(), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Gets the number of webhooks waiting for a worker thread. With {@link
+   * Builder#sessionOrdered(SessionOrderedExecutor)}, this is the total over all lanes; with {@link
+   * Builder#virtualThreads(boolean)}, it is always zero.
+   *
+   * @return the current queue depth
+   */
+  public int getQueueDepth() {
+    if (lanes != null) {
+      return lanes.getQueueDepth();
+    }
+    return virtualWorkers != null ? 0 : workers.getQueue().size();
+  }
+
+  public int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  /**
+   * Gets the number of webhooks being processed right now.
+   *
+   * @return the number of busy worker threads
+   */
+  public int getActiveCount() {
+    if (lanes != null) {
+      return lanes.getActiveCount();
+    }
+    return virtualWorkers != null
+        ? queueCapacity - virtualPermits.availablePermits()
+        : workers.getActiveCount();
+  }
+
+  public long getAccepted() {
+    return accepted.sum();
+  }
+
+  public long getIgnored() {
+    return ignored.sum();
+  }
+
+  public long getDuplicates() {
+    return duplicates.sum();
+  }
+
+  public long getInvalid() {
+    return invalid.sum();
+  }
+
+  public long getRejected() {
+    return rejected.sum();
+  }
+
+  public long getProcessed() {
+    return processed.sum();
+  }
+
+  public long getFailed() {
+    return failed.sum();
+  }
+
+  private static WebhookProcessor combine(List<WebhookProcessor> processors) {
+    if (processors.size() == 1) {
+      return processors.get(0);
+    }
+    WebhookProcessor[] chain = processors.toArray(new WebhookProcessor[0]);
+    return payload -> {
+      for (WebhookProcessor processor : chain) {
+        processor.process(payload);
+      }
+    };
+  }
+
+  /** How the webhook endpoint should answer PGS. */
+  public enum Ack {
+    /** Verified and queued for processing. */
+    ACCEPTED(200),
+    /** Verified, but no processor is registered for its event type. */
+    IGNORED(200),
+    /** Verified, but a webhook with the same id was already accepted. */
+    DUPLICATE(200),
+    /** Invalid signature or malformed payload; PGS should not deliver it again. */
+    INVALID(400),
+    /** Queue full or dispatcher shut down; PGS should deliver it again later. */
+    REJECTED(503);
+
+    private final int statusCode;
+
+    Ack(int statusCode) {
+      this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+      return statusCode;
+    }
+  }
+
+  /** Names worker threads and keeps them from holding the JVM open. */
+  private static final class WorkerThreadFactory implements ThreadFactory {
+    private final String prefix;
+    private final AtomicInteger threads = new AtomicInteger();
+
+    WorkerThreadFactory(String prefix) {
+      this.prefix = prefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, prefix + threads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+  /** Builder for WebhookDispatcher. */
+  public static final class Builder {
+    private final WebhookHandler handler;
+    private final Map<String, List<WebhookProcessor>> routes = new LinkedHashMap<>();
+    private WebhookProcessor fallback;
+    private BiConsumer<WebhookPayload, Exception> errorListener = (payload, e) -> {};
+    private WebhookDeduplicator deduplicator;
+    private int workerThreads = Runtime.getRuntime().availableProcessors();
+    private int queueCapacity = 1000;
+    private SessionOrderedExecutor lanes;
+    private WebhookJournal journal;
+    private WebhookRetryScheduler retryScheduler;
+    private boolean virtualThreads;
+
+    private Builder(WebhookHandler handler) {
+      if (handler == null) {
+        throw new IllegalArgumentException("handler is required");
+      }
+      this.handler = handler;
+    }
+
+    /**
+     * Registers a processor for an event type. Several processors for the same event type run in
+     * registration order on the same worker thread; a failing processor stops the ones after it.
+     *
+     * @param eventType Event type, see {@link WebhookPayload.EventType}
+     * @param processor The processor
+     * @return this builder
+     */
+    public Builder on(String eventType, WebhookProcessor processor) {
+      if (eventType == null || processor == null) {
+        throw new IllegalArgumentException("eventType and processor are required");
+      }
+      routes.computeIfAbsent(eventType, type -> new ArrayList<>()).add(processor);
+      return this;
+    }
+
+    /**
+     * Sets the processor for event types without a registered processor. By default such webhooks
+     * are acknowledged with {@link Ack#IGNORED} and dropped.
+     *
+     * @param fallback The processor
+     * @return this builder
+     */
+    public Builder otherwise(WebhookProcessor fallback) {
+      this.fallback = fallback;
+      return this;
+    }
+
+    /**
+     * Sets a listener called on the worker thread when a processor throws. The webhook has already
+     * been acknowledged, so this is where failures must be recorded or retried.
+     *
+     * @param errorListener Receives the webhook and the exception
+     * @return this builder
+     */
+    public Builder errorListener(BiConsumer<WebhookPayload, Exception> errorListener) {
+      if (errorListener == null) {
+        throw new IllegalArgumentException("errorListener must not be null");
+      }
+      this.errorListener = errorListener;
+      return this;
+    }
+
+    /**
+     * Sets a record of seen webhook ids; webhooks with an id that was already accepted are
+     * acknowledged with {@link Ack#DUPLICATE} and not processed again. Ids of webhooks that are
+     * rejected or whose processor fails are forgotten, so that their redelivery is processed. A
+     * deduplicator on the {@link WebhookHandler} is honored as well.
+     *
+     * @param deduplicator Record of recently seen webhook ids
+     * @return this builder
+     */
+    public Builder deduplicator(WebhookDeduplicator deduplicator) {
+      this.deduplicator = deduplicator;
+      return this;
+    }
+
+    /**
+     * Sets the number of worker threads. Defaults to the number of available processors.
+     *
+     * @param workerThreads Number of worker threads
+     * @return this builder
+     */
+    public Builder workerThreads(int workerThreads) {
+      if (workerThreads <= 0) {
+        throw new IllegalArgumentException("workerThreads must be positive");
+      }
+      this.workerThreads = workerThreads;
+      return this;
+    }
+
+    /**
+     * Sets how many webhooks may wait for a worker thread before new ones are rejected. Defaults
+     * to 1000.
+     *
+     * @param queueCapacity Maximum queue depth
+     * @return this builder
+     */
+    public Builder queueCapacity(int queueCapacity) {
+      if (queueCapacity <= 0) {
+        throw new IllegalArgumentException("queueCapacity must be positive");
+      }
+      this.queueCapacity = queueCapacity;
+      return this;
+    }
+
+    /**
+     * Runs processors on session lanes instead of a shared pool, so that the webhooks of one
+     * checkout session are processed one at a time in the order they arrived, and webhooks of
+     * different sessions in parallel. Replaces {@link #workerThreads(int)} and {@link
+     * #queueCapacity(int)}; a webhook is rejected when its lane is full. The dispatcher shuts the
+     * executor down with itself. Cannot be combined with {@link
+     * #retryScheduler(WebhookRetryScheduler)}, whose retries would run outside the lanes.
+     *
+     * @param lanes Executor to run processors on
+     * @return this builder
+     */
+    public Builder sessionOrdered(SessionOrderedExecutor lanes) {
+      this.lanes = lanes;
+      return this;
+    }
+
+    /**
+     * Sets a journal that each accepted webhook is appended to before it is acknowledged, so that
+     * webhooks acknowledged but not yet processed survive a restart; see {@link
+     * WebhookDispatcher#recover()}. If the append fails, the webhook is rejected. The journal is
+     * not closed by the dispatcher.
+     *
+     * @param journal Journal of accepted webhooks
+     * @return this builder
+     */
+    public Builder journal(WebhookJournal journal) {
+      this.journal = journal;
+      return this;
+    }
+
+    /**
+     * Sets a scheduler that retries webhooks whose processor throws, after the error listener has
+     * been called, and dead-letters them when the retries run out. Their ids are not forgotten by
+     * the deduplicator, and they stay in the journal until the retries are over. The scheduler is
+     * not shut down by the dispatcher. Cannot be combined with {@link
+     * #sessionOrdered(SessionOrderedExecutor)}.
+     *
+     * @param retryScheduler Scheduler for retries of failed webhooks
+     * @return this builder
+     */
+    public Builder retryScheduler(WebhookRetryScheduler retryScheduler) {
+      this.retryScheduler = retryScheduler;
+      return this;
+    }
+
+    /**
+     * Runs each webhook's processors on its own virtual thread instead of a pool of worker threads,
+     * so processors that block on I/O do not hold up other webhooks. Replaces {@link
+     * #workerThreads(int)}; {@link #queueCapacity(int)} then limits the webhooks being processed
+     * at once. Ignored with {@link #sessionOrdered(SessionOrderedExecutor)}, and on Java versions
+     * before 21 (see {@link VirtualThreads}).
+     *
+     * @param virtualThreads Whether to use virtual threads when supported
+     * @return this builder
+     */
+    public Builder virtualThreads(boolean virtualThreads) {
+      this.virtualThreads = virtualThreads;
+      return this;
+    }
+
+    /**
+     * Builds the WebhookDispatcher.
+     *
+     * @return WebhookDispatcher instance
+     * @throws IllegalStateException if both session lanes and a retry scheduler are set
+     */
+    public WebhookDispatcher build() {
+      if (lanes != null && retryScheduler != null) {
+        // A retry would run on a scheduler thread, beside or after later webhooks of its session
+        throw new IllegalStateException("sessionOrdered cannot be combined with retryScheduler");
+      }
+      return new WebhookDispatcher(this);
+    }
+  }
+}
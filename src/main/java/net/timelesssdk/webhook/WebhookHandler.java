@@ -1,16 +1,46 @@
 package net.timelesssdk.webhook;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import net.timelesssdk.BatchResult;
+import net.timelesssdk.exception.DuplicateWebhookException;
 import net.timelesssdk.exception.SignatureException;
 import net.timelesssdk.exception.TimelessPayException;
+import net.timelesssdk.metrics.MetricsRecorder;
+import net.timelesssdk.metrics.Outcome;
+import net.timelesssdk.metrics.Phase;
+import net.timelesssdk.security.EcdsaVerifier;
 import net.timelesssdk.security.SignatureUtil;
+import net.timelesssdk.security.VerifyingInputStream;
 
 /** Utility class for handling webhook notifications from TimelessPay. */
 public class WebhookHandler {
-  private final PublicKey publicKey;
+  /** Key id under which the single-key constructors register their key. */
+  public static final String DEFAULT_KEY_ID = "default";
+
+  private final WebhookKeyRing keyRing;
+  private final WebhookDeduplicator deduplicator;
   private final ObjectMapper objectMapper;
+  // Leaves the stream open, since the signature check reads whatever the parser left behind
+  private final ObjectReader streamReader;
+  private final MetricsRecorder metrics = new MetricsRecorder();
 
   /**
    * Creates a new WebhookHandler.
@@ -20,9 +50,13 @@ public class WebhookHandler {
    */
   public WebhookHandler(String publicKey) throws TimelessPayException {
     try {
-      this.publicKey = SignatureUtil.loadPublicKey(publicKey);
+      this.keyRing =
+          WebhookKeyRing.of(
+              Collections.singletonMap(DEFAULT_KEY_ID, SignatureUtil.loadPublicKey(publicKey)));
+      this.deduplicator = null;
       this.objectMapper = new ObjectMapper();
       this.objectMapper.registerModule(new JavaTimeModule());
+      this.streamReader = streamReader(objectMapper);
     } catch (SignatureException e) {
       throw new TimelessPayException("Failed to load public key", e);
     }
@@ -34,13 +68,40 @@ public class WebhookHandler {
    * @param publicKey The public key for verifying webhook signatures
    */
   public WebhookHandler(PublicKey publicKey) {
-    this.publicKey = publicKey;
+    this(WebhookKeyRing.of(Collections.singletonMap(DEFAULT_KEY_ID, publicKey)));
+  }
+
+  /**
+   * Creates a new WebhookHandler that verifies against a key ring. Keys added to or removed from
+   * the ring take effect for subsequent webhooks.
+   *
+   * @param keyRing The webhook public keys
+   */
+  public WebhookHandler(WebhookKeyRing keyRing) {
+    this(keyRing, null);
+  }
+
+  /**
+   * Creates a new WebhookHandler that verifies against a key ring and rejects redeliveries of
+   * webhooks it has already parsed with {@link DuplicateWebhookException}. Webhooks without a
+   * webhook id are never treated as duplicates.
+   *
+   * <p>An id is recorded as soon as its webhook is parsed. If processing it fails, call {@link
+   * WebhookDeduplicator#forget(String)} so that the redelivery is processed.
+   *
+   * @param keyRing The webhook public keys
+   * @param deduplicator Record of recently seen webhook ids, or null to accept redeliveries
+   */
+  public WebhookHandler(WebhookKeyRing keyRing, WebhookDeduplicator deduplicator) {
+    this.keyRing = keyRing;
+    this.deduplicator = deduplicator;
     this.objectMapper = new ObjectMapper();
     this.objectMapper.registerModule(new JavaTimeModule());
+    this.streamReader = streamReader(objectMapper);
   }
 
   /**
-   * Verifies the webhook signature.
+   * Verifies the webhook signature against any key in the key ring.
    *
    * @param payloadJson The webhook payload as JSON string
    * @param signature The Base64-encoded signature from X-Payload-Signature header
@@ -48,7 +109,31 @@ public class WebhookHandler {
    * @throws SignatureException if verification fails
    */
   public boolean verifySignature(String payloadJson, String signature) throws SignatureException {
-    return SignatureUtil.verify(payloadJson, signature, publicKey);
+    long startNanos = System.nanoTime();
+    try {
+      return keyRing.verify(payloadJson, signature);
+    } finally {
+      metrics.recordSince(Phase.VERIFY, startNanos);
+    }
+  }
+
+  /**
+   * Verifies the webhook signature against one key of the key ring, such as a tenant's key.
+   *
+   * @param keyId The key id
+   * @param payloadJson The webhook payload as JSON string
+   * @param signature The Base64-encoded signature from X-Payload-Signature header
+   * @return true if signature is valid, false otherwise
+   * @throws SignatureException if the key id is unknown or verification fails
+   */
+  public boolean verifySignature(String keyId, String payloadJson, String signature)
+      throws SignatureException {
+    long startNanos = System.nanoTime();
+    try {
+      return keyRing.verify(keyId, payloadJson, signature);
+    } finally {
+      metrics.recordSince(Phase.VERIFY, startNanos);
+    }
   }
 
   /**
@@ -59,10 +144,31 @@ public class WebhookHandler {
    * @throws TimelessPayException if parsing fails
    */
   public WebhookPayload parsePayload(String payloadJson) throws TimelessPayException {
+    long startNanos = System.nanoTime();
+    try {
+      return objectMapper.readValue(payloadJson, WebhookPayload.class);
+    } catch (Exception e) {
+      throw new TimelessPayException("Failed to parse webhook payload", e);
+    } finally {
+      metrics.recordSince(Phase.PARSE, startNanos);
+    }
+  }
+
+  /**
+   * Parses the webhook payload from UTF-8 JSON bytes, such as a journaled webhook.
+   *
+   * @param payloadJson The webhook payload as UTF-8 JSON bytes
+   * @return WebhookPayload object
+   * @throws TimelessPayException if parsing fails
+   */
+  public WebhookPayload parsePayload(byte[] payloadJson) throws TimelessPayException {
+    long startNanos = System.nanoTime();
     try {
       return objectMapper.readValue(payloadJson, WebhookPayload.class);
     } catch (Exception e) {
       throw new TimelessPayException("Failed to parse webhook payload", e);
+    } finally {
+      metrics.recordSince(Phase.PARSE, startNanos);
     }
   }
 
@@ -72,13 +178,481 @@ public class WebhookHandler {
    * @param payloadJson The webhook payload as JSON string
    * @param signature The Base64-encoded signature from X-Payload-Signature header
    * @return WebhookPayload object if signature is valid
+   * @throws DuplicateWebhookException if the webhook id was already seen
    * @throws TimelessPayException if verification or parsing fails
    */
   public WebhookPayload verifyAndParse(String payloadJson, String signature)
       throws TimelessPayException {
-    if (!verifySignature(payloadJson, signature)) {
+    try {
+      return parseVerified(verifySignature(payloadJson, signature), payloadJson);
+    } catch (SignatureException e) {
+      metrics.onOutcome(Outcome.FAILURE);
+      throw e;
+    }
+  }
+
+  /**
+   * Verifies a webhook payload against one key of the key ring and parses it.
+   *
+   * @param keyId The key id
+   * @param payloadJson The webhook payload as JSON string
+   * @param signature The Base64-encoded signature from X-Payload-Signature header
+   * @return WebhookPayload object if signature is valid
+   * @throws DuplicateWebhookException if the webhook id was already seen
+   * @throws TimelessPayException if verification or parsing fails
+   */
+  public WebhookPayload verifyAndParse(String keyId, String payloadJson, String signature)
+      throws TimelessPayException {
+    try {
+      return parseVerified(verifySignature(keyId, payloadJson, signature), payloadJson);
+    } catch (SignatureException e) {
+      metrics.onOutcome(Outcome.FAILURE);
+      throw e;
+    }
+  }
+
+  /**
+   * Verifies and parses a webhook payload from the raw HTTP body. The signature is checked over
+   * exactly the bytes received and the payload is parsed from the same array, so the body is
+   * never decoded into a String.
+   *
+   * @param payloadJson The webhook payload as UTF-8 JSON bytes
+   * @param signature The Base64-encoded signature from X-Payload-Signature header
+   * @return WebhookPayload object if signature is valid
+   * @throws DuplicateWebhookException if the webhook id was already seen
+   * @throws TimelessPayException if verification or parsing fails
+   */
+  public WebhookPayload verifyAndParse(byte[] payloadJson, String signature)
+      throws TimelessPayException {
+    return verifyAndParse(null, payloadJson, 0, payloadJson.length, signature);
+  }
+
+  /**
+   * Verifies a webhook payload from the raw HTTP body against one key of the key ring and parses
+   * it.
+   *
+   * @param keyId The key id
+   * @param payloadJson The webhook payload as UTF-8 JSON bytes
+   * @param signature The Base64-encoded signature from X-Payload-Signature header
+   * @return WebhookPayload object if signature is valid
+   * @throws DuplicateWebhookException if the webhook id was already seen
+   * @throws TimelessPayException if verification or parsing fails
+   */
+  public WebhookPayload verifyAndParse(String keyId, byte[] payloadJson, String signature)
+      throws TimelessPayException {
+    if (keyId == null) {
+      throw new IllegalArgumentException("keyId must not be null");
+    }
+    return verifyAndParse(keyId, payloadJson, 0, payloadJson.length, signature);
+  }
+
+  /**
+   * Verifies and parses the remaining bytes of a buffer, for servers that hand the request body
+   * over as a ByteBuffer. Heap buffers are verified and parsed in place; direct buffers are copied
+   * once. The buffer's position is left unchanged.
+   *
+   * @param payloadJson The webhook payload as UTF-8 JSON bytes
+   * @param signature The Base64-encoded signature from X-Payload-Signature header
+   * @return WebhookPayload object if signature is valid
+   * @throws DuplicateWebhookException if the webhook id was already seen
+   * @throws TimelessPayException if verification or parsing fails
+   */
+  public WebhookPayload verifyAndParse(ByteBuffer payloadJson, String signature)
+      throws TimelessPayException {
+    return verifyAndParseRemaining(null, payloadJson, signature);
+  }
+
+  /**
+   * Verifies the remaining bytes of a buffer against one key of the key ring and parses them. The
+   * buffer's position is left unchanged.
+   *
+   * @param keyId The key id
+   * @param payloadJson The webhook payload as UTF-8 JSON bytes
+   * @param signature The Base64-encoded signature from X-Payload-Signature header
+   * @return WebhookPayload object if signature is valid
+   * @throws DuplicateWebhookException if the webhook id was already seen
+   * @throws TimelessPayException if verification or parsing fails
+   */
+  public WebhookPayload verifyAndParse(String keyId, ByteBuffer payloadJson, String signature)
+      throws TimelessPayException {
+    if (keyId == null) {
+      throw new IllegalArgumentException("keyId must not be null");
+    }
+    return verifyAndParseRemaining(keyId, payloadJson, signature);
+  }
+
+  /**
+   * Verifies and parses a webhook payload while it is read from the stream against one key of the
+   * key ring, with no size limit. The stream is not closed.
+   *
+   * @param keyId The key id
+   * @param payloadJson The webhook payload as a stream of UTF-8 JSON bytes
+   * @param signature The Base64-encoded signature from X-Payload-Signature header
+   * @return WebhookPayload object if signature is valid
+   * @throws DuplicateWebhookException if the webhook id was already seen
+   * @throws TimelessPayException if reading, verification or parsing fails
+   */
+  public WebhookPayload verifyAndParse(String keyId, InputStream payloadJson, String signature)
+      throws TimelessPayException {
+    return verifyAndParse(keyId, payloadJson, signature, Long.MAX_VALUE);
+  }
+
+  /**
+   * Verifies and parses a webhook payload while it is read from the stream against one key of the
+   * key ring. Only that key's signature engine sees the body. The stream is not closed.
+   *
+   * @param keyId The key id
+   * @param payloadJson The webhook payload as a stream of UTF-8 JSON bytes
+   * @param signature The Base64-encoded signature from X-Payload-Signature header
+   * @param maxBytes Maximum payload size in bytes
+   * @return WebhookPayload object if signature is valid
+   * @throws DuplicateWebhookException if the webhook id was already seen
+   * @throws TimelessPayException if reading, verification or parsing fails
+   */
+  public WebhookPayload verifyAndParse(
+      String keyId, InputStream payloadJson, String signature, long maxBytes)
+      throws TimelessPayException {
+    if (keyId == null) {
+      throw new IllegalArgumentException("keyId must not be null");
+    }
+    EcdsaVerifier verifier;
+    try {
+      verifier = keyRing.verifier(keyId);
+    } catch (SignatureException e) {
+      metrics.onOutcome(Outcome.FAILURE);
+      throw e;
+    }
+    return verifyAndParse(payloadJson, verifier, null, signature, maxBytes);
+  }
+
+  /** Verifies against the given key, or any key if keyId is null, and parses the buffer. */
+  private WebhookPayload verifyAndParseRemaining(
+      String keyId, ByteBuffer payloadJson, String signature) throws TimelessPayException {
+    if (payloadJson.hasArray()) {
+      return verifyAndParse(
+          keyId,
+          payloadJson.array(),
+          payloadJson.arrayOffset() + payloadJson.position(),
+          payloadJson.remaining(),
+          signature);
+    }
+    byte[] bytes = new byte[payloadJson.remaining()];
+    payloadJson.duplicate().get(bytes);
+    return verifyAndParse(keyId, bytes, 0, bytes.length, signature);
+  }
+
+  /**
+   * Verifies and parses a webhook payload while it is read from the stream, with no size limit.
+   * The stream is not closed.
+   *
+   * @param payloadJson The webhook payload as a stream of UTF-8 JSON bytes
+   * @param signature The Base64-encoded signature from X-Payload-Signature header
+   * @return WebhookPayload object if signature is valid
+   * @throws DuplicateWebhookException if the webhook id was already seen
+   * @throws TimelessPayException if reading, verification or parsing fails
+   * @see #verifyAndParse(InputStream, String, long)
+   */
+  public WebhookPayload verifyAndParse(InputStream payloadJson, String signature)
+      throws TimelessPayException {
+    return verifyAndParse(payloadJson, signature, Long.MAX_VALUE);
+  }
+
+  /**
+   * Verifies and parses a webhook payload while it is read from the stream, for large bodies that
+   * should not be buffered in full. Each chunk is fed to signature verification and to the JSON
+   * parser in one pass (see {@link VerifyingInputStream}); the parsed payload is returned only
+   * once the signature over the whole body has been checked. A body that is malformed or longer
+   * than {@code maxBytes} fails as soon as that is detected, without reading the rest. The stream
+   * is not closed.
+   *
+   * <p>The body is hashed only for the key that last verified successfully. With more than one key
+   * in the ring, a copy of the body (at most {@code maxBytes}) is kept so that the other keys can
+   * be tried if that key rejects the signature; pass a key id if it is known, to skip the copy.
+   *
+   * @param payloadJson The webhook payload as a stream of UTF-8 JSON bytes
+   * @param signature The Base64-encoded signature from X-Payload-Signature header
+   * @param maxBytes Maximum payload size in bytes
+   * @return WebhookPayload object if signature is valid
+   * @throws DuplicateWebhookException if the webhook id was already seen
+   * @throws TimelessPayException if reading, verification or parsing fails
+   */
+  public WebhookPayload verifyAndParse(InputStream payloadJson, String signature, long maxBytes)
+      throws TimelessPayException {
+    EcdsaVerifier verifier;
+    try {
+      verifier = keyRing.preferredVerifier();
+    } catch (SignatureException e) {
+      metrics.onOutcome(Outcome.FAILURE);
+      throw e;
+    }
+    PayloadCopy copy = keyRing.size() > 1 ? new PayloadCopy(payloadJson) : null;
+    return verifyAndParse(copy != null ? copy : payloadJson, verifier, copy, signature, maxBytes);
+  }
+
+  /**
+   * Streams the payload through one verifier's engine and the parser in one pass. If the payload
+   * was copied, the other keys of the ring are tried on the copy when that verifier rejects it.
+   */
+  private WebhookPayload verifyAndParse(
+      InputStream payloadJson,
+      EcdsaVerifier verifier,
+      PayloadCopy copy,
+      String signature,
+      long maxBytes)
+      throws TimelessPayException {
+    WebhookPayload payload;
+    boolean valid;
+    VerifyingInputStream in = null;
+    try {
+      in = new VerifyingInputStream(payloadJson, Collections.singletonList(verifier), maxBytes);
+      long startNanos = System.nanoTime();
+      try {
+        payload = streamReader.readValue(in);
+      } catch (JsonProcessingException e) {
+        metrics.onOutcome(Outcome.FAILURE);
+        throw new TimelessPayException("Failed to parse webhook payload", e);
+      } finally {
+        metrics.recordSince(Phase.PARSE, startNanos);
+      }
+      startNanos = System.nanoTime();
+      try {
+        valid =
+            copy != null
+                ? verifyWithFallback(in, verifier, copy, signature)
+                : in.verify(signature);
+      } finally {
+        metrics.recordSince(Phase.VERIFY, startNanos);
+      }
+    } catch (SignatureException e) {
+      metrics.onOutcome(Outcome.FAILURE);
+      throw e;
+    } catch (IOException e) {
+      metrics.onOutcome(Outcome.FAILURE);
+      throw new TimelessPayException("Failed to read webhook payload", e);
+    } finally {
+      if (in != null) {
+        // A body that failed before verify still holds the engines; the stream stays open
+        in.release();
+      }
+    }
+    requireValid(valid);
+    return requireNew(payload);
+  }
+
+  /** Completes a streamed verification, trying the ring's other keys on the copy on failure. */
+  private boolean verifyWithFallback(
+      VerifyingInputStream in, EcdsaVerifier verifier, PayloadCopy copy, String signature)
+      throws IOException, SignatureException {
+    SignatureException failure = null;
+    try {
+      if (in.verify(signature)) {
+        return true;
+      }
+    } catch (SignatureException e) {
+      // Like the key ring, tolerate a key that cannot be used as long as another accepts
+      failure = e;
+    }
+    byte[] bytes = copy.toByteArray();
+    if (keyRing.verifyOthers(verifier, bytes, 0, bytes.length, signature)) {
+      return true;
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    return false;
+  }
+
+  /** Verifies against the given key, or any key if keyId is null, and parses the range. */
+  private WebhookPayload verifyAndParse(
+      String keyId, byte[] payloadJson, int offset, int length, String signature)
+      throws TimelessPayException {
+    long startNanos = System.nanoTime();
+    try {
+      boolean valid;
+      try {
+        valid =
+            keyId != null
+                ? keyRing.verify(keyId, payloadJson, offset, length, signature)
+                : keyRing.verify(payloadJson, offset, length, signature);
+      } finally {
+        metrics.recordSince(Phase.VERIFY, startNanos);
+      }
+      return parseVerified(valid, payloadJson, offset, length);
+    } catch (SignatureException e) {
+      metrics.onOutcome(Outcome.FAILURE);
+      throw e;
+    }
+  }
+
+  /** Parses a payload whose signature was checked, counting the outcome. */
+  private WebhookPayload parseVerified(boolean valid, String payloadJson)
+      throws TimelessPayException {
+    requireValid(valid);
+    WebhookPayload payload;
+    try {
+      payload = parsePayload(payloadJson);
+    } catch (TimelessPayException e) {
+      metrics.onOutcome(Outcome.FAILURE);
+      throw e;
+    }
+    return requireNew(payload);
+  }
+
+  private WebhookPayload parseVerified(boolean valid, byte[] payloadJson, int offset, int length)
+      throws TimelessPayException {
+    requireValid(valid);
+    long startNanos = System.nanoTime();
+    WebhookPayload payload;
+    try {
+      payload = objectMapper.readValue(payloadJson, offset, length, WebhookPayload.class);
+    } catch (Exception e) {
+      metrics.onOutcome(Outcome.FAILURE);
+      throw new TimelessPayException("Failed to parse webhook payload", e);
+    } finally {
+      metrics.recordSince(Phase.PARSE, startNanos);
+    }
+    return requireNew(payload);
+  }
+
+  private static ObjectReader streamReader(ObjectMapper objectMapper) {
+    return objectMapper
+        .readerFor(WebhookPayload.class)
+        .without(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+  }
+
+  private void requireValid(boolean valid) throws TimelessPayException {
+    if (!valid) {
+      metrics.onOutcome(Outcome.FAILURE);
       throw new TimelessPayException("Invalid webhook signature");
     }
-    return parsePayload(payloadJson);
+  }
+
+  private WebhookPayload requireNew(WebhookPayload payload) throws DuplicateWebhookException {
+    String webhookId = payload.getWebhookId();
+    if (deduplicator != null && webhookId != null && !deduplicator.markIfNew(webhookId)) {
+      metrics.onOutcome(Outcome.REJECTED);
+      throw new DuplicateWebhookException(webhookId);
+    }
+    metrics.onOutcome(Outcome.SUCCESS);
+    return payload;
+  }
+
+  /**
+   * Gets the key ring this handler verifies against. Single-key handlers hold their key under
+   * {@link #DEFAULT_KEY_ID}; updating the ring rotates the key in place.
+   *
+   * @return the key ring
+   */
+  public WebhookKeyRing getKeyRing() {
+    return keyRing;
+  }
+
+  /**
+   * Gets the record of seen webhook ids this handler rejects duplicates with.
+   *
+   * @return the deduplicator, or null if redeliveries are accepted
+   */
+  public WebhookDeduplicator getDeduplicator() {
+    return deduplicator;
+  }
+
+  /**
+   * Gets this handler's verify and parse latencies and outcome counts. Attach a listener with
+   * {@link MetricsRecorder#setListener} to forward them to a monitoring system.
+   *
+   * @return the handler's metrics
+   */
+  public MetricsRecorder getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Verifies and parses a batch of webhooks in parallel on the common ForkJoin pool.
+   *
+   * @param webhooks The webhooks to process
+   * @return one result per webhook, in input order
+   * @see #verifyAndParseAll(List, Executor)
+   */
+  public List<BatchResult<WebhookPayload>> verifyAndParseAll(List<RawWebhook> webhooks) {
+    return verifyAndParseAll(webhooks, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Verifies and parses a batch of webhooks in parallel, for example a redelivery burst after an
+   * outage. Each webhook is checked independently: an invalid signature or payload fails only its
+   * own result. Blocks until every webhook has been processed.
+   *
+   * @param webhooks The webhooks to process
+   * @param executor Executor to verify and parse on
+   * @return one result per webhook, in input order
+   */
+  public List<BatchResult<WebhookPayload>> verifyAndParseAll(
+      List<RawWebhook> webhooks, Executor executor) {
+    List<CompletableFuture<WebhookPayload>> futures = new ArrayList<>(webhooks.size());
+    for (RawWebhook webhook : webhooks) {
+      CompletableFuture<WebhookPayload> future;
+      try {
+        future = CompletableFuture.supplyAsync(() -> verifyAndParseUnchecked(webhook), executor);
+      } catch (RejectedExecutionException e) {
+        future = CompletableFuture.failedFuture(e);
+      }
+      futures.add(future);
+    }
+
+    List<BatchResult<WebhookPayload>> results = new ArrayList<>(futures.size());
+    for (CompletableFuture<WebhookPayload> future : futures) {
+      try {
+        results.add(BatchResult.success(future.join()));
+      } catch (CompletionException e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        results.add(
+            BatchResult.failure(
+                cause instanceof TimelessPayException
+                    ? (TimelessPayException) cause
+                    : new TimelessPayException("Failed to process webhook", cause)));
+      }
+    }
+    return results;
+  }
+
+  private WebhookPayload verifyAndParseUnchecked(RawWebhook webhook) {
+    try {
+      return webhook.hasPayloadBytes()
+          ? verifyAndParse(webhook.getPayloadBytes(), webhook.getSignature())
+          : verifyAndParse(webhook.getPayloadJson(), webhook.getSignature());
+    } catch (TimelessPayException e) {
+      throw new CompletionException(e);
+    }
+  }
+
+  /** Keeps a copy of everything read through it, for verifying against further keys. */
+  private static final class PayloadCopy extends FilterInputStream {
+    private final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+    PayloadCopy(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = in.read();
+      if (b != -1) {
+        copy.write(b);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      int read = in.read(bytes, offset, length);
+      if (read > 0) {
+        copy.write(bytes, offset, read);
+      }
+      return read;
+    }
+
+    byte[] toByteArray() {
+      return copy.toByteArray();
+    }
   }
 }
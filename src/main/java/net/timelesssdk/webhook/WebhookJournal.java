@@ -0,0 +1,609 @@
+package net.timelesssdk.webhook;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+import net.timelesssdk.exception.TimelessPayException;
+
+/**
+ * Append-only journal of received webhooks, so that a webhook acknowledged to PGS is not lost if
+ * the process dies before it has been processed.
+ *
+ * <p>Append each webhook's raw payload and signature before acknowledging it, and call {@link
+ * #markProcessed(long)} with the returned offset once it has been processed. After a restart,
+ * {@link #replay(Consumer)} hands back every webhook that was appended but not marked processed.
+ * Delivery is at least once: a webhook that was processed but not yet marked is replayed.
+ *
+ * <p>Entries are written to memory-mapped segment files in a directory, and each segment is
+ * deleted once all its entries are processed. The processed position is kept in a memory-mapped
+ * checkpoint file. Mapped writes survive a crash of the process; how they survive a crash of the
+ * machine depends on the {@link FsyncPolicy}. Each entry carries a CRC32C checksum, and a torn
+ * entry at the end of the journal is discarded on recovery.
+ *
+ * <p>A journal directory must be used by one instance at a time.
+ */
+public final class WebhookJournal implements AutoCloseable {
+  private static final String SEGMENT_PREFIX = "webhook-";
+  private static final String SEGMENT_SUFFIX = ".journal";
+  private static final String CHECKPOINT_FILE = "checkpoint";
+  // Entry layout: record length, CRC32C of everything after it, payload length, payload, signature
+  private static final int HEADER_BYTES = 12;
+
+  /** When appended entries are forced to the storage device. */
+  public enum FsyncPolicy {
+    /**
+     * Never; entries survive a crash of the process but may be lost if the machine fails. The
+     * fastest option.
+     */
+    NONE,
+    /**
+     * Before {@code append} returns, sharing one fsync among all appends that wait at the same
+     * time. Entries survive a machine failure.
+     */
+    GROUP_COMMIT,
+    /** Before {@code append} returns, with one fsync per entry. The slowest option. */
+    EVERY_APPEND
+  }
+
+  private final Path directory;
+  private final int segmentBytes;
+  private final FsyncPolicy fsyncPolicy;
+  private final long groupCommitWindowNanos;
+
+  private final NavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+  private final NavigableSet<Long> pending = new ConcurrentSkipListSet<>();
+  private final MappedByteBuffer checkpointBuffer;
+  private final LongAdder syncs = new LongAdder();
+
+  // Guarded by this
+  private Segment active;
+  private ByteBuffer writeBuffer;
+  private boolean closed;
+  // Written under this; read without it
+  private volatile long writeOffset;
+  private volatile long checkpoint;
+
+  private final Object syncLock = new Object();
+  // Guarded by syncLock
+  private long durableOffset;
+  private boolean syncing;
+
+  private WebhookJournal(Builder builder) throws IOException {
+    this.directory = builder.directory;
+    this.segmentBytes = builder.segmentBytes;
+    this.fsyncPolicy = builder.fsyncPolicy;
+    this.groupCommitWindowNanos = builder.groupCommitWindow.toNanos();
+
+    Files.createDirectories(directory);
+    this.checkpointBuffer = map(directory.resolve(CHECKPOINT_FILE), 16);
+    long storedCheckpoint = checkpointBuffer.getLong(0);
+    boolean checkpointValid = checkpointBuffer.getLong(8) == ~storedCheckpoint;
+
+    try (DirectoryStream<Path> files =
+        Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      for (Path file : files) {
+        long base = parseBase(file);
+        if (base >= 0) {
+          segments.put(base, new Segment(base, file, map(file, segmentBytes)));
+        }
+      }
+    }
+    recover(checkpointValid ? storedCheckpoint : 0);
+  }
+
+  /**
+   * Creates a builder for a journal in the given directory.
+   *
+   * @param directory Directory holding the segment and checkpoint files; created if missing
+   * @return a new Builder
+   */
+  public static Builder builder(Path directory) {
+    return new Builder(directory);
+  }
+
+  /**
+   * Appends a webhook. Depending on the {@link FsyncPolicy}, waits until it is on stable storage.
+   *
+   * @param payloadJson The webhook payload as JSON string
+   * @param signature The Base64-encoded signature from X-Payload-Signature header
+   * @return the entry's offset, to pass to {@link #markProcessed(long)}
+   * @throws TimelessPayException if the entry cannot be written or the journal is closed
+   */
+  public long append(String payloadJson, String signature) throws TimelessPayException {
+    return append(payloadJson.getBytes(StandardCharsets.UTF_8), signature);
+  }
+
+  /**
+   * Appends a webhook as the bytes it was received as, so that replaying it yields exactly the
+   * bytes its signature covers. Depending on the {@link FsyncPolicy}, waits until it is on stable
+   * storage.
+   *
+   * @param payloadJson The webhook payload as UTF-8 JSON bytes
+   * @param signature The Base64-encoded signature from X-Payload-Signature header
+   * @return the entry's offset, to pass to {@link #markProcessed(long)}
+   * @throws TimelessPayException if the entry cannot be written or the journal is closed
+   */
+  public long append(byte[] payloadJson, String signature) throws TimelessPayException {
+    long offset = write(payloadJson, signature);
+    sync(offset);
+    return offset;
+  }
+
+  /**
+   * Like {@link #append(byte[], String)}, but with {@link FsyncPolicy#GROUP_COMMIT} returns
+   * without waiting for the entry to reach stable storage; call {@link #sync(long)} for that. Lets
+   * a caller fix the order of entries under its own lock and wait for the fsync outside it.
+   */
+  long write(byte[] payload, String signature) throws TimelessPayException {
+    byte[] sig = signature != null ? signature.getBytes(StandardCharsets.UTF_8) : new byte[0];
+    int length = HEADER_BYTES + payload.length + sig.length;
+    if (length > segmentBytes) {
+      throw new TimelessPayException(
+          "Webhook of " + length + " bytes exceeds journal segment size of " + segmentBytes);
+    }
+
+    long offset;
+    try {
+      synchronized (this) {
+        if (closed) {
+          throw new TimelessPayException("Webhook journal is closed");
+        }
+        if (writeBuffer.remaining() < length) {
+          roll();
+        }
+        int position = writeBuffer.position();
+        offset = active.base + position;
+        pending.add(offset);
+
+        CRC32C crc = new CRC32C();
+        writeBuffer.position(position + 8);
+        writeBuffer.putInt(payload.length).put(payload).put(sig);
+        crc.update(writeBuffer.duplicate().position(position + 8).limit(position + length));
+        writeBuffer.putInt(position + 4, (int) crc.getValue());
+        // The length goes last, so a reader never sees a complete header for a partial entry
+        writeBuffer.putInt(position, length);
+
+        writeOffset = offset + length;
+        if (fsyncPolicy == FsyncPolicy.EVERY_APPEND) {
+          active.buffer.force();
+          syncs.increment();
+        }
+      }
+    } catch (RuntimeException e) {
+      throw new TimelessPayException("Failed to append webhook to journal", e);
+    }
+    return offset;
+  }
+
+  /** With {@link FsyncPolicy#GROUP_COMMIT}, waits until the entry at {@code offset} is durable. */
+  void sync(long offset) throws TimelessPayException {
+    if (fsyncPolicy == FsyncPolicy.GROUP_COMMIT) {
+      // Syncs cover whole entries, so a sync past the offset covers the entry
+      awaitDurable(offset + 1);
+    }
+  }
+
+  /** Whether the entry at {@code offset} is still waiting to be marked processed. */
+  boolean isPending(long offset) {
+    return pending.contains(offset);
+  }
+
+  /**
+   * Marks an entry as processed, so that it is not replayed. Entries may be marked in any order;
+   * the checkpoint advances past the oldest entry not yet processed.
+   *
+   * @param offset The entry's offset, as returned by {@link #append} or {@link Entry#getOffset()}
+   */
+  public void markProcessed(long offset) {
+    if (!pending.remove(offset)) {
+      return;
+    }
+    advanceCheckpoint();
+  }
+
+  /**
+   * Passes every entry that has not been marked processed to the consumer, oldest first. Call this
+   * on startup, before accepting new webhooks, and mark each entry processed when done.
+   *
+   * @param consumer Receives the unprocessed entries
+   * @return the number of entries replayed
+   */
+  public int replay(Consumer<Entry> consumer) {
+    return replay(Integer.MAX_VALUE, consumer);
+  }
+
+  /**
+   * Passes up to {@code maxEntries} of the oldest entries that have not been marked processed to
+   * the consumer, oldest first.
+   *
+   * @param maxEntries Maximum number of entries to pass
+   * @param consumer Receives the unprocessed entries
+   * @return the number of entries replayed
+   */
+  public int replay(int maxEntries, Consumer<Entry> consumer) {
+    long end = writeOffset;
+    int replayed = 0;
+    for (Long offset : pending.headSet(end)) {
+      if (replayed >= maxEntries) {
+        break;
+      }
+      Map.Entry<Long, Segment> segment = segments.floorEntry(offset);
+      if (segment == null) {
+        continue;
+      }
+      Entry entry = read(segment.getValue(), (int) (offset - segment.getKey()));
+      if (entry != null) {
+        consumer.accept(entry);
+        replayed++;
+      }
+    }
+    return replayed;
+  }
+
+  /**
+   * Gets the offset before which every entry has been processed.
+   *
+   * @return the checkpoint
+   */
+  public long getCheckpoint() {
+    return checkpoint;
+  }
+
+  /**
+   * Gets the number of entries appended but not yet marked processed.
+   *
+   * @return the number of pending entries
+   */
+  public int getPendingCount() {
+    return pending.size();
+  }
+
+  /**
+   * Gets the number of times the journal was forced to storage. With {@link
+   * FsyncPolicy#GROUP_COMMIT}, the ratio of appends to syncs is the average group size.
+   *
+   * @return the number of fsyncs
+   */
+  public long getSyncCount() {
+    return syncs.sum();
+  }
+
+  /**
+   * Gets the number of segment files in use.
+   *
+   * @return the number of segments
+   */
+  public int getSegmentCount() {
+    return segments.size();
+  }
+
+  /**
+   * Forces outstanding entries and the checkpoint to storage and closes the journal. Further
+   * appends fail.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      active.buffer.force();
+    }
+    checkpointBuffer.force();
+  }
+
+  private void recover(long storedCheckpoint) throws IOException {
+    if (segments.isEmpty()) {
+      createSegment(Math.max(storedCheckpoint, 0));
+    }
+    long firstBase = segments.firstKey();
+    long from = Math.max(storedCheckpoint, firstBase);
+
+    for (Segment segment : segments.values()) {
+      int position = 0;
+      while (position + HEADER_BYTES <= segmentBytes) {
+        int length = segment.buffer.getInt(position);
+        if (length == 0) {
+          break;
+        }
+        if (read(segment, position) == null) {
+          // Torn or corrupt tail: drop it and anything after it in this segment
+          zero(segment.buffer, position);
+          break;
+        }
+        long offset = segment.base + position;
+        if (offset >= from) {
+          pending.add(offset);
+        }
+        position += length;
+      }
+      segment.end = position;
+    }
+
+    active = segments.lastEntry().getValue();
+    writeBuffer = active.buffer.duplicate();
+    writeBuffer.position(active.end);
+    writeOffset = active.base + active.end;
+    synchronized (syncLock) {
+      durableOffset = writeOffset;
+    }
+    advanceCheckpoint();
+  }
+
+  /** Reads an entry, or returns null if it is incomplete or fails its checksum. */
+  private Entry read(Segment segment, int position) {
+    ByteBuffer buffer = segment.buffer;
+    int length = buffer.getInt(position);
+    if (length < HEADER_BYTES || length > segmentBytes - position) {
+      return null;
+    }
+    int payloadLength = buffer.getInt(position + 8);
+    if (payloadLength < 0 || payloadLength > length - HEADER_BYTES) {
+      return null;
+    }
+    ByteBuffer body = buffer.duplicate().position(position + 8).limit(position + length);
+    CRC32C crc = new CRC32C();
+    crc.update(body.duplicate());
+    if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+      return null;
+    }
+
+    byte[] payload = new byte[payloadLength];
+    byte[] sig = new byte[length - HEADER_BYTES - payloadLength];
+    body.position(position + HEADER_BYTES);
+    body.get(payload).get(sig);
+    return new Entry(
+        segment.base + position,
+        payload,
+        sig.length > 0 ? new String(sig, StandardCharsets.UTF_8) : null);
+  }
+
+  /** Starts a new segment. Called with the lock held. */
+  private void roll() {
+    active.buffer.force();
+    syncs.increment();
+    try {
+      createSegment(active.base + segmentBytes);
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to create journal segment", e);
+    }
+    active = segments.lastEntry().getValue();
+    writeBuffer = active.buffer.duplicate();
+  }
+
+  private void createSegment(long base) throws IOException {
+    Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, base, SEGMENT_SUFFIX));
+    segments.put(base, new Segment(base, file, map(file, segmentBytes)));
+  }
+
+  /** Waits until everything up to {@code end} is forced, leading the next group commit if idle. */
+  private void awaitDurable(long end) throws TimelessPayException {
+    synchronized (syncLock) {
+      while (durableOffset < end && syncing) {
+        try {
+          syncLock.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new TimelessPayException("Interrupted waiting for journal sync", e);
+        }
+      }
+      if (durableOffset >= end) {
+        return;
+      }
+      syncing = true;
+    }
+
+    try {
+      if (groupCommitWindowNanos > 0) {
+        // Let concurrent appends join this sync
+        TimeUnit.NANOSECONDS.sleep(groupCommitWindowNanos);
+      }
+      long target;
+      Segment segment;
+      synchronized (this) {
+        // Earlier segments were forced when they were rolled
+        target = writeOffset;
+        segment = active;
+      }
+      segment.buffer.force();
+      syncs.increment();
+      synchronized (syncLock) {
+        durableOffset = Math.max(durableOffset, target);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TimelessPayException("Interrupted waiting for journal sync", e);
+    } catch (RuntimeException e) {
+      throw new TimelessPayException("Failed to sync webhook journal", e);
+    } finally {
+      synchronized (syncLock) {
+        syncing = false;
+        syncLock.notifyAll();
+      }
+    }
+  }
+
+  private void advanceCheckpoint() {
+    // Read the end first: an entry appended after this read has an offset at or beyond it
+    long end = writeOffset;
+    Long oldest = pending.ceiling(Long.MIN_VALUE);
+    long next = oldest != null ? Math.min(oldest, end) : end;
+    synchronized (checkpointBuffer) {
+      if (next <= checkpoint) {
+        return;
+      }
+      checkpoint = next;
+      checkpointBuffer.putLong(8, ~next);
+      checkpointBuffer.putLong(0, next);
+    }
+    deleteProcessedSegments(next);
+  }
+
+  private void deleteProcessedSegments(long processedUpTo) {
+    while (true) {
+      Map.Entry<Long, Segment> first = segments.firstEntry();
+      Map.Entry<Long, Segment> second = segments.higherEntry(first.getKey());
+      // Never delete the last segment; it is, or is about to become, the active one
+      if (second == null || second.getKey() > processedUpTo) {
+        return;
+      }
+      if (!segments.remove(first.getKey(), first.getValue())) {
+        continue;
+      }
+      try {
+        Files.deleteIfExists(first.getValue().file);
+      } catch (IOException e) {
+        // Left behind, for example while still mapped on Windows; skipped on the next start
+      }
+    }
+  }
+
+  private static MappedByteBuffer map(Path file, int size) throws IOException {
+    try (FileChannel channel =
+        FileChannel.open(
+            file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+  }
+
+  private static long parseBase(Path file) {
+    String name = file.getFileName().toString();
+    try {
+      return Long.parseLong(
+          name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private static void zero(ByteBuffer buffer, int from) {
+    for (int i = from; i < buffer.capacity(); i++) {
+      buffer.put(i, (byte) 0);
+    }
+  }
+
+  /** One memory-mapped segment file. */
+  private static final class Segment {
+    final long base;
+    final Path file;
+    final MappedByteBuffer buffer;
+    // Position after the last valid entry found on recovery
+    int end;
+
+    Segment(long base, Path file, MappedByteBuffer buffer) {
+      this.base = base;
+      this.file = file;
+      this.buffer = buffer;
+    }
+  }
+
+  /** A journaled webhook. */
+  public static final class Entry {
+    private final long offset;
+    private final RawWebhook webhook;
+
+    Entry(long offset, byte[] payloadJson, String signature) {
+      this.offset = offset;
+      this.webhook = new RawWebhook(payloadJson, signature);
+    }
+
+    public long getOffset() {
+      return offset;
+    }
+
+    public RawWebhook getWebhook() {
+      return webhook;
+    }
+  }
+
+  /** Builder for WebhookJournal. */
+  public static final class Builder {
+    private final Path directory;
+    private int segmentBytes = 64 * 1024 * 1024;
+    private FsyncPolicy fsyncPolicy = FsyncPolicy.GROUP_COMMIT;
+    private Duration groupCommitWindow = Duration.ZERO;
+
+    private Builder(Path directory) {
+      if (directory == null) {
+        throw new IllegalArgumentException("directory is required");
+      }
+      this.directory = directory;
+    }
+
+    /**
+     * Sets the size of each segment file, which is also the largest webhook that can be appended.
+     * Defaults to 64 MiB. Must not change between runs on the same directory.
+     *
+     * @param segmentBytes Segment size in bytes
+     * @return this builder
+     */
+    public Builder segmentBytes(int segmentBytes) {
+      if (segmentBytes < 4096) {
+        throw new IllegalArgumentException("segmentBytes must be at least 4096");
+      }
+      this.segmentBytes = segmentBytes;
+      return this;
+    }
+
+    /**
+     * Sets when appended entries are forced to storage. Defaults to {@link
+     * FsyncPolicy#GROUP_COMMIT}.
+     *
+     * @param fsyncPolicy The fsync policy
+     * @return this builder
+     */
+    public Builder fsyncPolicy(FsyncPolicy fsyncPolicy) {
+      if (fsyncPolicy == null) {
+        throw new IllegalArgumentException("fsyncPolicy must not be null");
+      }
+      this.fsyncPolicy = fsyncPolicy;
+      return this;
+    }
+
+    /**
+     * Sets how long a group commit waits for more appends before it syncs, trading append latency
+     * for fewer fsyncs. Defaults to zero: appends that arrive during a sync share the next one.
+     *
+     * @param groupCommitWindow Wait before each group commit
+     * @return this builder
+     */
+    public Builder groupCommitWindow(Duration groupCommitWindow) {
+      if (groupCommitWindow == null || groupCommitWindow.isNegative()) {
+        throw new IllegalArgumentException("groupCommitWindow must not be negative");
+      }
+      this.groupCommitWindow = groupCommitWindow;
+      return this;
+    }
+
+    /**
+     * Opens the journal, recovering entries left by a previous run.
+     *
+     * @return WebhookJournal instance
+     * @throws TimelessPayException if the journal files cannot be opened
+     */
+    public WebhookJournal open() throws TimelessPayException {
+      try {
+        return new WebhookJournal(this);
+      } catch (IOException e) {
+        throw new TimelessPayException("Failed to open webhook journal in " + directory, e);
+      }
+    }
+  }
+}
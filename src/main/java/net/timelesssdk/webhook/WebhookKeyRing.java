@@ -0,0 +1,279 @@
+package net.timelesssdk.webhook;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.PublicKey;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.Supplier;
+import net.timelesssdk.exception.SignatureException;
+import net.timelesssdk.exception.TimelessPayException;
+import net.timelesssdk.security.EcdsaVerifier;
+import net.timelesssdk.security.SignatureUtil;
+
+/**
+ * Set of webhook public keys identified by key id (for example a tenant id or a PGS key id),
+ * replaceable at runtime for key rotation.
+ *
+ * <p>Updates swap in a new immutable snapshot, so verification never takes a lock and always sees
+ * either the old or the new set of keys. Verification without a key id tries the key that last
+ * verified successfully first, so during a rotation only webhooks signed with the other key pay for
+ * a second verification.
+ */
+public final class WebhookKeyRing {
+  private final Supplier<Map<String, PublicKey>> source;
+  private volatile Map<String, EcdsaVerifier> verifiers = Collections.emptyMap();
+  private volatile String preferredKeyId;
+
+  /**
+   * Creates a key ring that loads its keys from a source, now and on every {@link #reload()}.
+   *
+   * @param source Supplies the current keys by key id
+   * @throws TimelessPayException if the source fails
+   */
+  public WebhookKeyRing(Supplier<Map<String, PublicKey>> source) throws TimelessPayException {
+    this.source = source;
+    reload();
+  }
+
+  /**
+   * Creates a key ring with a fixed initial set of keys; use {@link #update(Map)} to replace them.
+   *
+   * @param keys Public keys by key id
+   * @return a new key ring
+   */
+  public static WebhookKeyRing of(Map<String, PublicKey> keys) {
+    try {
+      return new WebhookKeyRing(() -> keys);
+    } catch (TimelessPayException e) {
+      // The supplier cannot fail
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Creates a key ring backed by a properties file mapping key ids to Base64-encoded X.509 public
+   * keys. Call {@link #reload()} after the file changes.
+   *
+   * @param file The key file
+   * @return a new key ring
+   * @throws TimelessPayException if the file cannot be read or contains an invalid key
+   */
+  public static WebhookKeyRing fromFile(Path file) throws TimelessPayException {
+    return new WebhookKeyRing(() -> readKeyFile(file));
+  }
+
+  /**
+   * Reloads the keys from the source. If the source fails, the current keys stay in place.
+   *
+   * @throws TimelessPayException if the source fails
+   */
+  public void reload() throws TimelessPayException {
+    Map<String, PublicKey> keys;
+    try {
+      keys = source.get();
+    } catch (KeySourceException e) {
+      throw new TimelessPayException(e.getMessage(), e.getCause());
+    } catch (RuntimeException e) {
+      throw new TimelessPayException("Failed to load webhook keys", e);
+    }
+    update(keys);
+  }
+
+  /**
+   * Atomically replaces the keys. Verifiers for keys that did not change are carried over.
+   *
+   * @param keys Public keys by key id
+   */
+  public synchronized void update(Map<String, PublicKey> keys) {
+    Map<String, EcdsaVerifier> current = verifiers;
+    Map<String, EcdsaVerifier> next = new LinkedHashMap<>();
+    for (Map.Entry<String, PublicKey> key : keys.entrySet()) {
+      EcdsaVerifier existing = current.get(key.getKey());
+      next.put(
+          key.getKey(),
+          existing != null && existing.getPublicKey().equals(key.getValue())
+              ? existing
+              : new EcdsaVerifier(key.getValue()));
+    }
+    verifiers = Collections.unmodifiableMap(next);
+  }
+
+  /**
+   * Verifies a signature against any key in the ring.
+   *
+   * @param payload The payload that was signed (JSON string)
+   * @param signature The Base64-encoded signature
+   * @return true if some key verifies the signature, false otherwise
+   * @throws SignatureException if the ring is empty or verification fails with every key
+   */
+  public boolean verify(String payload, String signature) throws SignatureException {
+    byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+    return verify(bytes, 0, bytes.length, signature);
+  }
+
+  /**
+   * Verifies a signature over a range of a byte array against any key in the ring.
+   *
+   * @param payload The payload bytes
+   * @param offset Offset of the first signed byte
+   * @param length Number of signed bytes
+   * @param signature The Base64-encoded signature
+   * @return true if some key verifies the signature, false otherwise
+   * @throws SignatureException if the ring is empty or verification fails with every key
+   */
+  public boolean verify(byte[] payload, int offset, int length, String signature)
+      throws SignatureException {
+    Map<String, EcdsaVerifier> current = verifiers;
+    if (current.isEmpty()) {
+      throw new SignatureException("No webhook keys loaded");
+    }
+
+    String preferred = preferredKeyId;
+    EcdsaVerifier first = preferred != null ? current.get(preferred) : null;
+    if (first != null && first.verify(payload, offset, length, signature)) {
+      return true;
+    }
+    return verifyOthers(current, first, payload, offset, length, signature);
+  }
+
+  /**
+   * Verifies against every key except one that has already rejected the signature, for a payload
+   * that was streamed through that key alone.
+   */
+  boolean verifyOthers(
+      EcdsaVerifier rejectedBy, byte[] payload, int offset, int length, String signature)
+      throws SignatureException {
+    return verifyOthers(verifiers, rejectedBy, payload, offset, length, signature);
+  }
+
+  private boolean verifyOthers(
+      Map<String, EcdsaVerifier> current,
+      EcdsaVerifier first,
+      byte[] payload,
+      int offset,
+      int length,
+      String signature)
+      throws SignatureException {
+    SignatureException failure = null;
+    boolean rejected = first != null;
+    for (Map.Entry<String, EcdsaVerifier> entry : current.entrySet()) {
+      if (entry.getValue() == first) {
+        continue;
+      }
+      try {
+        if (entry.getValue().verify(payload, offset, length, signature)) {
+          preferredKeyId = entry.getKey();
+          return true;
+        }
+        rejected = true;
+      } catch (SignatureException e) {
+        failure = failure != null ? failure : e;
+      }
+    }
+    // A key that cleanly rejected the signature outranks keys that could not be used at all
+    if (!rejected && failure != null) {
+      throw failure;
+    }
+    return false;
+  }
+
+  /**
+   * Verifies a signature against the key with the given id only.
+   *
+   * @param keyId The key id
+   * @param payload The payload that was signed (JSON string)
+   * @param signature The Base64-encoded signature
+   * @return true if signature is valid, false otherwise
+   * @throws SignatureException if there is no key with this id or verification fails
+   */
+  public boolean verify(String keyId, String payload, String signature)
+      throws SignatureException {
+    return verifier(keyId).verify(payload, signature);
+  }
+
+  /**
+   * Verifies a signature over a range of a byte array against the key with the given id only.
+   *
+   * @param keyId The key id
+   * @param payload The payload bytes
+   * @param offset Offset of the first signed byte
+   * @param length Number of signed bytes
+   * @param signature The Base64-encoded signature
+   * @return true if signature is valid, false otherwise
+   * @throws SignatureException if there is no key with this id or verification fails
+   */
+  public boolean verify(String keyId, byte[] payload, int offset, int length, String signature)
+      throws SignatureException {
+    return verifier(keyId).verify(payload, offset, length, signature);
+  }
+
+  /**
+   * Gets the ids of the keys currently in the ring.
+   *
+   * @return an immutable snapshot of the key ids
+   */
+  public Set<String> getKeyIds() {
+    return verifiers.keySet();
+  }
+
+  /**
+   * Gets the verifier to stream a payload through when the key is not known: the key that last
+   * verified successfully, or else the first key.
+   */
+  EcdsaVerifier preferredVerifier() throws SignatureException {
+    Map<String, EcdsaVerifier> current = verifiers;
+    if (current.isEmpty()) {
+      throw new SignatureException("No webhook keys loaded");
+    }
+    String preferred = preferredKeyId;
+    EcdsaVerifier first = preferred != null ? current.get(preferred) : null;
+    return first != null ? first : current.values().iterator().next();
+  }
+
+  /** Gets the number of keys currently in the ring. */
+  int size() {
+    return verifiers.size();
+  }
+
+  /** Gets the verifier of the key with the given id. */
+  EcdsaVerifier verifier(String keyId) throws SignatureException {
+    EcdsaVerifier verifier = verifiers.get(keyId);
+    if (verifier == null) {
+      throw new SignatureException("Unknown webhook key id: " + keyId);
+    }
+    return verifier;
+  }
+
+  private static Map<String, PublicKey> readKeyFile(Path file) {
+    Properties properties = new Properties();
+    try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      properties.load(reader);
+    } catch (IOException e) {
+      throw new KeySourceException("Failed to read webhook key file " + file, e);
+    }
+
+    Map<String, PublicKey> keys = new LinkedHashMap<>();
+    for (String keyId : properties.stringPropertyNames()) {
+      try {
+        keys.put(keyId, SignatureUtil.loadPublicKey(properties.getProperty(keyId).trim()));
+      } catch (SignatureException e) {
+        throw new KeySourceException("Invalid webhook key " + keyId + " in " + file, e);
+      }
+    }
+    return keys;
+  }
+
+  /** Carries a checked failure out of the key file supplier. */
+  private static final class KeySourceException extends RuntimeException {
+    KeySourceException(String message, Throwable cause) {
+      super(message, cause);
+    }
+  }
+}
@@ -0,0 +1,591 @@
+package net.timelesssdk.webhook;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import net.timelesssdk.exception.DuplicateWebhookException;
+import net.timelesssdk.exception.TimelessPayException;
+
+/**
+ * {@link Flow.Publisher} of verified webhooks, for feeding them into reactive pipelines.
+ *
+ * <p>The webhook endpoint passes each raw webhook to {@link #offer(String, String)}, which verifies
+ * and parses it on the caller's thread and buffers it for every subscriber. Subscribers receive
+ * webhooks on the publisher's executor, only as many as they have requested. Each subscriber has
+ * its own bounded buffer; when a webhook finds a buffer full, or there are no subscribers, the
+ * {@link OverflowPolicy} decides what happens to it. The returned {@link WebhookDispatcher.Ack}
+ * tells the endpoint how to answer PGS, so a slow subscriber slows down deliveries instead of
+ * growing the heap.
+ *
+ * <pre>{@code
+ * WebhookPublisher publisher = WebhookPublisher.builder(handler)
+ *     .overflowPolicy(WebhookPublisher.OverflowPolicy.DROP)
+ *     .build();
+ * publisher.subscribe(subscriber);
+ *
+ * // In the webhook endpoint
+ * WebhookDispatcher.Ack ack = publisher.offer(body, signatureHeader);
+ * response.setStatus(ack.getStatusCode());
+ * }</pre>
+ */
+public final class WebhookPublisher implements Flow.Publisher<WebhookPayload>, AutoCloseable {
+  /** What happens to a webhook that a subscriber has no room for. */
+  public enum OverflowPolicy {
+    /**
+     * Drop it for every subscriber and answer {@link WebhookDispatcher.Ack#REJECTED}, so PGS
+     * delivers it again later. No subscriber receives it twice.
+     */
+    DROP,
+    /**
+     * Fail the subscriber with a {@link TimelessPayException} and cancel its subscription. The
+     * webhook is still delivered to the other subscribers; with none left it is rejected.
+     */
+    FAIL,
+    /**
+     * Append it to the spill journal and acknowledge it. Spilled webhooks are delivered, oldest
+     * first and ahead of new ones, as soon as every subscriber has room again, including after a
+     * restart.
+     */
+    SPILL
+  }
+
+  private final WebhookHandler handler;
+  private final int bufferCapacity;
+  private final OverflowPolicy overflowPolicy;
+  private final WebhookJournal spillJournal;
+  private final Executor executor;
+  private final List<WebhookSubscription> subscriptions = new CopyOnWriteArrayList<>();
+  private volatile boolean closed;
+
+  private final LongAdder published = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder spilled = new LongAdder();
+
+  private WebhookPublisher(Builder builder) {
+    this.handler = builder.handler;
+    this.bufferCapacity = builder.bufferCapacity;
+    this.overflowPolicy = builder.overflowPolicy;
+    this.spillJournal = builder.spillJournal;
+    this.executor = builder.executor;
+  }
+
+  /**
+   * Creates a builder for a publisher that verifies webhooks with the given handler.
+   *
+   * @param handler Handler used to verify and parse webhooks
+   * @return a new Builder
+   */
+  public static Builder builder(WebhookHandler handler) {
+    return new Builder(handler);
+  }
+
+  /**
+   * Adds a subscriber. It receives only webhooks offered after it subscribed, plus any spilled
+   * webhooks still waiting.
+   *
+   * @param subscriber The subscriber
+   */
+  @Override
+  public void subscribe(Flow.Subscriber<? super WebhookPayload> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("subscriber must not be null");
+    }
+    WebhookSubscription subscription = new WebhookSubscription(subscriber);
+    if (closed) {
+      subscription.complete();
+      return;
+    }
+    subscriptions.add(subscription);
+    subscription.signal();
+  }
+
+  /**
+   * Verifies and parses a webhook and publishes it to the subscribers.
+   *
+   * @param payloadJson The webhook payload as JSON string
+   * @param signature The Base64-encoded signature from X-Payload-Signature header
+   * @return how to answer PGS
+   */
+  public WebhookDispatcher.Ack offer(String payloadJson, String signature) {
+    WebhookPayload payload;
+    try {
+      payload = handler.verifyAndParse(payloadJson, signature);
+    } catch (DuplicateWebhookException e) {
+      return WebhookDispatcher.Ack.DUPLICATE;
+    } catch (TimelessPayException e) {
+      return WebhookDispatcher.Ack.INVALID;
+    }
+    return publish(payload, new RawWebhook(payloadJson, signature));
+  }
+
+  /**
+   * Verifies a webhook against one key of the handler's key ring, parses it and publishes it to
+   * the subscribers.
+   *
+   * @param keyId The key id
+   * @param payloadJson The webhook payload as JSON string
+   * @param signature The Base64-encoded signature from X-Payload-Signature header
+   * @return how to answer PGS
+   */
+  public WebhookDispatcher.Ack offer(String keyId, String payloadJson, String signature) {
+    WebhookPayload payload;
+    try {
+      payload = handler.verifyAndParse(keyId, payloadJson, signature);
+    } catch (DuplicateWebhookException e) {
+      return WebhookDispatcher.Ack.DUPLICATE;
+    } catch (TimelessPayException e) {
+      return WebhookDispatcher.Ack.INVALID;
+    }
+    return publish(payload, new RawWebhook(payloadJson, signature));
+  }
+
+  /**
+   * Verifies and parses a webhook from the raw HTTP body and publishes it to the subscribers. A
+   * webhook spilled to the journal is stored exactly as received.
+   *
+   * @param payloadJson The webhook payload as UTF-8 JSON bytes
+   * @param signature The Base64-encoded signature from X-Payload-Signature header
+   * @return how to answer PGS
+   */
+  public WebhookDispatcher.Ack offer(byte[] payloadJson, String signature) {
+    WebhookPayload payload;
+    try {
+      payload = handler.verifyAndParse(payloadJson, signature);
+    } catch (DuplicateWebhookException e) {
+      return WebhookDispatcher.Ack.DUPLICATE;
+    } catch (TimelessPayException e) {
+      return WebhookDispatcher.Ack.INVALID;
+    }
+    return publish(payload, new RawWebhook(payloadJson, signature));
+  }
+
+  /**
+   * Verifies a webhook from the raw HTTP body against one key of the handler's key ring, parses it
+   * and publishes it to the subscribers.
+   *
+   * @param keyId The key id
+   * @param payloadJson The webhook payload as UTF-8 JSON bytes
+   * @param signature The Base64-encoded signature from X-Payload-Signature header
+   * @return how to answer PGS
+   */
+  public WebhookDispatcher.Ack offer(String keyId, byte[] payloadJson, String signature) {
+    WebhookPayload payload;
+    try {
+      payload = handler.verifyAndParse(keyId, payloadJson, signature);
+    } catch (DuplicateWebhookException e) {
+      return WebhookDispatcher.Ack.DUPLICATE;
+    } catch (TimelessPayException e) {
+      return WebhookDispatcher.Ack.INVALID;
+    }
+    return publish(payload, new RawWebhook(payloadJson, signature));
+  }
+
+  private WebhookDispatcher.Ack publish(WebhookPayload payload, RawWebhook raw) {
+    long spillOffset;
+    synchronized (this) {
+      if (closed) {
+        return reject(payload);
+      }
+      if (overflowPolicy != OverflowPolicy.SPILL) {
+        return deliver(payload);
+      }
+      // Spilled webhooks go first, so new ones must queue behind them
+      if (spillJournal.getPendingCount() > 0) {
+        drainSpilled();
+      }
+      if (spillJournal.getPendingCount() == 0 && roomForAll() > 0) {
+        return deliver(payload);
+      }
+      try {
+        spillOffset = spillJournal.write(raw.getPayloadBytes(), raw.getSignature());
+      } catch (TimelessPayException e) {
+        return reject(payload);
+      }
+    }
+
+    // The order is fixed; wait for the fsync without holding up other webhooks
+    try {
+      spillJournal.sync(spillOffset);
+    } catch (TimelessPayException e) {
+      synchronized (this) {
+        // Withdraw it, unless it has already been delivered
+        if (spillJournal.isPending(spillOffset)) {
+          spillJournal.markProcessed(spillOffset);
+          return reject(payload);
+        }
+      }
+    }
+    spilled.increment();
+    return WebhookDispatcher.Ack.ACCEPTED;
+  }
+
+  /** Offers a webhook to every subscriber; called with the lock held. */
+  private WebhookDispatcher.Ack deliver(WebhookPayload payload) {
+    if (subscriptions.isEmpty()) {
+      return reject(payload);
+    }
+    // A rejected webhook is redelivered to all subscribers, so it must not reach some of them now
+    if (overflowPolicy == OverflowPolicy.DROP && roomForAll() == 0) {
+      return reject(payload);
+    }
+
+    boolean delivered = false;
+    for (WebhookSubscription subscription : subscriptions) {
+      if (subscription.offer(payload)) {
+        delivered = true;
+      } else if (overflowPolicy == OverflowPolicy.FAIL) {
+        subscription.fail(
+            new TimelessPayException(
+                "Webhook subscriber buffer is full (capacity " + bufferCapacity + ")"));
+      }
+      // Otherwise the subscriber had room a moment ago, so it has just cancelled
+    }
+    if (!delivered) {
+      return reject(payload);
+    }
+    published.increment();
+    return WebhookDispatcher.Ack.ACCEPTED;
+  }
+
+  private WebhookDispatcher.Ack reject(WebhookPayload payload) {
+    dropped.increment();
+    // PGS will deliver it again, and the redelivery must not count as a duplicate
+    WebhookDeduplicator deduplicator = handler.getDeduplicator();
+    if (deduplicator != null && payload.getWebhookId() != null) {
+      deduplicator.forget(payload.getWebhookId());
+    }
+    return WebhookDispatcher.Ack.REJECTED;
+  }
+
+  /** Moves spilled webhooks into the subscribers' buffers while all of them have room. */
+  private synchronized void drainSpilled() {
+    int room;
+    while (!closed && spillJournal.getPendingCount() > 0 && (room = roomForAll()) > 0) {
+      int moved =
+          spillJournal.replay(
+              room,
+              entry -> {
+                try {
+                  WebhookPayload payload =
+                      handler.parsePayload(entry.getWebhook().getPayloadBytes());
+                  for (WebhookSubscription subscription : subscriptions) {
+                    subscription.offer(payload);
+                  }
+                  published.increment();
+                } catch (TimelessPayException e) {
+                  // Verified before it was spilled; nothing to deliver if it no longer parses
+                }
+                spillJournal.markProcessed(entry.getOffset());
+              });
+      if (moved == 0) {
+        return;
+      }
+    }
+  }
+
+  /** Smallest free space over all subscribers' buffers; zero without subscribers. */
+  private int roomForAll() {
+    int room = Integer.MAX_VALUE;
+    for (WebhookSubscription subscription : subscriptions) {
+      room = Math.min(room, subscription.room());
+    }
+    return subscriptions.isEmpty() ? 0 : room;
+  }
+
+  /**
+   * Stops accepting webhooks and completes each subscriber once it has received the webhooks
+   * already in its buffer. Spilled webhooks stay in the spill journal. Later offers return {@link
+   * WebhookDispatcher.Ack#REJECTED}.
+   */
+  @Override
+  public synchronized void close() {
+    closed = true;
+    for (WebhookSubscription subscription : subscriptions) {
+      subscription.complete();
+    }
+    subscriptions.clear();
+  }
+
+  public int getSubscriberCount() {
+    return subscriptions.size();
+  }
+
+  /**
+   * Gets the number of webhooks handed to the subscribers, including spilled webhooks once
+   * delivered.
+   *
+   * @return the number of published webhooks
+   */
+  public long getPublished() {
+    return published.sum();
+  }
+
+  /**
+   * Gets the number of webhooks rejected because a subscriber had no room, there were no
+   * subscribers, or the publisher was closed.
+   *
+   * @return the number of dropped webhooks
+   */
+  public long getDropped() {
+    return dropped.sum();
+  }
+
+  public long getSpilled() {
+    return spilled.sum();
+  }
+
+  /**
+   * One subscriber's buffer and demand. Signals to the subscriber are made one at a time by a
+   * drain task on the publisher's executor, which runs whenever there is something to deliver.
+   */
+  private final class WebhookSubscription implements Flow.Subscription, Runnable {
+    private final Flow.Subscriber<? super WebhookPayload> subscriber;
+    // Guarded by this
+    private final ArrayDeque<WebhookPayload> buffer = new ArrayDeque<>();
+    private Throwable error;
+    private boolean completing;
+
+    private final AtomicLong demand = new AtomicLong();
+    // Number of signals since the drain task last looked; the task runs while it is non-zero
+    private final AtomicInteger work = new AtomicInteger();
+    private volatile boolean cancelled;
+    // Owned by the drain task
+    private boolean subscribed;
+    private boolean terminated;
+
+    WebhookSubscription(Flow.Subscriber<? super WebhookPayload> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    boolean offer(WebhookPayload payload) {
+      synchronized (this) {
+        if (cancelled || completing || buffer.size() >= bufferCapacity) {
+          return false;
+        }
+        buffer.addLast(payload);
+      }
+      signal();
+      return true;
+    }
+
+    synchronized int room() {
+      return cancelled || completing ? 0 : bufferCapacity - buffer.size();
+    }
+
+    void fail(Throwable e) {
+      subscriptions.remove(this);
+      synchronized (this) {
+        error = e;
+        buffer.clear();
+      }
+      signal();
+    }
+
+    void complete() {
+      synchronized (this) {
+        completing = true;
+      }
+      signal();
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        fail(new IllegalArgumentException("request must be positive, was " + n));
+        return;
+      }
+      // Demand that reaches Long.MAX_VALUE is unbounded
+      demand.getAndAccumulate(
+          n, (current, more) -> current + more < 0 ? Long.MAX_VALUE : current + more);
+      signal();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      subscriptions.remove(this);
+      signal();
+    }
+
+    void signal() {
+      if (work.getAndIncrement() == 0) {
+        try {
+          executor.execute(this);
+        } catch (RejectedExecutionException e) {
+          // No thread to signal the subscriber on; drop it
+          cancelled = true;
+          subscriptions.remove(this);
+          work.set(0);
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      int delivered = 0;
+      int missed = 1;
+      do {
+        if (!terminated) {
+          delivered += drain();
+        }
+        missed = work.addAndGet(-missed);
+      } while (missed != 0);
+
+      // Room was freed, or the subscriber just started, possibly with webhooks spilled before a
+      // restart still waiting
+      if (overflowPolicy == OverflowPolicy.SPILL
+          && !cancelled
+          && (delivered > 0 || spillJournal.getPendingCount() > 0)) {
+        drainSpilled();
+      }
+    }
+
+    private int drain() {
+      if (!subscribed) {
+        subscribed = true;
+        subscriber.onSubscribe(this);
+      }
+      int delivered = 0;
+      while (!cancelled) {
+        WebhookPayload payload;
+        Throwable failure;
+        boolean complete;
+        synchronized (this) {
+          failure = error;
+          payload = failure == null && demand.get() > 0 ? buffer.pollFirst() : null;
+          complete = completing && buffer.isEmpty();
+        }
+        if (failure != null) {
+          terminate(failure);
+          return delivered;
+        }
+        if (payload == null) {
+          if (complete) {
+            terminate(null);
+          }
+          return delivered;
+        }
+        demand.getAndUpdate(current -> current == Long.MAX_VALUE ? current : current - 1);
+        try {
+          subscriber.onNext(payload);
+        } catch (RuntimeException e) {
+          subscriptions.remove(this);
+          terminate(e);
+          return delivered;
+        }
+        delivered++;
+      }
+      synchronized (this) {
+        buffer.clear();
+      }
+      terminated = true;
+      return delivered;
+    }
+
+    private void terminate(Throwable failure) {
+      terminated = true;
+      cancelled = true;
+      synchronized (this) {
+        buffer.clear();
+      }
+      if (failure != null) {
+        subscriber.onError(failure);
+      } else {
+        subscriber.onComplete();
+      }
+    }
+  }
+
+  /** Builder for WebhookPublisher. */
+  public static final class Builder {
+    private final WebhookHandler handler;
+    private int bufferCapacity = Flow.defaultBufferSize();
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+    private WebhookJournal spillJournal;
+    private Executor executor = ForkJoinPool.commonPool();
+
+    private Builder(WebhookHandler handler) {
+      if (handler == null) {
+        throw new IllegalArgumentException("handler is required");
+      }
+      this.handler = handler;
+    }
+
+    /**
+     * Sets how many webhooks each subscriber's buffer holds. Defaults to {@link
+     * Flow#defaultBufferSize()}.
+     *
+     * @param bufferCapacity Maximum buffered webhooks per subscriber
+     * @return this builder
+     */
+    public Builder bufferCapacity(int bufferCapacity) {
+      if (bufferCapacity <= 0) {
+        throw new IllegalArgumentException("bufferCapacity must be positive");
+      }
+      this.bufferCapacity = bufferCapacity;
+      return this;
+    }
+
+    /**
+     * Sets what happens to a webhook that a subscriber has no room for. Defaults to {@link
+     * OverflowPolicy#DROP}.
+     *
+     * @param overflowPolicy The overflow policy
+     * @return this builder
+     */
+    public Builder overflowPolicy(OverflowPolicy overflowPolicy) {
+      if (overflowPolicy == null) {
+        throw new IllegalArgumentException("overflowPolicy must not be null");
+      }
+      this.overflowPolicy = overflowPolicy;
+      return this;
+    }
+
+    /**
+     * Sets the journal that {@link OverflowPolicy#SPILL} appends webhooks to. Use a journal of its
+     * own, not one shared with a {@link WebhookDispatcher}. The publisher does not close it.
+     *
+     * @param spillJournal Journal for spilled webhooks
+     * @return this builder
+     */
+    public Builder spillJournal(WebhookJournal spillJournal) {
+      this.spillJournal = spillJournal;
+      return this;
+    }
+
+    /**
+     * Sets the executor that delivers webhooks to subscribers. Defaults to the common fork-join
+     * pool.
+     *
+     * @param executor The delivery executor
+     * @return this builder
+     */
+    public Builder executor(Executor executor) {
+      if (executor == null) {
+        throw new IllegalArgumentException("executor must not be null");
+      }
+      this.executor = executor;
+      return this;
+    }
+
+    /**
+     * Builds the WebhookPublisher.
+     *
+     * @return WebhookPublisher instance
+     * @throws IllegalStateException if the overflow policy is SPILL and no spill journal is set
+     */
+    public WebhookPublisher build() {
+      if (overflowPolicy == OverflowPolicy.SPILL && spillJournal == null) {
+        throw new IllegalStateException("SPILL overflow policy requires a spill journal");
+      }
+      return new WebhookPublisher(this);
+    }
+  }
+}
@@ -0,0 +1,497 @@
+package net.timelesssdk.webhook;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Retries failed webhook processing after exponentially growing delays, and moves webhooks that
+ * fail every attempt to a {@link DeadLetterQueue}.
+ *
+ * <p>Pending retries are kept on a hashed timing wheel: a ring of buckets that a single timer
+ * thread advances one bucket per tick. Scheduling a retry and expiring it are constant time however
+ * many retries are pending; the price is that delays are rounded up to whole ticks. Due retries run
+ * on the scheduler's own worker threads, never on the thread that reported the failure.
+ *
+ * <pre>{@code
+ * WebhookRetryScheduler retries = WebhookRetryScheduler.builder()
+ *     .maxAttempts(5)
+ *     .baseDelay(Duration.ofSeconds(1))
+ *     .build();
+ * WebhookDispatcher dispatcher = WebhookDispatcher.builder(handler)
+ *     .on(WebhookPayload.EventType.PAYMENT_SUCCESS, this::fulfilOrder)
+ *     .retryScheduler(retries)
+ *     .build();
+ * }</pre>
+ */
+public final class WebhookRetryScheduler {
+  private static final AtomicInteger SCHEDULERS = new AtomicInteger();
+  private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+  private final int maxAttempts;
+  private final long baseDelayNanos;
+  private final long maxDelayNanos;
+  private final long tickNanos;
+  private final int maxPending;
+  private final DeadLetterQueue deadLetters;
+
+  // Owned by the timer thread
+  private final Retry[] wheel;
+  private final int mask;
+  private long tick;
+
+  private final Queue<Retry> scheduled = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pending = new AtomicInteger();
+  private final ThreadPoolExecutor workers;
+  private final Thread timer;
+  private final long startNanos = System.nanoTime();
+  private volatile boolean shutdown;
+
+  private final LongAdder retried = new LongAdder();
+  private final LongAdder succeeded = new LongAdder();
+  private final LongAdder deadLettered = new LongAdder();
+
+  private WebhookRetryScheduler(Builder builder) {
+    this.maxAttempts = builder.maxAttempts;
+    this.baseDelayNanos = builder.baseDelay.toNanos();
+    this.maxDelayNanos = builder.maxDelay.toNanos();
+    this.tickNanos = builder.tickDuration.toNanos();
+    this.maxPending = builder.maxPending;
+    this.deadLetters = builder.deadLetters;
+    this.wheel = new Retry[builder.wheelSize];
+    this.mask = builder.wheelSize - 1;
+
+    String prefix = "timelesspay-webhook-retry-" + SCHEDULERS.incrementAndGet() + "-";
+    AtomicInteger threads = new AtomicInteger();
+    this.workers =
+        new ThreadPoolExecutor(
+            builder.workerThreads,
+            builder.workerThreads,
+            0,
+            TimeUnit.MILLISECONDS,
+            // Bounded by maxPending: a retry counts as pending until its attempt has run
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+              Thread thread = new Thread(runnable, prefix + threads.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.timer = new Thread(this::runTimer, prefix + "timer");
+    timer.setDaemon(true);
+    timer.start();
+  }
+
+  /**
+   * Creates a builder with the default settings: 5 attempts, delays doubling from 1 s up to 5
+   * minutes, 100 ms ticks on a wheel of 512 buckets, up to 100000 pending retries, one worker
+   * thread and a dead-letter queue of 1000 webhooks.
+   *
+   * @return a new Builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Schedules another attempt at processing a webhook whose first attempt failed. Never blocks. If
+   * only one attempt is allowed, or too many retries are pending, the webhook goes straight to the
+   * dead-letter queue.
+   *
+   * @param payload The webhook
+   * @param processor The processor that failed
+   * @param failure The exception it threw
+   * @return true if a retry was scheduled, false if the webhook was dead-lettered
+   */
+  public boolean schedule(WebhookPayload payload, WebhookProcessor processor, Exception failure) {
+    return schedule(new Retry(payload, processor, null), 1, failure);
+  }
+
+  /** Like {@link #schedule}, and runs {@code whenDone} once the webhook succeeds or is dead. */
+  boolean schedule(
+      WebhookPayload payload, WebhookProcessor processor, Exception failure, Runnable whenDone) {
+    return schedule(new Retry(payload, processor, whenDone), 1, failure);
+  }
+
+  /**
+   * Moves every dead letter back onto the wheel with a fresh set of attempts, due on the next tick.
+   * Use it once the downstream failure that killed them is fixed.
+   *
+   * @return the number of webhooks replayed; the rest went back to the dead-letter queue
+   */
+  public int replayDeadLetters() {
+    int replayed = 0;
+    for (DeadLetterQueue.DeadLetter letter : deadLetters.drain()) {
+      Retry retry = new Retry(letter.getPayload(), letter.getProcessor(), null);
+      // Attempt 0 and no delay: the replay counts as a fresh first attempt
+      if (enqueue(retry, 0, 0, letter.getFailure())) {
+        replayed++;
+      }
+    }
+    return replayed;
+  }
+
+  private boolean schedule(Retry retry, int failedAttempts, Exception failure) {
+    if (failedAttempts >= maxAttempts) {
+      deadLetter(retry, failedAttempts, failure);
+      return false;
+    }
+    return enqueue(retry, failedAttempts, delayAfter(failedAttempts), failure);
+  }
+
+  private boolean enqueue(Retry retry, int failedAttempts, long delayNanos, Exception failure) {
+    retry.failedAttempts = failedAttempts;
+    retry.lastFailure = failure;
+    if (shutdown) {
+      deadLetter(retry, failedAttempts, failure);
+      return false;
+    }
+    if (pending.incrementAndGet() > maxPending) {
+      pending.decrementAndGet();
+      deadLetter(retry, failedAttempts, failure);
+      return false;
+    }
+    // Round up, so a retry never runs early
+    retry.deadlineTick = (System.nanoTime() - startNanos + delayNanos + tickNanos - 1) / tickNanos;
+    scheduled.add(retry);
+    if (shutdown && scheduled.remove(retry)) {
+      // The timer may already have moved the waiting retries to the dead-letter queue
+      pending.decrementAndGet();
+      deadLetter(retry, failedAttempts, failure);
+      return false;
+    }
+    return true;
+  }
+
+  /** Delay before the attempt after {@code failedAttempts}: base, 2 x base, 4 x base, ... */
+  private long delayAfter(int failedAttempts) {
+    int shift = Math.min(failedAttempts - 1, 62);
+    long delay = baseDelayNanos << shift;
+    return delay >>> shift != baseDelayNanos || delay > maxDelayNanos ? maxDelayNanos : delay;
+  }
+
+  private void runTimer() {
+    while (!shutdown) {
+      long deadline = startNanos + (tick + 1) * tickNanos;
+      long sleep;
+      while (!shutdown && (sleep = deadline - System.nanoTime()) > 0) {
+        LockSupport.parkNanos(this, sleep);
+      }
+      if (shutdown) {
+        break;
+      }
+      transferScheduled();
+      expire((int) (tick & mask));
+      tick++;
+    }
+
+    // Anything still waiting for its retry becomes a dead letter
+    Retry retry;
+    while ((retry = scheduled.poll()) != null) {
+      pending.decrementAndGet();
+      deadLetter(retry, retry.failedAttempts, retry.lastFailure);
+    }
+    for (int i = 0; i < wheel.length; i++) {
+      for (retry = wheel[i]; retry != null; retry = retry.next) {
+        pending.decrementAndGet();
+        deadLetter(retry, retry.failedAttempts, retry.lastFailure);
+      }
+      wheel[i] = null;
+    }
+    workers.shutdown();
+  }
+
+  private void transferScheduled() {
+    for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+      Retry retry = scheduled.poll();
+      if (retry == null) {
+        return;
+      }
+      long dueTick = Math.max(retry.deadlineTick, tick);
+      retry.rounds = (dueTick - tick) / wheel.length;
+      int bucket = (int) (dueTick & mask);
+      retry.next = wheel[bucket];
+      wheel[bucket] = retry;
+    }
+  }
+
+  private void expire(int bucket) {
+    Retry kept = null;
+    Retry retry = wheel[bucket];
+    while (retry != null) {
+      Retry next = retry.next;
+      if (retry.rounds <= 0) {
+        retry.next = null;
+        run(retry);
+      } else {
+        retry.rounds--;
+        retry.next = kept;
+        kept = retry;
+      }
+      retry = next;
+    }
+    wheel[bucket] = kept;
+  }
+
+  private void run(Retry retry) {
+    try {
+      workers.execute(() -> attempt(retry));
+    } catch (RejectedExecutionException e) {
+      pending.decrementAndGet();
+      deadLetter(retry, retry.failedAttempts, retry.lastFailure);
+    }
+  }
+
+  private void attempt(Retry retry) {
+    retried.increment();
+    int attempts = retry.failedAttempts + 1;
+    try {
+      retry.processor.process(retry.payload);
+    } catch (Exception e) {
+      pending.decrementAndGet();
+      schedule(retry, attempts, e);
+      return;
+    }
+    pending.decrementAndGet();
+    succeeded.increment();
+    retry.done();
+  }
+
+  private void deadLetter(Retry retry, int attempts, Exception failure) {
+    deadLetters.add(
+        new DeadLetterQueue.DeadLetter(retry.payload, retry.processor, attempts, failure));
+    deadLettered.increment();
+    retry.done();
+  }
+
+  /**
+   * Stops the timer. Retries that are still waiting move to the dead-letter queue, retries already
+   * running finish, and later webhooks are dead-lettered straight away.
+   */
+  public void shutdown() {
+    shutdown = true;
+    LockSupport.unpark(timer);
+  }
+
+  /**
+   * Waits for the timer to stop and running retries to finish after {@link #shutdown()}.
+   *
+   * @param timeout Maximum time to wait
+   * @return true if the scheduler stopped, false if the timeout elapsed first
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public boolean awaitTermination(Duration timeout) throws InterruptedException {
+    long deadline = System.nanoTime() + timeout.toNanos();
+    timer.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(timeout.toNanos())));
+    return !timer.isAlive()
+        && workers.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+  }
+
+  public DeadLetterQueue getDeadLetters() {
+    return deadLetters;
+  }
+
+  /**
+   * Gets the number of webhooks waiting for, or running, a retry.
+   *
+   * @return the number of pending retries
+   */
+  public int getPending() {
+    return pending.get();
+  }
+
+  /**
+   * Gets the number of retry attempts run, successful or not.
+   *
+   * @return the number of retry attempts
+   */
+  public long getRetried() {
+    return retried.sum();
+  }
+
+  public long getSucceeded() {
+    return succeeded.sum();
+  }
+
+  public long getDeadLettered() {
+    return deadLettered.sum();
+  }
+
+  /** A webhook waiting for its next attempt; a node in one of the wheel's bucket lists. */
+  private static final class Retry {
+    final WebhookPayload payload;
+    final WebhookProcessor processor;
+    Runnable whenDone;
+    int failedAttempts;
+    Exception lastFailure;
+    long deadlineTick;
+    // Owned by the timer thread
+    long rounds;
+    Retry next;
+
+    Retry(WebhookPayload payload, WebhookProcessor processor, Runnable whenDone) {
+      this.payload = payload;
+      this.processor = processor;
+      this.whenDone = whenDone;
+    }
+
+    void done() {
+      Runnable callback = whenDone;
+      whenDone = null;
+      if (callback != null) {
+        callback.run();
+      }
+    }
+  }
+
+  /** Builder for WebhookRetryScheduler. */
+  public static final class Builder {
+    private int maxAttempts = 5;
+    private Duration baseDelay = Duration.ofSeconds(1);
+    private Duration maxDelay = Duration.ofMinutes(5);
+    private Duration tickDuration = Duration.ofMillis(100);
+    private int wheelSize = 512;
+    private int maxPending = 100_000;
+    private int workerThreads = 1;
+    private DeadLetterQueue deadLetters;
+
+    private Builder() {}
+
+    /**
+     * Sets the maximum number of attempts per webhook, including the first one that failed before
+     * it was scheduled.
+     *
+     * @param maxAttempts Maximum attempts (1 dead-letters every failure)
+     * @return this builder
+     */
+    public Builder maxAttempts(int maxAttempts) {
+      if (maxAttempts < 1) {
+        throw new IllegalArgumentException("maxAttempts must be at least 1");
+      }
+      this.maxAttempts = maxAttempts;
+      return this;
+    }
+
+    /**
+     * Sets the delay before the first retry; each later retry waits twice as long as the one
+     * before.
+     *
+     * @param baseDelay Delay before the first retry
+     * @return this builder
+     */
+    public Builder baseDelay(Duration baseDelay) {
+      if (baseDelay == null || baseDelay.isNegative()) {
+        throw new IllegalArgumentException("baseDelay must not be negative");
+      }
+      this.baseDelay = baseDelay;
+      return this;
+    }
+
+    /**
+     * Sets the longest delay between two attempts.
+     *
+     * @param maxDelay Maximum delay
+     * @return this builder
+     */
+    public Builder maxDelay(Duration maxDelay) {
+      if (maxDelay == null || maxDelay.isNegative()) {
+        throw new IllegalArgumentException("maxDelay must not be negative");
+      }
+      this.maxDelay = maxDelay;
+      return this;
+    }
+
+    /**
+     * Sets how often the timer advances, which is also the precision of retry delays.
+     *
+     * @param tickDuration Duration of one tick
+     * @return this builder
+     */
+    public Builder tickDuration(Duration tickDuration) {
+      if (tickDuration == null || tickDuration.toMillis() < 1) {
+        throw new IllegalArgumentException("tickDuration must be at least 1 ms");
+      }
+      this.tickDuration = tickDuration;
+      return this;
+    }
+
+    /**
+     * Sets the number of buckets on the wheel. Retries due more than one revolution ahead wait out
+     * the extra revolutions in their bucket.
+     *
+     * @param wheelSize Number of buckets, a power of two
+     * @return this builder
+     */
+    public Builder wheelSize(int wheelSize) {
+      if (wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+        throw new IllegalArgumentException("wheelSize must be a power of two");
+      }
+      this.wheelSize = wheelSize;
+      return this;
+    }
+
+    /**
+     * Sets how many retries may be pending before further failures are dead-lettered straight
+     * away.
+     *
+     * @param maxPending Maximum pending retries
+     * @return this builder
+     */
+    public Builder maxPending(int maxPending) {
+      if (maxPending <= 0) {
+        throw new IllegalArgumentException("maxPending must be positive");
+      }
+      this.maxPending = maxPending;
+      return this;
+    }
+
+    /**
+     * Sets the number of threads that run due retries.
+     *
+     * @param workerThreads Number of worker threads
+     * @return this builder
+     */
+    public Builder workerThreads(int workerThreads) {
+      if (workerThreads <= 0) {
+        throw new IllegalArgumentException("workerThreads must be positive");
+      }
+      this.workerThreads = workerThreads;
+      return this;
+    }
+
+    /**
+     * Sets the store for webhooks that failed every attempt.
+     *
+     * @param deadLetters Dead-letter queue
+     * @return this builder
+     */
+    public Builder deadLetterQueue(DeadLetterQueue deadLetters) {
+      if (deadLetters == null) {
+        throw new IllegalArgumentException("deadLetters must not be null");
+      }
+      this.deadLetters = deadLetters;
+      return this;
+    }
+
+    /**
+     * Builds the WebhookRetryScheduler and starts its timer thread.
+     *
+     * @return WebhookRetryScheduler instance
+     */
+    public WebhookRetryScheduler build() {
+      if (baseDelay.compareTo(maxDelay) > 0) {
+        throw new IllegalStateException("baseDelay must not exceed maxDelay");
+      }
+      if (deadLetters == null) {
+        deadLetters = new DeadLetterQueue(1000);
+      }
+      return new WebhookRetryScheduler(this);
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package net.timelesssdk;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates virtual threads through the Java 21 API.
+ *
+ * <p>Loaded from {@code META-INF/versions/21} of the multi-release JAR on Java 21 and later, in
+ * place of the version that reports virtual threads as unsupported.
+ */
+public final class VirtualThreads {
+  private VirtualThreads() {}
+
+  /**
+   * Checks whether the runtime supports virtual threads.
+   *
+   * @return always true; this version is only loaded on Java 21 and later
+   */
+  public static boolean isSupported() {
+    return true;
+  }
+
+  /**
+   * Creates an executor that runs each task on a new virtual thread, named with the prefix and a
+   * sequence number starting at 0.
+   *
+   * @param namePrefix Prefix of the thread names
+   * @return a new ExecutorService
+   */
+  public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+    return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(namePrefix, 0).factory());
+  }
+}
@@ -0,0 +1,31 @@
+package net.timelesssdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import net.timelesssdk.exception.TimelessPayException;
+import org.junit.jupiter.api.Test;
+
+class BatchResultTest {
+
+  @Test
+  void testSuccess() {
+    BatchResult<String> result = BatchResult.success("value");
+    assertTrue(result.isSuccess());
+    assertEquals("value", result.getValue());
+    assertNull(result.getError());
+  }
+
+  @Test
+  void testFailure() {
+    TimelessPayException error = new TimelessPayException("failed");
+    BatchResult<String> result = BatchResult.failure(error);
+    assertFalse(result.isSuccess());
+    assertNull(result.getValue());
+    assertSame(error, result.getError());
+  }
+
+  @Test
+  void testFailureRequiresError() {
+    assertThrows(IllegalArgumentException.class, () -> BatchResult.failure(null));
+  }
+}
@@ -0,0 +1,107 @@
+package net.timelesssdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+  @Test
+  void testOpensAfterConsecutiveFailures() {
+    CircuitBreaker breaker = CircuitBreaker.builder().failureThreshold(2).build();
+    breaker.onFailure(breaker.tryAcquire());
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    breaker.onFailure(breaker.tryAcquire());
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    assertNull(breaker.tryAcquire());
+    assertEquals(1, breaker.getRejected());
+  }
+
+  @Test
+  void testSuccessResetsFailureCount() {
+    CircuitBreaker breaker = CircuitBreaker.builder().failureThreshold(2).build();
+    breaker.onFailure(breaker.tryAcquire());
+    breaker.onSuccess(breaker.tryAcquire());
+    breaker.onFailure(breaker.tryAcquire());
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    assertEquals(1, breaker.getConsecutiveFailures());
+  }
+
+  @Test
+  void testHalfOpenProbeClosesBreaker() throws Exception {
+    CircuitBreaker breaker =
+        CircuitBreaker.builder().failureThreshold(1).openDuration(Duration.ofMillis(20)).build();
+    breaker.onFailure(breaker.tryAcquire());
+    Thread.sleep(50);
+
+    CircuitBreaker.Epoch probe = breaker.tryAcquire();
+    assertNotNull(probe);
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    assertNull(breaker.tryAcquire());
+
+    breaker.onSuccess(probe);
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    assertNotNull(breaker.tryAcquire());
+  }
+
+  @Test
+  void testFailedProbeReopensBreaker() throws Exception {
+    CircuitBreaker breaker =
+        CircuitBreaker.builder().failureThreshold(3).openDuration(Duration.ofMillis(20)).build();
+    breaker.onFailure(breaker.tryAcquire());
+    breaker.onFailure(breaker.tryAcquire());
+    breaker.onFailure(breaker.tryAcquire());
+    Thread.sleep(50);
+
+    CircuitBreaker.Epoch probe = breaker.tryAcquire();
+    assertNotNull(probe);
+    breaker.onFailure(probe);
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    assertNull(breaker.tryAcquire());
+  }
+
+  @Test
+  void testLateFailureDoesNotExtendOpenState() throws Exception {
+    CircuitBreaker breaker =
+        CircuitBreaker.builder().failureThreshold(1).openDuration(Duration.ofMillis(50)).build();
+    CircuitBreaker.Epoch inFlight = breaker.tryAcquire();
+    breaker.onFailure(breaker.tryAcquire());
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+    Thread.sleep(30);
+    // Admitted while closed, so it must not restart the open period
+    breaker.onFailure(inFlight);
+    Thread.sleep(40);
+
+    assertNotNull(breaker.tryAcquire());
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+  }
+
+  @Test
+  void testLateSuccessDoesNotCloseHalfOpenBreaker() throws Exception {
+    CircuitBreaker breaker =
+        CircuitBreaker.builder().failureThreshold(1).openDuration(Duration.ofMillis(20)).build();
+    CircuitBreaker.Epoch inFlight = breaker.tryAcquire();
+    breaker.onFailure(breaker.tryAcquire());
+    Thread.sleep(50);
+    CircuitBreaker.Epoch probe = breaker.tryAcquire();
+
+    breaker.onSuccess(inFlight);
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+    breaker.onSuccess(probe);
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+  }
+
+  @Test
+  void testIgnoredProbeFreesSlot() throws Exception {
+    CircuitBreaker breaker =
+        CircuitBreaker.builder().failureThreshold(1).openDuration(Duration.ofMillis(20)).build();
+    breaker.onFailure(breaker.tryAcquire());
+    Thread.sleep(50);
+
+    breaker.onIgnored(breaker.tryAcquire());
+    assertNotNull(breaker.tryAcquire());
+  }
+}
@@ -0,0 +1,70 @@
+package net.timelesssdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class ConcurrencyLimiterTest {
+
+  @Test
+  void testRejectsBeyondLimit() {
+    ConcurrencyLimiter limiter = ConcurrencyLimiter.builder().initialLimit(2).build();
+    assertTrue(limiter.tryAcquire());
+    assertTrue(limiter.tryAcquire());
+    assertFalse(limiter.tryAcquire());
+    assertEquals(2, limiter.getInFlight());
+    assertEquals(1, limiter.getRejected());
+
+    limiter.onIgnored();
+    assertTrue(limiter.tryAcquire());
+  }
+
+  @Test
+  void testAdditiveIncreaseWhenUtilized() {
+    ConcurrencyLimiter limiter = ConcurrencyLimiter.builder().initialLimit(2).maxLimit(3).build();
+    limiter.tryAcquire();
+    limiter.onSuccess(Duration.ofMillis(10).toNanos());
+    assertEquals(3, limiter.getLimit());
+
+    limiter.tryAcquire();
+    limiter.tryAcquire();
+    limiter.onSuccess(Duration.ofMillis(10).toNanos());
+    assertEquals(3, limiter.getLimit());
+  }
+
+  @Test
+  void testMultiplicativeDecreaseOnOverload() {
+    ConcurrencyLimiter limiter =
+        ConcurrencyLimiter.builder().initialLimit(10).minLimit(4).backoffRatio(0.5).build();
+    limiter.tryAcquire();
+    limiter.onDropped();
+    assertEquals(5, limiter.getLimit());
+    limiter.tryAcquire();
+    limiter.onDropped();
+    assertEquals(4, limiter.getLimit());
+    assertEquals(0, limiter.getInFlight());
+  }
+
+  @Test
+  void testSlowResponseCountsAsOverload() {
+    ConcurrencyLimiter limiter =
+        ConcurrencyLimiter.builder()
+            .initialLimit(10)
+            .backoffRatio(0.5)
+            .latencyThreshold(Duration.ofMillis(100))
+            .build();
+    limiter.tryAcquire();
+    limiter.onSuccess(Duration.ofSeconds(1).toNanos());
+    assertEquals(5, limiter.getLimit());
+  }
+
+  @Test
+  void testBuilderValidatesLimits() {
+    assertThrows(
+        IllegalStateException.class,
+        () -> ConcurrencyLimiter.builder().initialLimit(10).maxLimit(5).build());
+    assertThrows(
+        IllegalArgumentException.class, () -> ConcurrencyLimiter.builder().backoffRatio(1));
+  }
+}
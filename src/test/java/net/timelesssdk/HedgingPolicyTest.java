@@ -0,0 +1,65 @@
+package net.timelesssdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class HedgingPolicyTest {
+
+  @Test
+  void testBuilderDefaults() {
+    HedgingPolicy policy = HedgingPolicy.builder().build();
+    assertEquals(0.95, policy.getDelayPercentile(), 0.0);
+    assertEquals(Duration.ofMillis(10), policy.getMinDelay());
+    assertEquals(Duration.ofMillis(100), policy.getInitialDelay());
+    assertEquals(0.05, policy.getMaxHedgeRatio(), 0.0);
+    assertEquals(10, policy.getMaxHedgeTokens());
+  }
+
+  @Test
+  void testBuilderRejectsInvalidPercentile() {
+    assertThrows(IllegalArgumentException.class, () -> HedgingPolicy.builder().delayPercentile(1));
+    assertThrows(IllegalArgumentException.class, () -> HedgingPolicy.builder().delayPercentile(0));
+  }
+
+  @Test
+  void testHedgeDelayFollowsObservedPercentile() {
+    Hedger hedger =
+        new Hedger(
+            HedgingPolicy.builder()
+                .delayPercentile(0.9)
+                .minDelay(Duration.ofMillis(5))
+                .initialDelay(Duration.ofMillis(200))
+                .build());
+    assertEquals(200, hedger.hedgeDelayMillis());
+
+    // The percentile is refreshed every 64 samples
+    for (int i = 1; i <= 64; i++) {
+      hedger.recordLatency(Duration.ofMillis(i).toNanos());
+    }
+    assertEquals(58, hedger.hedgeDelayMillis());
+    assertEquals(58, hedger.getStats().getCurrentDelayMillis());
+  }
+
+  @Test
+  void testHedgeDelayNeverBelowMinimum() {
+    Hedger hedger = new Hedger(HedgingPolicy.builder().minDelay(Duration.ofMillis(20)).build());
+    for (int i = 0; i < 64; i++) {
+      hedger.recordLatency(Duration.ofMillis(1).toNanos());
+    }
+    assertEquals(20, hedger.hedgeDelayMillis());
+  }
+
+  @Test
+  void testHedgesAreRateCapped() {
+    Hedger hedger =
+        new Hedger(HedgingPolicy.builder().maxHedgeRatio(0.5).maxHedgeTokens(1).build());
+    assertTrue(hedger.tryAcquireHedge());
+    assertFalse(hedger.tryAcquireHedge());
+    hedger.recordCall();
+    hedger.recordCall();
+    assertTrue(hedger.tryAcquireHedge());
+    assertEquals(1, hedger.getStats().getHedgesSkipped());
+  }
+}
@@ -0,0 +1,70 @@
+package net.timelesssdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class RetryPolicyTest {
+
+  @Test
+  void testDisabledPolicyHasSingleAttempt() {
+    assertEquals(1, RetryPolicy.disabled().getMaxAttempts());
+  }
+
+  @Test
+  void testBuilderDefaults() {
+    RetryPolicy policy = RetryPolicy.builder().build();
+    assertEquals(3, policy.getMaxAttempts());
+    assertEquals(Duration.ofMillis(100), policy.getBaseDelay());
+    assertEquals(Duration.ofSeconds(5), policy.getMaxDelay());
+    assertEquals(Duration.ofSeconds(30), policy.getMaxRetryAfter());
+    assertEquals(0.1, policy.getBudgetRatio(), 0.0);
+    assertEquals(100, policy.getBudgetMaxTokens());
+  }
+
+  @Test
+  void testBuilderRejectsInvalidValues() {
+    assertThrows(IllegalArgumentException.class, () -> RetryPolicy.builder().maxAttempts(0));
+    assertThrows(IllegalArgumentException.class, () -> RetryPolicy.builder().budgetRatio(-1));
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            RetryPolicy.builder()
+                .baseDelay(Duration.ofSeconds(2))
+                .maxDelay(Duration.ofSeconds(1))
+                .build());
+  }
+
+  @Test
+  void testBudgetLimitsRetriesToRatioOfCalls() {
+    RetryBudget budget = new RetryBudget(0.5, 1);
+    assertTrue(budget.tryAcquireRetry());
+    assertFalse(budget.tryAcquireRetry());
+
+    budget.recordCall();
+    assertFalse(budget.tryAcquireRetry());
+    budget.recordCall();
+    assertTrue(budget.tryAcquireRetry());
+
+    assertEquals(2, budget.getRetries());
+    assertEquals(2, budget.getRejectedRetries());
+  }
+
+  @Test
+  void testBudgetBalanceIsCapped() {
+    RetryBudget budget = new RetryBudget(1.0, 2);
+    for (int i = 0; i < 10; i++) {
+      budget.recordCall();
+    }
+    assertEquals(2.0, budget.getAvailableRetries(), 0.0);
+  }
+
+  @Test
+  void testParseRetryAfter() {
+    assertEquals(2000, Retrier.parseRetryAfter("2"));
+    assertEquals(-1, Retrier.parseRetryAfter(null));
+    assertEquals(-1, Retrier.parseRetryAfter("soon"));
+    assertEquals(0, Retrier.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+  }
+}
@@ -7,16 +7,34 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import java.math.BigDecimal;
 import java.security.KeyPair;
 import java.security.PrivateKey;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.timelesssdk.exception.CircuitBreakerOpenException;
+import net.timelesssdk.exception.ConcurrencyLimitExceededException;
 import net.timelesssdk.exception.TimelessPayApiException;
 import net.timelesssdk.exception.TimelessPayException;
+import net.timelesssdk.metrics.MetricsListener;
+import net.timelesssdk.metrics.MetricsRecorder;
+import net.timelesssdk.metrics.Outcome;
+import net.timelesssdk.metrics.Phase;
 import net.timelesssdk.model.CheckoutItem;
 import net.timelesssdk.model.CheckoutSessionResponse;
 import net.timelesssdk.model.CreateCheckoutSessionRequest;
+import net.timelesssdk.security.SignatureUtil;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -166,6 +184,52 @@ class TimelessPayClientTest {
     assertThrows(TimelessPayException.class, () -> client.createCheckoutSession(request));
   }
 
+  @Test
+  void testCreateCheckoutSessionWithEmptyErrorBody() throws Exception {
+    mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+
+    TimelessPayApiException exception =
+        assertThrows(TimelessPayApiException.class, () -> client.createCheckoutSession(request));
+    assertEquals(503, exception.getStatusCode());
+    assertEquals("API request failed", exception.getErrorMessage());
+  }
+
+  @Test
+  void testResponseBodyLimit() throws Exception {
+    TimelessPayClient limitedClient =
+        TimelessPayClient.builder()
+            .baseUrl(baseUrl)
+            .apiKeyId(apiKeyId)
+            .tenantId(tenantId)
+            .privateKey(privateKey)
+            .maxResponseBodyBytes(64)
+            .build();
+    String largeBody = "{\"id\":\"" + "x".repeat(128) + "\"}";
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody(largeBody));
+    mockWebServer.enqueue(
+        new MockResponse().setResponseCode(200).setChunkedBody(largeBody, 16));
+    mockWebServer.enqueue(
+        new MockResponse()
+            .setResponseCode(400)
+            .setChunkedBody("{\"message\":\"" + "x".repeat(128) + "\"}", 16));
+    mockWebServer.enqueue(
+        new MockResponse().setResponseCode(200).setBody("{\"id\":\"session-id-123\"}"));
+
+    assertThrows(TimelessPayException.class, () -> limitedClient.createCheckoutSession(request));
+    assertThrows(TimelessPayException.class, () -> limitedClient.createCheckoutSession(request));
+    TimelessPayApiException exception =
+        assertThrows(
+            TimelessPayApiException.class, () -> limitedClient.createCheckoutSession(request));
+    assertEquals("API request failed", exception.getErrorMessage());
+    assertEquals("session-id-123", limitedClient.createCheckoutSession(request).getId());
+  }
+
+  @Test
+  void testBuilderRejectsInvalidResponseBodyLimit() {
+    assertThrows(
+        IllegalArgumentException.class, () -> TimelessPayClient.builder().maxResponseBodyBytes(0));
+  }
+
   @Test
   void testCreateCheckoutSessionGeneratesRequestId() throws Exception {
     request.setCorrelationId(null);
@@ -207,6 +271,584 @@ class TimelessPayClientTest {
     assertEquals(correlationId, recordedRequest.getHeader("X-Request-Id"));
   }
 
+  @Test
+  void testCreateCheckoutSessionAsyncSuccess() throws Exception {
+    CheckoutSessionResponse mockResponse = new CheckoutSessionResponse();
+    mockResponse.setId("session-id-123");
+    mockResponse.setNonce("test-nonce-123");
+
+    ObjectMapper mapper = new ObjectMapper();
+    mapper.registerModule(new JavaTimeModule());
+    String responseJson = mapper.writeValueAsString(mockResponse);
+
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody(responseJson));
+
+    CheckoutSessionResponse response =
+        client.createCheckoutSessionAsync(request).get(5, TimeUnit.SECONDS);
+
+    assertEquals("session-id-123", response.getId());
+    assertEquals(0, client.getInFlightRequests());
+  }
+
+  @Test
+  void testCreateCheckoutSessionAsyncWithApiError() {
+    String errorJson = "{\"message\":\"Validation error\",\"status\":\"ERROR\"}";
+    mockWebServer.enqueue(new MockResponse().setResponseCode(400).setBody(errorJson));
+
+    ExecutionException exception =
+        assertThrows(
+            ExecutionException.class,
+            () -> client.createCheckoutSessionAsync(request).get(5, TimeUnit.SECONDS));
+    TimelessPayApiException cause =
+        assertInstanceOf(TimelessPayApiException.class, exception.getCause());
+    assertEquals(400, cause.getStatusCode());
+    assertEquals("Validation error", cause.getErrorMessage());
+  }
+
+  @Test
+  void testCreateCheckoutSessionAsyncRejectsWhenInFlightLimitReached() throws Exception {
+    TimelessPayClient limitedClient =
+        new TimelessPayClient(baseUrl, apiKeyId, tenantId, privateKey, 1, Runnable::run);
+    mockWebServer.enqueue(
+        new MockResponse()
+            .setResponseCode(200)
+            .setBody("{\"id\":\"session-id-123\"}")
+            .setHeadersDelay(500, TimeUnit.MILLISECONDS));
+
+    CompletableFuture<CheckoutSessionResponse> first =
+        limitedClient.createCheckoutSessionAsync(request);
+    CompletableFuture<CheckoutSessionResponse> second =
+        limitedClient.createCheckoutSessionAsync(request);
+
+    ExecutionException exception =
+        assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+    assertInstanceOf(ConcurrencyLimitExceededException.class, exception.getCause());
+    assertEquals("session-id-123", first.get(5, TimeUnit.SECONDS).getId());
+    assertEquals(1, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  void testCreateCheckoutSessionAsyncUsesCompletionExecutor() throws Exception {
+    AtomicInteger executions = new AtomicInteger();
+    Executor countingExecutor =
+        command -> {
+          executions.incrementAndGet();
+          command.run();
+        };
+    TimelessPayClient executorClient =
+        new TimelessPayClient(baseUrl, apiKeyId, tenantId, privateKey, 10, countingExecutor);
+    mockWebServer.enqueue(
+        new MockResponse().setResponseCode(200).setBody("{\"id\":\"session-id-123\"}"));
+
+    executorClient.createCheckoutSessionAsync(request).get(5, TimeUnit.SECONDS);
+
+    assertEquals(1, executions.get());
+  }
+
+  @Test
+  void testBuilderCreatesClient() throws Exception {
+    TimelessPayClient builtClient =
+        TimelessPayClient.builder()
+            .baseUrl(baseUrl + "/")
+            .apiKeyId(apiKeyId)
+            .tenantId(tenantId)
+            .privateKey(TestKeyPairGenerator.privateKeyToBase64(privateKey))
+            .maxIdleConnections(10)
+            .keepAliveDuration(Duration.ofSeconds(30))
+            .maxRequests(128)
+            .maxRequestsPerHost(32)
+            .connectTimeout(Duration.ofSeconds(2))
+            .readTimeout(Duration.ofSeconds(5))
+            .build();
+    mockWebServer.enqueue(
+        new MockResponse().setResponseCode(200).setBody("{\"id\":\"session-id-123\"}"));
+
+    assertEquals(baseUrl, builtClient.getBaseUrl());
+    assertEquals(apiKeyId, builtClient.getApiKeyId());
+    assertEquals(tenantId, builtClient.getTenantId());
+    assertEquals("session-id-123", builtClient.createCheckoutSession(request).getId());
+  }
+
+  @Test
+  void testBuilderSharesTransportAcrossClients() throws Exception {
+    OkHttpClient sharedHttpClient = new OkHttpClient();
+    ConnectionPool sharedPool = new ConnectionPool();
+    ObjectMapper sharedMapper = new ObjectMapper();
+    sharedMapper.registerModule(new JavaTimeModule());
+    TimelessPayClient.Builder builder =
+        TimelessPayClient.builder()
+            .baseUrl(baseUrl)
+            .apiKeyId(apiKeyId)
+            .privateKey(privateKey)
+            .httpClient(sharedHttpClient)
+            .connectionPool(sharedPool)
+            .objectMapper(sharedMapper);
+    TimelessPayClient tenantA = builder.tenantId("tenant-a").build();
+    TimelessPayClient tenantB = builder.tenantId("tenant-b").build();
+    mockWebServer.enqueue(
+        new MockResponse().setResponseCode(200).setBody("{\"id\":\"session-a\"}"));
+    mockWebServer.enqueue(
+        new MockResponse().setResponseCode(200).setBody("{\"id\":\"session-b\"}"));
+
+    assertEquals("session-a", tenantA.createCheckoutSession(request).getId());
+    assertEquals("session-b", tenantB.createCheckoutSession(request).getId());
+    assertEquals("tenant-a", mockWebServer.takeRequest().getHeader("X-Tenant-Id"));
+    assertEquals("tenant-b", mockWebServer.takeRequest().getHeader("X-Tenant-Id"));
+
+    // Pool is shared; limits are shared by the clients of one builder only
+    TimelessPayClient limitedA = builder.maxRequests(8).build();
+    TimelessPayClient limitedB = builder.build();
+    OkHttpClient httpA = limitedA.getHttpClient();
+    OkHttpClient httpB = limitedB.getHttpClient();
+    assertSame(sharedPool, tenantA.getHttpClient().connectionPool());
+    assertSame(sharedPool, httpA.connectionPool());
+    assertSame(httpA.dispatcher(), httpB.dispatcher());
+    assertNotSame(sharedHttpClient.dispatcher(), httpA.dispatcher());
+    assertSame(
+        sharedHttpClient.dispatcher().executorService(), httpA.dispatcher().executorService());
+    assertEquals(8, httpA.dispatcher().getMaxRequests());
+  }
+
+  @Test
+  void testBuilderReusesCreatedPoolUntilSettingsChange() throws Exception {
+    TimelessPayClient.Builder builder =
+        TimelessPayClient.builder()
+            .baseUrl(baseUrl)
+            .apiKeyId(apiKeyId)
+            .tenantId(tenantId)
+            .privateKey(privateKey)
+            .maxIdleConnections(2);
+    ConnectionPool first = builder.build().getHttpClient().connectionPool();
+
+    assertSame(first, builder.tenantId("tenant-b").build().getHttpClient().connectionPool());
+    assertNotSame(first, builder.maxIdleConnections(3).build().getHttpClient().connectionPool());
+  }
+
+  @Test
+  void testDefaultBuilderSharesTransportAcrossBuilds() throws Exception {
+    TimelessPayClient.Builder builder =
+        TimelessPayClient.builder().baseUrl(baseUrl).apiKeyId(apiKeyId).privateKey(privateKey);
+    OkHttpClient httpA = builder.tenantId("tenant-a").build().getHttpClient();
+    OkHttpClient httpB = builder.tenantId("tenant-b").build().getHttpClient();
+
+    assertSame(httpA.connectionPool(), httpB.connectionPool());
+    assertSame(httpA.dispatcher(), httpB.dispatcher());
+    // A timeout alone derives a client that still shares the default pool
+    OkHttpClient timed = builder.readTimeout(Duration.ofSeconds(5)).build().getHttpClient();
+    assertSame(httpA.connectionPool(), timed.connectionPool());
+  }
+
+  @Test
+  void testVirtualThreadsModeRunsAsyncCalls() throws Exception {
+    TimelessPayClient virtualClient =
+        TimelessPayClient.builder()
+            .baseUrl(baseUrl)
+            .apiKeyId(apiKeyId)
+            .tenantId(tenantId)
+            .privateKey(privateKey)
+            .virtualThreads(true)
+            .build();
+    mockWebServer.enqueue(
+        new MockResponse().setResponseCode(200).setBody("{\"id\":\"session-a\"}"));
+    mockWebServer.enqueue(
+        new MockResponse().setResponseCode(200).setBody("{\"id\":\"session-b\"}"));
+
+    // Falls back to the dispatcher's platform threads before Java 21
+    assertEquals("session-a", virtualClient.createCheckoutSession(request).getId());
+    assertEquals(
+        "session-b",
+        virtualClient.createCheckoutSessionAsync(request).get(5, TimeUnit.SECONDS).getId());
+  }
+
+  @Test
+  void testBuilderAppliesReadTimeout() {
+    TimelessPayClient timeoutClient =
+        TimelessPayClient.builder()
+            .baseUrl(baseUrl)
+            .apiKeyId(apiKeyId)
+            .tenantId(tenantId)
+            .privateKey(privateKey)
+            .readTimeout(Duration.ofMillis(100))
+            .build();
+    mockWebServer.enqueue(
+        new MockResponse()
+            .setResponseCode(200)
+            .setBody("{}")
+            .setHeadersDelay(1, TimeUnit.SECONDS));
+
+    assertThrows(TimelessPayException.class, () -> timeoutClient.createCheckoutSession(request));
+  }
+
+  @Test
+  void testBuilderRequiresMandatoryFields() {
+    assertThrows(
+        IllegalStateException.class,
+        () -> TimelessPayClient.builder().baseUrl(baseUrl).apiKeyId(apiKeyId).build());
+  }
+
+  @Test
+  void testCreateCheckoutSessionsReturnsPerItemResults() throws Exception {
+    mockWebServer.setDispatcher(
+        new Dispatcher() {
+          @Override
+          public MockResponse dispatch(RecordedRequest recordedRequest) {
+            String body = recordedRequest.getBody().readUtf8();
+            if (body.contains("\"nonce\":\"bad\"")) {
+              return new MockResponse()
+                  .setResponseCode(400)
+                  .setBody("{\"message\":\"Validation error\",\"status\":\"ERROR\"}");
+            }
+            String nonce = body.replaceAll(".*\"nonce\":\"([^\"]*)\".*", "$1");
+            return new MockResponse()
+                .setResponseCode(200)
+                .setBody("{\"id\":\"session-" + nonce + "\",\"nonce\":\"" + nonce + "\"}");
+          }
+        });
+    List<CreateCheckoutSessionRequest> requests = new ArrayList<>();
+    for (String nonce : new String[] {"a", "bad", "c", "d"}) {
+      CreateCheckoutSessionRequest batchRequest = new CreateCheckoutSessionRequest();
+      batchRequest.setNonce(nonce);
+      batchRequest.setCurrency("ETB");
+      requests.add(batchRequest);
+    }
+
+    List<BatchResult<CheckoutSessionResponse>> results = client.createCheckoutSessions(requests, 2);
+
+    assertEquals(4, results.size());
+    assertTrue(results.get(0).isSuccess());
+    assertEquals("session-a", results.get(0).getValue().getId());
+    assertFalse(results.get(1).isSuccess());
+    TimelessPayApiException error =
+        assertInstanceOf(TimelessPayApiException.class, results.get(1).getError());
+    assertEquals(400, error.getStatusCode());
+    assertEquals("session-c", results.get(2).getValue().getId());
+    assertEquals("session-d", results.get(3).getValue().getId());
+    assertEquals(0, client.getInFlightRequests());
+  }
+
+  @Test
+  void testCreateCheckoutSessionsWithEmptyBatch() {
+    assertTrue(client.createCheckoutSessions(new ArrayList<>()).isEmpty());
+  }
+
+  @Test
+  void testRetryResendsSameSignedRequest() throws Exception {
+    TimelessPayClient retryingClient = retryingClient(RetryPolicy.builder().maxAttempts(3));
+    mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+    mockWebServer.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "0"));
+    mockWebServer.enqueue(
+        new MockResponse().setResponseCode(200).setBody("{\"id\":\"session-id-123\"}"));
+
+    assertEquals("session-id-123", retryingClient.createCheckoutSession(request).getId());
+
+    RecordedRequest first = mockWebServer.takeRequest();
+    RecordedRequest second = mockWebServer.takeRequest();
+    RecordedRequest third = mockWebServer.takeRequest();
+    assertEquals(first.getHeader("X-Request-Id"), second.getHeader("X-Request-Id"));
+    assertEquals(first.getHeader("X-Request-Id"), third.getHeader("X-Request-Id"));
+    assertEquals(
+        first.getHeader("X-Payload-Signature"), third.getHeader("X-Payload-Signature"));
+    assertEquals(2, retryingClient.getRetryBudget().getRetries());
+  }
+
+  @Test
+  void testRetryDoesNotRetryClientErrors() throws Exception {
+    TimelessPayClient retryingClient = retryingClient(RetryPolicy.builder().maxAttempts(3));
+    mockWebServer.enqueue(new MockResponse().setResponseCode(429));
+    mockWebServer.enqueue(new MockResponse().setResponseCode(500));
+
+    TimelessPayApiException tooManyRequests =
+        assertThrows(
+            TimelessPayApiException.class, () -> retryingClient.createCheckoutSession(request));
+    assertEquals(429, tooManyRequests.getStatusCode());
+    TimelessPayApiException serverError =
+        assertThrows(
+            TimelessPayApiException.class, () -> retryingClient.createCheckoutSession(request));
+    assertEquals(500, serverError.getStatusCode());
+    assertEquals(2, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  void testRetryStopsAtMaxAttempts() {
+    TimelessPayClient retryingClient = retryingClient(RetryPolicy.builder().maxAttempts(2));
+    mockWebServer.enqueue(new MockResponse().setResponseCode(502));
+    mockWebServer.enqueue(new MockResponse().setResponseCode(504));
+
+    TimelessPayApiException exception =
+        assertThrows(
+            TimelessPayApiException.class, () -> retryingClient.createCheckoutSession(request));
+    assertEquals(504, exception.getStatusCode());
+    assertEquals(2, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  void testRetryRespectsBudget() {
+    TimelessPayClient retryingClient =
+        retryingClient(RetryPolicy.builder().maxAttempts(3).budgetRatio(0).budgetMaxTokens(0));
+    mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+
+    assertThrows(
+        TimelessPayApiException.class, () -> retryingClient.createCheckoutSession(request));
+    assertEquals(1, mockWebServer.getRequestCount());
+    assertEquals(1, retryingClient.getRetryBudget().getRejectedRetries());
+  }
+
+  @Test
+  void testAsyncRetry() throws Exception {
+    TimelessPayClient retryingClient = retryingClient(RetryPolicy.builder().maxAttempts(3));
+    mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+    mockWebServer.enqueue(
+        new MockResponse().setResponseCode(200).setBody("{\"id\":\"session-id-123\"}"));
+
+    CheckoutSessionResponse response =
+        retryingClient.createCheckoutSessionAsync(request).get(5, TimeUnit.SECONDS);
+
+    assertEquals("session-id-123", response.getId());
+    assertEquals(2, mockWebServer.getRequestCount());
+    assertEquals(0, retryingClient.getInFlightRequests());
+  }
+
+  private TimelessPayClient retryingClient(RetryPolicy.Builder policy) {
+    return TimelessPayClient.builder()
+        .baseUrl(baseUrl)
+        .apiKeyId(apiKeyId)
+        .tenantId(tenantId)
+        .privateKey(privateKey)
+        .retryPolicy(
+            policy.baseDelay(Duration.ofMillis(1)).maxDelay(Duration.ofMillis(10)).build())
+        .build();
+  }
+
+  @Test
+  void testCircuitBreakerFailsFastWhenOpen() {
+    CircuitBreaker breaker = CircuitBreaker.builder().failureThreshold(2).build();
+    TimelessPayClient guardedClient =
+        TimelessPayClient.builder()
+            .baseUrl(baseUrl)
+            .apiKeyId(apiKeyId)
+            .tenantId(tenantId)
+            .privateKey(privateKey)
+            .circuitBreaker(breaker)
+            .build();
+    mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+    mockWebServer.enqueue(new MockResponse().setResponseCode(500));
+
+    assertThrows(TimelessPayApiException.class, () -> guardedClient.createCheckoutSession(request));
+    assertThrows(TimelessPayApiException.class, () -> guardedClient.createCheckoutSession(request));
+    assertThrows(
+        CircuitBreakerOpenException.class, () -> guardedClient.createCheckoutSession(request));
+
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    assertEquals(2, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  void testConcurrencyLimiterTracksClientErrorsAsSuccess() throws Exception {
+    ConcurrencyLimiter limiter = ConcurrencyLimiter.builder().initialLimit(1).build();
+    TimelessPayClient guardedClient =
+        TimelessPayClient.builder()
+            .baseUrl(baseUrl)
+            .apiKeyId(apiKeyId)
+            .tenantId(tenantId)
+            .privateKey(privateKey)
+            .concurrencyLimiter(limiter)
+            .build();
+    mockWebServer.enqueue(new MockResponse().setResponseCode(400).setBody("{}"));
+
+    assertThrows(TimelessPayApiException.class, () -> guardedClient.createCheckoutSession(request));
+
+    assertEquals(0, limiter.getInFlight());
+    assertEquals(2, limiter.getLimit());
+  }
+
+  @Test
+  void testRuntimeExceptionFromTransportReleasesAdmission() throws Exception {
+    ConcurrencyLimiter limiter = ConcurrencyLimiter.builder().initialLimit(1).build();
+    CircuitBreaker breaker =
+        CircuitBreaker.builder().failureThreshold(1).openDuration(Duration.ofMillis(20)).build();
+    OkHttpClient throwingHttpClient =
+        new OkHttpClient.Builder()
+            .addInterceptor(
+                chain -> {
+                  throw new IllegalStateException("interceptor failed");
+                })
+            .build();
+    TimelessPayClient guardedClient =
+        TimelessPayClient.builder()
+            .baseUrl(baseUrl)
+            .apiKeyId(apiKeyId)
+            .tenantId(tenantId)
+            .privateKey(privateKey)
+            .httpClient(throwingHttpClient)
+            .concurrencyLimiter(limiter)
+            .circuitBreaker(breaker)
+            .build();
+    breaker.onFailure(breaker.tryAcquire());
+    Thread.sleep(50);
+
+    // The half-open probe slot and the limiter permit come back each time
+    assertThrows(IllegalStateException.class, () -> guardedClient.createCheckoutSession(request));
+    assertThrows(IllegalStateException.class, () -> guardedClient.createCheckoutSession(request));
+
+    assertEquals(0, limiter.getInFlight());
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+  }
+
+  @Test
+  void testHedgedRequestWinsOverSlowPrimary() throws Exception {
+    TimelessPayClient hedgingClient =
+        TimelessPayClient.builder()
+            .baseUrl(baseUrl)
+            .apiKeyId(apiKeyId)
+            .tenantId(tenantId)
+            .privateKey(privateKey)
+            .hedgingPolicy(HedgingPolicy.builder().initialDelay(Duration.ofMillis(50)).build())
+            .build();
+    mockWebServer.enqueue(
+        new MockResponse()
+            .setResponseCode(200)
+            .setBody("{\"id\":\"slow\"}")
+            .setHeadersDelay(2, TimeUnit.SECONDS));
+    mockWebServer.enqueue(new MockResponse().setResponseCode(200).setBody("{\"id\":\"fast\"}"));
+
+    assertEquals("fast", hedgingClient.createCheckoutSession(request).getId());
+
+    RecordedRequest primary = mockWebServer.takeRequest();
+    RecordedRequest hedge = mockWebServer.takeRequest();
+    assertEquals(primary.getHeader("X-Request-Id"), hedge.getHeader("X-Request-Id"));
+    assertEquals(primary.getHeader("X-Payload-Signature"), hedge.getHeader("X-Payload-Signature"));
+    assertEquals(1, hedgingClient.getHedgingStats().getHedgesSent());
+    assertEquals(1, hedgingClient.getHedgingStats().getHedgesWon());
+  }
+
+  @Test
+  void testHedgeNotSentForFastResponses() throws Exception {
+    TimelessPayClient hedgingClient =
+        TimelessPayClient.builder()
+            .baseUrl(baseUrl)
+            .apiKeyId(apiKeyId)
+            .tenantId(tenantId)
+            .privateKey(privateKey)
+            .hedgingPolicy(HedgingPolicy.builder().initialDelay(Duration.ofSeconds(2)).build())
+            .build();
+    mockWebServer.enqueue(
+        new MockResponse().setResponseCode(200).setBody("{\"id\":\"session-id-123\"}"));
+
+    CheckoutSessionResponse response =
+        hedgingClient.createCheckoutSessionAsync(request).get(5, TimeUnit.SECONDS);
+
+    assertEquals("session-id-123", response.getId());
+    assertEquals(0, hedgingClient.getHedgingStats().getHedgesSent());
+    assertEquals(1, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  void testRequestSignatureMatchesSentBody() throws Exception {
+    mockWebServer.enqueue(
+        new MockResponse().setResponseCode(200).setBody("{\"id\":\"session-id-123\"}"));
+
+    client.createCheckoutSession(request);
+
+    RecordedRequest recordedRequest = mockWebServer.takeRequest();
+    String body = recordedRequest.getBody().readUtf8();
+    assertTrue(body.contains("\"nonce\":\"test-nonce-123\""));
+    assertTrue(
+        SignatureUtil.verify(
+            body, recordedRequest.getHeader("X-Payload-Signature"), keyPair.getPublic()));
+  }
+
+  @Test
+  void testStringSerializationFallback() throws Exception {
+    TimelessPayClient stringClient =
+        TimelessPayClient.builder()
+            .baseUrl(baseUrl)
+            .apiKeyId(apiKeyId)
+            .tenantId(tenantId)
+            .privateKey(privateKey)
+            .streamingSerialization(false)
+            .build();
+    mockWebServer.enqueue(
+        new MockResponse().setResponseCode(200).setBody("{\"id\":\"session-id-123\"}"));
+    mockWebServer.enqueue(
+        new MockResponse().setResponseCode(200).setBody("{\"id\":\"session-id-123\"}"));
+
+    stringClient.createCheckoutSession(request);
+    client.createCheckoutSession(request);
+
+    RecordedRequest fromString = mockWebServer.takeRequest();
+    RecordedRequest fromStream = mockWebServer.takeRequest();
+    String body = fromString.getBody().readUtf8();
+    assertEquals(body, fromStream.getBody().readUtf8());
+    assertEquals(fromString.getHeader("Content-Type"), fromStream.getHeader("Content-Type"));
+    assertTrue(
+        SignatureUtil.verify(
+            body, fromString.getHeader("X-Payload-Signature"), keyPair.getPublic()));
+  }
+
+  @Test
+  void testMetricsRecordPhasesStatusesAndOutcomes() throws Exception {
+    List<Outcome> forwarded = new CopyOnWriteArrayList<>();
+    TimelessPayClient metricsClient =
+        TimelessPayClient.builder()
+            .baseUrl(baseUrl)
+            .apiKeyId(apiKeyId)
+            .tenantId(tenantId)
+            .privateKey(privateKey)
+            .metricsListener(
+                new MetricsListener() {
+                  @Override
+                  public void onOutcome(Outcome outcome) {
+                    forwarded.add(outcome);
+                  }
+                })
+            .build();
+    mockWebServer.enqueue(
+        new MockResponse().setResponseCode(200).setBody("{\"id\":\"session-id-123\"}"));
+    mockWebServer.enqueue(
+        new MockResponse()
+            .setResponseCode(400)
+            .setBody("{\"message\":\"Validation error\",\"status\":\"ERROR\"}"));
+    mockWebServer.enqueue(
+        new MockResponse().setResponseCode(200).setBody("{\"id\":\"session-id-456\"}"));
+
+    metricsClient.createCheckoutSession(request);
+    assertThrows(
+        TimelessPayApiException.class, () -> metricsClient.createCheckoutSession(request));
+    metricsClient.createCheckoutSessionAsync(request).get(5, TimeUnit.SECONDS);
+
+    MetricsRecorder metrics = metricsClient.getMetrics();
+    assertEquals(3, metrics.getHistogram(Phase.SERIALIZE).getCount());
+    assertEquals(3, metrics.getHistogram(Phase.SIGN).getCount());
+    assertEquals(3, metrics.getHistogram(Phase.HTTP).getCount());
+    assertEquals(3, metrics.getHistogram(Phase.PARSE).getCount());
+    assertEquals(2, metrics.getStatusCount(200));
+    assertEquals(1, metrics.getStatusCount(400));
+    assertEquals(2, metrics.getOutcomeCount(Outcome.SUCCESS));
+    assertEquals(1, metrics.getOutcomeCount(Outcome.API_ERROR));
+    assertEquals(List.of(Outcome.SUCCESS, Outcome.API_ERROR, Outcome.SUCCESS), forwarded);
+  }
+
+  @Test
+  void testMetricsCountRejectedCalls() throws Exception {
+    TimelessPayClient limitedClient =
+        new TimelessPayClient(baseUrl, apiKeyId, tenantId, privateKey, 1, Runnable::run);
+    mockWebServer.enqueue(
+        new MockResponse()
+            .setResponseCode(200)
+            .setBody("{\"id\":\"session-id-123\"}")
+            .setBodyDelay(200, TimeUnit.MILLISECONDS));
+
+    CompletableFuture<CheckoutSessionResponse> first =
+        limitedClient.createCheckoutSessionAsync(request);
+    CompletableFuture<CheckoutSessionResponse> second =
+        limitedClient.createCheckoutSessionAsync(request);
+    assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+    first.get(5, TimeUnit.SECONDS);
+
+    assertEquals(1, limitedClient.getMetrics().getOutcomeCount(Outcome.REJECTED));
+    assertEquals(1, limitedClient.getMetrics().getOutcomeCount(Outcome.SUCCESS));
+  }
+
   @Test
   void testGetCheckoutUrlWithNonce() {
     String nonce = "test-nonce-123";
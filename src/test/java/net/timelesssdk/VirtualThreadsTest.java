@@ -0,0 +1,32 @@
+package net.timelesssdk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/** Runs against the Java 11 classes in test and against the Java 21 layer in testJava21. */
+class VirtualThreadsTest {
+  @Test
+  void testUnsupportedBeforeJava21() {
+    if (Runtime.version().feature() < 21) {
+      assertFalse(VirtualThreads.isSupported());
+    }
+  }
+
+  @Test
+  void testThreadPerTaskExecutor() throws Exception {
+    if (!VirtualThreads.isSupported()) {
+      assertThrows(
+          UnsupportedOperationException.class,
+          () -> VirtualThreads.newThreadPerTaskExecutor("test-"));
+      return;
+    }
+
+    ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("test-");
+    String name = executor.submit(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+    executor.shutdown();
+    assertTrue(name.startsWith("test-"));
+  }
+}
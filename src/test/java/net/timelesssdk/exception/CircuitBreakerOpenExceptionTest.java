@@ -0,0 +1,27 @@
+package net.timelesssdk.exception;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerOpenExceptionTest {
+  @Test
+  void testConstructorWithMessage() {
+    CircuitBreakerOpenException exception = new CircuitBreakerOpenException("Rejected");
+    assertEquals("Rejected", exception.getMessage());
+    assertNull(exception.getCause());
+  }
+
+  @Test
+  void testConstructorWithMessageAndCause() {
+    Throwable cause = new RuntimeException("Root cause");
+    CircuitBreakerOpenException exception = new CircuitBreakerOpenException("Rejected", cause);
+    assertEquals("Rejected", exception.getMessage());
+    assertEquals(cause, exception.getCause());
+  }
+
+  @Test
+  void testIsTimelessPayException() {
+    assertInstanceOf(TimelessPayException.class, new CircuitBreakerOpenException("Rejected"));
+  }
+}
@@ -0,0 +1,28 @@
+package net.timelesssdk.exception;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class ConcurrencyLimitExceededExceptionTest {
+  @Test
+  void testConstructorWithMessage() {
+    ConcurrencyLimitExceededException exception = new ConcurrencyLimitExceededException("Rejected");
+    assertEquals("Rejected", exception.getMessage());
+    assertNull(exception.getCause());
+  }
+
+  @Test
+  void testConstructorWithMessageAndCause() {
+    Throwable cause = new RuntimeException("Root cause");
+    ConcurrencyLimitExceededException exception =
+        new ConcurrencyLimitExceededException("Rejected", cause);
+    assertEquals("Rejected", exception.getMessage());
+    assertEquals(cause, exception.getCause());
+  }
+
+  @Test
+  void testIsTimelessPayException() {
+    assertInstanceOf(TimelessPayException.class, new ConcurrencyLimitExceededException("Rejected"));
+  }
+}
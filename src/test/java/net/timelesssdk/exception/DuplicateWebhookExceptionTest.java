@@ -0,0 +1,20 @@
+package net.timelesssdk.exception;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class DuplicateWebhookExceptionTest {
+  @Test
+  void testConstructorWithWebhookId() {
+    DuplicateWebhookException exception = new DuplicateWebhookException("w1");
+    assertEquals("w1", exception.getWebhookId());
+    assertEquals("Duplicate webhook: w1", exception.getMessage());
+    assertNull(exception.getCause());
+  }
+
+  @Test
+  void testIsTimelessPayException() {
+    assertInstanceOf(TimelessPayException.class, new DuplicateWebhookException("w1"));
+  }
+}
@@ -0,0 +1,86 @@
+package net.timelesssdk.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+  @Test
+  void testEmptyHistogram() {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getPercentileNanos(0.99));
+    assertEquals(0.0, histogram.getMeanNanos());
+  }
+
+  @Test
+  void testPercentilesWithinBucketPrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long micros = 1; micros <= 1000; micros++) {
+      histogram.record(micros * 1000);
+    }
+
+    assertEquals(1000, histogram.getCount());
+    assertEquals(1_000_000, histogram.getMaxNanos());
+    assertEquals(500_500.0, histogram.getMeanNanos(), 0.001);
+    long p50 = histogram.getPercentileNanos(0.5);
+    long p99 = histogram.getPercentileNanos(0.99);
+    assertTrue(p50 >= 500_000 && p50 <= 500_000 * 1.125, "p50 was " + p50);
+    assertTrue(p99 >= 990_000 && p99 <= 1_000_000, "p99 was " + p99);
+    assertEquals(1_000_000, histogram.getPercentileNanos(1.0));
+  }
+
+  @Test
+  void testBucketsAreContiguous() {
+    for (long value = 0; value < 100_000; value++) {
+      int index = LatencyHistogram.indexOf(value);
+      assertTrue(value <= LatencyHistogram.upperBound(index));
+      if (index > 0) {
+        assertTrue(value > LatencyHistogram.upperBound(index - 1));
+      }
+    }
+    LatencyHistogram.indexOf(Long.MAX_VALUE);
+  }
+
+  @Test
+  void testNegativeDurationsRecordedAsZero() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-5);
+
+    assertEquals(1, histogram.getCount());
+    assertEquals(0, histogram.getMaxNanos());
+  }
+
+  @Test
+  void testInvalidQuantile() {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    assertThrows(IllegalArgumentException.class, () -> histogram.getPercentileNanos(1.5));
+  }
+
+  @Test
+  void testConcurrentRecording() throws Exception {
+    LatencyHistogram histogram = new LatencyHistogram();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      Thread thread =
+          new Thread(
+              () -> {
+                for (int i = 0; i < 10_000; i++) {
+                  histogram.record(i);
+                }
+              });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(40_000, histogram.getCount());
+    assertEquals(9_999, histogram.getMaxNanos());
+  }
+}
@@ -0,0 +1,73 @@
+package net.timelesssdk.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class MetricsRecorderTest {
+  @Test
+  void testRecordsPhasesOutcomesAndStatusCodes() {
+    MetricsRecorder metrics = new MetricsRecorder();
+
+    metrics.onPhase(Phase.SIGN, 1_000);
+    metrics.onPhase(Phase.SIGN, 3_000);
+    metrics.onStatus(200);
+    metrics.onStatus(503);
+    metrics.onStatus(503);
+    metrics.onStatus(999);
+    metrics.onOutcome(Outcome.SUCCESS);
+    metrics.onOutcome(Outcome.API_ERROR);
+
+    assertEquals(2, metrics.getHistogram(Phase.SIGN).getCount());
+    assertEquals(0, metrics.getHistogram(Phase.HTTP).getCount());
+    assertEquals(1, metrics.getStatusCount(200));
+    assertEquals(2, metrics.getStatusCount(503));
+    assertEquals(0, metrics.getStatusCount(999));
+    assertEquals(1, metrics.getOutcomeCount(Outcome.SUCCESS));
+    assertEquals(1, metrics.getOutcomeCount(Outcome.API_ERROR));
+    assertEquals(0, metrics.getOutcomeCount(Outcome.FAILURE));
+  }
+
+  @Test
+  void testForwardsToListener() {
+    MetricsRecorder metrics = new MetricsRecorder();
+    List<String> events = new ArrayList<>();
+    metrics.setListener(
+        new MetricsListener() {
+          @Override
+          public void onPhase(Phase phase, long durationNanos) {
+            events.add(phase + ":" + durationNanos);
+          }
+
+          @Override
+          public void onStatus(int statusCode) {
+            events.add("status:" + statusCode);
+          }
+
+          @Override
+          public void onOutcome(Outcome outcome) {
+            events.add(outcome.name());
+          }
+        });
+
+    metrics.onPhase(Phase.VERIFY, 42);
+    metrics.onStatus(201);
+    metrics.onOutcome(Outcome.REJECTED);
+    metrics.setListener(null);
+    metrics.onOutcome(Outcome.SUCCESS);
+
+    assertEquals(List.of("VERIFY:42", "status:201", "REJECTED"), events);
+    assertSame(MetricsListener.NOOP, metrics.getListener());
+  }
+
+  @Test
+  void testRecordSince() {
+    MetricsRecorder metrics = new MetricsRecorder();
+
+    metrics.recordSince(Phase.PARSE, System.nanoTime());
+
+    assertEquals(1, metrics.getHistogram(Phase.PARSE).getCount());
+  }
+}
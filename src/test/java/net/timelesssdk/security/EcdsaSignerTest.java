@@ -0,0 +1,76 @@
+package net.timelesssdk.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import net.timelesssdk.TestKeyPairGenerator;
+import net.timelesssdk.exception.SignatureException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class EcdsaSignerTest {
+  private KeyPair keyPair;
+  private EcdsaSigner signer;
+  private String testPayload;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    keyPair = TestKeyPairGenerator.generateKeyPair();
+    signer = new EcdsaSigner(keyPair.getPrivate());
+    testPayload = "{\"test\":\"data\",\"value\":123}";
+  }
+
+  @Test
+  void testRepeatedSignaturesVerify() throws SignatureException {
+    for (int i = 0; i < 5; i++) {
+      String payload = testPayload + i;
+      assertTrue(SignatureUtil.verify(payload, signer.sign(payload), keyPair.getPublic()));
+    }
+  }
+
+  @Test
+  void testSignByteRange() throws SignatureException {
+    byte[] bytes = ("xx" + testPayload + "yy").getBytes(StandardCharsets.UTF_8);
+
+    String signature = signer.sign(bytes, 2, bytes.length - 4);
+
+    assertTrue(SignatureUtil.verify(testPayload, signature, keyPair.getPublic()));
+  }
+
+  @Test
+  void testConcurrentSigning() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int i = 0; i < 64; i++) {
+        String payload = testPayload + i;
+        results.add(
+            executor.submit(
+                () -> SignatureUtil.verify(payload, signer.sign(payload), keyPair.getPublic())));
+      }
+      for (Future<Boolean> result : results) {
+        assertTrue(result.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void testUnusableKeyFailsOnSign() {
+    EcdsaSigner nullKeySigner = new EcdsaSigner(null);
+
+    assertThrows(SignatureException.class, () -> nullKeySigner.sign(testPayload));
+  }
+
+  @Test
+  void testGetPrivateKey() {
+    assertSame(keyPair.getPrivate(), signer.getPrivateKey());
+  }
+}
@@ -0,0 +1,54 @@
+package net.timelesssdk.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import net.timelesssdk.TestKeyPairGenerator;
+import net.timelesssdk.exception.SignatureException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class EcdsaVerifierTest {
+  private KeyPair keyPair;
+  private EcdsaVerifier verifier;
+  private String testPayload;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    keyPair = TestKeyPairGenerator.generateKeyPair();
+    verifier = new EcdsaVerifier(keyPair.getPublic());
+    testPayload = "{\"test\":\"data\",\"value\":123}";
+  }
+
+  @Test
+  void testVerifyValidAndTamperedPayloads() throws SignatureException {
+    String signature = SignatureUtil.sign(testPayload, keyPair.getPrivate());
+
+    assertTrue(verifier.verify(testPayload, signature));
+    assertFalse(verifier.verify(testPayload.replace("123", "456"), signature));
+    assertTrue(verifier.verify(testPayload, signature));
+  }
+
+  @Test
+  void testVerifyByteRange() throws SignatureException {
+    String signature = SignatureUtil.sign(testPayload, keyPair.getPrivate());
+    byte[] bytes = ("xx" + testPayload + "yy").getBytes(StandardCharsets.UTF_8);
+
+    assertTrue(verifier.verify(bytes, 2, bytes.length - 4, signature));
+  }
+
+  @Test
+  void testMalformedSignatureDoesNotPoisonPool() throws SignatureException {
+    String signature = SignatureUtil.sign(testPayload, keyPair.getPrivate());
+
+    assertThrows(SignatureException.class, () -> verifier.verify(testPayload, "invalid-signature"));
+    assertThrows(SignatureException.class, () -> verifier.verify(testPayload, "AAAA"));
+    assertTrue(verifier.verify(testPayload, signature));
+  }
+
+  @Test
+  void testGetPublicKey() {
+    assertSame(keyPair.getPublic(), verifier.getPublicKey());
+  }
+}
@@ -0,0 +1,86 @@
+package net.timelesssdk.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.security.KeyPair;
+import java.security.PublicKey;
+import net.timelesssdk.TestKeyPairGenerator;
+import net.timelesssdk.exception.SignatureException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class KeyCacheTest {
+  private KeyPair keyPair;
+  private String publicKeyBase64;
+  private String privateKeyBase64;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    keyPair = TestKeyPairGenerator.generateKeyPair();
+    publicKeyBase64 = TestKeyPairGenerator.publicKeyToBase64(keyPair.getPublic());
+    privateKeyBase64 = TestKeyPairGenerator.privateKeyToBase64(keyPair.getPrivate());
+  }
+
+  @Test
+  void testRepeatedKeysAreParsedOnce() throws SignatureException {
+    KeyCache cache = new KeyCache(8);
+
+    PublicKey first = cache.getPublicKey(publicKeyBase64);
+    PublicKey second = cache.getPublicKey(publicKeyBase64);
+    cache.getPrivateKey(privateKeyBase64);
+    cache.getPrivateKey(privateKeyBase64);
+
+    assertSame(first, second);
+    assertEquals(keyPair.getPublic(), first);
+    assertEquals(2, cache.getHits());
+    assertEquals(2, cache.getMisses());
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  void testEvictsOldestEntries() throws Exception {
+    KeyCache cache = new KeyCache(2);
+    String second =
+        TestKeyPairGenerator.publicKeyToBase64(TestKeyPairGenerator.generateKeyPair().getPublic());
+    String third =
+        TestKeyPairGenerator.publicKeyToBase64(TestKeyPairGenerator.generateKeyPair().getPublic());
+
+    cache.getPublicKey(publicKeyBase64);
+    cache.getPublicKey(second);
+    cache.getPublicKey(third);
+
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.getEvictions());
+    cache.getPublicKey(third);
+    assertEquals(1, cache.getHits());
+    cache.getPublicKey(publicKeyBase64);
+    assertEquals(4, cache.getMisses());
+  }
+
+  @Test
+  void testInvalidKeysAreNotCached() {
+    KeyCache cache = new KeyCache(8);
+
+    assertThrows(SignatureException.class, () -> cache.getPublicKey("invalid-key"));
+    assertThrows(SignatureException.class, () -> cache.getPrivateKey("invalid-key"));
+    assertThrows(SignatureException.class, () -> cache.getPublicKey(null));
+
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void testClear() throws SignatureException {
+    KeyCache cache = new KeyCache(8);
+    cache.getPublicKey(publicKeyBase64);
+
+    cache.clear();
+
+    assertEquals(0, cache.size());
+    assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  void testInvalidMaxSize() {
+    assertThrows(IllegalArgumentException.class, () -> new KeyCache(0));
+  }
+}
@@ -144,4 +144,16 @@ class SignatureUtilTest {
     boolean isValid = SignatureUtil.verify(payload, signature, publicKey);
     assertTrue(isValid);
   }
+
+  @Test
+  void testLoadPublicKeyUsesKeyCache() throws SignatureException {
+    KeyCache cache = SignatureUtil.getKeyCache();
+    PublicKey first = SignatureUtil.loadPublicKey(publicKeyBase64);
+    long hits = cache.getHits();
+
+    PublicKey second = SignatureUtil.loadPublicKey(publicKeyBase64);
+
+    assertSame(first, second);
+    assertTrue(cache.getHits() > hits);
+  }
 }
@@ -0,0 +1,64 @@
+package net.timelesssdk.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import net.timelesssdk.TestKeyPairGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SigningOutputStreamTest {
+  private KeyPair keyPair;
+  private String testPayload;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    keyPair = TestKeyPairGenerator.generateKeyPair();
+    testPayload = "{\"test\":\"data\",\"value\":123}";
+  }
+
+  @Test
+  void testSignatureMatchesWrittenBytes() throws Exception {
+    SigningOutputStream out = new SigningOutputStream(keyPair.getPrivate(), 16);
+    byte[] bytes = testPayload.getBytes(StandardCharsets.UTF_8);
+    out.write(bytes, 0, 5);
+    out.write(bytes[5]);
+    out.write(bytes, 6, bytes.length - 6);
+
+    String signature = out.sign();
+
+    assertEquals(bytes.length, out.size());
+    assertArrayEquals(bytes, out.toByteArray());
+    assertTrue(SignatureUtil.verify(testPayload, signature, keyPair.getPublic()));
+  }
+
+  @Test
+  void testBufferGrowsBeyondInitialCapacity() throws Exception {
+    SigningOutputStream out = new SigningOutputStream(keyPair.getPrivate(), 1);
+    StringBuilder large = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      large.append(testPayload);
+    }
+    byte[] bytes = large.toString().getBytes(StandardCharsets.UTF_8);
+    out.write(bytes, 0, bytes.length);
+
+    assertEquals(bytes.length, out.size());
+    assertTrue(out.getBuffer().length >= bytes.length);
+    assertTrue(SignatureUtil.verify(large.toString(), out.sign(), keyPair.getPublic()));
+  }
+
+  @Test
+  void testPooledSignerAndSingleUse() throws Exception {
+    EcdsaSigner signer = new EcdsaSigner(keyPair.getPrivate());
+    for (int i = 0; i < 3; i++) {
+      SigningOutputStream out = new SigningOutputStream(signer, 16);
+      out.write(testPayload.getBytes(StandardCharsets.UTF_8));
+      String signature = out.sign();
+
+      assertTrue(SignatureUtil.verify(testPayload, signature, keyPair.getPublic()));
+      assertThrows(IllegalStateException.class, out::sign);
+      assertThrows(IllegalStateException.class, () -> out.write('x'));
+    }
+  }
+}
@@ -0,0 +1,172 @@
+package net.timelesssdk.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.util.Arrays;
+import net.timelesssdk.TestKeyPairGenerator;
+import net.timelesssdk.exception.SignatureException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class VerifyingInputStreamTest {
+  private KeyPair keyPair;
+  private String testPayload;
+  private byte[] bytes;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    keyPair = TestKeyPairGenerator.generateKeyPair();
+    testPayload = "{\"test\":\"data\",\"value\":123}";
+    bytes = testPayload.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void testVerifiesBytesReadInChunks() throws Exception {
+    VerifyingInputStream in = open(1024);
+    byte[] buffer = new byte[bytes.length];
+    assertEquals(5, in.read(buffer, 0, 5));
+    buffer[5] = (byte) in.read();
+    assertEquals(bytes.length - 6, in.read(buffer, 6, bytes.length - 6));
+
+    assertArrayEquals(bytes, buffer);
+    assertTrue(in.verify(sign(testPayload)));
+    assertEquals(bytes.length, in.getCount());
+  }
+
+  @Test
+  void testVerifyReadsUnreadAndSkippedBytes() throws Exception {
+    VerifyingInputStream in = open(1024);
+    assertEquals(3, in.skip(3));
+    in.read();
+
+    assertTrue(in.verify(sign(testPayload)));
+    assertEquals(bytes.length, in.getCount());
+  }
+
+  @Test
+  void testRejectsSignatureOverOtherPayload() throws Exception {
+    assertFalse(open(1024).verify(sign("{\"test\":\"other\"}")));
+  }
+
+  @Test
+  void testAcceptsSignatureFromAnyVerifier() throws Exception {
+    KeyPair otherKeyPair = TestKeyPairGenerator.generateKeyPair();
+    VerifyingInputStream in =
+        new VerifyingInputStream(
+            new ByteArrayInputStream(bytes),
+            Arrays.asList(
+                new EcdsaVerifier(otherKeyPair.getPublic()),
+                new EcdsaVerifier(keyPair.getPublic())),
+            1024);
+
+    assertTrue(in.verify(sign(testPayload)));
+  }
+
+  @Test
+  void testStopsAtFirstAcceptingVerifierAndReturnsEveryEngine() throws Exception {
+    EcdsaVerifier accepting = new EcdsaVerifier(keyPair.getPublic());
+    EcdsaVerifier skipped = new EcdsaVerifier(TestKeyPairGenerator.generateKeyPair().getPublic());
+    VerifyingInputStream in =
+        new VerifyingInputStream(
+            new ByteArrayInputStream(bytes), Arrays.asList(accepting, skipped), 1024);
+
+    assertTrue(in.verify(sign(testPayload)));
+    assertEquals(1, accepting.getIdleEngineCount());
+    assertEquals(1, skipped.getIdleEngineCount());
+
+    // The skipped engine was reset, so it verifies the next payload on its own
+    VerifyingInputStream next =
+        new VerifyingInputStream(new ByteArrayInputStream(bytes), Arrays.asList(skipped), 1024);
+    assertFalse(next.verify(sign(testPayload)));
+  }
+
+  @Test
+  void testFailsOnceSizeLimitIsExceeded() throws Exception {
+    VerifyingInputStream in = open(10);
+    byte[] buffer = new byte[8];
+    assertEquals(8, in.read(buffer, 0, 8));
+
+    IOException e = assertThrows(IOException.class, () -> in.read(buffer, 0, 8));
+    assertTrue(e.getMessage().contains("10 bytes"));
+    assertThrows(IOException.class, () -> in.verify(sign(testPayload)));
+  }
+
+  @Test
+  void testMalformedSignatureThrows() throws Exception {
+    assertThrows(SignatureException.class, () -> open(1024).verify("not base64!"));
+  }
+
+  @Test
+  void testCannotReadOrVerifyAfterVerify() throws Exception {
+    VerifyingInputStream in = open(1024);
+    String signature = sign(testPayload);
+    assertTrue(in.verify(signature));
+
+    assertThrows(IllegalStateException.class, in::read);
+    assertThrows(IllegalStateException.class, () -> in.verify(signature));
+  }
+
+  @Test
+  void testReleaseReturnsEnginesOfAbandonedPayload() throws Exception {
+    EcdsaVerifier verifier = new EcdsaVerifier(keyPair.getPublic());
+    VerifyingInputStream in =
+        new VerifyingInputStream(new ByteArrayInputStream(bytes), Arrays.asList(verifier), 1024);
+    assertEquals(5, in.read(new byte[5], 0, 5));
+    assertEquals(0, verifier.getIdleEngineCount());
+
+    in.release();
+    in.release();
+    assertEquals(1, verifier.getIdleEngineCount());
+    assertThrows(IllegalStateException.class, in::read);
+    assertThrows(IllegalStateException.class, () -> in.verify(sign(testPayload)));
+
+    // The engine was reset, so the bytes read before the release do not count
+    VerifyingInputStream next =
+        new VerifyingInputStream(new ByteArrayInputStream(bytes), Arrays.asList(verifier), 1024);
+    assertEquals(0, verifier.getIdleEngineCount());
+    assertTrue(next.verify(sign(testPayload)));
+    assertEquals(1, verifier.getIdleEngineCount());
+  }
+
+  @Test
+  void testCloseReleasesEnginesAndClosesSource() throws Exception {
+    EcdsaVerifier verifier = new EcdsaVerifier(keyPair.getPublic());
+    boolean[] closed = new boolean[1];
+    ByteArrayInputStream source =
+        new ByteArrayInputStream(bytes) {
+          @Override
+          public void close() {
+            closed[0] = true;
+          }
+        };
+    try (VerifyingInputStream in =
+        new VerifyingInputStream(source, Arrays.asList(verifier), 1024)) {
+      in.read();
+    }
+    assertTrue(closed[0]);
+    assertEquals(1, verifier.getIdleEngineCount());
+  }
+
+  @Test
+  void testConstructorValidation() {
+    ByteArrayInputStream source = new ByteArrayInputStream(bytes);
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new VerifyingInputStream(source, keyPair.getPublic(), 0));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new VerifyingInputStream(source, Arrays.asList(), 1024));
+  }
+
+  private VerifyingInputStream open(long maxBytes) throws SignatureException {
+    return new VerifyingInputStream(new ByteArrayInputStream(bytes), keyPair.getPublic(), maxBytes);
+  }
+
+  private String sign(String payload) throws SignatureException {
+    return SignatureUtil.sign(payload, keyPair.getPrivate());
+  }
+}
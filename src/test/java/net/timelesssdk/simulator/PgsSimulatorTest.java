@@ -0,0 +1,171 @@
+package net.timelesssdk.simulator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.security.KeyPair;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import net.timelesssdk.TestKeyPairGenerator;
+import net.timelesssdk.TimelessPayClient;
+import net.timelesssdk.exception.TimelessPayApiException;
+import net.timelesssdk.model.CheckoutItem;
+import net.timelesssdk.model.CheckoutSessionResponse;
+import net.timelesssdk.model.CreateCheckoutSessionRequest;
+import net.timelesssdk.webhook.WebhookHandler;
+import net.timelesssdk.webhook.WebhookPayload;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PgsSimulatorTest {
+  private KeyPair tenantKeys;
+  private MockWebServer receiver;
+  private PgsSimulator simulator;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    tenantKeys = TestKeyPairGenerator.generateKeyPair();
+    receiver = new MockWebServer();
+    receiver.start();
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    if (simulator != null) {
+      simulator.close();
+    }
+    receiver.shutdown();
+  }
+
+  @Test
+  void testCreatesSessionForSignedRequest() throws Exception {
+    simulator = start(PgsSimulator.builder().tenantPublicKey(tenantKeys.getPublic()));
+
+    CreateCheckoutSessionRequest request = checkoutRequest();
+    CheckoutSessionResponse response = client().createCheckoutSession(request);
+
+    assertNotNull(response.getId());
+    assertEquals(request.getNonce(), response.getNonce());
+    assertEquals(Long.valueOf(123), response.getApiKeyId());
+    assertEquals(0, new BigDecimal("200.00").compareTo(response.getTotalAmount()));
+    assertEquals(1, simulator.getSessionsCreated());
+  }
+
+  @Test
+  void testRejectsRequestSignedWithOtherKey() throws Exception {
+    KeyPair otherKeys = TestKeyPairGenerator.generateKeyPair();
+    simulator = start(PgsSimulator.builder().tenantPublicKey(otherKeys.getPublic()));
+
+    TimelessPayApiException e =
+        assertThrows(
+            TimelessPayApiException.class, () -> client().createCheckoutSession(checkoutRequest()));
+
+    assertEquals(401, e.getStatusCode());
+    assertEquals(1, simulator.getSignatureFailures());
+    assertEquals(0, simulator.getSessionsCreated());
+  }
+
+  @Test
+  void testFailNextInjectsServerErrorBurst() throws Exception {
+    simulator = start(PgsSimulator.builder().tenantPublicKey(tenantKeys.getPublic()));
+    simulator.failNext(2, 502);
+    TimelessPayClient client = client();
+
+    for (int i = 0; i < 2; i++) {
+      TimelessPayApiException e =
+          assertThrows(
+              TimelessPayApiException.class, () -> client.createCheckoutSession(checkoutRequest()));
+      assertEquals(502, e.getStatusCode());
+    }
+    assertNotNull(client.createCheckoutSession(checkoutRequest()));
+    assertEquals(2, simulator.getInjectedErrors());
+  }
+
+  @Test
+  void testRateLimitIncludesRetryAfter() throws Exception {
+    simulator =
+        start(
+            PgsSimulator.builder().tenantPublicKey(tenantKeys.getPublic()).rateLimitRate(1.0, 3));
+
+    TimelessPayApiException e =
+        assertThrows(
+            TimelessPayApiException.class, () -> client().createCheckoutSession(checkoutRequest()));
+
+    assertEquals(429, e.getStatusCode());
+  }
+
+  @Test
+  void testEmitsSignedWebhookForCreatedSession() throws Exception {
+    receiver.enqueue(new MockResponse().setResponseCode(200));
+    simulator =
+        start(
+            PgsSimulator.builder()
+                .tenantPublicKey(tenantKeys.getPublic())
+                .webhookUrl(receiver.url("/webhooks").toString()));
+
+    CheckoutSessionResponse session = client().createCheckoutSession(checkoutRequest());
+
+    RecordedRequest delivery = receiver.takeRequest(5, TimeUnit.SECONDS);
+    assertNotNull(delivery);
+    WebhookHandler handler = new WebhookHandler(simulator.getWebhookPublicKey());
+    WebhookPayload payload =
+        handler.verifyAndParse(
+            delivery.getBody().readUtf8(), delivery.getHeader("X-Payload-Signature"));
+    assertEquals(WebhookPayload.EventType.PAYMENT_SUCCESS, payload.getEventType());
+    assertEquals(session.getId(), payload.getSessionId());
+  }
+
+  @Test
+  void testBuilderValidation() {
+    assertThrows(IllegalArgumentException.class, () -> PgsSimulator.builder().build());
+    assertThrows(
+        IllegalArgumentException.class, () -> PgsSimulator.builder().serverErrorRate(1.5));
+    assertThrows(
+        IllegalArgumentException.class, () -> PgsSimulator.builder().slowBodyRate(0.1, 0));
+    assertThrows(IllegalArgumentException.class, () -> LatencyDistribution.uniform(10, 5));
+  }
+
+  @Test
+  void testLatencyDistributions() {
+    assertEquals(7, LatencyDistribution.fixed(7).nextMillis());
+    for (int i = 0; i < 100; i++) {
+      long uniform = LatencyDistribution.uniform(5, 10).nextMillis();
+      assertTrue(uniform >= 5 && uniform <= 10);
+      assertTrue(LatencyDistribution.exponential(3, 20).nextMillis() >= 3);
+    }
+  }
+
+  private PgsSimulator start(PgsSimulator.Builder builder) throws Exception {
+    PgsSimulator started = builder.build();
+    started.start();
+    return started;
+  }
+
+  private TimelessPayClient client() {
+    return new TimelessPayClient(simulator.url(), "123", "tenant-123", tenantKeys.getPrivate());
+  }
+
+  private static CreateCheckoutSessionRequest checkoutRequest() {
+    CheckoutItem item = new CheckoutItem();
+    item.setName("Product");
+    item.setPrice(new BigDecimal("100.00"));
+    item.setQuantity(2);
+    item.setTotal(new BigDecimal("200.00"));
+
+    CreateCheckoutSessionRequest request = new CreateCheckoutSessionRequest();
+    request.setCustomerName("John Doe");
+    request.setCustomerPhoneNumber("+251911234567");
+    request.setNonce("nonce-" + System.nanoTime());
+    request.setCurrency("ETB");
+    request.setSessionExpiresAt(LocalDateTime.now().plusHours(1));
+    request.setItems(Collections.singletonList(item));
+    request.setTotalAmount(new BigDecimal("200.00"));
+    request.setTotalQuantity(2);
+    return request;
+  }
+}
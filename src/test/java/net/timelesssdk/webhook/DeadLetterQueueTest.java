@@ -0,0 +1,44 @@
+package net.timelesssdk.webhook;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class DeadLetterQueueTest {
+  @Test
+  void testDropsOldestWhenFull() {
+    DeadLetterQueue queue = new DeadLetterQueue(2);
+    queue.add(letter("w1"));
+    queue.add(letter("w2"));
+    queue.add(letter("w3"));
+
+    List<DeadLetterQueue.DeadLetter> letters = queue.snapshot();
+    assertEquals(2, letters.size());
+    assertEquals("w2", letters.get(0).getPayload().getWebhookId());
+    assertEquals("w3", letters.get(1).getPayload().getWebhookId());
+    assertEquals(1, queue.getDropped());
+  }
+
+  @Test
+  void testSnapshotKeepsAndDrainRemoves() {
+    DeadLetterQueue queue = new DeadLetterQueue(10);
+    queue.add(letter("w1"));
+
+    assertEquals(1, queue.snapshot().size());
+    assertEquals(1, queue.size());
+    assertEquals(1, queue.drain().size());
+    assertEquals(0, queue.size());
+  }
+
+  @Test
+  void testRejectsNonPositiveCapacity() {
+    assertThrows(IllegalArgumentException.class, () -> new DeadLetterQueue(0));
+  }
+
+  private static DeadLetterQueue.DeadLetter letter(String webhookId) {
+    WebhookPayload payload = new WebhookPayload();
+    payload.setWebhookId(webhookId);
+    return new DeadLetterQueue.DeadLetter(payload, p -> {}, 1, new IllegalStateException());
+  }
+}
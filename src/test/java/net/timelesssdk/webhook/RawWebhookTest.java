@@ -0,0 +1,25 @@
+package net.timelesssdk.webhook;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class RawWebhookTest {
+  @Test
+  void testGetters() {
+    RawWebhook webhook = new RawWebhook("{\"status\":\"success\"}", "signature");
+    assertEquals("{\"status\":\"success\"}", webhook.getPayloadJson());
+    assertEquals("signature", webhook.getSignature());
+    assertArrayEquals(
+        "{\"status\":\"success\"}".getBytes(StandardCharsets.UTF_8), webhook.getPayloadBytes());
+  }
+
+  @Test
+  void testKeepsBytesAsReceived() {
+    byte[] body = "{\"status\":\"success\"} \n".getBytes(StandardCharsets.UTF_8);
+    RawWebhook webhook = new RawWebhook(body, "signature");
+    assertSame(body, webhook.getPayloadBytes());
+    assertEquals("{\"status\":\"success\"} \n", webhook.getPayloadJson());
+  }
+}
@@ -0,0 +1,155 @@
+package net.timelesssdk.webhook;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class SessionOrderedExecutorTest {
+  private SessionOrderedExecutor executor;
+
+  @AfterEach
+  void tearDown() throws Exception {
+    if (executor != null) {
+      executor.shutdown();
+      executor.awaitTermination(Duration.ofSeconds(5));
+    }
+  }
+
+  @Test
+  void testKeepsSubmissionOrderPerKey() throws Exception {
+    executor = SessionOrderedExecutor.builder().lanes(4).laneCapacity(10_000).build();
+    Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+    for (int i = 0; i < 1_000; i++) {
+      String session = "session-" + (i % 20);
+      int sequence = i;
+      List<Integer> sequences = seen.computeIfAbsent(session, k -> new CopyOnWriteArrayList<>());
+      assertTrue(executor.execute(session, () -> sequences.add(sequence)));
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(Duration.ofSeconds(10)));
+
+    assertEquals(20, seen.size());
+    for (List<Integer> sequences : seen.values()) {
+      List<Integer> sorted = new ArrayList<>(sequences);
+      sorted.sort(null);
+      assertEquals(sorted, sequences);
+      assertEquals(50, sequences.size());
+    }
+  }
+
+  @Test
+  void testRunsDifferentLanesInParallel() throws Exception {
+    executor = SessionOrderedExecutor.builder().lanes(2).build();
+    String first = "a";
+    String second = keyOnOtherLane(first);
+    CountDownLatch bothRunning = new CountDownLatch(2);
+
+    Runnable task =
+        () -> {
+          bothRunning.countDown();
+          awaitQuietly(bothRunning);
+        };
+    executor.execute(first, task);
+    executor.execute(second, task);
+
+    assertTrue(bothRunning.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void testRejectsWhenLaneIsFull() throws Exception {
+    executor = SessionOrderedExecutor.builder().lanes(2).laneCapacity(1).build();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    String blocked = "a";
+    int lane = executor.laneOf(blocked);
+
+    assertTrue(
+        executor.execute(
+            blocked,
+            () -> {
+              started.countDown();
+              awaitQuietly(release);
+            }));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    assertTrue(executor.execute(blocked, () -> {}));
+    assertFalse(executor.execute(blocked, () -> {}));
+    // Other lanes are unaffected
+    assertTrue(executor.execute(keyOnOtherLane(blocked), () -> {}));
+
+    assertEquals(1, executor.getQueueDepth(lane));
+    assertEquals(1, executor.getRejectedCount(lane));
+    release.countDown();
+  }
+
+  @Test
+  void testFailingTaskDoesNotStopLane() throws Exception {
+    executor = SessionOrderedExecutor.builder().lanes(1).build();
+    CountDownLatch after = new CountDownLatch(1);
+
+    executor.execute(
+        "a",
+        () -> {
+          throw new IllegalStateException("boom");
+        });
+    executor.execute("a", after::countDown);
+
+    assertTrue(after.await(5, TimeUnit.SECONDS));
+    assertEquals(1, executor.getFailedCount(0));
+  }
+
+  @Test
+  void testSpreadsUnkeyedTasks() throws Exception {
+    executor = SessionOrderedExecutor.builder().lanes(3).build();
+    for (int i = 0; i < 3; i++) {
+      executor.execute(null, () -> {});
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(Duration.ofSeconds(5)));
+
+    for (int lane = 0; lane < 3; lane++) {
+      assertEquals(1, executor.getCompletedCount(lane));
+    }
+  }
+
+  @Test
+  void testRejectsAfterShutdown() {
+    executor = SessionOrderedExecutor.builder().lanes(1).build();
+    executor.shutdown();
+
+    assertFalse(executor.execute("a", () -> {}));
+  }
+
+  @Test
+  void testBuilderValidation() {
+    assertThrows(IllegalArgumentException.class, () -> SessionOrderedExecutor.builder().lanes(0));
+    assertThrows(
+        IllegalArgumentException.class, () -> SessionOrderedExecutor.builder().laneCapacity(0));
+  }
+
+  private String keyOnOtherLane(String key) {
+    int lane = executor.laneOf(key);
+    for (int i = 0; ; i++) {
+      String candidate = "key-" + i;
+      if (executor.laneOf(candidate) != lane) {
+        return candidate;
+      }
+    }
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
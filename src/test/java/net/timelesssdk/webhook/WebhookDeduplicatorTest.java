@@ -0,0 +1,213 @@
+package net.timelesssdk.webhook;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class WebhookDeduplicatorTest {
+  @Test
+  void testRejectsDuplicateIds() {
+    WebhookDeduplicator deduplicator = new WebhookDeduplicator(100, Duration.ofMinutes(5));
+    String id = UUID.randomUUID().toString();
+
+    assertTrue(deduplicator.markIfNew(id));
+    assertFalse(deduplicator.markIfNew(id));
+    assertTrue(deduplicator.contains(id));
+    assertTrue(deduplicator.markIfNew(UUID.randomUUID().toString()));
+    assertEquals(1, deduplicator.getDuplicates());
+  }
+
+  @Test
+  void testUuidCaseIsIgnored() {
+    WebhookDeduplicator deduplicator = new WebhookDeduplicator(100, Duration.ofMinutes(5));
+    String id = "550e8400-e29b-41d4-a716-446655440000";
+
+    assertTrue(deduplicator.markIfNew(id));
+    assertFalse(deduplicator.markIfNew(id.toUpperCase()));
+  }
+
+  @Test
+  void testSupportsNonUuidIds() {
+    WebhookDeduplicator deduplicator = new WebhookDeduplicator(100, Duration.ofMinutes(5));
+
+    assertTrue(deduplicator.markIfNew("evt_1"));
+    assertTrue(deduplicator.markIfNew("evt_2"));
+    assertFalse(deduplicator.markIfNew("evt_1"));
+    assertFalse(deduplicator.contains("evt_3"));
+  }
+
+  @Test
+  void testIdsExpireAfterTtl() throws Exception {
+    WebhookDeduplicator deduplicator = new WebhookDeduplicator(100, Duration.ofMillis(50));
+    String id = UUID.randomUUID().toString();
+    deduplicator.markIfNew(id);
+
+    Thread.sleep(100);
+
+    assertFalse(deduplicator.contains(id));
+    assertTrue(deduplicator.markIfNew(id));
+  }
+
+  @Test
+  void testForget() {
+    WebhookDeduplicator deduplicator = new WebhookDeduplicator(100, Duration.ofMinutes(5));
+    String id = UUID.randomUUID().toString();
+    deduplicator.markIfNew(id);
+
+    assertTrue(deduplicator.forget(id));
+    assertFalse(deduplicator.contains(id));
+    assertFalse(deduplicator.forget(id));
+    assertTrue(deduplicator.markIfNew(id));
+  }
+
+  @Test
+  void testStaysBoundedWhenFull() {
+    WebhookDeduplicator deduplicator = new WebhookDeduplicator(16, Duration.ofMinutes(5));
+    int capacity = deduplicator.getCapacity();
+
+    for (int i = 0; i < capacity * 4; i++) {
+      assertTrue(deduplicator.markIfNew(UUID.randomUUID().toString()));
+    }
+
+    assertEquals(32, capacity);
+    assertTrue(deduplicator.getEvictions() >= capacity * 3);
+  }
+
+  @Test
+  void testRecentIdsSurviveWhenSizedForThem() {
+    WebhookDeduplicator deduplicator = new WebhookDeduplicator(10_000, Duration.ofMinutes(5));
+    List<String> ids = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      String id = UUID.randomUUID().toString();
+      ids.add(id);
+      deduplicator.markIfNew(id);
+    }
+
+    for (String id : ids) {
+      assertFalse(deduplicator.markIfNew(id));
+    }
+  }
+
+  @Test
+  void testConcurrentDeliveriesAreAcceptedOnce() throws Exception {
+    WebhookDeduplicator deduplicator = new WebhookDeduplicator(10_000, Duration.ofMinutes(5));
+    List<String> ids = new ArrayList<>();
+    for (int i = 0; i < 1_000; i++) {
+      ids.add(UUID.randomUUID().toString());
+    }
+    int threads = 8;
+    AtomicInteger accepted = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  for (String id : ids) {
+                    if (deduplicator.markIfNew(id)) {
+                      accepted.incrementAndGet();
+                    }
+                  }
+                  return null;
+                }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get(10, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertEquals(ids.size(), accepted.get());
+    assertEquals((long) ids.size() * (threads - 1), deduplicator.getDuplicates());
+  }
+
+  @Test
+  void testConcurrentDeliveriesAreAcceptedOnceWhileSlotsExpire() throws Exception {
+    Duration ttl = Duration.ofMillis(20);
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      for (int round = 0; round < 50; round++) {
+        // A small table, so the id's probes cross slots that expire while the calls race
+        WebhookDeduplicator deduplicator = new WebhookDeduplicator(4, ttl);
+        for (int i = 0; i < 6; i++) {
+          deduplicator.markIfNew(UUID.randomUUID().toString());
+        }
+        long raceAt = System.nanoTime() + ttl.toNanos();
+        String id = UUID.randomUUID().toString();
+        AtomicInteger accepted = new AtomicInteger();
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+          futures.add(
+              executor.submit(
+                  () -> {
+                    while (System.nanoTime() < raceAt) {
+                      Thread.onSpinWait();
+                    }
+                    if (deduplicator.markIfNew(id)) {
+                      accepted.incrementAndGet();
+                    }
+                    return System.nanoTime();
+                  }));
+        }
+        long finishedAt = raceAt;
+        for (Future<Long> future : futures) {
+          finishedAt = Math.max(finishedAt, future.get(10, TimeUnit.SECONDS));
+        }
+        // A call that ran after the first copy expired is rightly accepted again
+        if (finishedAt - raceAt < ttl.toNanos()) {
+          assertEquals(1, accepted.get(), "round " + round);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void testForgetWithdrawsIdStillBeingRecorded() {
+    WebhookDeduplicator deduplicator = new WebhookDeduplicator(100, Duration.ofMinutes(5));
+    String id = UUID.randomUUID().toString();
+    boolean[] forgotten = new boolean[2];
+    deduplicator.tentativeHook =
+        () -> {
+          // Runs while markIfNew has written the id but not yet confirmed it
+          deduplicator.tentativeHook = null;
+          assertTrue(deduplicator.contains(id));
+          forgotten[0] = deduplicator.forget(id);
+          forgotten[1] = deduplicator.contains(id);
+        };
+
+    assertTrue(deduplicator.markIfNew(id));
+    assertTrue(forgotten[0]);
+    assertFalse(forgotten[1]);
+    assertFalse(deduplicator.contains(id));
+    assertTrue(deduplicator.markIfNew(id));
+    assertEquals(0, deduplicator.getDuplicates());
+  }
+
+  @Test
+  void testRejectsInvalidArguments() {
+    assertThrows(
+        IllegalArgumentException.class, () -> new WebhookDeduplicator(0, Duration.ofMinutes(5)));
+    assertThrows(IllegalArgumentException.class, () -> new WebhookDeduplicator(10, Duration.ZERO));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new WebhookDeduplicator(Integer.MAX_VALUE, Duration.ofMinutes(5)));
+  }
+}
@@ -0,0 +1,417 @@
+package net.timelesssdk.webhook;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.timelesssdk.TestKeyPairGenerator;
+import net.timelesssdk.security.SignatureUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WebhookDispatcherTest {
+  private KeyPair keyPair;
+  private WebhookHandler handler;
+  private WebhookDispatcher dispatcher;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    keyPair = TestKeyPairGenerator.generateKeyPair();
+    handler = new WebhookHandler(keyPair.getPublic());
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    if (dispatcher != null) {
+      dispatcher.shutdown();
+      dispatcher.awaitTermination(Duration.ofSeconds(5));
+    }
+  }
+
+  @Test
+  void testRoutesByEventType() throws Exception {
+    List<String> successes = new CopyOnWriteArrayList<>();
+    List<String> failures = new CopyOnWriteArrayList<>();
+    dispatcher =
+        WebhookDispatcher.builder(handler)
+            .on(WebhookPayload.EventType.PAYMENT_SUCCESS, p -> successes.add(p.getWebhookId()))
+            .on(WebhookPayload.EventType.PAYMENT_FAILED, p -> failures.add(p.getWebhookId()))
+            .build();
+
+    assertAccepted(dispatchSigned(payload("payment.success", "w1")));
+    assertAccepted(dispatchSigned(payload("payment.failed", "w2")));
+    dispatcher.shutdown();
+    assertTrue(dispatcher.awaitTermination(Duration.ofSeconds(5)));
+
+    assertEquals(List.of("w1"), successes);
+    assertEquals(List.of("w2"), failures);
+    assertEquals(2, dispatcher.getProcessed());
+  }
+
+  @Test
+  void testRunsProcessorsForSameEventTypeInOrder() throws Exception {
+    List<String> calls = new CopyOnWriteArrayList<>();
+    dispatcher =
+        WebhookDispatcher.builder(handler)
+            .on(WebhookPayload.EventType.PAYMENT_SUCCESS, p -> calls.add("first"))
+            .on(WebhookPayload.EventType.PAYMENT_SUCCESS, p -> calls.add("second"))
+            .build();
+
+    dispatchSigned(payload("payment.success", "w1"));
+    dispatcher.shutdown();
+    dispatcher.awaitTermination(Duration.ofSeconds(5));
+
+    assertEquals(List.of("first", "second"), calls);
+  }
+
+  @Test
+  void testUnroutedEventTypeIsIgnoredOrFallsBack() throws Exception {
+    dispatcher = WebhookDispatcher.builder(handler).build();
+    assertEquals(WebhookDispatcher.Ack.IGNORED, dispatchSigned(payload("payment.refunded", "w1")));
+    assertEquals(200, WebhookDispatcher.Ack.IGNORED.getStatusCode());
+    assertEquals(1, dispatcher.getIgnored());
+
+    CountDownLatch fallback = new CountDownLatch(1);
+    WebhookDispatcher withFallback =
+        WebhookDispatcher.builder(handler).otherwise(p -> fallback.countDown()).build();
+    String payload = payload("payment.refunded", "w2");
+    assertAccepted(
+        withFallback.dispatch(payload, SignatureUtil.sign(payload, keyPair.getPrivate())));
+    assertTrue(fallback.await(5, TimeUnit.SECONDS));
+    withFallback.shutdown();
+  }
+
+  @Test
+  void testInvalidSignatureIsRejectedWithoutProcessing() throws Exception {
+    List<String> calls = new CopyOnWriteArrayList<>();
+    dispatcher =
+        WebhookDispatcher.builder(handler)
+            .on(WebhookPayload.EventType.PAYMENT_SUCCESS, p -> calls.add(p.getWebhookId()))
+            .build();
+
+    KeyPair otherKeys = TestKeyPairGenerator.generateKeyPair();
+    String payload = payload("payment.success", "w1");
+    WebhookDispatcher.Ack ack =
+        dispatcher.dispatch(payload, SignatureUtil.sign(payload, otherKeys.getPrivate()));
+
+    assertEquals(WebhookDispatcher.Ack.INVALID, ack);
+    assertEquals(400, ack.getStatusCode());
+    assertEquals(1, dispatcher.getInvalid());
+    assertTrue(calls.isEmpty());
+  }
+
+  @Test
+  void testRejectsWhenQueueIsFull() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    dispatcher =
+        WebhookDispatcher.builder(handler)
+            .on(
+                WebhookPayload.EventType.PAYMENT_SUCCESS,
+                p -> {
+                  started.countDown();
+                  release.await();
+                })
+            .workerThreads(1)
+            .queueCapacity(1)
+            .build();
+
+    assertAccepted(dispatchSigned(payload("payment.success", "w1")));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    assertAccepted(dispatchSigned(payload("payment.success", "w2")));
+    assertEquals(1, dispatcher.getQueueDepth());
+
+    WebhookDispatcher.Ack ack = dispatchSigned(payload("payment.success", "w3"));
+    assertEquals(WebhookDispatcher.Ack.REJECTED, ack);
+    assertEquals(503, ack.getStatusCode());
+    assertEquals(1, dispatcher.getRejected());
+
+    release.countDown();
+  }
+
+  @Test
+  void testProcessorFailureReachesErrorListener() throws Exception {
+    CountDownLatch reported = new CountDownLatch(1);
+    List<Exception> errors = new CopyOnWriteArrayList<>();
+    dispatcher =
+        WebhookDispatcher.builder(handler)
+            .on(
+                WebhookPayload.EventType.PAYMENT_SUCCESS,
+                p -> {
+                  throw new IllegalStateException("boom");
+                })
+            .errorListener(
+                (p, e) -> {
+                  errors.add(e);
+                  reported.countDown();
+                })
+            .build();
+
+    assertAccepted(dispatchSigned(payload("payment.success", "w1")));
+
+    assertTrue(reported.await(5, TimeUnit.SECONDS));
+    assertEquals("boom", errors.get(0).getMessage());
+    assertEquals(1, dispatcher.getFailed());
+  }
+
+  @Test
+  void testRejectsAfterShutdown() throws Exception {
+    dispatcher =
+        WebhookDispatcher.builder(handler)
+            .on(WebhookPayload.EventType.PAYMENT_SUCCESS, p -> {})
+            .build();
+    dispatcher.shutdown();
+
+    assertEquals(WebhookDispatcher.Ack.REJECTED, dispatchSigned(payload("payment.success", "w1")));
+  }
+
+  @Test
+  void testDeduplicatorAcknowledgesRedeliveryWithoutProcessing() throws Exception {
+    List<String> calls = new CopyOnWriteArrayList<>();
+    dispatcher =
+        WebhookDispatcher.builder(handler)
+            .on(WebhookPayload.EventType.PAYMENT_SUCCESS, p -> calls.add(p.getWebhookId()))
+            .deduplicator(new WebhookDeduplicator(100, Duration.ofMinutes(5)))
+            .build();
+
+    assertAccepted(dispatchSigned(payload("payment.success", "w1")));
+    WebhookDispatcher.Ack ack = dispatchSigned(payload("payment.success", "w1"));
+    dispatcher.shutdown();
+    dispatcher.awaitTermination(Duration.ofSeconds(5));
+
+    assertEquals(WebhookDispatcher.Ack.DUPLICATE, ack);
+    assertEquals(200, ack.getStatusCode());
+    assertEquals(1, dispatcher.getDuplicates());
+    assertEquals(List.of("w1"), calls);
+  }
+
+  @Test
+  void testRejectedAndFailedWebhooksAreForgotten() throws Exception {
+    WebhookDeduplicator deduplicator = new WebhookDeduplicator(100, Duration.ofMinutes(5));
+    CountDownLatch failed = new CountDownLatch(1);
+    dispatcher =
+        WebhookDispatcher.builder(handler)
+            .on(
+                WebhookPayload.EventType.PAYMENT_SUCCESS,
+                p -> {
+                  throw new IllegalStateException("boom");
+                })
+            .errorListener((p, e) -> failed.countDown())
+            .deduplicator(deduplicator)
+            .build();
+
+    assertAccepted(dispatchSigned(payload("payment.success", "w1")));
+    assertTrue(failed.await(5, TimeUnit.SECONDS));
+    assertFalse(deduplicator.contains("w1"));
+
+    dispatcher.shutdown();
+    assertEquals(WebhookDispatcher.Ack.REJECTED, dispatchSigned(payload("payment.success", "w2")));
+    assertFalse(deduplicator.contains("w2"));
+  }
+
+  @Test
+  void testHonorsHandlerDeduplicator() throws Exception {
+    WebhookHandler dedupHandler =
+        new WebhookHandler(
+            WebhookKeyRing.of(Collections.singletonMap("tenant", keyPair.getPublic())),
+            new WebhookDeduplicator(100, Duration.ofMinutes(5)));
+    dispatcher =
+        WebhookDispatcher.builder(dedupHandler)
+            .on(WebhookPayload.EventType.PAYMENT_SUCCESS, p -> {})
+            .build();
+
+    assertAccepted(dispatchSigned(payload("payment.success", "w1")));
+    assertEquals(WebhookDispatcher.Ack.DUPLICATE, dispatchSigned(payload("payment.success", "w1")));
+  }
+
+  @Test
+  void testSessionOrderedProcessing() throws Exception {
+    SessionOrderedExecutor lanes = SessionOrderedExecutor.builder().lanes(4).build();
+    List<String> calls = new CopyOnWriteArrayList<>();
+    dispatcher =
+        WebhookDispatcher.builder(handler)
+            .otherwise(p -> calls.add(p.getSessionId() + ":" + p.getEventType()))
+            .sessionOrdered(lanes)
+            .build();
+
+    String[] events = {"session.created", "payment.pending", "payment.success"};
+    for (String event : events) {
+      assertAccepted(dispatchSigned(sessionPayload("s1", event)));
+    }
+    dispatcher.shutdown();
+    assertTrue(dispatcher.awaitTermination(Duration.ofSeconds(5)));
+
+    assertEquals(List.of("s1:session.created", "s1:payment.pending", "s1:payment.success"), calls);
+    assertEquals(4 * 1000, dispatcher.getQueueCapacity());
+    assertEquals(3, lanes.getCompletedCount(lanes.laneOf("s1")));
+  }
+
+  @Test
+  void testRecoversJournaledWebhooksAfterRestart(@TempDir Path directory) throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    WebhookJournal journal = WebhookJournal.builder(directory).open();
+    dispatcher =
+        WebhookDispatcher.builder(handler)
+            .on(WebhookPayload.EventType.PAYMENT_SUCCESS, p -> release.await())
+            .workerThreads(1)
+            .journal(journal)
+            .build();
+    assertAccepted(dispatchSigned(payload("payment.success", "w1")));
+    assertAccepted(dispatchSigned(payload("payment.success", "w2")));
+    assertEquals(2, journal.getPendingCount());
+    // Simulate a crash: the processors never finish
+    journal.close();
+
+    List<String> calls = new CopyOnWriteArrayList<>();
+    try (WebhookJournal reopened = WebhookJournal.builder(directory).open()) {
+      WebhookDispatcher restarted =
+          WebhookDispatcher.builder(handler)
+              .on(WebhookPayload.EventType.PAYMENT_SUCCESS, p -> calls.add(p.getWebhookId()))
+              .journal(reopened)
+              .build();
+      assertEquals(2, restarted.recover());
+      assertEquals(List.of("w1", "w2"), calls);
+      assertEquals(0, reopened.getPendingCount());
+      restarted.shutdown();
+    } finally {
+      release.countDown();
+    }
+  }
+
+  @Test
+  void testDispatchJournalsBodyBytesAsReceived(@TempDir Path directory) throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    try (WebhookJournal journal = WebhookJournal.builder(directory).open()) {
+      dispatcher =
+          WebhookDispatcher.builder(handler)
+              .on(WebhookPayload.EventType.PAYMENT_SUCCESS, p -> release.await())
+              .journal(journal)
+              .build();
+      String body = payload("payment.success", "w1") + " \r\n";
+      byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+      assertAccepted(dispatcher.dispatch(bytes, SignatureUtil.sign(body, keyPair.getPrivate())));
+      List<byte[]> journaled = new ArrayList<>();
+      journal.replay(entry -> journaled.add(entry.getWebhook().getPayloadBytes()));
+      assertEquals(1, journaled.size());
+      assertArrayEquals(bytes, journaled.get(0));
+    } finally {
+      release.countDown();
+    }
+  }
+
+  @Test
+  void testRetriesFailedWebhooks() throws Exception {
+    WebhookRetryScheduler retries =
+        WebhookRetryScheduler.builder()
+            .baseDelay(Duration.ofMillis(10))
+            .tickDuration(Duration.ofMillis(1))
+            .build();
+    WebhookDeduplicator deduplicator = new WebhookDeduplicator(100, Duration.ofMinutes(5));
+    AtomicInteger calls = new AtomicInteger();
+    CountDownLatch succeeded = new CountDownLatch(1);
+    dispatcher =
+        WebhookDispatcher.builder(handler)
+            .on(
+                WebhookPayload.EventType.PAYMENT_SUCCESS,
+                p -> {
+                  if (calls.incrementAndGet() == 1) {
+                    throw new IllegalStateException("boom");
+                  }
+                  succeeded.countDown();
+                })
+            .deduplicator(deduplicator)
+            .retryScheduler(retries)
+            .build();
+
+    assertAccepted(dispatchSigned(payload("payment.success", "w1")));
+
+    assertTrue(succeeded.await(5, TimeUnit.SECONDS));
+    assertEquals(1, dispatcher.getFailed());
+    assertTrue(deduplicator.contains("w1"));
+    retries.shutdown();
+  }
+
+  @Test
+  void testVirtualThreadsModeProcessesWebhooks() throws Exception {
+    CountDownLatch processed = new CountDownLatch(2);
+    dispatcher =
+        WebhookDispatcher.builder(handler)
+            .on(WebhookPayload.EventType.PAYMENT_SUCCESS, p -> processed.countDown())
+            .virtualThreads(true)
+            .build();
+
+    // Falls back to worker threads before Java 21
+    assertAccepted(dispatchSigned(payload("payment.success", "w1")));
+    assertAccepted(dispatchSigned(payload("payment.success", "w2")));
+
+    assertTrue(processed.await(5, TimeUnit.SECONDS));
+    dispatcher.shutdown();
+    assertTrue(dispatcher.awaitTermination(Duration.ofSeconds(5)));
+    assertEquals(2, dispatcher.getProcessed());
+  }
+
+  @Test
+  void testBuilderValidation() {
+    assertThrows(IllegalArgumentException.class, () -> WebhookDispatcher.builder(null));
+    WebhookDispatcher.Builder builder = WebhookDispatcher.builder(handler);
+    assertThrows(IllegalArgumentException.class, () -> builder.workerThreads(0));
+    assertThrows(IllegalArgumentException.class, () -> builder.queueCapacity(0));
+    assertThrows(IllegalArgumentException.class, () -> builder.on(null, p -> {}));
+  }
+
+  @Test
+  void testSessionOrderedCannotBeCombinedWithRetries() {
+    SessionOrderedExecutor lanes = SessionOrderedExecutor.builder().lanes(2).build();
+    WebhookRetryScheduler retries = WebhookRetryScheduler.builder().build();
+    try {
+      WebhookDispatcher.Builder builder =
+          WebhookDispatcher.builder(handler).sessionOrdered(lanes).retryScheduler(retries);
+      assertThrows(IllegalStateException.class, builder::build);
+    } finally {
+      lanes.shutdown();
+      retries.shutdown();
+    }
+  }
+
+  private WebhookDispatcher.Ack dispatchSigned(String payload) throws Exception {
+    return dispatcher.dispatch(payload, SignatureUtil.sign(payload, keyPair.getPrivate()));
+  }
+
+  private static void assertAccepted(WebhookDispatcher.Ack ack) {
+    assertEquals(WebhookDispatcher.Ack.ACCEPTED, ack);
+  }
+
+  private static String payload(String eventType, String webhookId) {
+    return "{\"event_type\":\""
+        + eventType
+        + "\",\"webhook_id\":\""
+        + webhookId
+        + "\",\"timestamp\":\"2024-01-01T12:00:00\","
+        + "\"session_id\":\"550e8400-e29b-41d4-a716-446655440001\",\"payment_id\":12345,"
+        + "\"status\":\"success\",\"amount\":200.00,\"currency\":\"ETB\"}";
+  }
+
+  private static String sessionPayload(String sessionId, String eventType) {
+    return "{\"event_type\":\""
+        + eventType
+        + "\",\"webhook_id\":\""
+        + sessionId
+        + "-"
+        + eventType
+        + "\",\"session_id\":\""
+        + sessionId
+        + "\",\"status\":\"success\"}";
+  }
+}
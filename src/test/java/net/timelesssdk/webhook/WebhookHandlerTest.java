@@ -2,12 +2,33 @@ package net.timelesssdk.webhook;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyPair;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import net.timelesssdk.BatchResult;
 import net.timelesssdk.TestKeyPairGenerator;
+import net.timelesssdk.exception.DuplicateWebhookException;
 import net.timelesssdk.exception.SignatureException;
 import net.timelesssdk.exception.TimelessPayException;
+import net.timelesssdk.metrics.MetricsRecorder;
+import net.timelesssdk.metrics.Outcome;
+import net.timelesssdk.metrics.Phase;
 import net.timelesssdk.security.SignatureUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -110,4 +131,319 @@ class WebhookHandlerTest {
     String signature = SignatureUtil.sign(invalidJson, privateKey);
     assertThrows(TimelessPayException.class, () -> handler.verifyAndParse(invalidJson, signature));
   }
+
+  @Test
+  void testVerifyAndParseBytes() throws Exception {
+    String signature = SignatureUtil.sign(validWebhookPayload, privateKey);
+    byte[] body = validWebhookPayload.getBytes(StandardCharsets.UTF_8);
+
+    WebhookPayload payload = handler.verifyAndParse(body, signature);
+    assertEquals("payment.success", payload.getEventType());
+    assertEquals(12345L, payload.getPaymentId());
+    assertNotNull(handler.verifyAndParse(WebhookHandler.DEFAULT_KEY_ID, body, signature));
+
+    body[body.length - 3] = 'X';
+    assertThrows(TimelessPayException.class, () -> handler.verifyAndParse(body, signature));
+  }
+
+  @Test
+  void testVerifyAndParseBytesIgnoresServerCharset() throws Exception {
+    String json = validWebhookPayload.replace("John Doe", "Jos\u00e9");
+    String signature = SignatureUtil.sign(json, privateKey);
+    byte[] body = json.getBytes(StandardCharsets.UTF_8);
+
+    assertEquals("Jos\u00e9", handler.verifyAndParse(body, signature).getCustomerName());
+    // A body decoded with the servlet default charset no longer matches what was signed
+    String misdecoded = new String(body, StandardCharsets.ISO_8859_1);
+    assertThrows(TimelessPayException.class, () -> handler.verifyAndParse(misdecoded, signature));
+  }
+
+  @Test
+  void testVerifyAndParseByteBuffer() throws Exception {
+    String signature = SignatureUtil.sign(validWebhookPayload, privateKey);
+    byte[] body = validWebhookPayload.getBytes(StandardCharsets.UTF_8);
+
+    ByteBuffer heap = ByteBuffer.allocate(body.length + 8);
+    heap.position(4);
+    heap.put(body).flip().position(4);
+    ByteBuffer slice = heap.slice();
+    assertEquals("payment.success", handler.verifyAndParse(slice, signature).getEventType());
+    assertEquals(0, slice.position());
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(body.length);
+    direct.put(body).flip();
+    assertEquals("payment.success", handler.verifyAndParse(direct, signature).getEventType());
+    assertEquals(0, direct.position());
+  }
+
+  @Test
+  void testVerifyAndParseInputStream() throws Exception {
+    String signature = SignatureUtil.sign(validWebhookPayload, privateKey);
+    byte[] body = validWebhookPayload.getBytes(StandardCharsets.UTF_8);
+
+    WebhookPayload payload = handler.verifyAndParse(new ByteArrayInputStream(body), signature);
+    assertEquals("payment.success", payload.getEventType());
+
+    InputStream failing =
+        new InputStream() {
+          @Override
+          public int read() throws IOException {
+            throw new IOException("connection reset");
+          }
+        };
+    assertThrows(TimelessPayException.class, () -> handler.verifyAndParse(failing, signature));
+    assertEquals(1, handler.getMetrics().getOutcomeCount(Outcome.FAILURE));
+  }
+
+  @Test
+  void testVerifyAndParseStreamReadsTrailingBytesAndLeavesStreamOpen() throws Exception {
+    String body = validWebhookPayload + "\n\n";
+    String signature = SignatureUtil.sign(body, privateKey);
+    boolean[] closed = new boolean[1];
+    InputStream in =
+        new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)) {
+          @Override
+          public void close() {
+            closed[0] = true;
+          }
+        };
+
+    assertEquals("payment.success", handler.verifyAndParse(in, signature, 4096).getEventType());
+    assertEquals(0, in.available());
+    assertFalse(closed[0]);
+  }
+
+  @Test
+  void testVerifyAndParseStreamRejectsOversizedAndMalformedBodiesEarly() throws Exception {
+    String signature = SignatureUtil.sign(validWebhookPayload, privateKey);
+    InputStream endless =
+        new InputStream() {
+          private boolean started;
+
+          @Override
+          public int read() {
+            if (!started) {
+              started = true;
+              return '[';
+            }
+            return ' ';
+          }
+        };
+    TimelessPayException e =
+        assertThrows(
+            TimelessPayException.class, () -> handler.verifyAndParse(endless, signature, 1024));
+    assertTrue(e.getCause().getMessage().contains("1024 bytes"));
+
+    InputStream malformed = new ByteArrayInputStream("}".repeat(100_000).getBytes());
+    assertThrows(TimelessPayException.class, () -> handler.verifyAndParse(malformed, signature));
+    assertTrue(malformed.available() > 0);
+    assertEquals(0, handler.getMetrics().getHistogram(Phase.VERIFY).getCount());
+
+    // The engines the failed bodies went through were reset before they were reused
+    byte[] body = validWebhookPayload.getBytes(StandardCharsets.UTF_8);
+    assertNotNull(handler.verifyAndParse(new ByteArrayInputStream(body), signature, 1024));
+  }
+
+  @Test
+  void testVerifyAndParseAllPreservesOrderAndReportsFailures() throws SignatureException {
+    List<RawWebhook> webhooks = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      String payload = validWebhookPayload.replace("12345", String.valueOf(i));
+      String signature = SignatureUtil.sign(payload, privateKey);
+      if (i == 5) {
+        webhooks.add(new RawWebhook(payload.replace("200.00", "1.00"), signature));
+      } else if (i == 6) {
+        webhooks.add(new RawWebhook(payload, "invalid-signature"));
+      } else {
+        webhooks.add(new RawWebhook(payload, signature));
+      }
+    }
+
+    List<BatchResult<WebhookPayload>> results = handler.verifyAndParseAll(webhooks);
+
+    assertEquals(20, results.size());
+    for (int i = 0; i < 20; i++) {
+      BatchResult<WebhookPayload> result = results.get(i);
+      if (i == 5 || i == 6) {
+        assertFalse(result.isSuccess());
+        assertNotNull(result.getError());
+      } else {
+        assertTrue(result.isSuccess());
+        assertEquals(Long.valueOf(i), result.getValue().getPaymentId());
+      }
+    }
+  }
+
+  @Test
+  void testVerifyAndParseAllOnSuppliedExecutor() throws Exception {
+    String signature = SignatureUtil.sign(validWebhookPayload, privateKey);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      List<BatchResult<WebhookPayload>> results =
+          handler.verifyAndParseAll(
+              Arrays.asList(
+                  new RawWebhook(validWebhookPayload, signature),
+                  new RawWebhook("{invalid json}", signature)),
+              executor);
+
+      assertTrue(results.get(0).isSuccess());
+      assertFalse(results.get(1).isSuccess());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void testVerifyAndParseAllWithRejectingExecutor() throws Exception {
+    String signature = SignatureUtil.sign(validWebhookPayload, privateKey);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    executor.shutdown();
+
+    List<BatchResult<WebhookPayload>> results =
+        handler.verifyAndParseAll(
+            Collections.singletonList(new RawWebhook(validWebhookPayload, signature)), executor);
+
+    assertFalse(results.get(0).isSuccess());
+    assertInstanceOf(RejectedExecutionException.class, results.get(0).getError().getCause());
+  }
+
+  @Test
+  void testVerifyAndParseAllWithEmptyBatch() {
+    assertTrue(handler.verifyAndParseAll(new ArrayList<>()).isEmpty());
+  }
+
+  @Test
+  void testHandlerWithKeyRing() throws Exception {
+    KeyPair tenantKeyPair = TestKeyPairGenerator.generateKeyPair();
+    Map<String, PublicKey> keys = new HashMap<>();
+    keys.put("tenant-a", publicKey);
+    keys.put("tenant-b", tenantKeyPair.getPublic());
+    WebhookHandler ringHandler = new WebhookHandler(WebhookKeyRing.of(keys));
+    String signature = SignatureUtil.sign(validWebhookPayload, tenantKeyPair.getPrivate());
+
+    assertNotNull(ringHandler.verifyAndParse(validWebhookPayload, signature));
+    assertNotNull(ringHandler.verifyAndParse("tenant-b", validWebhookPayload, signature));
+    assertThrows(
+        TimelessPayException.class,
+        () -> ringHandler.verifyAndParse("tenant-a", validWebhookPayload, signature));
+  }
+
+  @Test
+  void testVerifyAndParseStreamFallsBackToOtherKeys() throws Exception {
+    KeyPair tenantKeyPair = TestKeyPairGenerator.generateKeyPair();
+    Map<String, PublicKey> keys = new LinkedHashMap<>();
+    keys.put("tenant-a", publicKey);
+    keys.put("tenant-b", tenantKeyPair.getPublic());
+    WebhookKeyRing keyRing = WebhookKeyRing.of(keys);
+    WebhookHandler ringHandler = new WebhookHandler(keyRing);
+    String signature = SignatureUtil.sign(validWebhookPayload, tenantKeyPair.getPrivate());
+    byte[] body = validWebhookPayload.getBytes(StandardCharsets.UTF_8);
+
+    // Streamed through tenant-a first, then verified with tenant-b from the copy
+    assertEquals(publicKey, keyRing.preferredVerifier().getPublicKey());
+    assertNotNull(ringHandler.verifyAndParse(new ByteArrayInputStream(body), signature, 4096));
+    assertEquals(tenantKeyPair.getPublic(), keyRing.preferredVerifier().getPublicKey());
+    assertNotNull(ringHandler.verifyAndParse(new ByteArrayInputStream(body), signature, 4096));
+
+    String otherSignature =
+        SignatureUtil.sign(
+            validWebhookPayload, TestKeyPairGenerator.generateKeyPair().getPrivate());
+    assertThrows(
+        TimelessPayException.class,
+        () -> ringHandler.verifyAndParse(new ByteArrayInputStream(body), otherSignature, 4096));
+  }
+
+  @Test
+  void testVerifyAndParseBufferAndStreamAgainstOneKey() throws Exception {
+    KeyPair tenantKeyPair = TestKeyPairGenerator.generateKeyPair();
+    Map<String, PublicKey> keys = new HashMap<>();
+    keys.put("tenant-a", publicKey);
+    keys.put("tenant-b", tenantKeyPair.getPublic());
+    WebhookHandler ringHandler = new WebhookHandler(WebhookKeyRing.of(keys));
+    String signature = SignatureUtil.sign(validWebhookPayload, tenantKeyPair.getPrivate());
+    byte[] body = validWebhookPayload.getBytes(StandardCharsets.UTF_8);
+
+    assertNotNull(ringHandler.verifyAndParse("tenant-b", ByteBuffer.wrap(body), signature));
+    assertNotNull(
+        ringHandler.verifyAndParse("tenant-b", new ByteArrayInputStream(body), signature, 4096));
+    assertThrows(
+        TimelessPayException.class,
+        () -> ringHandler.verifyAndParse("tenant-a", ByteBuffer.wrap(body), signature));
+    assertThrows(
+        TimelessPayException.class,
+        () -> ringHandler.verifyAndParse("tenant-a", new ByteArrayInputStream(body), signature));
+    assertThrows(
+        SignatureException.class,
+        () -> ringHandler.verifyAndParse("tenant-c", new ByteArrayInputStream(body), signature));
+  }
+
+  @Test
+  void testRotateKeyOfSingleKeyHandler() throws Exception {
+    KeyPair rotatedKeyPair = TestKeyPairGenerator.generateKeyPair();
+    String signature = SignatureUtil.sign(validWebhookPayload, rotatedKeyPair.getPrivate());
+    assertFalse(handler.verifySignature(validWebhookPayload, signature));
+
+    handler
+        .getKeyRing()
+        .update(
+            Collections.singletonMap(WebhookHandler.DEFAULT_KEY_ID, rotatedKeyPair.getPublic()));
+
+    assertTrue(handler.verifySignature(validWebhookPayload, signature));
+  }
+
+  @Test
+  void testMetricsRecordVerifyParseAndOutcomes() throws Exception {
+    String signature = SignatureUtil.sign(validWebhookPayload, privateKey);
+
+    handler.verifyAndParse(validWebhookPayload, signature);
+    assertThrows(
+        TimelessPayException.class,
+        () -> handler.verifyAndParse(validWebhookPayload.replace("200.00", "1.00"), signature));
+    assertThrows(
+        TimelessPayException.class,
+        () -> handler.verifyAndParse(validWebhookPayload, "invalid-signature"));
+
+    MetricsRecorder metrics = handler.getMetrics();
+    assertEquals(3, metrics.getHistogram(Phase.VERIFY).getCount());
+    assertEquals(1, metrics.getHistogram(Phase.PARSE).getCount());
+    assertEquals(1, metrics.getOutcomeCount(Outcome.SUCCESS));
+    assertEquals(2, metrics.getOutcomeCount(Outcome.FAILURE));
+  }
+
+  @Test
+  void testDeduplicatorRejectsRedelivery() throws Exception {
+    WebhookDeduplicator deduplicator = new WebhookDeduplicator(100, Duration.ofMinutes(5));
+    WebhookHandler dedupHandler =
+        new WebhookHandler(
+            WebhookKeyRing.of(Collections.singletonMap("tenant", publicKey)), deduplicator);
+    String signature = SignatureUtil.sign(validWebhookPayload, privateKey);
+
+    assertNotNull(dedupHandler.verifyAndParse(validWebhookPayload, signature));
+    DuplicateWebhookException e =
+        assertThrows(
+            DuplicateWebhookException.class,
+            () -> dedupHandler.verifyAndParse(validWebhookPayload, signature));
+
+    assertEquals("550e8400-e29b-41d4-a716-446655440000", e.getWebhookId());
+    assertSame(deduplicator, dedupHandler.getDeduplicator());
+    assertEquals(1, dedupHandler.getMetrics().getOutcomeCount(Outcome.REJECTED));
+
+    deduplicator.forget(e.getWebhookId());
+    assertNotNull(dedupHandler.verifyAndParse(validWebhookPayload, signature));
+  }
+
+  @Test
+  void testInvalidWebhookIsNotRecordedAsSeen() throws Exception {
+    WebhookDeduplicator deduplicator = new WebhookDeduplicator(100, Duration.ofMinutes(5));
+    WebhookHandler dedupHandler =
+        new WebhookHandler(
+            WebhookKeyRing.of(Collections.singletonMap("tenant", publicKey)), deduplicator);
+
+    assertThrows(
+        TimelessPayException.class,
+        () -> dedupHandler.verifyAndParse(validWebhookPayload, "invalid-signature"));
+
+    assertFalse(deduplicator.contains("550e8400-e29b-41d4-a716-446655440000"));
+    assertNull(handler.getDeduplicator());
+  }
 }
@@ -0,0 +1,192 @@
+package net.timelesssdk.webhook;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import net.timelesssdk.exception.TimelessPayException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WebhookJournalTest {
+  @TempDir Path directory;
+
+  @Test
+  void testReplaysUnprocessedEntriesAfterReopen() throws Exception {
+    try (WebhookJournal journal = open(WebhookJournal.FsyncPolicy.NONE)) {
+      long first = journal.append("{\"webhook_id\":\"w1\"}", "sig1");
+      journal.append("{\"webhook_id\":\"w2\"}", "sig2");
+      journal.append("{\"webhook_id\":\"w3\"}", null);
+      journal.markProcessed(first);
+      assertEquals(2, journal.getPendingCount());
+    }
+
+    try (WebhookJournal journal = open(WebhookJournal.FsyncPolicy.NONE)) {
+      List<WebhookJournal.Entry> entries = new ArrayList<>();
+      assertEquals(2, journal.replay(entries::add));
+
+      assertEquals("{\"webhook_id\":\"w2\"}", entries.get(0).getWebhook().getPayloadJson());
+      assertEquals("sig2", entries.get(0).getWebhook().getSignature());
+      assertEquals("{\"webhook_id\":\"w3\"}", entries.get(1).getWebhook().getPayloadJson());
+      assertNull(entries.get(1).getWebhook().getSignature());
+      assertTrue(entries.get(0).getOffset() < entries.get(1).getOffset());
+    }
+  }
+
+  @Test
+  void testReplaysAppendedBytesUnchanged() throws Exception {
+    // Not valid UTF-8, so a String round trip would replace the last byte
+    byte[] body = {'{', '}', ' ', (byte) 0xFF};
+    try (WebhookJournal journal = open(WebhookJournal.FsyncPolicy.NONE)) {
+      journal.append(body, "sig");
+    }
+
+    try (WebhookJournal journal = open(WebhookJournal.FsyncPolicy.NONE)) {
+      List<WebhookJournal.Entry> entries = new ArrayList<>();
+      assertEquals(1, journal.replay(entries::add));
+      assertArrayEquals(body, entries.get(0).getWebhook().getPayloadBytes());
+      assertEquals("sig", entries.get(0).getWebhook().getSignature());
+    }
+  }
+
+  @Test
+  void testCheckpointWaitsForOldestUnprocessedEntry() throws Exception {
+    try (WebhookJournal journal = open(WebhookJournal.FsyncPolicy.NONE)) {
+      long first = journal.append("{}", "a");
+      long second = journal.append("{}", "b");
+      long checkpoint = journal.getCheckpoint();
+
+      journal.markProcessed(second);
+      assertEquals(checkpoint, journal.getCheckpoint());
+
+      journal.markProcessed(first);
+      assertTrue(journal.getCheckpoint() > second);
+      assertEquals(0, journal.getPendingCount());
+      assertEquals(0, journal.replay(entry -> fail("nothing to replay")));
+    }
+  }
+
+  @Test
+  void testDiscardsTornEntryOnRecovery() throws Exception {
+    long torn;
+    try (WebhookJournal journal = open(WebhookJournal.FsyncPolicy.NONE)) {
+      journal.append("{\"webhook_id\":\"w1\"}", "sig1");
+      torn = journal.append("{\"webhook_id\":\"w2\"}", "sig2");
+    }
+    // Corrupt the last entry's payload, as if the process died while writing it
+    try (RandomAccessFile file = new RandomAccessFile(segmentFiles().get(0).toFile(), "rw")) {
+      file.seek(torn + 14);
+      file.write('X');
+    }
+
+    try (WebhookJournal journal = open(WebhookJournal.FsyncPolicy.NONE)) {
+      List<WebhookJournal.Entry> entries = new ArrayList<>();
+      journal.replay(entries::add);
+      assertEquals(1, entries.size());
+      assertEquals("sig1", entries.get(0).getWebhook().getSignature());
+
+      // The torn entry's space is reused
+      assertEquals(torn, journal.append("{\"webhook_id\":\"w3\"}", "sig3"));
+    }
+  }
+
+  @Test
+  void testRollsAndDeletesProcessedSegments() throws Exception {
+    String payload = "{\"padding\":\"" + "x".repeat(1000) + "\"}";
+    try (WebhookJournal journal =
+        WebhookJournal.builder(directory)
+            .segmentBytes(4096)
+            .fsyncPolicy(WebhookJournal.FsyncPolicy.NONE)
+            .open()) {
+      List<Long> offsets = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        offsets.add(journal.append(payload, "sig"));
+      }
+      assertTrue(journal.getSegmentCount() >= 3);
+
+      for (long offset : offsets) {
+        journal.markProcessed(offset);
+      }
+      assertEquals(1, journal.getSegmentCount());
+      assertEquals(1, segmentFiles().size());
+    }
+  }
+
+  @Test
+  void testRejectsEntryLargerThanSegment() throws Exception {
+    try (WebhookJournal journal = WebhookJournal.builder(directory).segmentBytes(4096).open()) {
+      assertThrows(TimelessPayException.class, () -> journal.append("x".repeat(5000), "sig"));
+    }
+  }
+
+  @Test
+  void testGroupCommitSharesSyncs() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try (WebhookJournal journal =
+        WebhookJournal.builder(directory)
+            .fsyncPolicy(WebhookJournal.FsyncPolicy.GROUP_COMMIT)
+            .groupCommitWindow(Duration.ofMillis(1))
+            .open()) {
+      List<Future<Long>> appends = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        appends.add(executor.submit(() -> journal.append("{}", "sig")));
+      }
+      for (Future<Long> append : appends) {
+        append.get();
+      }
+      assertEquals(200, journal.getPendingCount());
+      assertTrue(journal.getSyncCount() > 0);
+      assertTrue(journal.getSyncCount() < 200);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void testEveryAppendSyncsEachEntry() throws Exception {
+    try (WebhookJournal journal = open(WebhookJournal.FsyncPolicy.EVERY_APPEND)) {
+      journal.append("{}", "a");
+      journal.append("{}", "b");
+      assertEquals(2, journal.getSyncCount());
+    }
+  }
+
+  @Test
+  void testAppendAfterCloseFails() throws Exception {
+    WebhookJournal journal = open(WebhookJournal.FsyncPolicy.NONE);
+    journal.close();
+    assertThrows(TimelessPayException.class, () -> journal.append("{}", "sig"));
+  }
+
+  @Test
+  void testBuilderValidation() {
+    assertThrows(IllegalArgumentException.class, () -> WebhookJournal.builder(null));
+    WebhookJournal.Builder builder = WebhookJournal.builder(directory);
+    assertThrows(IllegalArgumentException.class, () -> builder.segmentBytes(1024));
+    assertThrows(IllegalArgumentException.class, () -> builder.fsyncPolicy(null));
+    assertThrows(IllegalArgumentException.class, () -> builder.groupCommitWindow(null));
+  }
+
+  private WebhookJournal open(WebhookJournal.FsyncPolicy fsyncPolicy) throws Exception {
+    return WebhookJournal.builder(directory)
+        .segmentBytes(64 * 1024)
+        .fsyncPolicy(fsyncPolicy)
+        .open();
+  }
+
+  private List<Path> segmentFiles() throws Exception {
+    List<Path> files = new ArrayList<>();
+    try (Stream<Path> list = Files.list(directory)) {
+      list.filter(path -> path.getFileName().toString().endsWith(".journal")).forEach(files::add);
+    }
+    return files;
+  }
+}
@@ -0,0 +1,163 @@
+package net.timelesssdk.webhook;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import net.timelesssdk.TestKeyPairGenerator;
+import net.timelesssdk.exception.SignatureException;
+import net.timelesssdk.exception.TimelessPayException;
+import net.timelesssdk.security.SignatureUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WebhookKeyRingTest {
+  @TempDir Path tempDir;
+
+  private KeyPair oldKeyPair;
+  private KeyPair newKeyPair;
+  private String testPayload;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    oldKeyPair = TestKeyPairGenerator.generateKeyPair();
+    newKeyPair = TestKeyPairGenerator.generateKeyPair();
+    testPayload = "{\"status\":\"success\"}";
+  }
+
+  @Test
+  void testVerifyAgainstAnyKey() throws Exception {
+    Map<String, PublicKey> keys = new LinkedHashMap<>();
+    keys.put("old", oldKeyPair.getPublic());
+    keys.put("new", newKeyPair.getPublic());
+    WebhookKeyRing keyRing = WebhookKeyRing.of(keys);
+
+    assertTrue(keyRing.verify(testPayload, sign(oldKeyPair)));
+    assertTrue(keyRing.verify(testPayload, sign(newKeyPair)));
+    assertTrue(keyRing.verify(testPayload, sign(oldKeyPair)));
+    assertFalse(keyRing.verify("{\"status\":\"failed\"}", sign(newKeyPair)));
+  }
+
+  @Test
+  void testVerifyWithKeyId() throws Exception {
+    Map<String, PublicKey> keys = new HashMap<>();
+    keys.put("tenant-a", oldKeyPair.getPublic());
+    keys.put("tenant-b", newKeyPair.getPublic());
+    WebhookKeyRing keyRing = WebhookKeyRing.of(keys);
+
+    assertTrue(keyRing.verify("tenant-a", testPayload, sign(oldKeyPair)));
+    assertFalse(keyRing.verify("tenant-b", testPayload, sign(oldKeyPair)));
+    assertThrows(
+        SignatureException.class, () -> keyRing.verify("tenant-c", testPayload, sign(oldKeyPair)));
+  }
+
+  @Test
+  void testVerifyByteRange() throws Exception {
+    Map<String, PublicKey> keys = new LinkedHashMap<>();
+    keys.put("old", oldKeyPair.getPublic());
+    keys.put("new", newKeyPair.getPublic());
+    WebhookKeyRing keyRing = WebhookKeyRing.of(keys);
+    byte[] framed = ("--" + testPayload + "--").getBytes(StandardCharsets.UTF_8);
+    int length = framed.length - 4;
+
+    assertTrue(keyRing.verify(framed, 2, length, sign(newKeyPair)));
+    assertTrue(keyRing.verify("new", framed, 2, length, sign(newKeyPair)));
+    assertFalse(keyRing.verify("old", framed, 2, length, sign(newKeyPair)));
+    assertFalse(keyRing.verify(framed, 0, framed.length, sign(newKeyPair)));
+  }
+
+  @Test
+  void testMalformedSignatureThrows() {
+    WebhookKeyRing keyRing = WebhookKeyRing.of(Map.of("old", oldKeyPair.getPublic()));
+
+    assertThrows(SignatureException.class, () -> keyRing.verify(testPayload, "invalid-signature"));
+  }
+
+  @Test
+  void testEmptyRingThrows() {
+    WebhookKeyRing keyRing = WebhookKeyRing.of(new HashMap<>());
+
+    assertTrue(keyRing.getKeyIds().isEmpty());
+    assertThrows(SignatureException.class, () -> keyRing.verify(testPayload, sign(oldKeyPair)));
+  }
+
+  @Test
+  void testUpdateRotatesKeys() throws Exception {
+    WebhookKeyRing keyRing = WebhookKeyRing.of(Map.of("current", oldKeyPair.getPublic()));
+    String oldSignature = sign(oldKeyPair);
+    assertTrue(keyRing.verify(testPayload, oldSignature));
+
+    keyRing.update(Map.of("current", newKeyPair.getPublic()));
+
+    assertFalse(keyRing.verify(testPayload, oldSignature));
+    assertTrue(keyRing.verify(testPayload, sign(newKeyPair)));
+  }
+
+  @Test
+  void testReloadFromSupplierKeepsKeysOnFailure() throws Exception {
+    AtomicReference<Map<String, PublicKey>> source =
+        new AtomicReference<>(Map.of("current", oldKeyPair.getPublic()));
+    WebhookKeyRing keyRing =
+        new WebhookKeyRing(
+            () -> {
+              Map<String, PublicKey> keys = source.get();
+              if (keys == null) {
+                throw new IllegalStateException("Key service unavailable");
+              }
+              return keys;
+            });
+
+    source.set(null);
+    assertThrows(TimelessPayException.class, keyRing::reload);
+    assertTrue(keyRing.verify(testPayload, sign(oldKeyPair)));
+
+    source.set(Map.of("next", newKeyPair.getPublic()));
+    keyRing.reload();
+    assertEquals(Set.of("next"), keyRing.getKeyIds());
+    assertTrue(keyRing.verify(testPayload, sign(newKeyPair)));
+  }
+
+  @Test
+  void testFromFile() throws Exception {
+    Path file = tempDir.resolve("webhook-keys.properties");
+    String oldKey = TestKeyPairGenerator.publicKeyToBase64(oldKeyPair.getPublic());
+    writeKeyFile(file, "tenant-a=" + oldKey);
+    WebhookKeyRing keyRing = WebhookKeyRing.fromFile(file);
+    assertTrue(keyRing.verify("tenant-a", testPayload, sign(oldKeyPair)));
+
+    writeKeyFile(
+        file,
+        "tenant-a=" + oldKey,
+        "tenant-b=" + TestKeyPairGenerator.publicKeyToBase64(newKeyPair.getPublic()));
+    keyRing.reload();
+    assertTrue(keyRing.verify("tenant-b", testPayload, sign(newKeyPair)));
+
+    writeKeyFile(file, "tenant-a=invalid-key");
+    assertThrows(TimelessPayException.class, keyRing::reload);
+    assertEquals(2, keyRing.getKeyIds().size());
+  }
+
+  @Test
+  void testFromMissingFileThrows() {
+    assertThrows(
+        TimelessPayException.class, () -> WebhookKeyRing.fromFile(tempDir.resolve("missing")));
+  }
+
+  private String sign(KeyPair keyPair) throws SignatureException {
+    return SignatureUtil.sign(testPayload, keyPair.getPrivate());
+  }
+
+  private static void writeKeyFile(Path file, String... lines) throws Exception {
+    Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+  }
+}
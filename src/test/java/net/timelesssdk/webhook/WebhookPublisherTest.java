@@ -0,0 +1,359 @@
+package net.timelesssdk.webhook;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import net.timelesssdk.TestKeyPairGenerator;
+import net.timelesssdk.exception.TimelessPayException;
+import net.timelesssdk.security.SignatureUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WebhookPublisherTest {
+  private KeyPair keyPair;
+  private WebhookHandler handler;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    keyPair = TestKeyPairGenerator.generateKeyPair();
+    handler = new WebhookHandler(keyPair.getPublic());
+  }
+
+  @Test
+  void testDeliversOnlyRequestedWebhooks() throws Exception {
+    WebhookPublisher publisher = WebhookPublisher.builder(handler).build();
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    publisher.subscribe(subscriber);
+    subscriber.awaitSubscription();
+
+    for (int i = 1; i <= 3; i++) {
+      assertEquals(WebhookDispatcher.Ack.ACCEPTED, offer(publisher, "w" + i));
+    }
+    subscriber.request(2);
+    subscriber.awaitReceived(2);
+    Thread.sleep(50);
+    assertEquals(List.of("w1", "w2"), subscriber.ids);
+
+    subscriber.request(1);
+    subscriber.awaitReceived(3);
+    assertEquals(List.of("w1", "w2", "w3"), subscriber.ids);
+    assertEquals(3, publisher.getPublished());
+  }
+
+  @Test
+  void testRejectsInvalidSignature() throws Exception {
+    WebhookPublisher publisher = WebhookPublisher.builder(handler).build();
+    String payload = payload("w1");
+    KeyPair otherKeys = TestKeyPairGenerator.generateKeyPair();
+
+    assertEquals(
+        WebhookDispatcher.Ack.INVALID,
+        publisher.offer(payload, SignatureUtil.sign(payload, otherKeys.getPrivate())));
+  }
+
+  @Test
+  void testDropPolicyRejectsWhenBufferIsFull() throws Exception {
+    WebhookDeduplicator deduplicator = new WebhookDeduplicator(100, Duration.ofMinutes(5));
+    WebhookHandler dedupHandler =
+        new WebhookHandler(
+            WebhookKeyRing.of(Collections.singletonMap("tenant", keyPair.getPublic())),
+            deduplicator);
+    WebhookPublisher publisher = WebhookPublisher.builder(dedupHandler).bufferCapacity(2).build();
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    publisher.subscribe(subscriber);
+    subscriber.awaitSubscription();
+
+    assertEquals(WebhookDispatcher.Ack.ACCEPTED, offer(publisher, "w1"));
+    assertEquals(WebhookDispatcher.Ack.ACCEPTED, offer(publisher, "w2"));
+    assertEquals(WebhookDispatcher.Ack.REJECTED, offer(publisher, "w3"));
+    assertEquals(1, publisher.getDropped());
+    // The redelivery of a rejected webhook is not a duplicate
+    assertFalse(deduplicator.contains("w3"));
+  }
+
+  @Test
+  void testDropPolicyDeliversToNoSubscriberWhenOneIsFull() throws Exception {
+    WebhookPublisher publisher = WebhookPublisher.builder(handler).bufferCapacity(1).build();
+    RecordingSubscriber slow = new RecordingSubscriber();
+    RecordingSubscriber fast = new RecordingSubscriber();
+    publisher.subscribe(slow);
+    publisher.subscribe(fast);
+    slow.awaitSubscription();
+    fast.awaitSubscription();
+    fast.request(Long.MAX_VALUE);
+
+    assertEquals(WebhookDispatcher.Ack.ACCEPTED, offer(publisher, "w1"));
+    fast.awaitReceived(1);
+    assertEquals(WebhookDispatcher.Ack.REJECTED, offer(publisher, "w2"));
+
+    // The redelivery of w2 is the only copy either subscriber gets
+    slow.request(1);
+    slow.awaitReceived(1);
+    assertEquals(WebhookDispatcher.Ack.ACCEPTED, offer(publisher, "w2"));
+    fast.awaitReceived(2);
+    assertEquals(List.of("w1", "w2"), fast.ids);
+  }
+
+  @Test
+  void testRejectsWithoutSubscribers() throws Exception {
+    WebhookPublisher publisher = WebhookPublisher.builder(handler).build();
+    assertEquals(WebhookDispatcher.Ack.REJECTED, offer(publisher, "w1"));
+  }
+
+  @Test
+  void testFailPolicyFailsSlowSubscriber() throws Exception {
+    WebhookPublisher publisher =
+        WebhookPublisher.builder(handler)
+            .bufferCapacity(1)
+            .overflowPolicy(WebhookPublisher.OverflowPolicy.FAIL)
+            .build();
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    publisher.subscribe(subscriber);
+    subscriber.awaitSubscription();
+
+    assertEquals(WebhookDispatcher.Ack.ACCEPTED, offer(publisher, "w1"));
+    assertEquals(WebhookDispatcher.Ack.REJECTED, offer(publisher, "w2"));
+
+    assertTrue(subscriber.terminated.await(5, TimeUnit.SECONDS));
+    assertTrue(subscriber.error instanceof TimelessPayException);
+    assertEquals(0, publisher.getSubscriberCount());
+  }
+
+  @Test
+  void testSpillPolicyDeliversSpilledWebhooksInOrder(@TempDir Path directory) throws Exception {
+    try (WebhookJournal journal = WebhookJournal.builder(directory).open()) {
+      WebhookPublisher publisher =
+          WebhookPublisher.builder(handler)
+              .bufferCapacity(2)
+              .overflowPolicy(WebhookPublisher.OverflowPolicy.SPILL)
+              .spillJournal(journal)
+              .build();
+      // Spilled while there is no subscriber
+      assertEquals(WebhookDispatcher.Ack.ACCEPTED, offer(publisher, "w1"));
+
+      RecordingSubscriber subscriber = new RecordingSubscriber();
+      publisher.subscribe(subscriber);
+      subscriber.awaitSubscription();
+      for (int i = 2; i <= 5; i++) {
+        assertEquals(WebhookDispatcher.Ack.ACCEPTED, offer(publisher, "w" + i));
+      }
+      assertTrue(publisher.getSpilled() >= 3);
+
+      subscriber.request(Long.MAX_VALUE);
+      subscriber.awaitReceived(5);
+      assertEquals(List.of("w1", "w2", "w3", "w4", "w5"), subscriber.ids);
+      assertEquals(0, journal.getPendingCount());
+    }
+  }
+
+  @Test
+  void testSpilledWebhooksReachSubscriberAfterRestart(@TempDir Path directory) throws Exception {
+    try (WebhookJournal journal = WebhookJournal.builder(directory).open()) {
+      WebhookPublisher publisher =
+          WebhookPublisher.builder(handler)
+              .overflowPolicy(WebhookPublisher.OverflowPolicy.SPILL)
+              .spillJournal(journal)
+              .build();
+      assertEquals(WebhookDispatcher.Ack.ACCEPTED, offer(publisher, "w1"));
+      assertEquals(WebhookDispatcher.Ack.ACCEPTED, offer(publisher, "w2"));
+    }
+
+    try (WebhookJournal reopened = WebhookJournal.builder(directory).open()) {
+      WebhookPublisher restarted =
+          WebhookPublisher.builder(handler)
+              .overflowPolicy(WebhookPublisher.OverflowPolicy.SPILL)
+              .spillJournal(reopened)
+              .build();
+      RecordingSubscriber subscriber = new RecordingSubscriber();
+      restarted.subscribe(subscriber);
+      subscriber.awaitSubscription();
+
+      // No offer after the restart: subscribing and requesting is enough
+      subscriber.request(Long.MAX_VALUE);
+      subscriber.awaitReceived(2);
+      assertEquals(List.of("w1", "w2"), subscriber.ids);
+      assertEquals(0, reopened.getPendingCount());
+    }
+  }
+
+  @Test
+  void testSpillsBodyBytesAsReceived(@TempDir Path directory) throws Exception {
+    try (WebhookJournal journal = WebhookJournal.builder(directory).open()) {
+      WebhookPublisher publisher =
+          WebhookPublisher.builder(handler)
+              .overflowPolicy(WebhookPublisher.OverflowPolicy.SPILL)
+              .spillJournal(journal)
+              .build();
+      String body = payload("w1") + " \r\n";
+      byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+      String signature = SignatureUtil.sign(body, keyPair.getPrivate());
+
+      assertEquals(WebhookDispatcher.Ack.ACCEPTED, publisher.offer(bytes, signature));
+      assertEquals(WebhookDispatcher.Ack.INVALID, publisher.offer("unknown", bytes, signature));
+      String keyed = payload("w2");
+      assertEquals(
+          WebhookDispatcher.Ack.ACCEPTED,
+          publisher.offer(
+              WebhookHandler.DEFAULT_KEY_ID,
+              keyed.getBytes(StandardCharsets.UTF_8),
+              SignatureUtil.sign(keyed, keyPair.getPrivate())));
+      List<byte[]> spilled = new ArrayList<>();
+      journal.replay(entry -> spilled.add(entry.getWebhook().getPayloadBytes()));
+      assertEquals(2, spilled.size());
+      assertArrayEquals(bytes, spilled.get(0));
+    }
+  }
+
+  @Test
+  void testSpillSyncsDoNotHoldUpOtherWebhooks(@TempDir Path directory) throws Exception {
+    try (WebhookJournal journal =
+        WebhookJournal.builder(directory)
+            .fsyncPolicy(WebhookJournal.FsyncPolicy.GROUP_COMMIT)
+            .groupCommitWindow(Duration.ofMillis(200))
+            .open()) {
+      WebhookPublisher publisher =
+          WebhookPublisher.builder(handler)
+              .overflowPolicy(WebhookPublisher.OverflowPolicy.SPILL)
+              .spillJournal(journal)
+              .build();
+      CountDownLatch start = new CountDownLatch(1);
+      ExecutorService offers = Executors.newFixedThreadPool(2);
+      try {
+        List<Future<WebhookDispatcher.Ack>> acks = new ArrayList<>();
+        for (String id : List.of("w1", "w2")) {
+          acks.add(
+              offers.submit(
+                  () -> {
+                    start.await();
+                    return offer(publisher, id);
+                  }));
+        }
+        start.countDown();
+        for (Future<WebhookDispatcher.Ack> ack : acks) {
+          assertEquals(WebhookDispatcher.Ack.ACCEPTED, ack.get(5, TimeUnit.SECONDS));
+        }
+      } finally {
+        offers.shutdownNow();
+      }
+
+      // Both spills waited for the same fsync instead of taking turns under the publisher's lock
+      assertEquals(2, journal.getPendingCount());
+      assertEquals(1, journal.getSyncCount());
+    }
+  }
+
+  @Test
+  void testCloseCompletesSubscribersAfterBufferedWebhooks() throws Exception {
+    WebhookPublisher publisher = WebhookPublisher.builder(handler).build();
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    publisher.subscribe(subscriber);
+    subscriber.awaitSubscription();
+    offer(publisher, "w1");
+
+    publisher.close();
+    assertEquals(WebhookDispatcher.Ack.REJECTED, offer(publisher, "w2"));
+    assertEquals(1, subscriber.terminated.getCount());
+
+    subscriber.request(1);
+    assertTrue(subscriber.terminated.await(5, TimeUnit.SECONDS));
+    assertEquals(List.of("w1"), subscriber.ids);
+    assertNull(subscriber.error);
+  }
+
+  @Test
+  void testNonPositiveRequestFailsSubscriber() throws Exception {
+    WebhookPublisher publisher = WebhookPublisher.builder(handler).build();
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    publisher.subscribe(subscriber);
+    subscriber.awaitSubscription();
+
+    subscriber.request(0);
+
+    assertTrue(subscriber.terminated.await(5, TimeUnit.SECONDS));
+    assertTrue(subscriber.error instanceof IllegalArgumentException);
+  }
+
+  @Test
+  void testBuilderValidation() {
+    assertThrows(IllegalArgumentException.class, () -> WebhookPublisher.builder(null));
+    WebhookPublisher.Builder builder = WebhookPublisher.builder(handler);
+    assertThrows(IllegalArgumentException.class, () -> builder.bufferCapacity(0));
+    assertThrows(IllegalArgumentException.class, () -> builder.overflowPolicy(null));
+    assertThrows(IllegalArgumentException.class, () -> builder.executor(null));
+    assertThrows(
+        IllegalStateException.class,
+        () -> builder.overflowPolicy(WebhookPublisher.OverflowPolicy.SPILL).build());
+  }
+
+  private WebhookDispatcher.Ack offer(WebhookPublisher publisher, String webhookId)
+      throws Exception {
+    String payload = payload(webhookId);
+    return publisher.offer(payload, SignatureUtil.sign(payload, keyPair.getPrivate()));
+  }
+
+  private static String payload(String webhookId) {
+    return "{\"event_type\":\"payment.success\",\"webhook_id\":\""
+        + webhookId
+        + "\",\"status\":\"success\"}";
+  }
+
+  private static final class RecordingSubscriber implements Flow.Subscriber<WebhookPayload> {
+    final List<String> ids = new CopyOnWriteArrayList<>();
+    final CountDownLatch subscribed = new CountDownLatch(1);
+    final CountDownLatch terminated = new CountDownLatch(1);
+    volatile Flow.Subscription subscription;
+    volatile Throwable error;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+      subscribed.countDown();
+    }
+
+    @Override
+    public void onNext(WebhookPayload item) {
+      ids.add(item.getWebhookId());
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+      terminated.countDown();
+    }
+
+    @Override
+    public void onComplete() {
+      terminated.countDown();
+    }
+
+    void awaitSubscription() throws InterruptedException {
+      assertTrue(subscribed.await(5, TimeUnit.SECONDS));
+    }
+
+    void request(long n) {
+      subscription.request(n);
+    }
+
+    void awaitReceived(int count) throws InterruptedException {
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (ids.size() < count && System.nanoTime() < deadline) {
+        Thread.sleep(5);
+      }
+      assertEquals(count, ids.size());
+    }
+  }
+}
@@ -0,0 +1,200 @@
+package net.timelesssdk.webhook;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class WebhookRetrySchedulerTest {
+  private WebhookRetryScheduler scheduler;
+
+  @AfterEach
+  void tearDown() throws Exception {
+    if (scheduler != null) {
+      scheduler.shutdown();
+      scheduler.awaitTermination(Duration.ofSeconds(5));
+    }
+  }
+
+  @Test
+  void testRetriesUntilProcessorSucceeds() throws Exception {
+    scheduler = fastScheduler(5).build();
+    CountDownLatch succeeded = new CountDownLatch(1);
+    AtomicInteger calls = new AtomicInteger();
+    WebhookProcessor processor =
+        p -> {
+          if (calls.incrementAndGet() < 3) {
+            throw new IllegalStateException("downstream unavailable");
+          }
+          succeeded.countDown();
+        };
+
+    assertTrue(scheduler.schedule(payload("w1"), processor, new IllegalStateException("first")));
+
+    assertTrue(succeeded.await(5, TimeUnit.SECONDS));
+    assertEquals(3, calls.get());
+    awaitPending(0);
+    assertEquals(1, scheduler.getSucceeded());
+    assertEquals(0, scheduler.getDeadLettered());
+  }
+
+  @Test
+  void testDelaysGrowExponentially() throws Exception {
+    scheduler =
+        WebhookRetryScheduler.builder()
+            .maxAttempts(4)
+            .baseDelay(Duration.ofMillis(50))
+            .maxDelay(Duration.ofSeconds(1))
+            .tickDuration(Duration.ofMillis(5))
+            .build();
+    List<Long> times = new CopyOnWriteArrayList<>();
+    long start = System.nanoTime();
+    scheduler.schedule(
+        payload("w1"),
+        p -> {
+          times.add(System.nanoTime() - start);
+          throw new IllegalStateException("boom");
+        },
+        new IllegalStateException("first"));
+
+    awaitPending(0);
+    assertEquals(3, times.size());
+    // Retries after 50, 100 and 200 ms: at 50, 150 and 350 ms
+    assertTrue(times.get(0) >= TimeUnit.MILLISECONDS.toNanos(50));
+    assertTrue(times.get(1) - times.get(0) >= TimeUnit.MILLISECONDS.toNanos(100));
+    assertTrue(times.get(2) - times.get(1) >= TimeUnit.MILLISECONDS.toNanos(200));
+  }
+
+  @Test
+  void testDeadLettersAfterLastAttempt() throws Exception {
+    scheduler = fastScheduler(3).build();
+    scheduler.schedule(
+        payload("w1"),
+        p -> {
+          throw new IllegalStateException("still down");
+        },
+        new IllegalStateException("first"));
+
+    awaitPending(0);
+    List<DeadLetterQueue.DeadLetter> letters = scheduler.getDeadLetters().snapshot();
+    assertEquals(1, letters.size());
+    assertEquals("w1", letters.get(0).getPayload().getWebhookId());
+    assertEquals(3, letters.get(0).getAttempts());
+    assertEquals("still down", letters.get(0).getFailure().getMessage());
+    assertNotNull(letters.get(0).getDeadLetteredAt());
+    assertEquals(2, scheduler.getRetried());
+    assertEquals(1, scheduler.getDeadLettered());
+  }
+
+  @Test
+  void testReplaysDeadLetters() throws Exception {
+    scheduler = fastScheduler(1).build();
+    AtomicInteger healthy = new AtomicInteger();
+    CountDownLatch processed = new CountDownLatch(1);
+    WebhookProcessor processor =
+        p -> {
+          if (healthy.get() == 0) {
+            throw new IllegalStateException("down");
+          }
+          processed.countDown();
+        };
+
+    assertFalse(scheduler.schedule(payload("w1"), processor, new IllegalStateException("down")));
+    assertEquals(1, scheduler.getDeadLetters().size());
+
+    healthy.set(1);
+    assertEquals(1, scheduler.replayDeadLetters());
+    assertTrue(processed.await(5, TimeUnit.SECONDS));
+    assertEquals(0, scheduler.getDeadLetters().size());
+  }
+
+  @Test
+  void testDeadLettersWhenTooManyPending() {
+    scheduler = fastScheduler(5).baseDelay(Duration.ofMinutes(1)).maxPending(2).build();
+    WebhookProcessor processor = p -> {};
+
+    assertTrue(scheduler.schedule(payload("w1"), processor, new IllegalStateException()));
+    assertTrue(scheduler.schedule(payload("w2"), processor, new IllegalStateException()));
+    assertFalse(scheduler.schedule(payload("w3"), processor, new IllegalStateException()));
+
+    assertEquals(2, scheduler.getPending());
+    assertEquals("w3", scheduler.getDeadLetters().snapshot().get(0).getPayload().getWebhookId());
+  }
+
+  @Test
+  void testHandlesManyPendingRetriesAcrossWheelRevolutions() throws Exception {
+    scheduler =
+        WebhookRetryScheduler.builder()
+            .baseDelay(Duration.ofMillis(30))
+            .tickDuration(Duration.ofMillis(1))
+            .wheelSize(8)
+            .workerThreads(4)
+            .build();
+    int retries = 20_000;
+    CountDownLatch done = new CountDownLatch(retries);
+    for (int i = 0; i < retries; i++) {
+      scheduler.schedule(payload("w" + i), p -> done.countDown(), new IllegalStateException());
+    }
+
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    awaitPending(0);
+    assertEquals(retries, scheduler.getSucceeded());
+  }
+
+  @Test
+  void testShutdownDeadLettersWaitingRetries() throws Exception {
+    scheduler = fastScheduler(5).baseDelay(Duration.ofMinutes(1)).build();
+    scheduler.schedule(payload("w1"), p -> {}, new IllegalStateException("first"));
+
+    scheduler.shutdown();
+    assertTrue(scheduler.awaitTermination(Duration.ofSeconds(5)));
+
+    assertEquals(0, scheduler.getPending());
+    assertEquals(1, scheduler.getDeadLetters().size());
+    assertFalse(scheduler.schedule(payload("w2"), p -> {}, new IllegalStateException()));
+    assertEquals(2, scheduler.getDeadLetters().size());
+  }
+
+  @Test
+  void testBuilderValidation() {
+    WebhookRetryScheduler.Builder builder = WebhookRetryScheduler.builder();
+    assertThrows(IllegalArgumentException.class, () -> builder.maxAttempts(0));
+    assertThrows(IllegalArgumentException.class, () -> builder.baseDelay(Duration.ofMillis(-1)));
+    assertThrows(IllegalArgumentException.class, () -> builder.tickDuration(Duration.ZERO));
+    assertThrows(IllegalArgumentException.class, () -> builder.wheelSize(100));
+    assertThrows(IllegalArgumentException.class, () -> builder.maxPending(0));
+    assertThrows(IllegalArgumentException.class, () -> builder.workerThreads(0));
+    assertThrows(IllegalArgumentException.class, () -> builder.deadLetterQueue(null));
+    assertThrows(
+        IllegalStateException.class,
+        () -> builder.baseDelay(Duration.ofMinutes(10)).maxDelay(Duration.ofMinutes(1)).build());
+  }
+
+  private static WebhookRetryScheduler.Builder fastScheduler(int maxAttempts) {
+    return WebhookRetryScheduler.builder()
+        .maxAttempts(maxAttempts)
+        .baseDelay(Duration.ofMillis(10))
+        .tickDuration(Duration.ofMillis(1));
+  }
+
+  private void awaitPending(int expected) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (scheduler.getPending() != expected && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals(expected, scheduler.getPending());
+  }
+
+  private static WebhookPayload payload(String webhookId) {
+    WebhookPayload payload = new WebhookPayload();
+    payload.setEventType(WebhookPayload.EventType.PAYMENT_SUCCESS);
+    payload.setWebhookId(webhookId);
+    return payload;
+  }
+}
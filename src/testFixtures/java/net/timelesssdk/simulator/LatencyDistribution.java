@@ -0,0 +1,65 @@
+package net.timelesssdk.simulator;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/** Source of simulated delays, in milliseconds. Implementations must be thread-safe. */
+@FunctionalInterface
+public interface LatencyDistribution {
+  /** No delay. */
+  LatencyDistribution NONE = () -> 0;
+
+  /**
+   * Draws the next delay.
+   *
+   * @return delay in milliseconds, never negative
+   */
+  long nextMillis();
+
+  /**
+   * Always the same delay.
+   *
+   * @param millis Delay in milliseconds
+   * @return the distribution
+   */
+  static LatencyDistribution fixed(long millis) {
+    requireNonNegative(millis, "millis");
+    return () -> millis;
+  }
+
+  /**
+   * Delays spread evenly between two bounds.
+   *
+   * @param minMillis Shortest delay, inclusive
+   * @param maxMillis Longest delay, inclusive
+   * @return the distribution
+   */
+  static LatencyDistribution uniform(long minMillis, long maxMillis) {
+    requireNonNegative(minMillis, "minMillis");
+    if (maxMillis < minMillis) {
+      throw new IllegalArgumentException("maxMillis must not be less than minMillis");
+    }
+    return () -> ThreadLocalRandom.current().nextLong(minMillis, maxMillis + 1);
+  }
+
+  /**
+   * A fixed floor plus an exponentially distributed tail, the usual shape of service latency.
+   *
+   * @param minMillis Floor added to every delay
+   * @param meanTailMillis Mean of the exponential part
+   * @return the distribution
+   */
+  static LatencyDistribution exponential(long minMillis, long meanTailMillis) {
+    requireNonNegative(minMillis, "minMillis");
+    requireNonNegative(meanTailMillis, "meanTailMillis");
+    return () -> {
+      double u = 1.0 - ThreadLocalRandom.current().nextDouble();
+      return minMillis + Math.round(-Math.log(u) * meanTailMillis);
+    };
+  }
+
+  private static void requireNonNegative(long value, String name) {
+    if (value < 0) {
+      throw new IllegalArgumentException(name + " must not be negative");
+    }
+  }
+}
@@ -0,0 +1,582 @@
+package net.timelesssdk.simulator;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import net.timelesssdk.exception.SignatureException;
+import net.timelesssdk.model.CheckoutSessionResponse;
+import net.timelesssdk.model.CreateCheckoutSessionRequest;
+import net.timelesssdk.model.ErrorResponse;
+import net.timelesssdk.security.SignatureUtil;
+import net.timelesssdk.webhook.WebhookPayload;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Local stand-in for the Payment Gateway Service (PGS), for exercising the client and a webhook
+ * receiver together without network access.
+ *
+ * <p>The simulator serves {@code POST /checkout-sessions/create}: it verifies the {@code
+ * X-Payload-Signature} header against the tenant's public key and answers with a realistic {@link
+ * CheckoutSessionResponse}. For each session created it can later POST a signed {@link
+ * WebhookPayload} to a receiver URL, paced to a configurable delivery rate. Response latency,
+ * server errors, 429 responses and slow bodies can be injected.
+ *
+ * <pre>{@code
+ * try (PgsSimulator pgs = PgsSimulator.builder()
+ *     .tenantPublicKey(keyPair.getPublic())
+ *     .latency(LatencyDistribution.exponential(5, 20))
+ *     .serverErrorRate(0.01)
+ *     .webhookUrl("http://localhost:8080/webhooks")
+ *     .build()) {
+ *   pgs.start();
+ *   TimelessPayClient client = TimelessPayClient.builder().baseUrl(pgs.url())...build();
+ * }
+ * }</pre>
+ */
+public final class PgsSimulator implements AutoCloseable {
+  /** Path of the checkout session endpoint. */
+  public static final String CHECKOUT_SESSIONS_PATH = "/checkout-sessions/create";
+
+  private static final String HEADER_PAYLOAD_SIGNATURE = "X-Payload-Signature";
+  private static final String HEADER_TIMELESS_ID = "X-Timeless-Id";
+  private static final MediaType JSON = MediaType.get("application/json");
+
+  private final PublicKey tenantPublicKey;
+  private final PrivateKey webhookPrivateKey;
+  private final PublicKey webhookPublicKey;
+  private final LatencyDistribution latency;
+  private final double serverErrorRate;
+  private final double rateLimitRate;
+  private final int retryAfterSeconds;
+  private final double slowBodyRate;
+  private final long slowBodyBytesPerSecond;
+  private final String webhookUrl;
+  private final LatencyDistribution webhookDelay;
+  private final long webhookIntervalNanos;
+  private final double paymentSuccessRate;
+
+  private final ObjectMapper objectMapper;
+  private final MockWebServer server = new MockWebServer();
+  private final ScheduledExecutorService webhookScheduler;
+  private final OkHttpClient webhookClient;
+  private final AtomicInteger burstRemaining = new AtomicInteger();
+  private final AtomicInteger burstStatus = new AtomicInteger();
+  private final AtomicLong nextPaymentId = new AtomicLong(1);
+  private long nextWebhookSlotNanos;
+
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder sessionsCreated = new LongAdder();
+  private final LongAdder signatureFailures = new LongAdder();
+  private final LongAdder injectedErrors = new LongAdder();
+  private final LongAdder webhooksDelivered = new LongAdder();
+  private final LongAdder webhooksFailed = new LongAdder();
+
+  private PgsSimulator(Builder builder) {
+    this.tenantPublicKey = builder.tenantPublicKey;
+    KeyPair webhookKeys =
+        builder.webhookKeyPair != null ? builder.webhookKeyPair : generateKeyPair();
+    this.webhookPrivateKey = webhookKeys.getPrivate();
+    this.webhookPublicKey = webhookKeys.getPublic();
+    this.latency = builder.latency;
+    this.serverErrorRate = builder.serverErrorRate;
+    this.rateLimitRate = builder.rateLimitRate;
+    this.retryAfterSeconds = builder.retryAfterSeconds;
+    this.slowBodyRate = builder.slowBodyRate;
+    this.slowBodyBytesPerSecond = builder.slowBodyBytesPerSecond;
+    this.webhookUrl = builder.webhookUrl;
+    this.webhookDelay = builder.webhookDelay;
+    this.webhookIntervalNanos =
+        builder.webhooksPerSecond > 0
+            ? (long) (TimeUnit.SECONDS.toNanos(1) / builder.webhooksPerSecond)
+            : 0;
+    this.paymentSuccessRate = builder.paymentSuccessRate;
+
+    this.objectMapper = new ObjectMapper();
+    this.objectMapper.registerModule(new JavaTimeModule());
+    this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    this.webhookScheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "pgs-simulator-webhooks");
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.webhookClient = new OkHttpClient();
+    server.setDispatcher(new PgsDispatcher());
+  }
+
+  /**
+   * Creates a new builder for PgsSimulator.
+   *
+   * @return this builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Starts the simulator on a free local port.
+   *
+   * @throws IOException if the server cannot be started
+   */
+  public void start() throws IOException {
+    server.start();
+  }
+
+  /**
+   * Gets the base URL to pass to {@code TimelessPayClient.Builder#baseUrl}.
+   *
+   * @return the base URL, without a trailing slash
+   */
+  public String url() {
+    String url = server.url("/").toString();
+    return url.substring(0, url.length() - 1);
+  }
+
+  /**
+   * Gets the key that signs emitted webhooks, for configuring the receiver's {@code
+   * WebhookHandler}.
+   *
+   * @return the PGS webhook public key
+   */
+  public PublicKey getWebhookPublicKey() {
+    return webhookPublicKey;
+  }
+
+  /**
+   * Answers the next requests with a server error, regardless of the configured error rates.
+   *
+   * @param count Number of requests to fail
+   * @param statusCode 5xx status code to answer with
+   */
+  public void failNext(int count, int statusCode) {
+    if (statusCode < 500 || statusCode > 599) {
+      throw new IllegalArgumentException("statusCode must be a 5xx code");
+    }
+    burstStatus.set(statusCode);
+    burstRemaining.set(count);
+  }
+
+  /**
+   * Signs and delivers a webhook to the receiver, paced like the webhooks for created sessions.
+   *
+   * @param payload The webhook event
+   * @throws IllegalStateException if no webhook URL is configured
+   */
+  public void sendWebhook(WebhookPayload payload) {
+    if (webhookUrl == null) {
+      throw new IllegalStateException("webhookUrl is not configured");
+    }
+    long now = System.nanoTime();
+    long due = now + TimeUnit.MILLISECONDS.toNanos(webhookDelay.nextMillis());
+    synchronized (this) {
+      if (webhookIntervalNanos > 0) {
+        due = Math.max(due, nextWebhookSlotNanos);
+        nextWebhookSlotNanos = due + webhookIntervalNanos;
+      }
+    }
+    webhookScheduler.schedule(() -> deliver(payload), due - now, TimeUnit.NANOSECONDS);
+  }
+
+  public long getRequests() {
+    return requests.sum();
+  }
+
+  public long getSessionsCreated() {
+    return sessionsCreated.sum();
+  }
+
+  public long getSignatureFailures() {
+    return signatureFailures.sum();
+  }
+
+  public long getInjectedErrors() {
+    return injectedErrors.sum();
+  }
+
+  public long getWebhooksDelivered() {
+    return webhooksDelivered.sum();
+  }
+
+  public long getWebhooksFailed() {
+    return webhooksFailed.sum();
+  }
+
+  /** Stops the server and drops webhooks that have not been delivered yet. */
+  @Override
+  public void close() throws IOException {
+    webhookScheduler.shutdownNow();
+    webhookClient.dispatcher().executorService().shutdown();
+    webhookClient.connectionPool().evictAll();
+    server.shutdown();
+  }
+
+  private MockResponse handle(RecordedRequest request) {
+    requests.increment();
+    if (!"POST".equals(request.getMethod()) || !CHECKOUT_SESSIONS_PATH.equals(request.getPath())) {
+      return error(404, "Not found");
+    }
+
+    if (burstRemaining.getAndUpdate(n -> Math.max(n - 1, 0)) > 0) {
+      injectedErrors.increment();
+      return error(burstStatus.get(), "Injected server error");
+    }
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    if (random.nextDouble() < serverErrorRate) {
+      injectedErrors.increment();
+      return error(503, "Service unavailable");
+    }
+    if (random.nextDouble() < rateLimitRate) {
+      injectedErrors.increment();
+      return error(429, "Too many requests").setHeader("Retry-After", retryAfterSeconds);
+    }
+
+    String body = request.getBody().readUtf8();
+    String signature = request.getHeader(HEADER_PAYLOAD_SIGNATURE);
+    if (!signatureValid(body, signature)) {
+      signatureFailures.increment();
+      return error(401, "Invalid signature");
+    }
+
+    CreateCheckoutSessionRequest checkout;
+    try {
+      checkout = objectMapper.readValue(body, CreateCheckoutSessionRequest.class);
+    } catch (JsonProcessingException e) {
+      return error(400, "Malformed request body");
+    }
+    CheckoutSessionResponse session = createSession(checkout, request);
+    sessionsCreated.increment();
+    if (webhookUrl != null) {
+      sendWebhook(paymentEvent(session));
+    }
+
+    MockResponse response = json(200, session);
+    if (random.nextDouble() < slowBodyRate) {
+      injectedErrors.increment();
+      // Trickle the body out in ten chunks per second
+      response.throttleBody(Math.max(slowBodyBytesPerSecond / 10, 1), 100, TimeUnit.MILLISECONDS);
+    }
+    return response;
+  }
+
+  private boolean signatureValid(String body, String signature) {
+    if (signature == null || signature.isEmpty()) {
+      return false;
+    }
+    try {
+      return SignatureUtil.verify(body, signature, tenantPublicKey);
+    } catch (SignatureException e) {
+      return false;
+    }
+  }
+
+  private CheckoutSessionResponse createSession(
+      CreateCheckoutSessionRequest checkout, RecordedRequest request) {
+    LocalDateTime now = LocalDateTime.now();
+    CheckoutSessionResponse session = new CheckoutSessionResponse();
+    session.setId(UUID.randomUUID().toString());
+    session.setCustomerName(checkout.getCustomerName());
+    session.setCustomerPhoneNumber(checkout.getCustomerPhoneNumber());
+    session.setNonce(checkout.getNonce());
+    session.setApiKeyId(parseApiKeyId(request.getHeader(HEADER_TIMELESS_ID)));
+    session.setPublicKey(Base64.getEncoder().encodeToString(webhookPublicKey.getEncoded()));
+    session.setItems(checkout.getItems());
+    session.setTotalAmount(checkout.getTotalAmount());
+    session.setTotalQuantity(checkout.getTotalQuantity());
+    session.setSessionExpiresAt(
+        checkout.getSessionExpiresAt() != null ? checkout.getSessionExpiresAt() : now.plusHours(1));
+    session.setCurrency(checkout.getCurrency());
+    session.setReturnUrl(checkout.getReturnUrl());
+    session.setCreatedAt(now);
+    session.setUpdatedAt(now);
+    return session;
+  }
+
+  private WebhookPayload paymentEvent(CheckoutSessionResponse session) {
+    boolean success = ThreadLocalRandom.current().nextDouble() < paymentSuccessRate;
+    WebhookPayload payload = new WebhookPayload();
+    payload.setEventType(
+        success
+            ? WebhookPayload.EventType.PAYMENT_SUCCESS
+            : WebhookPayload.EventType.PAYMENT_FAILED);
+    payload.setWebhookId(UUID.randomUUID().toString());
+    payload.setTimestamp(LocalDateTime.now());
+    payload.setSessionId(session.getId());
+    payload.setPaymentId(nextPaymentId.getAndIncrement());
+    payload.setStatus(success ? "success" : "failed");
+    payload.setAmount(session.getTotalAmount());
+    payload.setCurrency(session.getCurrency());
+    payload.setCustomerName(session.getCustomerName());
+    payload.setCustomerPhone(session.getCustomerPhoneNumber());
+    return payload;
+  }
+
+  private void deliver(WebhookPayload payload) {
+    Request request;
+    try {
+      String json = objectMapper.writeValueAsString(payload);
+      request =
+          new Request.Builder()
+              .url(webhookUrl)
+              .header(HEADER_PAYLOAD_SIGNATURE, SignatureUtil.sign(json, webhookPrivateKey))
+              .post(RequestBody.create(json, JSON))
+              .build();
+    } catch (JsonProcessingException | SignatureException e) {
+      webhooksFailed.increment();
+      return;
+    }
+    webhookClient
+        .newCall(request)
+        .enqueue(
+            new Callback() {
+              @Override
+              public void onFailure(Call call, IOException e) {
+                webhooksFailed.increment();
+              }
+
+              @Override
+              public void onResponse(Call call, Response response) {
+                try (response) {
+                  (response.isSuccessful() ? webhooksDelivered : webhooksFailed).increment();
+                }
+              }
+            });
+  }
+
+  private MockResponse error(int status, String message) {
+    ErrorResponse body = new ErrorResponse();
+    body.setMessage(message);
+    body.setStatus("ERROR");
+    return json(status, body);
+  }
+
+  private MockResponse json(int status, Object body) {
+    String json;
+    try {
+      json = objectMapper.writeValueAsString(body);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+    return new MockResponse()
+        .setResponseCode(status)
+        .setHeader("Content-Type", "application/json")
+        .setBody(json)
+        .setHeadersDelay(latency.nextMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  private static Long parseApiKeyId(String header) {
+    try {
+      return header != null ? Long.valueOf(header) : null;
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static KeyPair generateKeyPair() {
+    try {
+      KeyPairGenerator keyGen = KeyPairGenerator.getInstance("EC");
+      keyGen.initialize(new ECGenParameterSpec("secp384r1"));
+      return keyGen.generateKeyPair();
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Failed to generate webhook key pair", e);
+    }
+  }
+
+  private final class PgsDispatcher extends Dispatcher {
+    @Override
+    public MockResponse dispatch(RecordedRequest request) {
+      return handle(request);
+    }
+  }
+
+  /** Builder for PgsSimulator. */
+  public static final class Builder {
+    private PublicKey tenantPublicKey;
+    private KeyPair webhookKeyPair;
+    private LatencyDistribution latency = LatencyDistribution.NONE;
+    private double serverErrorRate;
+    private double rateLimitRate;
+    private int retryAfterSeconds = 1;
+    private double slowBodyRate;
+    private long slowBodyBytesPerSecond = 1024;
+    private String webhookUrl;
+    private LatencyDistribution webhookDelay = LatencyDistribution.NONE;
+    private double webhooksPerSecond;
+    private double paymentSuccessRate = 1.0;
+
+    private Builder() {}
+
+    /**
+     * Sets the tenant public key that request signatures are verified against (required).
+     *
+     * @param tenantPublicKey Public half of the client's signing key
+     * @return this builder
+     */
+    public Builder tenantPublicKey(PublicKey tenantPublicKey) {
+      this.tenantPublicKey = tenantPublicKey;
+      return this;
+    }
+
+    /**
+     * Sets the key pair used to sign webhooks. A fresh key pair is generated by default.
+     *
+     * @param webhookKeyPair PGS webhook key pair
+     * @return this builder
+     */
+    public Builder webhookKeyPair(KeyPair webhookKeyPair) {
+      this.webhookKeyPair = webhookKeyPair;
+      return this;
+    }
+
+    /**
+     * Sets the delay before each response's headers are sent. Defaults to no delay.
+     *
+     * @param latency Response latency distribution
+     * @return this builder
+     */
+    public Builder latency(LatencyDistribution latency) {
+      this.latency = latency;
+      return this;
+    }
+
+    /**
+     * Sets the fraction of requests answered with 503. Defaults to 0.
+     *
+     * @param serverErrorRate Probability between 0 and 1
+     * @return this builder
+     */
+    public Builder serverErrorRate(double serverErrorRate) {
+      this.serverErrorRate = requireProbability(serverErrorRate, "serverErrorRate");
+      return this;
+    }
+
+    /**
+     * Sets the fraction of requests answered with 429 and a Retry-After header. Defaults to 0.
+     *
+     * @param rateLimitRate Probability between 0 and 1
+     * @param retryAfterSeconds Value of the Retry-After header
+     * @return this builder
+     */
+    public Builder rateLimitRate(double rateLimitRate, int retryAfterSeconds) {
+      if (retryAfterSeconds < 0) {
+        throw new IllegalArgumentException("retryAfterSeconds must not be negative");
+      }
+      this.rateLimitRate = requireProbability(rateLimitRate, "rateLimitRate");
+      this.retryAfterSeconds = retryAfterSeconds;
+      return this;
+    }
+
+    /**
+     * Sets the fraction of successful responses whose body is trickled out slowly. Defaults to 0.
+     *
+     * @param slowBodyRate Probability between 0 and 1
+     * @param bytesPerSecond Body transfer rate of slow responses
+     * @return this builder
+     */
+    public Builder slowBodyRate(double slowBodyRate, long bytesPerSecond) {
+      if (bytesPerSecond <= 0) {
+        throw new IllegalArgumentException("bytesPerSecond must be positive");
+      }
+      this.slowBodyRate = requireProbability(slowBodyRate, "slowBodyRate");
+      this.slowBodyBytesPerSecond = bytesPerSecond;
+      return this;
+    }
+
+    /**
+     * Sets the receiver that webhooks are POSTed to. Without it no webhooks are sent.
+     *
+     * @param webhookUrl Webhook receiver URL
+     * @return this builder
+     */
+    public Builder webhookUrl(String webhookUrl) {
+      this.webhookUrl = webhookUrl;
+      return this;
+    }
+
+    /**
+     * Sets how long after a session is created its webhook is sent. Defaults to no delay.
+     *
+     * @param webhookDelay Webhook delay distribution
+     * @return this builder
+     */
+    public Builder webhookDelay(LatencyDistribution webhookDelay) {
+      this.webhookDelay = webhookDelay;
+      return this;
+    }
+
+    /**
+     * Caps the webhook delivery rate; webhooks beyond it are queued. Defaults to unlimited.
+     *
+     * @param webhooksPerSecond Maximum deliveries per second, or 0 for unlimited
+     * @return this builder
+     */
+    public Builder webhooksPerSecond(double webhooksPerSecond) {
+      if (webhooksPerSecond < 0) {
+        throw new IllegalArgumentException("webhooksPerSecond must not be negative");
+      }
+      this.webhooksPerSecond = webhooksPerSecond;
+      return this;
+    }
+
+    /**
+     * Sets the fraction of webhooks reporting a successful payment; the rest report a failed one.
+     * Defaults to 1.
+     *
+     * @param paymentSuccessRate Probability between 0 and 1
+     * @return this builder
+     */
+    public Builder paymentSuccessRate(double paymentSuccessRate) {
+      this.paymentSuccessRate = requireProbability(paymentSuccessRate, "paymentSuccessRate");
+      return this;
+    }
+
+    /**
+     * Builds the PgsSimulator. Call {@link PgsSimulator#start()} before use.
+     *
+     * @return PgsSimulator instance
+     * @throws IllegalArgumentException if the tenant public key is missing
+     */
+    public PgsSimulator build() {
+      if (tenantPublicKey == null) {
+        throw new IllegalArgumentException("tenantPublicKey is required");
+      }
+      return new PgsSimulator(this);
+    }
+
+    private static double requireProbability(double value, String name) {
+      if (!(value >= 0 && value <= 1)) {
+        throw new IllegalArgumentException(name + " must be between 0 and 1");
+      }
+      return value;
+    }
+  }
+}